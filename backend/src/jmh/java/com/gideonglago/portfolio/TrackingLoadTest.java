@@ -0,0 +1,182 @@
+package com.gideonglago.portfolio;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Locale;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+// Closed-loop HTTP load against a running backend, for comparing the platform-thread and virtual-thread
+// modes: each of --concurrency clients sends a request, waits for the response and sends the next one.
+// Requests are non-blocking on the client side, so thousands of clients need only a few threads here.
+// A client that gets a 503 waits for its Retry-After before the next request, as a browser would back
+// off, instead of hammering an overloaded server.
+//
+//   ./mvnw -Pjmh test-compile exec:exec -Djmh.main=com.gideonglago.portfolio.TrackingLoadTest \
+//       -Djmh.args="--url http://localhost:8080 --concurrency 2000 --seconds 30"
+//
+// --endpoint pageview (default), click or stats; --visitors sets how many distinct client IPs are
+// sent in X-Forwarded-For, which decides how often the returning-visitor check reaches the database.
+public class TrackingLoadTest {
+
+    // Latency histogram in 100 µs buckets; anything slower than a minute lands in the last bucket
+    private static final long BUCKET_NANOS = 100_000;
+    private static final int BUCKETS = 600_000;
+
+    private final HttpClient client;
+    private final URI uri;
+    private final String endpoint;
+    private final int visitors;
+    private final Duration requestTimeout;
+    private final AtomicLongArray latencies = new AtomicLongArray(BUCKETS);
+    private final AtomicLong ok = new AtomicLong();
+    private final AtomicLong unavailable = new AtomicLong();
+    private final AtomicLong otherStatus = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private volatile boolean recording;
+    private volatile boolean running = true;
+
+    TrackingLoadTest(String baseUrl, String endpoint, int visitors, Duration requestTimeout) {
+        this.client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(10))
+            .build();
+        this.endpoint = endpoint;
+        this.visitors = visitors;
+        this.requestTimeout = requestTimeout;
+        this.uri = URI.create(baseUrl + switch (endpoint) {
+            case "pageview" -> "/api/analytics/track/pageview";
+            case "click" -> "/api/analytics/track/click";
+            case "stats" -> "/api/analytics/ingestion";
+            default -> throw new IllegalArgumentException("Unknown endpoint " + endpoint);
+        });
+    }
+
+    public static void main(String[] args) throws InterruptedException {
+        String url = "http://localhost:8080";
+        String endpoint = "pageview";
+        int concurrency = 1000;
+        int seconds = 30;
+        int warmupSeconds = 5;
+        int visitors = 10_000;
+        int timeoutSeconds = 30;
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            String value = args[i + 1];
+            switch (args[i]) {
+                case "--url" -> url = value;
+                case "--endpoint" -> endpoint = value;
+                case "--concurrency" -> concurrency = Integer.parseInt(value);
+                case "--seconds" -> seconds = Integer.parseInt(value);
+                case "--warmup" -> warmupSeconds = Integer.parseInt(value);
+                case "--visitors" -> visitors = Integer.parseInt(value);
+                case "--timeout" -> timeoutSeconds = Integer.parseInt(value);
+                default -> throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        TrackingLoadTest test = new TrackingLoadTest(url, endpoint, Math.max(1, visitors), Duration.ofSeconds(timeoutSeconds));
+        System.out.printf("%s: %d clients, %ds warmup, %ds measured%n", test.uri, concurrency, warmupSeconds, seconds);
+        test.run(concurrency, warmupSeconds, seconds);
+    }
+
+    void run(int concurrency, int warmupSeconds, int seconds) throws InterruptedException {
+        CountDownLatch finished = new CountDownLatch(concurrency);
+        for (int i = 0; i < concurrency; i++) {
+            next(finished);
+        }
+
+        Thread.sleep(warmupSeconds * 1000L);
+        recording = true;
+        long start = System.nanoTime();
+        Thread.sleep(seconds * 1000L);
+        recording = false;
+        double elapsed = (System.nanoTime() - start) / 1e9;
+        running = false;
+        finished.await();
+
+        long completed = ok.get() + unavailable.get() + otherStatus.get() + failures.get();
+        System.out.printf(Locale.ROOT, "requests %d, %.0f req/s (%.0f ok/s)%n", completed, completed / elapsed, ok.get() / elapsed);
+        System.out.printf(Locale.ROOT, "2xx %d, 503 %d, other status %d, failed %d%n",
+            ok.get(), unavailable.get(), otherStatus.get(), failures.get());
+        System.out.printf(Locale.ROOT, "latency ms: p50 %.1f, p90 %.1f, p99 %.1f, p99.9 %.1f, max %.1f%n",
+            percentile(0.50), percentile(0.90), percentile(0.99), percentile(0.999), percentile(1.0));
+    }
+
+    // Sends one request and chains the next from its completion until the run is over
+    private void next(CountDownLatch finished) {
+        if (!running) {
+            finished.countDown();
+            return;
+        }
+        long sent = System.nanoTime();
+        client.sendAsync(request(), HttpResponse.BodyHandlers.discarding()).whenComplete((response, error) -> {
+            if (recording) {
+                record(System.nanoTime() - sent, response, error);
+            }
+            long backoff = response != null && response.statusCode() == 503
+                ? response.headers().firstValueAsLong("Retry-After").orElse(1) : 0;
+            if (backoff > 0) {
+                CompletableFuture.delayedExecutor(backoff, TimeUnit.SECONDS).execute(() -> next(finished));
+            } else {
+                next(finished);
+            }
+        });
+    }
+
+    private HttpRequest request() {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        int visitor = random.nextInt(visitors);
+        HttpRequest.Builder builder = HttpRequest.newBuilder(uri)
+            .timeout(requestTimeout)
+            .header("X-Forwarded-For", "10." + (visitor >>> 16 & 0xff) + "." + (visitor >>> 8 & 0xff) + "." + (visitor & 0xff))
+            .header("User-Agent", "Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0");
+        String session = "load-" + visitor;
+        String page = "/projects/" + random.nextInt(20);
+        return switch (endpoint) {
+            case "pageview" -> builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"page\":\"" + page + "\",\"sessionId\":\"" + session + "\"}"))
+                .build();
+            case "click" -> builder.header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"sessionId\":\"" + session + "\",\"page\":\"" + page
+                    + "\",\"elementType\":\"link\",\"elementText\":\"View project\",\"x\":" + random.nextInt(1280)
+                    + ",\"y\":" + random.nextInt(2000) + "}"))
+                .build();
+            default -> builder.GET().build();
+        };
+    }
+
+    private void record(long nanos, HttpResponse<?> response, Throwable error) {
+        latencies.incrementAndGet((int) Math.min(BUCKETS - 1, nanos / BUCKET_NANOS));
+        if (error != null) {
+            failures.incrementAndGet();
+        } else if (response.statusCode() / 100 == 2) {
+            ok.incrementAndGet();
+        } else if (response.statusCode() == 503) {
+            unavailable.incrementAndGet();
+        } else {
+            otherStatus.incrementAndGet();
+        }
+    }
+
+    // Upper bound of the bucket holding the given quantile, in milliseconds
+    private double percentile(double quantile) {
+        long total = 0;
+        for (int i = 0; i < BUCKETS; i++) total += latencies.get(i);
+        if (total == 0) return 0;
+
+        long rank = (long) Math.ceil(quantile * total);
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += latencies.get(i);
+            if (seen >= rank) return (i + 1) * BUCKET_NANOS / 1e6;
+        }
+        return BUCKETS * BUCKET_NANOS / 1e6;
+    }
+}
@@ -0,0 +1,88 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
+
+// Scans of the columnar store over a month of page views: a two-dimension breakdown with a filter,
+// and the hourly trend the week dashboard draws.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ColumnarBenchmark {
+
+    private static final String[] DEVICES = { "desktop", "mobile", "tablet" };
+    private static final String[] BROWSERS = { "Chrome", "Firefox", "Safari", "Edge", "Opera" };
+    private static final String[] COUNTRIES = { "GH", "NG", "US", "GB", "DE", "FR", "CA", null };
+
+    @Param({"100000", "1000000"})
+    public int rows;
+
+    private ColumnarEventStore store;
+    private LocalDateTime now;
+    private DrillDownQuery breakdown;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        store = new ColumnarEventStore(null, 35, rows);
+        now = LocalDateTime.of(2024, 6, 30, 12, 0);
+        LocalDateTime start = now.minusDays(30);
+        long step = 30L * 86_400 * 1_000_000 / rows;
+        Random random = new Random(42);
+
+        List<PageView> batch = new ArrayList<>(1000);
+        for (int i = 0; i < rows; i++) {
+            PageView pv = new PageView();
+            pv.setTimestamp(start.plusNanos(i * step * 1000));
+            pv.setPage("/projects/" + random.nextInt(40));
+            pv.setReferrer(random.nextInt(4) == 0 ? "https://www.google.com/search?q=" + random.nextInt(500) : null);
+            pv.setDevice(DEVICES[random.nextInt(DEVICES.length)]);
+            pv.setBrowser(BROWSERS[random.nextInt(BROWSERS.length)]);
+            pv.setOs("Linux");
+            pv.setCountry(COUNTRIES[random.nextInt(COUNTRIES.length)]);
+            batch.add(pv);
+            if (batch.size() == 1000) {
+                store.onPageViews(batch);
+                batch.clear();
+            }
+        }
+        store.onPageViews(batch);
+
+        breakdown = new DrillDownQuery(Source.PAGE_VIEWS, now.minusDays(7), now,
+            Map.of(Dimension.COUNTRY, Set.of("GH", "NG")), List.of(Dimension.DEVICE, Dimension.BROWSER), null, 100);
+    }
+
+    @Benchmark
+    public DrillDownResult breakdown() {
+        return store.query(breakdown);
+    }
+
+    @Benchmark
+    public List<Object[]> weekTrend() {
+        return store.countByBucket(Source.PAGE_VIEWS, TrendGranularity.HOUR, now.minusWeeks(1), now);
+    }
+}
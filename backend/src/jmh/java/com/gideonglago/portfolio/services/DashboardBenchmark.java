@@ -0,0 +1,81 @@
+package com.gideonglago.portfolio.services;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+
+// Java-side work of a dashboard response: zero-filling the bucketed trend rows returned by
+// countPageViewsByBucket and converting (label, count) rows into the JSON-facing maps.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DashboardBenchmark {
+
+    @Param({"day", "week", "month", "year"})
+    public String period;
+
+    private AnalyticsService analyticsService;
+    private TrendGranularity granularity;
+    private LocalDateTime since;
+    private LocalDateTime until;
+    private List<Object[]> trendRows;
+    private List<Object[]> labelRows;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        analyticsService = new AnalyticsService(null, null, null, null, null, null, null, null, null, new DashboardCache(AnalyticsThreads.platform(), false, 0, 0), null, null, null, 0);
+        granularity = TrendGranularity.forPeriod(period);
+        until = LocalDateTime.of(2024, 6, 30, 12, 0);
+        since = switch (period) {
+            case "day" -> until.minusDays(1);
+            case "month" -> until.minusMonths(1);
+            case "year" -> until.minusYears(1);
+            default -> until.minusWeeks(1);
+        };
+
+        // Every other bucket has data, as a sparse GROUP BY result would
+        trendRows = new ArrayList<>();
+        int i = 0;
+        for (LocalDateTime bucket = granularity.truncate(since); !bucket.isAfter(until); bucket = granularity.next(bucket)) {
+            if (i++ % 2 == 0) {
+                trendRows.add(new Object[] { Timestamp.valueOf(bucket), (long) i });
+            }
+        }
+
+        labelRows = new ArrayList<>();
+        for (int page = 0; page < 50; page++) {
+            labelRows.add(new Object[] { "/projects/" + page, (long) (1000 - page) });
+        }
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> pageViewTrend() {
+        return granularity.zeroFill(trendRows, since, until);
+    }
+
+    @Benchmark
+    public List<Map<String, Object>> convertToMap() {
+        return analyticsService.convertToMap(labelRows);
+    }
+}
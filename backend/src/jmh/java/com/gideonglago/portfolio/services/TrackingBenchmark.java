@@ -0,0 +1,162 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DataSourceTransactionManager;
+import org.springframework.jdbc.datasource.SingleConnectionDataSource;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.dto.ClickRequest;
+import com.gideonglago.portfolio.dto.PageViewRequest;
+import com.gideonglago.portfolio.repositories.AnalyticsEventBatchRepository;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository;
+
+// Tracking path: request body binding, user agent classification (uncached parse and cached lookup), geo lookup, client IP
+// extraction and a full trackPageView call that writes through the ingestion pipeline into an in-memory H2 database.
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrackingBenchmark {
+
+    private static final String[] USER_AGENTS = {
+        "Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36",
+        "Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1",
+        "Mozilla/5.0 (Macintosh; Intel Mac OS X 14_4) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Safari/605.1.15",
+        "Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0",
+        "Mozilla/5.0 (Linux; Android 14; Pixel 8) AppleWebKit/537.36 (KHTML, like Gecko) Chrome/124.0.0.0 Mobile Safari/537.36",
+        "Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 (KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1"
+    };
+
+    private static final byte[] CLICK_BODY = ("{\"sessionId\":\"k3j2h1g0f9e8\",\"page\":\"/projects\",\"elementType\":\"link\","
+        + "\"elementId\":\"project-7\",\"elementText\":\"View on GitHub\",\"targetUrl\":\"https://github.com/example/repo\","
+        + "\"x\":412,\"y\":388}").getBytes(StandardCharsets.UTF_8);
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private SingleConnectionDataSource dataSource;
+    private AnalyticsService analyticsService;
+    private UserAgentClassifier userAgentClassifier;
+    private GeoIpResolver geoIpResolver;
+    private MockHttpServletRequest[] requests;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        dataSource = new SingleConnectionDataSource("jdbc:h2:mem:tracking;MODE=PostgreSQL", "sa", "", true);
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("CREATE TABLE page_view (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, page VARCHAR(255), referrer VARCHAR(255), "
+            + "user_agent VARCHAR(512), ip_address VARCHAR(64), session_id VARCHAR(255), timestamp TIMESTAMP, duration BIGINT, "
+            + "device VARCHAR(32), browser VARCHAR(32), os VARCHAR(32), country VARCHAR(64), city VARCHAR(64))");
+        jdbcTemplate.execute("CREATE TABLE click_event (id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY, session_id VARCHAR(255), page VARCHAR(255), "
+            + "element_type VARCHAR(64), element_id VARCHAR(255), element_text VARCHAR(255), target_url VARCHAR(512), "
+            + "x_position INT, y_position INT, document_width INT, document_height INT, timestamp TIMESTAMP, user_agent VARCHAR(512), ip_address VARCHAR(64))");
+
+        // Synchronous ingestion so every call pays for its own insert; rollup deltas and sketches stay in memory
+        AnalyticsRollupService rollupService = new AnalyticsRollupService(new AnalyticsRollupRepository(jdbcTemplate, new DataSourceTransactionManager(dataSource)), 1_800_000);
+        UniqueVisitorService uniqueVisitorService = new UniqueVisitorService(new VisitorSketchRepository(jdbcTemplate));
+        AnalyticsIngestionService ingestionService = new AnalyticsIngestionService(
+            new AnalyticsEventBatchRepository(jdbcTemplate), List.of(rollupService, uniqueVisitorService),
+            new AnalyticsEventLog("", 0, 0), false, 1, 1, 0, 0, 0);
+        userAgentClassifier = new UserAgentClassifier(1024);
+        geoIpResolver = new GeoIpResolver(geoTable().toString());
+        geoIpResolver.load();
+        analyticsService = new AnalyticsService(null, null, null, ingestionService, rollupService, null,
+            userAgentClassifier, geoIpResolver, uniqueVisitorService, new DashboardCache(AnalyticsThreads.platform(), false, 0, 0), null, null, null, 0);
+
+        requests = new MockHttpServletRequest[USER_AGENTS.length * 4];
+        for (int i = 0; i < requests.length; i++) {
+            MockHttpServletRequest request = new MockHttpServletRequest("POST", "/api/analytics/track/pageview");
+            request.addHeader("User-Agent", USER_AGENTS[i % USER_AGENTS.length]);
+            request.addHeader("Referer", "https://www.google.com/");
+            if (i % 2 == 0) {
+                request.addHeader("X-Forwarded-For", "203.0.113." + i + ", 10.0.0.1");
+            }
+            request.setRemoteAddr("198.51.100." + i);
+            requests[i] = request;
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        dataSource.destroy();
+    }
+
+    // 100k adjacent /24 ranges over 300 locations, roughly the size of a country/city table
+    private static Path geoTable() {
+        try {
+            Path csv = Files.createTempFile("geo-benchmark", ".csv");
+            StringBuilder rows = new StringBuilder();
+            for (int i = 0; i < 100_000; i++) {
+                String prefix = ((i >> 16) + 1) + "." + ((i >> 8) & 0xFF) + "." + (i & 0xFF) + ".";
+                rows.append(prefix).append("0,").append(prefix).append("255,Country ").append(i % 50)
+                    .append(",City ").append(i % 300).append('\n');
+            }
+            Files.writeString(csv, rows);
+            Path table = Files.createTempFile("geo-benchmark", ".bin");
+            GeoIpTableBuilder.build(csv, table);
+            Files.delete(csv);
+            table.toFile().deleteOnExit();
+            return table;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Benchmark
+    public UserAgentInfo parseUserAgent() {
+        return UserAgentClassifier.parse(USER_AGENTS[next++ % USER_AGENTS.length]);
+    }
+
+    @Benchmark
+    public UserAgentInfo classifyUserAgentCached() {
+        return userAgentClassifier.classify(USER_AGENTS[next++ % USER_AGENTS.length]);
+    }
+
+    @Benchmark
+    public String getClientIpAddress() {
+        return analyticsService.getClientIpAddress(requests[next++ % requests.length]);
+    }
+
+    @Benchmark
+    public GeoLocation resolveGeo() {
+        int i = next++;
+        return geoIpResolver.resolve((1 + (i % 2)) + "." + (i & 0xFF) + "." + ((i >> 8) & 0xFF) + ".42");
+    }
+
+    @Benchmark
+    public boolean trackPageView() {
+        int i = next++;
+        return analyticsService.trackPageView(new PageViewRequest("/projects/" + (i % 20), "session-" + (i % 500), null),
+            requests[i % requests.length]);
+    }
+
+    // Request body binding as done by the click endpoint, to compare allocation per request with -prof gc
+    @Benchmark
+    public ClickRequest bindClickRequest() throws IOException {
+        return objectMapper.readValue(CLICK_BODY, ClickRequest.class);
+    }
+}
@@ -0,0 +1,38 @@
+package com.gideonglago.portfolio.config;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.Environment;
+
+@Configuration
+public class AnalyticsExecutorConfig {
+
+    @Bean
+    public AnalyticsThreads analyticsThreads(Environment environment) {
+        return new AnalyticsThreads(Threading.VIRTUAL.isActive(environment));
+    }
+
+    // Runs the independent dashboard queries concurrently. Each task holds a connection, so the pool
+    // is sized below the Hikari pool to leave connections for ingestion and session checkpoints. The
+    // pool stays bounded with virtual threads too, since the connection pool is the real limit.
+    @Bean(name = "dashboardQueryExecutor", destroyMethod = "shutdownNow")
+    public ThreadPoolExecutor dashboardQueryExecutor(
+            AnalyticsThreads analyticsThreads,
+            @Value("${analytics.dashboard.query-threads:0}") int configuredThreads,
+            @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize) {
+        int threads = configuredThreads > 0 ? configuredThreads : Math.max(1, connectionPoolSize - 2);
+        ThreadPoolExecutor executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+            new ArrayBlockingQueue<>(threads * 4), analyticsThreads.factory("dashboard-query"),
+            // When saturated a metric group is reported partial; running it on the request thread would
+            // hold a connection past the request's deadline
+            new ThreadPoolExecutor.AbortPolicy());
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+}
@@ -0,0 +1,39 @@
+package com.gideonglago.portfolio.config;
+
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+
+// Creates the threads behind the analytics background work (dashboard queries and refreshes, SSE senders).
+// With spring.threads.virtual.enabled on Java 21+ they are virtual threads, like the request and scheduler
+// threads Spring Boot creates; otherwise they are daemon platform threads.
+public class AnalyticsThreads {
+
+    private final boolean virtual;
+
+    public AnalyticsThreads(boolean virtual) {
+        this.virtual = virtual;
+    }
+
+    public static AnalyticsThreads platform() {
+        return new AnalyticsThreads(false);
+    }
+
+    public boolean isVirtual() {
+        return virtual;
+    }
+
+    // Threads are named name-1, name-2, ...
+    public ThreadFactory factory(String name) {
+        if (virtual) {
+            return new VirtualThreadTaskExecutor(name + "-").getVirtualThreadFactory();
+        }
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
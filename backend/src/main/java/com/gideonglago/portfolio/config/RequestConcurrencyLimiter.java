@@ -0,0 +1,66 @@
+package com.gideonglago.portfolio.config;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.servlet.HandlerInterceptor;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Caps how many API requests are handled at once when Tomcat no longer does it with its thread pool.
+// Admission happens before the body is read or bound, so a rejected request costs next to nothing;
+// waiting requests are parked virtual threads, and one that waits longer than wait-ms gets a 503.
+public class RequestConcurrencyLimiter implements HandlerInterceptor {
+
+    private static final byte[] BUSY_BODY = "{\"error\":\"Server is busy\"}".getBytes(StandardCharsets.UTF_8);
+    private static final String PERMIT_ATTRIBUTE = RequestConcurrencyLimiter.class.getName() + ".permit";
+
+    private final Semaphore permits;
+    private final long waitMillis;
+    private final AtomicLong rejected = new AtomicLong();
+
+    public RequestConcurrencyLimiter(int permits, long waitMillis) {
+        this.permits = new Semaphore(permits, true);
+        this.waitMillis = waitMillis;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) throws Exception {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (acquired) {
+            request.setAttribute(PERMIT_ATTRIBUTE, Boolean.TRUE);
+            return true;
+        }
+
+        rejected.incrementAndGet();
+        response.setStatus(HttpStatus.SERVICE_UNAVAILABLE.value());
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(BUSY_BODY);
+        return false;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+}
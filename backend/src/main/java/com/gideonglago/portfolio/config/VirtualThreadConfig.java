@@ -0,0 +1,34 @@
+package com.gideonglago.portfolio.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnThreading;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+// Only active with spring.threads.virtual.enabled on Java 21+. Tomcat then runs every request on its own
+// virtual thread instead of a pool of max-threads, so nothing upstream bounds how many requests reach
+// the connection pool at once. The limiter puts that bound back: with open-in-view off a request holds
+// at most one connection at a time, so pool size - 2 permits leave connections for the background work.
+@Configuration
+@ConditionalOnThreading(Threading.VIRTUAL)
+public class VirtualThreadConfig implements WebMvcConfigurer {
+
+    private final RequestConcurrencyLimiter limiter;
+
+    public VirtualThreadConfig(@Value("${analytics.virtual-threads.max-concurrent-requests:0}") int configuredPermits,
+                               @Value("${spring.datasource.hikari.maximum-pool-size:10}") int connectionPoolSize,
+                               @Value("${analytics.virtual-threads.wait-ms:2000}") long waitMillis) {
+        int permits = configuredPermits > 0 ? configuredPermits : Math.max(1, connectionPoolSize - 2);
+        this.limiter = new RequestConcurrencyLimiter(permits, waitMillis);
+    }
+
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        // The SSE stream holds its request open for as long as the dashboard is connected
+        registry.addInterceptor(limiter)
+            .addPathPatterns("/api/**")
+            .excludePathPatterns("/api/analytics/stream");
+    }
+}
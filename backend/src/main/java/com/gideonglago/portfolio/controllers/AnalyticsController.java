@@ -1,69 +1,155 @@
 package com.gideonglago.portfolio.controllers;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.RejectedExecutionException;
 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.transaction.CannotCreateTransactionException;
+import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.core.JsonStreamContext;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DatabindException;
+import com.fasterxml.jackson.databind.JsonMappingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.exc.InvalidTypeIdException;
+import com.gideonglago.portfolio.dto.BatchResult;
+import com.gideonglago.portfolio.dto.ClickRequest;
+import com.gideonglago.portfolio.dto.DrillDownRequest;
+import com.gideonglago.portfolio.dto.PageViewRequest;
+import com.gideonglago.portfolio.dto.TrackingEvent;
+import com.gideonglago.portfolio.services.AnalyticsIngestionService;
 import com.gideonglago.portfolio.services.AnalyticsService;
+import com.gideonglago.portfolio.services.ClickHeatmapService;
+import com.gideonglago.portfolio.services.DashboardCache;
+import com.gideonglago.portfolio.services.DrillDownQuery;
+import com.gideonglago.portfolio.services.DrillDownService;
+import com.gideonglago.portfolio.services.LiveEventStream;
+import com.gideonglago.portfolio.services.RetentionService;
+import com.gideonglago.portfolio.services.SessionPathService;
 
 import jakarta.servlet.http.HttpServletRequest;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 
 @RestController
 @RequestMapping("/api/analytics")
 @CrossOrigin(origins = "*")
 public class AnalyticsController {
 
+    // Tracking acknowledgements are the same on every request, so their JSON is written once
+    private static final byte[] ACCEPTED_BODY = "{\"status\":\"accepted\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] SUCCESS_BODY = "{\"status\":\"success\"}".getBytes(StandardCharsets.UTF_8);
+    private static final byte[] BUFFER_FULL_BODY = "{\"error\":\"Analytics buffer is full\"}".getBytes(StandardCharsets.UTF_8);
+
     private final AnalyticsService analyticsService;
+    private final AnalyticsIngestionService ingestionService;
+    private final DrillDownService drillDownService;
+    private final ClickHeatmapService clickHeatmapService;
+    private final SessionPathService sessionPathService;
+    private final RetentionService retentionService;
+    private final LiveEventStream liveEventStream;
+    private final ObjectReader batchEventReader;
+    private final Validator validator;
+    private final int maxBatchEvents;
 
-    public AnalyticsController(AnalyticsService analyticsService) {
+    public AnalyticsController(AnalyticsService analyticsService, AnalyticsIngestionService ingestionService,
+                               DrillDownService drillDownService, ClickHeatmapService clickHeatmapService,
+                               SessionPathService sessionPathService, RetentionService retentionService, LiveEventStream liveEventStream, ObjectMapper objectMapper, Validator validator,
+                               @Value("${analytics.ingestion.max-batch-events:500}") int maxBatchEvents) {
         this.analyticsService = analyticsService;
+        this.ingestionService = ingestionService;
+        this.drillDownService = drillDownService;
+        this.clickHeatmapService = clickHeatmapService;
+        this.sessionPathService = sessionPathService;
+        this.retentionService = retentionService;
+        this.liveEventStream = liveEventStream;
+        this.batchEventReader = objectMapper.copy().addMixIn(TrackingEvent.class, BatchEventType.class)
+            .readerFor(TrackingEvent.class);
+        this.validator = validator;
+        this.maxBatchEvents = maxBatchEvents;
     }
 
     // Tracking endpoints
     @PostMapping("/track/pageview")
-    public ResponseEntity<Map<String, String>> trackPageView(
-            @RequestBody Map<String, String> payload,
+    public ResponseEntity<byte[]> trackPageView(
+            @Valid @RequestBody PageViewRequest event,
             HttpServletRequest request) {
         
-        String page = payload.get("page");
-        String sessionId = payload.get("sessionId");
-        
-        if (page == null || sessionId == null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "Page and sessionId are required"));
-        }
-        
-        analyticsService.trackPageView(page, sessionId, request);
-        return ResponseEntity.ok(Map.of("status", "success"));
+        boolean accepted = analyticsService.trackPageView(event, request);
+        return trackingResponse(accepted);
     }
 
     @PostMapping("/track/click")
-    public ResponseEntity<Map<String, String>> trackClick(
-            @RequestBody Map<String, Object> payload,
+    public ResponseEntity<byte[]> trackClick(
+            @Valid @RequestBody ClickRequest event,
             HttpServletRequest request) {
         
-        String sessionId = (String) payload.get("sessionId");
-        String page = (String) payload.get("page");
-        String elementType = (String) payload.get("elementType");
-        String elementId = (String) payload.get("elementId");
-        String elementText = (String) payload.get("elementText");
-        String targetUrl = (String) payload.get("targetUrl");
-        Integer x = payload.get("x") != null ? (Integer) payload.get("x") : null;
-        Integer y = payload.get("y") != null ? (Integer) payload.get("y") : null;
-        
-        if (sessionId == null || page == null || elementType == null) {
-            return ResponseEntity.badRequest().body(Map.of("error", "SessionId, page, and elementType are required"));
+        boolean accepted = analyticsService.trackClick(event, request);
+        return trackingResponse(accepted);
+    }
+
+    // Mixed page views and clicks as a JSON array (or {"events": [...]}). Also accepts text/plain so that
+    // navigator.sendBeacon can post a string without a CORS preflight. Invalid events are reported by index.
+    @PostMapping(path = "/track/batch", consumes = { MediaType.APPLICATION_JSON_VALUE, MediaType.TEXT_PLAIN_VALUE })
+    public ResponseEntity<?> trackBatch(HttpServletRequest request) {
+        List<TrackingEvent> valid = new ArrayList<>();
+        List<Integer> validIndexes = new ArrayList<>();
+        List<BatchResult.EventError> errors = new ArrayList<>();
+        int received;
+        try {
+            received = readEvents(request.getInputStream(), valid, validIndexes, errors);
+        } catch (IOException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", "Body must be a JSON array of events"));
         }
-        
-        analyticsService.trackClick(sessionId, page, elementType, elementId, elementText, targetUrl, x, y, request);
-        return ResponseEntity.ok(Map.of("status", "success"));
+        if (received < 0) {
+            return ResponseEntity.status(HttpStatus.PAYLOAD_TOO_LARGE)
+                .body(Map.of("error", "At most " + maxBatchEvents + " events are accepted per batch"));
+        }
+
+        int accepted = analyticsService.trackEvents(valid, request);
+        for (int i = accepted; i < valid.size(); i++) {
+            errors.add(new BatchResult.EventError(validIndexes.get(i), "Analytics buffer is full"));
+        }
+        errors.sort((a, b) -> Integer.compare(a.index(), b.index()));
+        BatchResult result = new BatchResult(received, accepted, received - valid.size(), valid.size() - accepted, errors);
+
+        if (accepted == 0 && result.rejected() > 0) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "1").body(result);
+        }
+        return ingestionService.isAsync() ? ResponseEntity.accepted().body(result) : ResponseEntity.ok(result);
     }
 
     // Analytics retrieval endpoints
@@ -75,6 +161,144 @@ public class AnalyticsController {
         return ResponseEntity.ok(stats);
     }
 
+    @GetMapping("/dashboard/cache")
+    public ResponseEntity<DashboardCache.CacheStats> getDashboardCacheStats() {
+        return ResponseEntity.ok(analyticsService.getDashboardCacheStats());
+    }
+
+    // Ad-hoc counts, e.g.
+    //   /breakdown?source=pageviews&period=month&groupBy=device,browser&filter=country:GH&filter=country:NG&bucket=day
+    // since/until override period. A dimension filtered more than once matches any of the values, and an empty
+    // value (filter=country:) matches events without one. Dimensions: page, referrer, device, browser, os and
+    // country for page views; page, elementType and element for clicks; entryPage, exitPage, referrer, device,
+    // browser, os, country and returning for sessions. At most two dimensions can be grouped by.
+    @GetMapping("/breakdown")
+    public ResponseEntity<?> getBreakdown(
+            @RequestParam(defaultValue = "pageviews") String source,
+            @RequestParam(defaultValue = "week") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until,
+            @RequestParam(defaultValue = "") List<String> groupBy,
+            @RequestParam(defaultValue = "") List<String> filter,
+            @RequestParam(required = false) String bucket,
+            @RequestParam(defaultValue = "100") int limit) {
+
+        try {
+            Map<String, List<String>> filters = new LinkedHashMap<>();
+            for (String condition : filter) {
+                if (condition.isBlank()) continue;
+                int colon = condition.indexOf(':');
+                if (colon < 0) {
+                    throw new IllegalArgumentException("Filters are dimension:value, got " + condition);
+                }
+                String value = condition.substring(colon + 1);
+                filters.computeIfAbsent(condition.substring(0, colon), d -> new ArrayList<>())
+                    .add(value.isEmpty() ? null : value);
+            }
+            return ResponseEntity.ok(drillDownService.query(toDrillDownQuery(source,
+                since != null ? since : analyticsService.getSinceDate(period), until, filters, groupBy, bucket, limit)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // The same query as a JSON body, for filters too long or awkward for a query string
+    @PostMapping("/breakdown")
+    public ResponseEntity<?> postBreakdown(@RequestBody DrillDownRequest request) {
+        try {
+            return ResponseEntity.ok(drillDownService.query(toDrillDownQuery(
+                request.source() != null ? request.source() : DrillDownQuery.Source.PAGE_VIEWS.key(),
+                request.since() != null ? request.since() : analyticsService.getSinceDate("week"),
+                request.until(),
+                request.filters() != null ? request.filters() : Map.of(),
+                request.groupBy() != null ? request.groupBy() : List.of(),
+                request.bucket(),
+                request.limit() != null ? request.limit() : 100)));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/breakdown/stats")
+    public ResponseEntity<DrillDownService.DrillDownStats> getDrillDownStats() {
+        return ResponseEntity.ok(drillDownService.getStats());
+    }
+
+    // Click heatmap of one page over the days touching the period, or since/until, per viewport class
+    // (mobile, tablet, desktop; all three unless viewport is given)
+    @GetMapping("/heatmap")
+    public ResponseEntity<?> getHeatmap(
+            @RequestParam String page,
+            @RequestParam(required = false) String viewport,
+            @RequestParam(defaultValue = "week") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+
+        try {
+            LocalDateTime from = since != null ? since : analyticsService.getSinceDate(period);
+            LocalDateTime to = until != null ? until : LocalDateTime.now();
+            if (!from.isBefore(to)) {
+                throw new IllegalArgumentException("since must be before until");
+            }
+            ClickHeatmapService.Viewport viewportClass = viewport != null ? ClickHeatmapService.Viewport.fromKey(viewport) : null;
+            return ResponseEntity.ok(clickHeatmapService.heatmap(page, viewportClass, from, to));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Pages that have heatmap clicks in the period, most clicked first
+    @GetMapping("/heatmap/pages")
+    public ResponseEntity<List<ClickHeatmapService.HeatmapPage>> getHeatmapPages(
+            @RequestParam(defaultValue = "week") String period) {
+        return ResponseEntity.ok(clickHeatmapService.pages(analyticsService.getSinceDate(period), LocalDateTime.now()));
+    }
+
+    @GetMapping("/heatmap/stats")
+    public ResponseEntity<ClickHeatmapService.HeatmapStats> getHeatmapStats() {
+        return ResponseEntity.ok(clickHeatmapService.getStats());
+    }
+
+    // Funnel over the ordered page paths of sessions started in the period, or since/until, e.g.
+    //   /paths/funnel?steps=/,/projects,/contact&period=month
+    @GetMapping("/paths/funnel")
+    public ResponseEntity<?> getFunnel(
+            @RequestParam List<String> steps,
+            @RequestParam(defaultValue = "month") String period,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime since,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime until) {
+
+        try {
+            return ResponseEntity.ok(sessionPathService.funnel(steps,
+                since != null ? since : analyticsService.getSinceDate(period), until != null ? until : LocalDateTime.now()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/paths/top")
+    public ResponseEntity<SessionPathService.TopPaths> getTopPaths(
+            @RequestParam(defaultValue = "week") String period,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(sessionPathService.topPaths(analyticsService.getSinceDate(period), LocalDateTime.now(),
+            Math.max(0, Math.min(limit, 1000))));
+    }
+
+    // Where sessions went next, from one page when from is given
+    @GetMapping("/paths/transitions")
+    public ResponseEntity<SessionPathService.TopTransitions> getTopTransitions(
+            @RequestParam(required = false) String from,
+            @RequestParam(defaultValue = "week") String period,
+            @RequestParam(defaultValue = "20") int limit) {
+        return ResponseEntity.ok(sessionPathService.topTransitions(from, analyticsService.getSinceDate(period), LocalDateTime.now(),
+            Math.max(0, Math.min(limit, 1000))));
+    }
+
+    @GetMapping("/paths/stats")
+    public ResponseEntity<SessionPathService.PathStats> getPathStats() {
+        return ResponseEntity.ok(sessionPathService.getStats());
+    }
+
     @GetMapping("/activity")
     public ResponseEntity<List<Map<String, Object>>> getRecentActivity(
             @RequestParam(defaultValue = "50") int limit) {
@@ -83,8 +307,201 @@ public class AnalyticsController {
         return ResponseEntity.ok(activities);
     }
 
+    // Cursor-paginated feed; pass nextCursor's timestamp/type/id back as before/beforeType/beforeId
+    @GetMapping("/feed")
+    public ResponseEntity<?> getActivityFeed(
+            @RequestParam(defaultValue = "50") int limit,
+            @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime before,
+            @RequestParam(required = false) Long beforeId,
+            @RequestParam(defaultValue = "pageview") String beforeType) {
+        
+        AnalyticsService.ActivityCursor cursor = null;
+        if (before != null) {
+            if (beforeId == null || !(AnalyticsService.ActivityCursor.PAGEVIEW.equals(beforeType)
+                    || AnalyticsService.ActivityCursor.CLICK.equals(beforeType))) {
+                return ResponseEntity.badRequest().body(Map.of("error", "beforeId and a beforeType of pageview or click are required with before"));
+            }
+            cursor = new AnalyticsService.ActivityCursor(before, beforeType, beforeId);
+        }
+        return ResponseEntity.ok(analyticsService.getActivityFeed(limit, cursor));
+    }
+
+    // Server-Sent Events: one "tick" message per analytics.stream.tick-ms with the events and counters of that tick
+    @GetMapping(path = "/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> stream() {
+        SseEmitter emitter = liveEventStream.subscribe();
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).header(HttpHeaders.RETRY_AFTER, "30").build();
+        }
+        return ResponseEntity.ok().header("X-Accel-Buffering", "no").body(emitter);
+    }
+
+    @GetMapping("/stream/stats")
+    public ResponseEntity<LiveEventStream.StreamStats> getStreamStats() {
+        return ResponseEntity.ok(liveEventStream.getStats());
+    }
+
+    @GetMapping("/ingestion")
+    public ResponseEntity<AnalyticsIngestionService.IngestionStats> getIngestionStats() {
+        return ResponseEntity.ok(ingestionService.getStats());
+    }
+
+    @GetMapping("/retention")
+    public ResponseEntity<RetentionService.RetentionReport> getLastRetentionReport() {
+        RetentionService.RetentionReport report = retentionService.getLastReport();
+        return report != null ? ResponseEntity.ok(report) : ResponseEntity.noContent().build();
+    }
+
     @GetMapping("/health")
     public ResponseEntity<Map<String, String>> health() {
         return ResponseEntity.ok(Map.of("status", "healthy", "service", "analytics"));
     }
-} 
\ No newline at end of file
+
+    private static DrillDownQuery toDrillDownQuery(String source, LocalDateTime since, LocalDateTime until,
+                                                   Map<String, List<String>> filters, List<String> groupBy,
+                                                   String bucket, int limit) {
+        Map<DrillDownQuery.Dimension, Set<String>> dimensionFilters = new LinkedHashMap<>();
+        filters.forEach((key, values) -> dimensionFilters
+            .computeIfAbsent(DrillDownQuery.Dimension.fromKey(key), d -> new LinkedHashSet<>())
+            .addAll(values != null ? values : List.of()));
+        List<DrillDownQuery.Dimension> dimensions = groupBy.stream()
+            .filter(key -> key != null && !key.isBlank())
+            .map(DrillDownQuery.Dimension::fromKey)
+            .toList();
+
+        return new DrillDownQuery(DrillDownQuery.Source.fromKey(source), since,
+            until != null ? until : LocalDateTime.now(),
+            dimensionFilters, dimensions, DrillDownQuery.bucketFromKey(bucket), limit);
+    }
+
+    // Buffered events are acknowledged with 202; a full buffer asks the client to back off
+    private ResponseEntity<byte[]> trackingResponse(boolean accepted) {
+        if (!accepted) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+                .header(HttpHeaders.RETRY_AFTER, "1")
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(BUFFER_FULL_BODY);
+        }
+        if (ingestionService.isAsync()) {
+            return ResponseEntity.accepted().contentType(MediaType.APPLICATION_JSON).body(ACCEPTED_BODY);
+        }
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_JSON).body(SUCCESS_BODY);
+    }
+
+    // Binds the event array straight from the request body, one event at a time, into valid events (with
+    // their indexes) and per-index errors. Returns how many events were received, or -1 as soon as there
+    // are more than max-batch-events. Malformed JSON fails the whole batch.
+    private int readEvents(InputStream body, List<TrackingEvent> valid, List<Integer> validIndexes,
+                           List<BatchResult.EventError> errors) throws IOException {
+        try (JsonParser parser = batchEventReader.createParser(body)) {
+            JsonToken token = parser.nextToken();
+            if (token == JsonToken.START_OBJECT) {
+                // {"events": [...]}; other fields are ignored
+                while ((token = parser.nextToken()) == JsonToken.FIELD_NAME) {
+                    token = parser.nextToken();
+                    if ("events".equals(parser.currentName())) break;
+                    parser.skipChildren();
+                }
+            }
+            if (token != JsonToken.START_ARRAY) {
+                throw new IllegalArgumentException("Expected an array of events");
+            }
+
+            JsonStreamContext array = parser.getParsingContext();
+            int index = 0;
+            for (JsonToken element; (element = parser.nextToken()) != JsonToken.END_ARRAY; index++) {
+                if (element == null) {
+                    throw new IllegalArgumentException("Unterminated array of events");
+                }
+                if (index == maxBatchEvents) return -1;
+                try {
+                    valid.add(readEvent(parser, array));
+                    validIndexes.add(index);
+                } catch (IllegalArgumentException e) {
+                    errors.add(new BatchResult.EventError(index, e.getMessage()));
+                }
+            }
+            return index;
+        }
+    }
+
+    // Leaves the parser on the last token of the event, whether or not it could be bound
+    private TrackingEvent readEvent(JsonParser parser, JsonStreamContext array) throws IOException {
+        if (parser.currentToken() != JsonToken.START_OBJECT) {
+            parser.skipChildren();
+            throw new IllegalArgumentException("Event must be a JSON object");
+        }
+
+        TrackingEvent event;
+        try {
+            event = batchEventReader.readValue(parser);
+        } catch (DatabindException e) {
+            // Skip whatever is left of the event so the next one starts on its own START_OBJECT
+            while (parser.getParsingContext() != array) {
+                if (parser.nextToken() == null) throw e;
+            }
+            throw new IllegalArgumentException(e instanceof InvalidTypeIdException
+                ? "Type must be pageview or click" : bindingError(e));
+        }
+        Set<ConstraintViolation<TrackingEvent>> violations = validator.validate(event);
+        if (!violations.isEmpty()) {
+            throw new IllegalArgumentException(violations.iterator().next().getMessage());
+        }
+        return event;
+    }
+
+    // Picks the batch event type from its "type" field. Only the batch reader sees this, so the single-event
+    // endpoints keep binding PageViewRequest and ClickRequest without one.
+    @JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+    @JsonSubTypes({
+        @JsonSubTypes.Type(value = PageViewRequest.class, name = "pageview"),
+        @JsonSubTypes.Type(value = ClickRequest.class, name = "click")
+    })
+    private interface BatchEventType {
+    }
+
+    @ExceptionHandler(MethodArgumentNotValidException.class)
+    public ResponseEntity<Map<String, String>> handleInvalidEvent(MethodArgumentNotValidException e) {
+        return ResponseEntity.badRequest().body(Map.of("error", e.getBindingResult().getAllErrors().get(0).getDefaultMessage()));
+    }
+
+    @ExceptionHandler(HttpMessageNotReadableException.class)
+    public ResponseEntity<Map<String, String>> handleUnreadableEvent(HttpMessageNotReadableException e) {
+        String error = e.getCause() instanceof JsonProcessingException cause ? bindingError(cause) : "Malformed request body";
+        return ResponseEntity.badRequest().body(Map.of("error", error));
+    }
+
+    // No database connection within the pool's connection timeout
+    @ExceptionHandler({DataAccessResourceFailureException.class, CannotCreateTransactionException.class})
+    public ResponseEntity<Map<String, String>> handleConnectionUnavailable(RuntimeException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of("error", "Database is busy"));
+    }
+
+    // Every drill-down permit is taken by a running database query
+    @ExceptionHandler(RejectedExecutionException.class)
+    public ResponseEntity<Map<String, String>> handleDrillDownRejected(RejectedExecutionException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(Map.of("error", e.getMessage()));
+    }
+
+    // Retrying will not help; the range has to shrink or the filters get narrower
+    @ExceptionHandler(QueryTimeoutException.class)
+    public ResponseEntity<Map<String, String>> handleDrillDownTimeout(QueryTimeoutException e) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .body(Map.of("error", e.getMessage() + "; narrow the range or add filters"));
+    }
+
+    // Names the offending field for type mismatches such as a string where a number is expected
+    private static String bindingError(JsonProcessingException e) {
+        if (e instanceof JsonMappingException mapping && !mapping.getPath().isEmpty()) {
+            String field = mapping.getPath().get(mapping.getPath().size() - 1).getFieldName();
+            if (field != null) {
+                return field + " has an invalid value";
+            }
+        }
+        return "Malformed request body";
+    }
+}
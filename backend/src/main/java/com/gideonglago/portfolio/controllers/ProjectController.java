@@ -1,12 +1,19 @@
 package com.gideonglago.portfolio.controllers;
 
-import java.util.List;
-import java.util.Optional;
+import java.net.URI;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
-import org.springframework.beans.factory.annotation.Autowired;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.web.bind.annotation.DeleteMapping;
+import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -15,70 +22,74 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.RestController;
 
+import com.gideonglago.portfolio.dto.ProjectView;
 import com.gideonglago.portfolio.models.Project;
-import com.gideonglago.portfolio.repositories.ProjectRepository;
+import com.gideonglago.portfolio.services.ProjectNotFoundException;
+import com.gideonglago.portfolio.services.ProjectService;
 
 @RestController
 @RequestMapping("/api/projects")
 @CrossOrigin(origins = "*")
 public class ProjectController {
 
-    @Autowired
-    private ProjectRepository projectRepository;
+    private static final Logger log = LoggerFactory.getLogger(ProjectController.class);
 
-    // GET all projects
+    private final ProjectService projectService;
+    private final CacheControl catalogueCacheControl;
+
+    public ProjectController(ProjectService projectService,
+                             @Value("${projects.cache.max-age-seconds:60}") long maxAgeSeconds) {
+        this.projectService = projectService;
+        this.catalogueCacheControl = CacheControl.maxAge(maxAgeSeconds, TimeUnit.SECONDS).cachePublic().mustRevalidate();
+    }
+
+    // GET all projects; the pre-serialized catalogue carries a strong ETag, so a matching
+    // If-None-Match is answered with 304 by Spring without sending the body
     @GetMapping
-    public ResponseEntity<List<Project>> getAllProjects() {
-        List<Project> projects = projectRepository.findAll();
-        return ResponseEntity.ok(projects);
+    public ResponseEntity<byte[]> getAllProjects() {
+        ProjectService.Catalogue catalogue = projectService.catalogue();
+        return ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .eTag(catalogue.etag())
+                .cacheControl(catalogueCacheControl)
+                .body(catalogue.json());
     }
 
     // GET project by ID
     @GetMapping("/{id}")
-    public ResponseEntity<Project> getProjectById(@PathVariable Long id) {
-        Optional<Project> project = projectRepository.findById(id);
-        return project.map(ResponseEntity::ok)
-                     .orElse(ResponseEntity.notFound().build());
+    public ResponseEntity<ProjectView> getProjectById(@PathVariable Long id) {
+        return ResponseEntity.ok(projectService.findById(id));
     }
 
     // POST create new project
     @PostMapping
-    public ResponseEntity<Project> createProject(@RequestBody Project project) {
-        Project savedProject = projectRepository.save(project);
-        return ResponseEntity.ok(savedProject);
+    public ResponseEntity<ProjectView> createProject(@RequestBody Project project) {
+        Project savedProject = projectService.create(project);
+        return ResponseEntity.created(URI.create("/api/projects/" + savedProject.getId())).body(ProjectView.from(savedProject));
     }
 
     // PUT update project
     @PutMapping("/{id}")
-    public ResponseEntity<Project> updateProject(@PathVariable Long id, @RequestBody Project projectDetails) {
-        Optional<Project> projectOptional = projectRepository.findById(id);
-        
-        if (projectOptional.isPresent()) {
-            Project project = projectOptional.get();
-            project.setTitle(projectDetails.getTitle());
-            project.setDescription(projectDetails.getDescription());
-            project.setTechStack(projectDetails.getTechStack());
-            project.setGithubUrl(projectDetails.getGithubUrl());
-            project.setDemoUrl(projectDetails.getDemoUrl());
-            project.setImages(projectDetails.getImages());
-            
-            Project updatedProject = projectRepository.save(project);
-            return ResponseEntity.ok(updatedProject);
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+    public ResponseEntity<ProjectView> updateProject(@PathVariable Long id, @RequestBody Project projectDetails) {
+        return ResponseEntity.ok(ProjectView.from(projectService.update(id, projectDetails)));
     }
 
     // DELETE project
     @DeleteMapping("/{id}")
     public ResponseEntity<Void> deleteProject(@PathVariable Long id) {
-        Optional<Project> projectOptional = projectRepository.findById(id);
-        
-        if (projectOptional.isPresent()) {
-            projectRepository.deleteById(id);
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.notFound().build();
-        }
+        projectService.delete(id);
+        return ResponseEntity.noContent().build();
+    }
+
+    @ExceptionHandler(ProjectNotFoundException.class)
+    public ResponseEntity<Map<String, String>> handleNotFound(ProjectNotFoundException e) {
+        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(Map.of("error", e.getMessage()));
+    }
+
+    // The details go to the log only: exception messages can be null and describe internals
+    @ExceptionHandler(RuntimeException.class)
+    public ResponseEntity<Map<String, String>> handleFailure(RuntimeException e) {
+        log.error("Project request failed", e);
+        return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("error", "Internal server error"));
     }
-} 
\ No newline at end of file
+}
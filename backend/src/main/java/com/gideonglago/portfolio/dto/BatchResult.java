@@ -0,0 +1,11 @@
+package com.gideonglago.portfolio.dto;
+
+import java.util.List;
+
+// Response of POST /api/analytics/track/batch. invalid events failed parsing or validation; rejected
+// ones were valid but did not fit in the ingestion buffer. Errors are listed by position in the request.
+public record BatchResult(int received, int accepted, int invalid, int rejected, List<EventError> errors) {
+
+    public record EventError(int index, String error) {
+    }
+}
@@ -0,0 +1,42 @@
+package com.gideonglago.portfolio.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Positive;
+import jakarta.validation.constraints.Size;
+
+// Body of POST /api/analytics/track/click. Lengths match the click_event columns.
+public record ClickRequest(
+    @NotBlank(message = "SessionId, page, and elementType are required")
+    @Size(max = 255, message = "sessionId must be at most 255 characters")
+    String sessionId,
+
+    @NotBlank(message = "SessionId, page, and elementType are required")
+    @Size(max = 255, message = "page must be at most 255 characters")
+    String page,
+
+    @NotBlank(message = "SessionId, page, and elementType are required")
+    @Size(max = 255, message = "elementType must be at most 255 characters")
+    String elementType,
+
+    @Size(max = 255, message = "elementId must be at most 255 characters")
+    String elementId,
+
+    @Size(max = 255, message = "elementText must be at most 255 characters")
+    String elementText,
+
+    @Size(max = 255, message = "targetUrl must be at most 255 characters")
+    String targetUrl,
+
+    Integer x,
+
+    Integer y,
+
+    // Scroll size of the document x and y are measured in (page coordinates); clicks without it are left out
+    // of heatmaps
+    @Positive(message = "documentWidth must be positive")
+    Integer documentWidth,
+
+    @Positive(message = "documentHeight must be positive")
+    Integer documentHeight
+) implements TrackingEvent {
+}
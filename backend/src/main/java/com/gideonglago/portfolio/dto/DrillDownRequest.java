@@ -0,0 +1,18 @@
+package com.gideonglago.portfolio.dto;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+
+// Body of POST /api/analytics/breakdown. filters maps a dimension to the values it may take, with null
+// for a missing value; since and until default to the last week and now, limit to 100.
+public record DrillDownRequest(
+    String source,
+    LocalDateTime since,
+    LocalDateTime until,
+    Map<String, List<String>> filters,
+    List<String> groupBy,
+    String bucket,
+    Integer limit
+) {
+}
@@ -0,0 +1,21 @@
+package com.gideonglago.portfolio.dto;
+
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Size;
+
+// Body of POST /api/analytics/track/pageview. Lengths match the page_view columns, so an oversized
+// value is rejected here instead of failing the whole ingestion batch it would be written with.
+public record PageViewRequest(
+    @NotBlank(message = "Page and sessionId are required")
+    @Size(max = 255, message = "page must be at most 255 characters")
+    String page,
+
+    @NotBlank(message = "Page and sessionId are required")
+    @Size(max = 255, message = "sessionId must be at most 255 characters")
+    String sessionId,
+
+    // Optional; the Referer header is used when absent
+    @Size(max = 255, message = "referrer must be at most 255 characters")
+    String referrer
+) implements TrackingEvent {
+}
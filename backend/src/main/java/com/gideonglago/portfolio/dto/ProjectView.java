@@ -0,0 +1,22 @@
+package com.gideonglago.portfolio.dto;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import com.gideonglago.portfolio.models.Project;
+
+// Read model for the project list and detail endpoints. It is built while the element collections
+// are loaded, so serializing it never touches a lazy association. The JSON shape matches Project.
+public record ProjectView(Long id, String title, String description, List<String> techStack,
+                          String githubUrl, String demoUrl, List<String> images) {
+
+    public static ProjectView from(Project project) {
+        return new ProjectView(project.getId(), project.getTitle(), project.getDescription(),
+            copy(project.getTechStack()), project.getGithubUrl(), project.getDemoUrl(), copy(project.getImages()));
+    }
+
+    private static List<String> copy(List<String> values) {
+        return values != null ? Collections.unmodifiableList(new ArrayList<>(values)) : null;
+    }
+}
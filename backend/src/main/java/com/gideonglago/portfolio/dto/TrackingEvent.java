@@ -0,0 +1,9 @@
+package com.gideonglago.portfolio.dto;
+
+// A tracking event as sent by the frontend; the batch endpoint picks the type from its "type" field.
+public sealed interface TrackingEvent permits PageViewRequest, ClickRequest {
+
+    String sessionId();
+
+    String page();
+}
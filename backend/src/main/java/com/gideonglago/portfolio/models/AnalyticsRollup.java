@@ -0,0 +1,44 @@
+package com.gideonglago.portfolio.models;
+
+import java.time.LocalDateTime;
+
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+// Pre-aggregated event counts per hour or day bucket, e.g. (HOUR, 2024-05-01T13:00, PAGE, "/projects") -> 42.
+// Rows are maintained incrementally by AnalyticsRollupService with upserts on the unique key.
+@Entity
+@Data
+@NoArgsConstructor
+@Table(name = "analytics_rollup", uniqueConstraints = @UniqueConstraint(
+    name = "uk_analytics_rollup_bucket",
+    columnNames = { "granularity", "bucket_start", "dimension", "dimension_value", "extra" }))
+public class AnalyticsRollup {
+
+    public static final String HOUR = "HOUR";
+    public static final String DAY = "DAY";
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(nullable = false, length = 8)
+    private String granularity;
+    @Column(nullable = false)
+    private LocalDateTime bucketStart;
+    @Column(nullable = false, length = 32)
+    private String dimension;
+    @Column(nullable = false)
+    private String dimensionValue; // empty string stands for "no value"
+    @Column(nullable = false)
+    private String extra;
+    @Column(nullable = false)
+    private Long eventCount;
+}
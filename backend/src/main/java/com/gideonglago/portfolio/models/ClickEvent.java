@@ -1,23 +1,33 @@
 package com.gideonglago.portfolio.models;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
 @Data
 @NoArgsConstructor
+@Table(indexes = {
+    @Index(name = "idx_click_event_timestamp_id", columnList = "timestamp, id"),
+    @Index(name = "idx_click_event_timestamp_page", columnList = "timestamp, page"),
+    @Index(name = "idx_click_event_session_id", columnList = "session_id")
+})
 public class ClickEvent {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    private UUID eventId; // set when the event is written to the append log
+
     private String sessionId;
     private String page;
     private String elementType; // button, link, card, etc.
@@ -26,6 +36,8 @@ public class ClickEvent {
     private String targetUrl;
     private Integer xPosition;
     private Integer yPosition;
+    private Integer documentWidth; // the document scroll size x/y are page coordinates in, when the client sends it
+    private Integer documentHeight;
     private LocalDateTime timestamp;
     private String userAgent;
     private String ipAddress;
@@ -1,23 +1,35 @@
 package com.gideonglago.portfolio.models;
 
 import java.time.LocalDateTime;
+import java.util.UUID;
 
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
 @Data
 @NoArgsConstructor
+@Table(indexes = {
+    @Index(name = "idx_page_view_timestamp_id", columnList = "timestamp, id"),
+    @Index(name = "idx_page_view_timestamp_page", columnList = "timestamp, page"),
+    @Index(name = "idx_page_view_timestamp_device", columnList = "timestamp, device"),
+    @Index(name = "idx_page_view_session_id", columnList = "session_id"),
+    @Index(name = "idx_page_view_ip_address", columnList = "ip_address")
+})
 public class PageView {
 
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
 
+    private UUID eventId; // set when the event is written to the append log
+
     private String page;
     private String referrer;
     private String userAgent;
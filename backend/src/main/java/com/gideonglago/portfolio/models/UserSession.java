@@ -8,12 +8,21 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 
 @Entity
 @Data
 @NoArgsConstructor
+@Table(
+    uniqueConstraints = @UniqueConstraint(name = "uk_user_session_session_id", columnNames = "session_id"),
+    indexes = {
+        @Index(name = "idx_user_session_start_time", columnList = "start_time"),
+        @Index(name = "idx_user_session_ip_address", columnList = "ip_address")
+    })
 public class UserSession {
 
     @Id
@@ -0,0 +1,142 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+
+// Plain JDBC batch inserts for the ingestion pipeline. Both entities use IDENTITY ids,
+// which stops Hibernate from batching, so the rows are written through JdbcTemplate instead.
+// Events replayed from the append log are inserted column-wise from arrays in one statement per
+// table; rows whose event id is already stored are skipped, and the inserted events are returned.
+@Repository
+public class AnalyticsEventBatchRepository {
+
+    private static final String INSERT_PAGE_VIEW =
+        "INSERT INTO page_view (page, referrer, user_agent, ip_address, session_id, timestamp, duration, device, browser, os, country, city) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_CLICK_EVENT =
+        "INSERT INTO click_event (session_id, page, element_type, element_id, element_text, target_url, x_position, y_position, document_width, document_height, timestamp, user_agent, ip_address) "
+        + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    private static final String INSERT_NEW_PAGE_VIEWS =
+        "INSERT INTO page_view (event_id, page, referrer, user_agent, ip_address, session_id, timestamp, duration, device, browser, os, country, city) "
+        + "SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::timestamp[], "
+        + "?::bigint[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[]) "
+        + "ON CONFLICT DO NOTHING RETURNING event_id";
+
+    private static final String INSERT_NEW_CLICK_EVENTS =
+        "INSERT INTO click_event (event_id, session_id, page, element_type, element_id, element_text, target_url, x_position, y_position, document_width, document_height, timestamp, user_agent, ip_address) "
+        + "SELECT * FROM unnest(?::uuid[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], "
+        + "?::integer[], ?::integer[], ?::integer[], ?::integer[], ?::timestamp[], ?::varchar[], ?::varchar[]) "
+        + "ON CONFLICT DO NOTHING RETURNING event_id";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public AnalyticsEventBatchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public void insertPageViews(List<PageView> pageViews) {
+        if (pageViews.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_PAGE_VIEW, pageViews, pageViews.size(), (ps, pv) -> {
+            ps.setString(1, pv.getPage());
+            ps.setString(2, pv.getReferrer());
+            ps.setString(3, pv.getUserAgent());
+            ps.setString(4, pv.getIpAddress());
+            ps.setString(5, pv.getSessionId());
+            ps.setTimestamp(6, Timestamp.valueOf(pv.getTimestamp()));
+            ps.setObject(7, pv.getDuration(), Types.BIGINT);
+            ps.setString(8, pv.getDevice());
+            ps.setString(9, pv.getBrowser());
+            ps.setString(10, pv.getOs());
+            ps.setString(11, pv.getCountry());
+            ps.setString(12, pv.getCity());
+        });
+    }
+
+    public void insertClicks(List<ClickEvent> clicks) {
+        if (clicks.isEmpty()) return;
+
+        jdbcTemplate.batchUpdate(INSERT_CLICK_EVENT, clicks, clicks.size(), (ps, ce) -> {
+            ps.setString(1, ce.getSessionId());
+            ps.setString(2, ce.getPage());
+            ps.setString(3, ce.getElementType());
+            ps.setString(4, ce.getElementId());
+            ps.setString(5, ce.getElementText());
+            ps.setString(6, ce.getTargetUrl());
+            ps.setObject(7, ce.getXPosition(), Types.INTEGER);
+            ps.setObject(8, ce.getYPosition(), Types.INTEGER);
+            ps.setObject(9, ce.getDocumentWidth(), Types.INTEGER);
+            ps.setObject(10, ce.getDocumentHeight(), Types.INTEGER);
+            ps.setTimestamp(11, Timestamp.valueOf(ce.getTimestamp()));
+            ps.setString(12, ce.getUserAgent());
+            ps.setString(13, ce.getIpAddress());
+        });
+    }
+
+    public List<PageView> insertNewPageViews(List<PageView> pageViews) {
+        if (pageViews.isEmpty()) return List.of();
+
+        Set<UUID> inserted = new HashSet<>(jdbcTemplate.query(INSERT_NEW_PAGE_VIEWS, ps -> {
+            Connection con = ps.getConnection();
+            ps.setArray(1, con.createArrayOf("uuid", column(pageViews, PageView::getEventId)));
+            ps.setArray(2, con.createArrayOf("varchar", column(pageViews, PageView::getPage)));
+            ps.setArray(3, con.createArrayOf("varchar", column(pageViews, PageView::getReferrer)));
+            ps.setArray(4, con.createArrayOf("varchar", column(pageViews, PageView::getUserAgent)));
+            ps.setArray(5, con.createArrayOf("varchar", column(pageViews, PageView::getIpAddress)));
+            ps.setArray(6, con.createArrayOf("varchar", column(pageViews, PageView::getSessionId)));
+            ps.setArray(7, con.createArrayOf("timestamp", column(pageViews, pv -> Timestamp.valueOf(pv.getTimestamp()))));
+            ps.setArray(8, con.createArrayOf("bigint", column(pageViews, PageView::getDuration)));
+            ps.setArray(9, con.createArrayOf("varchar", column(pageViews, PageView::getDevice)));
+            ps.setArray(10, con.createArrayOf("varchar", column(pageViews, PageView::getBrowser)));
+            ps.setArray(11, con.createArrayOf("varchar", column(pageViews, PageView::getOs)));
+            ps.setArray(12, con.createArrayOf("varchar", column(pageViews, PageView::getCountry)));
+            ps.setArray(13, con.createArrayOf("varchar", column(pageViews, PageView::getCity)));
+        }, (rs, row) -> rs.getObject(1, UUID.class)));
+        return pageViews.stream().filter(pv -> inserted.contains(pv.getEventId())).toList();
+    }
+
+    public List<ClickEvent> insertNewClicks(List<ClickEvent> clicks) {
+        if (clicks.isEmpty()) return List.of();
+
+        Set<UUID> inserted = new HashSet<>(jdbcTemplate.query(INSERT_NEW_CLICK_EVENTS, ps -> {
+            Connection con = ps.getConnection();
+            ps.setArray(1, con.createArrayOf("uuid", column(clicks, ClickEvent::getEventId)));
+            ps.setArray(2, con.createArrayOf("varchar", column(clicks, ClickEvent::getSessionId)));
+            ps.setArray(3, con.createArrayOf("varchar", column(clicks, ClickEvent::getPage)));
+            ps.setArray(4, con.createArrayOf("varchar", column(clicks, ClickEvent::getElementType)));
+            ps.setArray(5, con.createArrayOf("varchar", column(clicks, ClickEvent::getElementId)));
+            ps.setArray(6, con.createArrayOf("varchar", column(clicks, ClickEvent::getElementText)));
+            ps.setArray(7, con.createArrayOf("varchar", column(clicks, ClickEvent::getTargetUrl)));
+            ps.setArray(8, con.createArrayOf("integer", column(clicks, ClickEvent::getXPosition)));
+            ps.setArray(9, con.createArrayOf("integer", column(clicks, ClickEvent::getYPosition)));
+            ps.setArray(10, con.createArrayOf("integer", column(clicks, ClickEvent::getDocumentWidth)));
+            ps.setArray(11, con.createArrayOf("integer", column(clicks, ClickEvent::getDocumentHeight)));
+            ps.setArray(12, con.createArrayOf("timestamp", column(clicks, ce -> Timestamp.valueOf(ce.getTimestamp()))));
+            ps.setArray(13, con.createArrayOf("varchar", column(clicks, ClickEvent::getUserAgent)));
+            ps.setArray(14, con.createArrayOf("varchar", column(clicks, ClickEvent::getIpAddress)));
+        }, (rs, row) -> rs.getObject(1, UUID.class)));
+        return clicks.stream().filter(ce -> inserted.contains(ce.getEventId())).toList();
+    }
+
+    private static <T> Object[] column(List<T> rows, Function<T, ?> getter) {
+        Object[] values = new Object[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getter.apply(rows.get(i));
+        }
+        return values;
+    }
+}
@@ -0,0 +1,143 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.gideonglago.portfolio.models.AnalyticsRollup;
+
+// JDBC access to analytics_rollup. Counts are only ever added through upserts, so concurrent
+// writers and the startup backfill compose without read-modify-write cycles.
+@Repository
+public class AnalyticsRollupRepository {
+
+    private static final String UPSERT =
+        "INSERT INTO analytics_rollup (granularity, bucket_start, dimension, dimension_value, extra, event_count) "
+        + "VALUES (?, ?, ?, ?, ?, ?) "
+        + "ON CONFLICT (granularity, bucket_start, dimension, dimension_value, extra) "
+        + "DO UPDATE SET event_count = analytics_rollup.event_count + EXCLUDED.event_count";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public AnalyticsRollupRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    // All or nothing: the caller puts every delta back when this throws
+    public void upsert(Map<RollupKey, Long> deltas) {
+        if (deltas.isEmpty()) return;
+
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(deltas.entrySet());
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (ps, row) -> {
+            RollupKey key = row.getKey();
+            ps.setString(1, key.granularity());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.dimension());
+            ps.setString(4, key.value());
+            ps.setString(5, key.extra());
+            ps.setLong(6, row.getValue());
+        }));
+    }
+
+    // Sums every dimension over the given bucket ranges in a single statement
+    public List<RollupRow> sum(List<BucketRange> ranges) {
+        StringBuilder sql = new StringBuilder(
+            "SELECT dimension, dimension_value, extra, SUM(event_count) FROM analytics_rollup WHERE ");
+        List<Object> args = new ArrayList<>();
+        for (int i = 0; i < ranges.size(); i++) {
+            BucketRange range = ranges.get(i);
+            sql.append(i == 0 ? "(" : " OR (").append("granularity = ? AND bucket_start >= ? AND bucket_start < ?)");
+            args.add(range.granularity());
+            args.add(Timestamp.valueOf(range.from()));
+            args.add(Timestamp.valueOf(range.to()));
+        }
+        sql.append(" GROUP BY dimension, dimension_value, extra ORDER BY 4 DESC");
+
+        return jdbcTemplate.query(sql.toString(), (rs, rowNum) -> new RollupRow(
+            rs.getString(1), rs.getString(2), rs.getString(3), rs.getLong(4)), args.toArray());
+    }
+
+    public int deleteBefore(String granularity, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM analytics_rollup WHERE granularity = ? AND bucket_start < ?",
+            granularity, Timestamp.valueOf(before));
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM analytics_rollup LIMIT 1) r", Long.class) == 0;
+    }
+
+    // Aggregates raw rows older than the cutoff into both granularities
+    public void backfill(LocalDateTime cutoff, LocalDateTime staleSessionsBefore) {
+        Timestamp before = Timestamp.valueOf(cutoff);
+        Timestamp stale = Timestamp.valueOf(staleSessionsBefore);
+        String ended = "(end_time IS NOT NULL OR start_time < ?)";
+
+        for (String granularity : List.of(AnalyticsRollup.HOUR, AnalyticsRollup.DAY)) {
+            String unit = granularity.toLowerCase();
+
+            backfill(granularity, unit, "PAGE_VIEWS", "page_view", "timestamp", "''", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "PAGE", "page_view", "timestamp", "COALESCE(page, '')", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "DEVICE", "page_view", "timestamp", "COALESCE(device, '')", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "BROWSER", "page_view", "timestamp", "COALESCE(browser, '')", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "COUNTRY", "page_view", "timestamp", "country", "''", "COUNT(*)", "country IS NOT NULL", before);
+
+            backfill(granularity, unit, "CLICKS", "click_event", "timestamp", "''", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "ELEMENT", "click_event", "timestamp", "element_id", "COALESCE(element_text, '')", "COUNT(*)",
+                "element_id IS NOT NULL", before);
+
+            backfill(granularity, unit, "SESSIONS", "user_session", "start_time", "''", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "RETURNING_SESSIONS", "user_session", "start_time", "''", "''", "COUNT(*)",
+                "is_returning_visitor = true", before);
+            backfill(granularity, unit, "NEW_SESSIONS", "user_session", "start_time", "''", "''", "COUNT(*)",
+                "is_returning_visitor = false", before);
+            backfill(granularity, unit, "ENTRY_PAGE", "user_session", "start_time", "COALESCE(entry_page, '')", "''", "COUNT(*)", null, before);
+            backfill(granularity, unit, "REFERRER", "user_session", "start_time", "referrer", "''", "COUNT(*)",
+                "referrer IS NOT NULL AND referrer <> ''", before);
+
+            backfill(granularity, unit, "ENDED_SESSIONS", "user_session", "start_time", "''", "''", "COUNT(*)", ended, before, stale);
+            backfill(granularity, unit, "SESSION_PAGE_VIEWS", "user_session", "start_time", "''", "''", "SUM(COALESCE(page_views, 0))",
+                ended, before, stale);
+            backfill(granularity, unit, "TIMED_SESSIONS", "user_session", "start_time", "''", "''", "COUNT(*)",
+                ended + " AND total_duration IS NOT NULL", before, stale);
+            backfill(granularity, unit, "SESSION_DURATION", "user_session", "start_time", "''", "''", "SUM(total_duration)",
+                ended + " AND total_duration IS NOT NULL", before, stale);
+            backfill(granularity, unit, "EXIT_PAGE", "user_session", "start_time", "exit_page", "''", "COUNT(*)",
+                ended + " AND exit_page IS NOT NULL", before, stale);
+        }
+    }
+
+    private void backfill(String granularity, String unit, String dimension, String table, String timeColumn,
+                          String valueExpr, String extraExpr, String aggregate, String condition, Timestamp before,
+                          Object... conditionArgs) {
+        String sql = "INSERT INTO analytics_rollup (granularity, bucket_start, dimension, dimension_value, extra, event_count) "
+            + "SELECT '" + granularity + "', date_trunc('" + unit + "', " + timeColumn + "), '" + dimension + "', "
+            + valueExpr + ", " + extraExpr + ", " + aggregate + " FROM " + table
+            + " WHERE " + timeColumn + " < ?" + (condition != null ? " AND " + condition : "")
+            + " GROUP BY 2, 4, 5 HAVING " + aggregate + " IS NOT NULL "
+            + "ON CONFLICT (granularity, bucket_start, dimension, dimension_value, extra) "
+            + "DO UPDATE SET event_count = analytics_rollup.event_count + EXCLUDED.event_count";
+
+        Object[] args = new Object[1 + conditionArgs.length];
+        args[0] = before;
+        System.arraycopy(conditionArgs, 0, args, 1, conditionArgs.length);
+        jdbcTemplate.update(sql, args);
+    }
+
+    public record RollupKey(String granularity, LocalDateTime bucketStart, String dimension, String value, String extra) {
+    }
+
+    public record BucketRange(String granularity, LocalDateTime from, LocalDateTime to) {
+    }
+
+    public record RollupRow(String dimension, String value, String extra, long count) {
+    }
+}
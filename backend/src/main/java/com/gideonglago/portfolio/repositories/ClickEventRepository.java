@@ -33,4 +33,17 @@ public interface ClickEventRepository extends JpaRepository<ClickEvent, Long> {
     
     @Query("SELECT ce.targetUrl, COUNT(ce) FROM ClickEvent ce WHERE ce.targetUrl IS NOT NULL AND ce.timestamp >= :start GROUP BY ce.targetUrl ORDER BY COUNT(ce) DESC")
     List<Object[]> findMostClickedLinksSince(@Param("start") LocalDateTime start);
+    
+    // Bucketed in the database; unit is a date_trunc field such as 'minute', 'hour', 'day' or 'week'
+    @Query(value = "SELECT date_trunc(:unit, ce.timestamp) AS bucket, COUNT(*) FROM click_event ce "
+        + "WHERE ce.timestamp >= :start AND ce.timestamp < :end GROUP BY bucket ORDER BY bucket", nativeQuery = true)
+    List<Object[]> countClicksByBucket(@Param("unit") String unit, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    // Keyset pagination for the activity feed, served by the (timestamp, id) index
+    @Query(value = "SELECT * FROM click_event ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<ClickEvent> findLatest(@Param("limit") int limit);
+    
+    @Query(value = "SELECT * FROM click_event WHERE (timestamp, id) < (:before, :beforeId) "
+        + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<ClickEvent> findLatestBefore(@Param("before") LocalDateTime before, @Param("beforeId") long beforeId, @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -0,0 +1,99 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// JDBC access to click_heatmap. Grids are merged in Java, so writes replace the stored bytes;
+// the single scheduled flush in ClickHeatmapService is the only writer.
+@Repository
+public class ClickHeatmapRepository {
+
+    private static final int LOAD_CHUNK = 500;
+
+    private static final String UPSERT =
+        "INSERT INTO click_heatmap (day, page, viewport, clicks, grid) VALUES (?, ?, ?, ?, ?) "
+        + "ON CONFLICT (page, viewport, day) DO UPDATE SET clicks = EXCLUDED.clicks, grid = EXCLUDED.grid";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public ClickHeatmapRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public Map<HeatmapKey, byte[]> load(List<HeatmapKey> keys) {
+        Map<HeatmapKey, byte[]> grids = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += LOAD_CHUNK) {
+            List<HeatmapKey> chunk = keys.subList(from, Math.min(keys.size(), from + LOAD_CHUNK));
+            StringBuilder sql = new StringBuilder(
+                "SELECT day, page, viewport, grid FROM click_heatmap WHERE (page, viewport, day) IN (");
+            List<Object> args = new ArrayList<>(chunk.size() * 3);
+            for (int i = 0; i < chunk.size(); i++) {
+                HeatmapKey key = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?)" : ", (?, ?, ?)");
+                args.add(key.page());
+                args.add(key.viewport());
+                args.add(Timestamp.valueOf(key.day()));
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> grids.put(
+                new HeatmapKey(rs.getTimestamp(1).toLocalDateTime(), rs.getString(2), rs.getString(3)),
+                rs.getBytes(4)), args.toArray());
+        }
+        return grids;
+    }
+
+    // All or nothing: the caller merges every grid back when this throws
+    public void upsert(Map<HeatmapKey, StoredGrid> grids) {
+        if (grids.isEmpty()) return;
+
+        List<Map.Entry<HeatmapKey, StoredGrid>> rows = new ArrayList<>(grids.entrySet());
+        transactionTemplate.executeWithoutResult(status -> jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (ps, row) -> {
+            HeatmapKey key = row.getKey();
+            ps.setTimestamp(1, Timestamp.valueOf(key.day()));
+            ps.setString(2, key.page());
+            ps.setString(3, key.viewport());
+            ps.setLong(4, row.getValue().clicks());
+            ps.setBytes(5, row.getValue().grid());
+        }));
+    }
+
+    // Streams (viewport, grid) rows of one page for days in [fromDay, toDay)
+    public void forEach(String page, LocalDateTime fromDay, LocalDateTime toDay, GridHandler handler) {
+        jdbcTemplate.query("SELECT viewport, grid FROM click_heatmap WHERE page = ? AND day >= ? AND day < ?",
+            (RowCallbackHandler) rs -> handler.accept(rs.getString(1), rs.getBytes(2)),
+            page, Timestamp.valueOf(fromDay), Timestamp.valueOf(toDay));
+    }
+
+    // Stored clicks per (page, viewport) for days in [fromDay, toDay), without decoding any grid
+    public List<PageClicks> sumClicks(LocalDateTime fromDay, LocalDateTime toDay) {
+        return jdbcTemplate.query("SELECT page, viewport, SUM(clicks) FROM click_heatmap WHERE day >= ? AND day < ? GROUP BY page, viewport",
+            (rs, rowNum) -> new PageClicks(rs.getString(1), rs.getString(2), rs.getLong(3)),
+            Timestamp.valueOf(fromDay), Timestamp.valueOf(toDay));
+    }
+
+    public record HeatmapKey(LocalDateTime day, String page, String viewport) {
+    }
+
+    public record StoredGrid(long clicks, byte[] grid) {
+    }
+
+    public record PageClicks(String page, String viewport, long clicks) {
+    }
+
+    @FunctionalInterface
+    public interface GridHandler {
+        void accept(String viewport, byte[] grid);
+    }
+}
@@ -0,0 +1,72 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Runs compiled drill-down statements. Each one gets its own transaction with a server-side
+// statement_timeout, so Postgres itself cancels a runaway breakdown and the connection goes back to the pool.
+@Repository
+public class DrillDownRepository {
+
+    // Postgres query_canceled, raised when statement_timeout fires
+    private static final String QUERY_CANCELED = "57014";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public DrillDownRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // sql is built from a fixed whitelist, never request input; values are bound from args
+    public List<Object[]> query(String sql, List<Object> args, long timeoutMillis) {
+        return jdbcTemplate.execute((ConnectionCallback<List<Object[]>>) con -> {
+            boolean autoCommit = con.getAutoCommit();
+            // SET LOCAL only lasts until the end of the transaction
+            con.setAutoCommit(false);
+            try {
+                try (PreparedStatement timeout = con.prepareStatement("SELECT set_config('statement_timeout', ?, true)")) {
+                    timeout.setString(1, Long.toString(timeoutMillis));
+                    timeout.execute();
+                }
+
+                List<Object[]> rows = new ArrayList<>();
+                try (PreparedStatement ps = con.prepareStatement(sql)) {
+                    for (int i = 0; i < args.size(); i++) {
+                        ps.setObject(i + 1, args.get(i));
+                    }
+                    try (ResultSet rs = ps.executeQuery()) {
+                        int columns = rs.getMetaData().getColumnCount();
+                        while (rs.next()) {
+                            Object[] row = new Object[columns];
+                            for (int c = 0; c < columns; c++) {
+                                row[c] = rs.getObject(c + 1);
+                            }
+                            rows.add(row);
+                        }
+                    }
+                }
+                con.commit();
+                return rows;
+            } catch (SQLException e) {
+                con.rollback();
+                if (QUERY_CANCELED.equals(e.getSQLState())) {
+                    throw new QueryTimeoutException("Query ran past the " + timeoutMillis + " ms statement timeout", e);
+                }
+                throw e;
+            } catch (RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+        });
+    }
+}
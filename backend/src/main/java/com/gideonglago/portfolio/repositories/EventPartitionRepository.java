@@ -0,0 +1,77 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Maintenance of the daily partitions of page_view and click_event (see V3__partition_event_tables.sql and
+// V8__create_partitions_over_default_rows.sql). Partitions are named <table>_pYYYYMMDD and cover one calendar day.
+@Repository
+public class EventPartitionRepository {
+
+    public static final List<String> PARTITIONED_TABLES = List.of("page_view", "click_event");
+
+    private static final DateTimeFormatter SUFFIX = DateTimeFormatter.ofPattern("yyyyMMdd");
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventPartitionRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public int createDailyPartitions(String table, LocalDate firstDay, LocalDate lastDay) {
+        Integer created = jdbcTemplate.queryForObject("SELECT create_daily_partitions(?, ?, ?)", Integer.class,
+            table, Date.valueOf(firstDay), Date.valueOf(lastDay));
+        return created != null ? created : 0;
+    }
+
+    public List<DailyPartition> findDailyPartitions(String table) {
+        List<String> names = jdbcTemplate.queryForList(
+            "SELECT c.relname FROM pg_inherits i "
+            + "JOIN pg_class c ON c.oid = i.inhrelid JOIN pg_class p ON p.oid = i.inhparent "
+            + "WHERE p.relname = ? ORDER BY c.relname", String.class, table);
+
+        String prefix = table + "_p";
+        List<DailyPartition> partitions = new ArrayList<>();
+        for (String name : names) {
+            if (!name.startsWith(prefix)) continue;
+            try {
+                partitions.add(new DailyPartition(table, name, LocalDate.parse(name.substring(prefix.length()), SUFFIX)));
+            } catch (DateTimeParseException e) {
+                // Not one of ours
+            }
+        }
+        return partitions;
+    }
+
+    // Drops the partition and returns what it held. The row count is the planner's estimate from the last
+    // (auto)analyze: counting would scan exactly the data being thrown away. Table names only ever come
+    // from findDailyPartitions.
+    public DroppedPartition drop(DailyPartition partition) {
+        DroppedPartition dropped = jdbcTemplate.queryForObject(
+            "SELECT GREATEST(reltuples, 0)::bigint, pg_total_relation_size(oid) FROM pg_class WHERE oid = ?::regclass",
+            (rs, rowNum) -> new DroppedPartition(partition.name(), partition.day(), rs.getLong(1), rs.getLong(2)),
+            partition.name());
+        jdbcTemplate.execute("DROP TABLE " + partition.name());
+        return dropped;
+    }
+
+    // Expired rows that fell outside the daily partitions
+    public int deleteFromDefaultPartition(String table, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM " + table + "_default WHERE timestamp < ?", Timestamp.valueOf(before));
+    }
+
+    public record DailyPartition(String table, String name, LocalDate day) {
+    }
+
+    public record DroppedPartition(String name, LocalDate day, long estimatedRows, long bytes) {
+    }
+}
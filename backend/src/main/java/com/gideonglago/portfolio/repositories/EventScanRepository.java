@@ -0,0 +1,64 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+// Streams the dimensions of recent events, oldest first, for loading the columnar store. The rows are
+// fetched through a cursor in fetch-size pieces instead of being buffered by the driver all at once.
+@Repository
+public class EventScanRepository {
+
+    private static final int FETCH_SIZE = 10_000;
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EventScanRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    // columns are SQL expressions from a fixed whitelist, never request input; their values are passed to the
+    // handler in the same order, in an array that is reused between rows
+    public void forEachEvent(String table, List<String> columns, LocalDateTime since, EventRowHandler handler) {
+        String sql = "SELECT timestamp, " + String.join(", ", columns) + " FROM " + table
+            + " WHERE timestamp >= ? ORDER BY timestamp";
+
+        jdbcTemplate.execute((ConnectionCallback<Void>) con -> {
+            boolean autoCommit = con.getAutoCommit();
+            // The driver only uses a cursor inside a transaction
+            con.setAutoCommit(false);
+            try (PreparedStatement ps = con.prepareStatement(sql)) {
+                ps.setFetchSize(FETCH_SIZE);
+                ps.setTimestamp(1, Timestamp.valueOf(since));
+                String[] values = new String[columns.size()];
+                try (ResultSet rs = ps.executeQuery()) {
+                    while (rs.next()) {
+                        for (int d = 0; d < values.length; d++) {
+                            values[d] = rs.getString(d + 2);
+                        }
+                        handler.accept(rs.getTimestamp(1).toLocalDateTime(), values);
+                    }
+                }
+                con.commit();
+            } catch (SQLException | RuntimeException e) {
+                con.rollback();
+                throw e;
+            } finally {
+                con.setAutoCommit(autoCommit);
+            }
+            return null;
+        });
+    }
+
+    @FunctionalInterface
+    public interface EventRowHandler {
+        void accept(LocalDateTime timestamp, String[] values);
+    }
+}
@@ -36,4 +36,17 @@ public interface PageViewRepository extends JpaRepository<PageView, Long> {
     
     @Query("SELECT pv.country, COUNT(pv) FROM PageView pv WHERE pv.country IS NOT NULL AND pv.timestamp >= :start GROUP BY pv.country ORDER BY COUNT(pv) DESC")
     List<Object[]> getCountryStatsSince(@Param("start") LocalDateTime start);
+    
+    // Bucketed in the database; unit is a date_trunc field such as 'minute', 'hour', 'day' or 'week'
+    @Query(value = "SELECT date_trunc(:unit, pv.timestamp) AS bucket, COUNT(*) FROM page_view pv "
+        + "WHERE pv.timestamp >= :start AND pv.timestamp < :end GROUP BY bucket ORDER BY bucket", nativeQuery = true)
+    List<Object[]> countPageViewsByBucket(@Param("unit") String unit, @Param("start") LocalDateTime start, @Param("end") LocalDateTime end);
+    
+    // Keyset pagination for the activity feed, served by the (timestamp, id) index
+    @Query(value = "SELECT * FROM page_view ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<PageView> findLatest(@Param("limit") int limit);
+    
+    @Query(value = "SELECT * FROM page_view WHERE (timestamp, id) < (:before, :beforeId) "
+        + "ORDER BY timestamp DESC, id DESC LIMIT :limit", nativeQuery = true)
+    List<PageView> findLatestBefore(@Param("before") LocalDateTime before, @Param("beforeId") long beforeId, @Param("limit") int limit);
 } 
\ No newline at end of file
@@ -1,9 +1,44 @@
 package com.gideonglago.portfolio.repositories;
 
-import com.gideonglago.portfolio.models.Project;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import com.gideonglago.portfolio.models.Project;
+
 @Repository
 public interface ProjectRepository extends JpaRepository<Project, Long> {
-} 
\ No newline at end of file
+
+    // techStack and images are both bags, which Hibernate cannot fetch in one join, so each is loaded
+    // by its own query into the same persistence context. Callers must run inside a transaction.
+    default List<Project> findAllWithCollections() {
+        List<Project> projects = findAllWithTechStack();
+        if (!projects.isEmpty()) {
+            fetchImages(projects);
+        }
+        return projects;
+    }
+
+    default Optional<Project> findWithCollectionsById(Long id) {
+        Optional<Project> project = findWithTechStackById(id);
+        project.ifPresent(p -> fetchImages(List.of(p)));
+        return project;
+    }
+
+    @EntityGraph(attributePaths = "techStack")
+    @Query("SELECT DISTINCT p FROM Project p ORDER BY p.id")
+    List<Project> findAllWithTechStack();
+
+    @EntityGraph(attributePaths = "techStack")
+    @Query("SELECT p FROM Project p WHERE p.id = :id")
+    Optional<Project> findWithTechStackById(@Param("id") Long id);
+
+    @Query("SELECT DISTINCT p FROM Project p LEFT JOIN FETCH p.images WHERE p IN :projects")
+    List<Project> fetchImages(@Param("projects") Collection<Project> projects);
+}
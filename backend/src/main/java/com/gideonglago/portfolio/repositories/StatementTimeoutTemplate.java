@@ -0,0 +1,34 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.util.function.Supplier;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// Runs work in a read-only transaction with a server-side statement_timeout, as DrillDownRepository does for
+// breakdowns, so Postgres cancels a query whose caller has given up on it instead of running it to the end.
+// JdbcTemplate and JPA repositories called from work share the transaction's connection and its timeout.
+@Repository
+public class StatementTimeoutTemplate {
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public StatementTimeoutTemplate(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.transactionTemplate.setReadOnly(true);
+    }
+
+    // A timed-out statement surfaces as org.springframework.dao.QueryTimeoutException
+    public <T> T query(long timeoutMillis, Supplier<T> work) {
+        return transactionTemplate.execute(status -> {
+            // SET LOCAL only lasts until the end of the transaction
+            jdbcTemplate.queryForObject("SELECT set_config('statement_timeout', ?, true)", String.class,
+                Long.toString(Math.max(1, timeoutMillis)));
+            return work.get();
+        });
+    }
+}
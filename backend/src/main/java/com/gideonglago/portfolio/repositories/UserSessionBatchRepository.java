@@ -0,0 +1,149 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Connection;
+import java.sql.Timestamp;
+import java.sql.Types;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+// JDBC writes used by the session checkpoint: counters are updated in place and only newly visited
+// pages are appended, instead of Hibernate rewriting the whole pages_visited collection per save.
+// New sessions are inserted column-wise in one statement, as AnalyticsEventBatchRepository does for
+// events. Each call writes the sessions and their pages in one transaction, so a failed checkpoint
+// that is retried never appends the same pages twice.
+@Repository
+public class UserSessionBatchRepository {
+
+    private static final String INSERT_SESSIONS =
+        "INSERT INTO user_session (session_id, ip_address, user_agent, start_time, end_time, total_duration, page_views, clicks, "
+        + "entry_page, exit_page, referrer, device, browser, os, country, city, is_returning_visitor) "
+        + "SELECT * FROM unnest(?::varchar[], ?::varchar[], ?::varchar[], ?::timestamp[], ?::timestamp[], ?::bigint[], ?::integer[], "
+        + "?::integer[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], ?::varchar[], "
+        + "?::varchar[], ?::boolean[]) "
+        + "RETURNING id, session_id";
+
+    private static final String UPDATE_SESSION =
+        "UPDATE user_session SET page_views = ?, clicks = ?, exit_page = ?, end_time = ?, total_duration = ? WHERE id = ?";
+
+    private static final String INSERT_PAGE_VISITED =
+        "INSERT INTO user_session_pages_visited (user_session_id, pages_visited) VALUES (?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+
+    public UserSessionBatchRepository(JdbcTemplate jdbcTemplate, PlatformTransactionManager transactionManager) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public List<String> findPagesVisited(Long sessionId) {
+        return jdbcTemplate.queryForList(
+            "SELECT pages_visited FROM user_session_pages_visited WHERE user_session_id = ?", String.class, sessionId);
+    }
+
+    // Returns the generated id of each inserted session by its session id
+    public Map<String, Long> insertSessions(List<NewSession> sessions) {
+        if (sessions.isEmpty()) return Map.of();
+
+        return transactionTemplate.execute(status -> {
+            Map<String, Long> ids = new HashMap<>();
+            jdbcTemplate.query(INSERT_SESSIONS, ps -> {
+                Connection con = ps.getConnection();
+                ps.setArray(1, con.createArrayOf("varchar", column(sessions, NewSession::sessionId)));
+                ps.setArray(2, con.createArrayOf("varchar", column(sessions, NewSession::ipAddress)));
+                ps.setArray(3, con.createArrayOf("varchar", column(sessions, NewSession::userAgent)));
+                ps.setArray(4, con.createArrayOf("timestamp", column(sessions, session -> timestamp(session.startTime()))));
+                ps.setArray(5, con.createArrayOf("timestamp", column(sessions, session -> timestamp(session.endTime()))));
+                ps.setArray(6, con.createArrayOf("bigint", column(sessions, NewSession::totalDuration)));
+                ps.setArray(7, con.createArrayOf("integer", column(sessions, NewSession::pageViews)));
+                ps.setArray(8, con.createArrayOf("integer", column(sessions, NewSession::clicks)));
+                ps.setArray(9, con.createArrayOf("varchar", column(sessions, NewSession::entryPage)));
+                ps.setArray(10, con.createArrayOf("varchar", column(sessions, NewSession::exitPage)));
+                ps.setArray(11, con.createArrayOf("varchar", column(sessions, NewSession::referrer)));
+                ps.setArray(12, con.createArrayOf("varchar", column(sessions, NewSession::device)));
+                ps.setArray(13, con.createArrayOf("varchar", column(sessions, NewSession::browser)));
+                ps.setArray(14, con.createArrayOf("varchar", column(sessions, NewSession::os)));
+                ps.setArray(15, con.createArrayOf("varchar", column(sessions, NewSession::country)));
+                ps.setArray(16, con.createArrayOf("varchar", column(sessions, NewSession::city)));
+                ps.setArray(17, con.createArrayOf("boolean", column(sessions, NewSession::returningVisitor)));
+            }, rs -> {
+                ids.put(rs.getString(2), rs.getLong(1));
+            });
+
+            List<Object[]> pages = new ArrayList<>();
+            for (NewSession session : sessions) {
+                for (String page : session.pagesVisited()) {
+                    pages.add(new Object[] { ids.get(session.sessionId()), page });
+                }
+            }
+            if (!pages.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_PAGE_VISITED, pages);
+            }
+            return ids;
+        });
+    }
+
+    public void updateSessions(List<SessionUpdate> updates) {
+        if (updates.isEmpty()) return;
+
+        transactionTemplate.executeWithoutResult(status -> {
+            jdbcTemplate.batchUpdate(UPDATE_SESSION, updates, updates.size(), (ps, update) -> {
+                ps.setInt(1, update.pageViews());
+                ps.setInt(2, update.clicks());
+                ps.setString(3, update.exitPage());
+                ps.setTimestamp(4, timestamp(update.endTime()));
+                ps.setObject(5, update.totalDuration(), Types.BIGINT);
+                ps.setLong(6, update.id());
+            });
+
+            List<Object[]> pages = new ArrayList<>();
+            for (SessionUpdate update : updates) {
+                for (String page : update.newPages()) {
+                    pages.add(new Object[] { update.id(), page });
+                }
+            }
+            if (!pages.isEmpty()) {
+                jdbcTemplate.batchUpdate(INSERT_PAGE_VISITED, pages);
+            }
+        });
+    }
+
+    public int deleteStartedBefore(LocalDateTime before) {
+        Timestamp cutoff = Timestamp.valueOf(before);
+        jdbcTemplate.update("DELETE FROM user_session_pages_visited WHERE user_session_id IN "
+            + "(SELECT id FROM user_session WHERE start_time < ?)", cutoff);
+        return jdbcTemplate.update("DELETE FROM user_session WHERE start_time < ?", cutoff);
+    }
+
+    private static Timestamp timestamp(LocalDateTime time) {
+        return time != null ? Timestamp.valueOf(time) : null;
+    }
+
+    private static <T> Object[] column(List<T> rows, Function<T, ?> getter) {
+        Object[] values = new Object[rows.size()];
+        for (int i = 0; i < values.length; i++) {
+            values[i] = getter.apply(rows.get(i));
+        }
+        return values;
+    }
+
+    // pagesVisited are all the session's pages, each once
+    public record NewSession(String sessionId, String ipAddress, String userAgent, LocalDateTime startTime,
+                             LocalDateTime endTime, Long totalDuration, int pageViews, int clicks, String entryPage,
+                             String exitPage, String referrer, String device, String browser, String os,
+                             String country, String city, boolean returningVisitor, List<String> pagesVisited) {
+    }
+
+    public record SessionUpdate(Long id, int pageViews, int clicks, String exitPage,
+                                LocalDateTime endTime, Long totalDuration, List<String> newPages) {
+    }
+}
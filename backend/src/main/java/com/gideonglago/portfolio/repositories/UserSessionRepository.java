@@ -16,8 +16,6 @@ public interface UserSessionRepository extends JpaRepository<UserSession, Long>
     
     Optional<UserSession> findBySessionId(String sessionId);
     
-    List<UserSession> findByIpAddress(String ipAddress);
-    
     List<UserSession> findByStartTimeBetween(LocalDateTime start, LocalDateTime end);
     
     @Query("SELECT AVG(us.totalDuration) FROM UserSession us WHERE us.totalDuration IS NOT NULL AND us.startTime >= :start")
@@ -0,0 +1,68 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.LongConsumer;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+// JDBC access to visitor_fingerprint, keyed by the salted IP hash computed in VisitorIndex.
+@Repository
+public class VisitorFingerprintRepository {
+
+    private static final String UPSERT =
+        "INSERT INTO visitor_fingerprint (fingerprint, first_seen, last_seen) VALUES (?, ?, ?) "
+        + "ON CONFLICT (fingerprint) DO UPDATE SET last_seen = GREATEST(visitor_fingerprint.last_seen, EXCLUDED.last_seen)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitorFingerprintRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public boolean exists(long fingerprint) {
+        return !jdbcTemplate.queryForList("SELECT 1 FROM visitor_fingerprint WHERE fingerprint = ?", Integer.class, fingerprint)
+            .isEmpty();
+    }
+
+    public void upsert(Map<Long, LocalDateTime> lastSeen) {
+        if (lastSeen.isEmpty()) return;
+
+        List<Map.Entry<Long, LocalDateTime>> rows = new ArrayList<>(lastSeen.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT, rows, 1000, (ps, row) -> {
+            Timestamp seen = Timestamp.valueOf(row.getValue());
+            ps.setLong(1, row.getKey());
+            ps.setTimestamp(2, seen);
+            ps.setTimestamp(3, seen);
+        });
+    }
+
+    public long count() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM visitor_fingerprint", Long.class);
+    }
+
+    public void forEachFingerprint(LongConsumer consumer) {
+        jdbcTemplate.query("SELECT fingerprint FROM visitor_fingerprint", (RowCallbackHandler) rs -> consumer.accept(rs.getLong(1)));
+    }
+
+    // Distinct session IPs with the last time each was seen, for the one-off backfill
+    public void forEachSessionIp(SessionIpHandler handler) {
+        jdbcTemplate.query("SELECT ip_address, MAX(start_time) FROM user_session "
+            + "WHERE ip_address IS NOT NULL AND start_time IS NOT NULL GROUP BY ip_address",
+            (RowCallbackHandler) rs -> handler.accept(rs.getString(1), rs.getTimestamp(2).toLocalDateTime()));
+    }
+
+    public int deleteLastSeenBefore(LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM visitor_fingerprint WHERE last_seen < ?", Timestamp.valueOf(before));
+    }
+
+    @FunctionalInterface
+    public interface SessionIpHandler {
+        void accept(String ipAddress, LocalDateTime lastSeen);
+    }
+}
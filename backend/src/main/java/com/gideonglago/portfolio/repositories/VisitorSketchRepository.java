@@ -0,0 +1,121 @@
+package com.gideonglago.portfolio.repositories;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.BucketRange;
+
+// JDBC access to visitor_sketch. Sketches are merged in Java, so writes replace the stored bytes;
+// UniqueVisitorService runs its flushes and backfill writes one at a time under its flush lock.
+@Repository
+public class VisitorSketchRepository {
+
+    private static final int LOAD_CHUNK = 500;
+
+    private static final String UPSERT =
+        "INSERT INTO visitor_sketch (granularity, bucket_start, metric, dimension_value, sketch) VALUES (?, ?, ?, ?, ?) "
+        + "ON CONFLICT (metric, granularity, bucket_start, dimension_value) DO UPDATE SET sketch = EXCLUDED.sketch";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public VisitorSketchRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Map<SketchKey, byte[]> load(List<SketchKey> keys) {
+        Map<SketchKey, byte[]> sketches = new HashMap<>();
+        for (int from = 0; from < keys.size(); from += LOAD_CHUNK) {
+            List<SketchKey> chunk = keys.subList(from, Math.min(keys.size(), from + LOAD_CHUNK));
+            StringBuilder sql = new StringBuilder(
+                "SELECT granularity, bucket_start, metric, dimension_value, sketch FROM visitor_sketch "
+                + "WHERE (metric, granularity, bucket_start, dimension_value) IN (");
+            List<Object> args = new ArrayList<>(chunk.size() * 4);
+            for (int i = 0; i < chunk.size(); i++) {
+                SketchKey key = chunk.get(i);
+                sql.append(i == 0 ? "(?, ?, ?, ?)" : ", (?, ?, ?, ?)");
+                args.add(key.metric());
+                args.add(key.granularity());
+                args.add(Timestamp.valueOf(key.bucketStart()));
+                args.add(key.value());
+            }
+            sql.append(')');
+            jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> sketches.put(
+                new SketchKey(rs.getString(1), rs.getTimestamp(2).toLocalDateTime(), rs.getString(3), rs.getString(4)),
+                rs.getBytes(5)), args.toArray());
+        }
+        return sketches;
+    }
+
+    public void upsert(Map<SketchKey, byte[]> sketches) {
+        if (sketches.isEmpty()) return;
+
+        List<Map.Entry<SketchKey, byte[]>> rows = new ArrayList<>(sketches.entrySet());
+        jdbcTemplate.batchUpdate(UPSERT, rows, rows.size(), (ps, row) -> {
+            SketchKey key = row.getKey();
+            ps.setString(1, key.granularity());
+            ps.setTimestamp(2, Timestamp.valueOf(key.bucketStart()));
+            ps.setString(3, key.metric());
+            ps.setString(4, key.value());
+            ps.setBytes(5, row.getValue());
+        });
+    }
+
+    // Streams (dimension_value, sketch) rows of one metric over the given bucket ranges
+    public void forEach(String metric, List<BucketRange> ranges, SketchHandler handler) {
+        StringBuilder sql = new StringBuilder("SELECT dimension_value, sketch FROM visitor_sketch WHERE metric = ? AND (");
+        List<Object> args = new ArrayList<>();
+        args.add(metric);
+        for (int i = 0; i < ranges.size(); i++) {
+            BucketRange range = ranges.get(i);
+            sql.append(i == 0 ? "(" : " OR (").append("granularity = ? AND bucket_start >= ? AND bucket_start < ?)");
+            args.add(range.granularity());
+            args.add(Timestamp.valueOf(range.from()));
+            args.add(Timestamp.valueOf(range.to()));
+        }
+        sql.append(')');
+        jdbcTemplate.query(sql.toString(), (RowCallbackHandler) rs -> handler.accept(rs.getString(1), rs.getBytes(2)), args.toArray());
+    }
+
+    public boolean isEmpty() {
+        return jdbcTemplate.queryForObject("SELECT COUNT(*) FROM (SELECT 1 FROM visitor_sketch LIMIT 1) s", Long.class) == 0;
+    }
+
+    public int deleteBefore(String granularity, LocalDateTime before) {
+        return jdbcTemplate.update("DELETE FROM visitor_sketch WHERE granularity = ? AND bucket_start < ?",
+            granularity, Timestamp.valueOf(before));
+    }
+
+    public LocalDateTime findFirstPageViewBefore(LocalDateTime cutoff) {
+        Timestamp first = jdbcTemplate.queryForObject("SELECT MIN(timestamp) FROM page_view WHERE timestamp < ?",
+            Timestamp.class, Timestamp.valueOf(cutoff));
+        return first != null ? first.toLocalDateTime() : null;
+    }
+
+    // Raw page views in [from, to), for the one-off backfill
+    public void forEachPageView(LocalDateTime from, LocalDateTime to, PageViewHandler handler) {
+        jdbcTemplate.query("SELECT timestamp, session_id, ip_address, page FROM page_view WHERE timestamp >= ? AND timestamp < ?",
+            (RowCallbackHandler) rs -> handler.accept(rs.getTimestamp(1).toLocalDateTime(), rs.getString(2), rs.getString(3), rs.getString(4)),
+            Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    public record SketchKey(String granularity, LocalDateTime bucketStart, String metric, String value) {
+    }
+
+    @FunctionalInterface
+    public interface SketchHandler {
+        void accept(String value, byte[] sketch);
+    }
+
+    @FunctionalInterface
+    public interface PageViewHandler {
+        void accept(LocalDateTime timestamp, String sessionId, String ipAddress, String page);
+    }
+}
@@ -0,0 +1,168 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+
+// Binary form of the tracking events kept in the append log: a type byte, the event id, then the
+// fields in declaration order. Strings are length-prefixed UTF-8 with -1 for null. Fields added later go
+// at the end and are read only when the record has bytes left, so records logged before them still decode.
+public final class AnalyticsEventCodec {
+
+    private static final byte PAGE_VIEW = 1;
+    private static final byte CLICK = 2;
+
+    private AnalyticsEventCodec() {
+    }
+
+    public static byte[] encode(Object event) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            if (event instanceof PageView pv) {
+                out.writeByte(PAGE_VIEW);
+                writeUuid(out, pv.getEventId());
+                writeString(out, pv.getPage());
+                writeString(out, pv.getReferrer());
+                writeString(out, pv.getUserAgent());
+                writeString(out, pv.getIpAddress());
+                writeString(out, pv.getSessionId());
+                writeTimestamp(out, pv.getTimestamp());
+                writeLong(out, pv.getDuration());
+                writeString(out, pv.getDevice());
+                writeString(out, pv.getBrowser());
+                writeString(out, pv.getOs());
+                writeString(out, pv.getCountry());
+                writeString(out, pv.getCity());
+            } else if (event instanceof ClickEvent ce) {
+                out.writeByte(CLICK);
+                writeUuid(out, ce.getEventId());
+                writeString(out, ce.getSessionId());
+                writeString(out, ce.getPage());
+                writeString(out, ce.getElementType());
+                writeString(out, ce.getElementId());
+                writeString(out, ce.getElementText());
+                writeString(out, ce.getTargetUrl());
+                writeInteger(out, ce.getXPosition());
+                writeInteger(out, ce.getYPosition());
+                writeTimestamp(out, ce.getTimestamp());
+                writeString(out, ce.getUserAgent());
+                writeString(out, ce.getIpAddress());
+                writeInteger(out, ce.getDocumentWidth());
+                writeInteger(out, ce.getDocumentHeight());
+            } else {
+                throw new IllegalArgumentException("Not a tracking event: " + event);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    public static Object decode(byte[] record) {
+        try (DataInputStream in = new DataInputStream(new ByteArrayInputStream(record))) {
+            byte type = in.readByte();
+            if (type == PAGE_VIEW) {
+                PageView pv = new PageView();
+                pv.setEventId(readUuid(in));
+                pv.setPage(readString(in));
+                pv.setReferrer(readString(in));
+                pv.setUserAgent(readString(in));
+                pv.setIpAddress(readString(in));
+                pv.setSessionId(readString(in));
+                pv.setTimestamp(readTimestamp(in));
+                pv.setDuration(readLong(in));
+                pv.setDevice(readString(in));
+                pv.setBrowser(readString(in));
+                pv.setOs(readString(in));
+                pv.setCountry(readString(in));
+                pv.setCity(readString(in));
+                return pv;
+            }
+            if (type == CLICK) {
+                ClickEvent ce = new ClickEvent();
+                ce.setEventId(readUuid(in));
+                ce.setSessionId(readString(in));
+                ce.setPage(readString(in));
+                ce.setElementType(readString(in));
+                ce.setElementId(readString(in));
+                ce.setElementText(readString(in));
+                ce.setTargetUrl(readString(in));
+                ce.setXPosition(readInteger(in));
+                ce.setYPosition(readInteger(in));
+                ce.setTimestamp(readTimestamp(in));
+                ce.setUserAgent(readString(in));
+                ce.setIpAddress(readString(in));
+                if (in.available() > 0) {
+                    ce.setDocumentWidth(readInteger(in));
+                    ce.setDocumentHeight(readInteger(in));
+                }
+                return ce;
+            }
+            throw new IllegalArgumentException("Unknown event type " + type);
+        } catch (IOException e) {
+            throw new IllegalArgumentException("Truncated event record", e);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    private static void writeTimestamp(DataOutputStream out, LocalDateTime timestamp) throws IOException {
+        out.writeLong(timestamp.toEpochSecond(ZoneOffset.UTC));
+        out.writeInt(timestamp.getNano());
+    }
+
+    private static LocalDateTime readTimestamp(DataInputStream in) throws IOException {
+        return LocalDateTime.ofEpochSecond(in.readLong(), in.readInt(), ZoneOffset.UTC);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        if (value == null) {
+            out.writeInt(-1);
+            return;
+        }
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        out.writeInt(utf8.length);
+        out.write(utf8);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        int length = in.readInt();
+        if (length < 0) return null;
+        return new String(in.readNBytes(length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeLong(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeLong(value);
+    }
+
+    private static Long readLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeInteger(DataOutputStream out, Integer value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) out.writeInt(value);
+    }
+
+    private static Integer readInteger(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readInt() : null;
+    }
+}
@@ -0,0 +1,17 @@
+package com.gideonglago.portfolio.services;
+
+import java.util.List;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+
+// Receives tracking events after they have been persisted by the ingestion pipeline.
+// Page views of a batch are always delivered before the clicks of the same batch.
+public interface AnalyticsEventListener {
+
+    default void onPageViews(List<PageView> pageViews) {
+    }
+
+    default void onClicks(List<ClickEvent> clicks) {
+    }
+}
@@ -0,0 +1,458 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Local append-only log of tracking events in analytics.wal.dir, so accepted events survive a restart
+// and ingestion keeps going while the database is unavailable. Records ([length][crc32c][payload]) are
+// appended to segment files named after the log offset they start at; offsets are byte positions across
+// the whole log. An append returns once its records are fsynced, and appends that arrive while a sync is
+// running share the next one (group commit). A single consumer reads durable records from the offset
+// in consumer.offset and commits a new offset once they are in the database; segments wholly below it
+// are deleted. The checkpoint is not fsynced: after a crash the consumer may re-read a little, which
+// the event ids make harmless. Records the database rejects for good are moved to dead-letter.log, in
+// the same format, so the consumer can commit past them. With no directory configured the log is disabled.
+@Component
+public class AnalyticsEventLog {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsEventLog.class);
+
+    private static final int HEADER_BYTES = 8;
+    private static final int MAX_RECORD_BYTES = 1 << 20;
+    private static final String SEGMENT_SUFFIX = ".log";
+    private static final String CHECKPOINT = "consumer.offset";
+    private static final String DEAD_LETTER = "dead-letter.log";
+
+    private final Path directory;
+    private final long segmentBytes;
+    private final long maxBacklogBytes;
+
+    private final ConcurrentSkipListMap<Long, Path> segments = new ConcurrentSkipListMap<>();
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong syncs = new AtomicLong();
+    private final AtomicLong quarantined = new AtomicLong();
+
+    // Appends are written under appendLock; syncLock coordinates the group commits
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private final ReentrantLock syncLock = new ReentrantLock();
+    private final Condition synced = syncLock.newCondition();
+
+    private FileChannel active;
+    private long activeBase;
+    private volatile long writeOffset;
+    private volatile long durableOffset;
+    private boolean syncing;
+    private volatile long consumerOffset;
+
+    // Consumer thread only
+    private FileChannel reader;
+    private long readerBase = -1;
+
+    public AnalyticsEventLog(@Value("${analytics.wal.dir:}") String directory,
+                             @Value("${analytics.wal.segment-bytes:67108864}") long segmentBytes,
+                             @Value("${analytics.wal.max-backlog-bytes:1073741824}") long maxBacklogBytes) {
+        this.directory = directory.isBlank() ? null : Path.of(directory);
+        this.segmentBytes = segmentBytes;
+        this.maxBacklogBytes = maxBacklogBytes;
+    }
+
+    public boolean isEnabled() {
+        return directory != null;
+    }
+
+    // Finds the segments, cuts off a torn write at the end of the last one and loads the consumer offset
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        try (Stream<Path> files = Files.list(directory)) {
+            files.filter(file -> file.getFileName().toString().matches("\\d{20}\\" + SEGMENT_SUFFIX))
+                .forEach(file -> segments.put(baseOffset(file), file));
+        }
+
+        long checkpoint = readCheckpoint();
+        appendLock.lock();
+        try {
+            if (segments.isEmpty()) {
+                writeOffset = checkpoint;
+                openSegment(checkpoint);
+            } else {
+                Map.Entry<Long, Path> last = segments.lastEntry();
+                activeBase = last.getKey();
+                active = FileChannel.open(last.getValue(), StandardOpenOption.READ, StandardOpenOption.WRITE);
+                long size = active.size();
+                long validEnd = readRecords(active, 0, size, Integer.MAX_VALUE, record -> { });
+                if (validEnd < size) {
+                    log.warn("Truncating {} bytes of incomplete records at the end of {}", size - validEnd, last.getValue());
+                    active.truncate(validEnd);
+                    active.force(true);
+                }
+                writeOffset = activeBase + validEnd;
+            }
+            durableOffset = writeOffset;
+        } finally {
+            appendLock.unlock();
+        }
+
+        long first = segments.firstKey();
+        consumerOffset = Math.max(first, Math.min(checkpoint, writeOffset));
+        if (consumerOffset != checkpoint) {
+            log.warn("Analytics event log checkpoint {} is outside the log ({} to {}), consuming from {}",
+                checkpoint, first, writeOffset, consumerOffset);
+        }
+        if (writeOffset > consumerOffset) {
+            log.info("Replaying {} bytes of logged analytics events from offset {}", writeOffset - consumerOffset, consumerOffset);
+        }
+    }
+
+    // Appends the records and returns once they are on disk, or returns false without writing them
+    // when more than max-backlog-bytes are already waiting for the consumer
+    public boolean append(List<byte[]> records) throws IOException {
+        if (records.isEmpty()) return true;
+
+        int total = 0;
+        for (byte[] record : records) total += HEADER_BYTES + record.length;
+        ByteBuffer buffer = frame(records, total);
+
+        long end;
+        appendLock.lock();
+        try {
+            if (writeOffset - consumerOffset + total > maxBacklogBytes) return false;
+            reopenIfClosed();
+            if (writeOffset > activeBase && writeOffset - activeBase + total > segmentBytes) {
+                roll();
+            }
+            long position = writeOffset - activeBase;
+            while (buffer.hasRemaining()) {
+                position += active.write(buffer, position);
+            }
+            writeOffset += total;
+            end = writeOffset;
+        } finally {
+            appendLock.unlock();
+        }
+        appended.addAndGet(records.size());
+
+        awaitDurable(end);
+        return true;
+    }
+
+    public long getConsumerOffset() {
+        return consumerOffset;
+    }
+
+    public long getDurableOffset() {
+        return durableOffset;
+    }
+
+    // Reads up to maxRecords durable records starting at offset into out and returns the offset after the
+    // last one. A record that fails its checksum skips the rest of its segment.
+    public long read(long offset, int maxRecords, List<byte[]> out) throws IOException {
+        long limit = durableOffset;
+        int wanted = out.size() + maxRecords;
+        while (offset < limit && out.size() < wanted) {
+            Map.Entry<Long, Path> segment = segments.floorEntry(offset);
+            if (segment == null) {
+                offset = segments.firstKey();
+                continue;
+            }
+            long base = segment.getKey();
+            Long next = segments.higherKey(base);
+            long end = Math.min(next != null ? next : limit, limit) - base;
+
+            long stop = readRecords(reader(base, segment.getValue()), offset - base, end, wanted - out.size(), out::add);
+            if (stop < end && out.size() < wanted) {
+                log.error("Corrupt analytics event record at offset {} in {}, skipping {} bytes",
+                    base + stop, segment.getValue(), end - stop);
+                stop = end;
+            }
+            offset = base + stop;
+        }
+        return offset;
+    }
+
+    // Waits until a record after offset is durable; false when the timeout passed first
+    public boolean awaitRecords(long offset, long timeoutNanos) throws InterruptedException {
+        syncLock.lock();
+        try {
+            long remaining = timeoutNanos;
+            while (durableOffset <= offset) {
+                if (remaining <= 0) return false;
+                remaining = synced.awaitNanos(remaining);
+            }
+            return true;
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    // Appends records the consumer gave up on to the dead-letter file and returns once they are on disk;
+    // consumer thread only
+    public void quarantine(List<byte[]> records) throws IOException {
+        if (records.isEmpty()) return;
+
+        int total = 0;
+        for (byte[] record : records) total += HEADER_BYTES + record.length;
+        ByteBuffer buffer = frame(records, total);
+        try (FileChannel channel = FileChannel.open(directory.resolve(DEAD_LETTER),
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            channel.force(false);
+        }
+        quarantined.addAndGet(records.size());
+    }
+
+    // The intact records in the dead-letter file, oldest first
+    public List<byte[]> readQuarantined() throws IOException {
+        Path file = directory.resolve(DEAD_LETTER);
+        List<byte[]> records = new ArrayList<>();
+        if (!Files.isRegularFile(file)) return records;
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            readRecords(channel, 0, channel.size(), Integer.MAX_VALUE, records::add);
+        }
+        return records;
+    }
+
+    // Records everything before offset as consumed and deletes the segments that lie wholly below it
+    public void commit(long offset) throws IOException {
+        consumerOffset = offset;
+        Path temporary = directory.resolve(CHECKPOINT + ".tmp");
+        Files.writeString(temporary, Long.toString(offset), StandardCharsets.US_ASCII);
+        Files.move(temporary, directory.resolve(CHECKPOINT), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+
+        for (Map.Entry<Long, Path> segment : segments.entrySet()) {
+            Long next = segments.higherKey(segment.getKey());
+            if (next == null || next > offset) break;
+            if (segment.getKey() == readerBase) {
+                closeReader();
+            }
+            Files.deleteIfExists(segment.getValue());
+            segments.remove(segment.getKey());
+        }
+    }
+
+    public void close() {
+        appendLock.lock();
+        try {
+            if (active != null && active.isOpen()) {
+                active.force(false);
+                active.close();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to close analytics event log segment: {}", e.getMessage());
+        } finally {
+            appendLock.unlock();
+        }
+        closeReader();
+    }
+
+    public LogStats getStats() {
+        return new LogStats(segments.size(), writeOffset - consumerOffset, appended.get(), syncs.get(),
+            durableOffset, consumerOffset, quarantined.get());
+    }
+
+    // Leader/follower group commit: the first waiter syncs everything written so far while later ones wait
+    // for it, then one of those still behind syncs again
+    private void awaitDurable(long offset) throws IOException {
+        syncLock.lock();
+        try {
+            while (durableOffset < offset) {
+                if (syncing) {
+                    synced.awaitUninterruptibly();
+                    continue;
+                }
+                syncing = true;
+                syncLock.unlock();
+                long target = -1;
+                try {
+                    FileChannel channel;
+                    long written;
+                    appendLock.lock();
+                    try {
+                        channel = active;
+                        written = writeOffset;
+                    } finally {
+                        appendLock.unlock();
+                    }
+                    try {
+                        channel.force(false);
+                    } catch (ClosedChannelException e) {
+                        // Rolled over (which synced this segment) or closed by an interrupt; syncing the
+                        // current segment covers both, as it is either newer or the same file
+                        forceActive();
+                    }
+                    target = written;
+                } finally {
+                    syncLock.lock();
+                    syncing = false;
+                    if (target > durableOffset) {
+                        durableOffset = target;
+                        syncs.incrementAndGet();
+                    }
+                    synced.signalAll();
+                }
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private void forceActive() throws IOException {
+        appendLock.lock();
+        try {
+            reopenIfClosed();
+            active.force(false);
+        } finally {
+            appendLock.unlock();
+        }
+    }
+
+    // An interrupted write or sync closes the channel; anything written past writeOffset is overwritten
+    private void reopenIfClosed() throws IOException {
+        if (!active.isOpen()) {
+            active = FileChannel.open(segments.get(activeBase), StandardOpenOption.READ, StandardOpenOption.WRITE);
+        }
+    }
+
+    // Called with appendLock held
+    private void roll() throws IOException {
+        active.force(false);
+        active.close();
+        markDurable(writeOffset);
+        openSegment(writeOffset);
+    }
+
+    private void openSegment(long base) throws IOException {
+        Path file = directory.resolve(String.format("%020d%s", base, SEGMENT_SUFFIX));
+        active = FileChannel.open(file, StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        activeBase = base;
+        segments.put(base, file);
+        // Make the new directory entry durable too
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        } catch (IOException e) {
+            log.debug("Directory sync not supported for {}: {}", directory, e.getMessage());
+        }
+    }
+
+    private void markDurable(long offset) {
+        syncLock.lock();
+        try {
+            if (offset > durableOffset) {
+                durableOffset = offset;
+                synced.signalAll();
+            }
+        } finally {
+            syncLock.unlock();
+        }
+    }
+
+    private FileChannel reader(long base, Path file) throws IOException {
+        if (readerBase != base || reader == null || !reader.isOpen()) {
+            closeReader();
+            reader = FileChannel.open(file, StandardOpenOption.READ);
+            readerBase = base;
+        }
+        return reader;
+    }
+
+    private void closeReader() {
+        if (reader == null) return;
+        try {
+            reader.close();
+        } catch (IOException e) {
+            log.debug("Failed to close analytics event log reader: {}", e.getMessage());
+        }
+        reader = null;
+        readerBase = -1;
+    }
+
+    private long readCheckpoint() throws IOException {
+        Path file = directory.resolve(CHECKPOINT);
+        if (!Files.isRegularFile(file)) return 0;
+        try {
+            return Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim());
+        } catch (NumberFormatException e) {
+            log.warn("Unreadable analytics event log checkpoint {}, replaying the whole log", file);
+            return 0;
+        }
+    }
+
+    // Passes whole, intact records between position and limit to sink, at most maxRecords of them, and
+    // returns the position after the last one
+    private static long readRecords(FileChannel channel, long position, long limit, int maxRecords,
+                                    Consumer<byte[]> sink) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        int count = 0;
+        while (count < maxRecords && position + HEADER_BYTES <= limit) {
+            header.clear();
+            readFully(channel, header, position);
+            int length = header.getInt(0);
+            if (length <= 0 || length > MAX_RECORD_BYTES || position + HEADER_BYTES + length > limit) break;
+
+            byte[] record = new byte[length];
+            readFully(channel, ByteBuffer.wrap(record), position + HEADER_BYTES);
+            if (checksum(record) != header.getInt(4)) break;
+
+            sink.accept(record);
+            position += HEADER_BYTES + length;
+            count++;
+        }
+        return position;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("Unexpected end of analytics event log segment");
+            }
+        }
+    }
+
+    private static ByteBuffer frame(List<byte[]> records, int total) {
+        ByteBuffer buffer = ByteBuffer.allocate(total);
+        for (byte[] record : records) {
+            buffer.putInt(record.length).putInt(checksum(record)).put(record);
+        }
+        return buffer.flip();
+    }
+
+    private static int checksum(byte[] record) {
+        CRC32C crc = new CRC32C();
+        crc.update(record);
+        return (int) crc.getValue();
+    }
+
+    private static long baseOffset(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()));
+    }
+
+    // quarantined counts the records moved to the dead-letter file since startup
+    public record LogStats(int segments, long backlogBytes, long appended, long syncs,
+                           long durableOffset, long consumerOffset, long quarantined) {
+    }
+}
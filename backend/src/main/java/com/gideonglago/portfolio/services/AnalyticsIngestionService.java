@@ -0,0 +1,419 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.RecoverableDataAccessException;
+import org.springframework.dao.TransientDataAccessException;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsEventBatchRepository;
+
+// Buffers tracking events in a bounded queue and writes them to the database in JDBC batches
+// from a single background writer. A batch is flushed when it reaches batch-size events or when
+// flush-interval-ms has passed since its first event, whichever comes first.
+//
+// With analytics.wal.dir set, the buffer is the local append log instead of the queue: an event is
+// acknowledged once it is on disk, the writer consumes the log from its committed offset (replaying
+// whatever was not yet written before a restart) and retries while the database is unavailable. Events
+// the database rejects for any other reason are moved to the log's dead-letter file one by one, and the
+// rest of their batch is written.
+@Service
+public class AnalyticsIngestionService implements SmartLifecycle {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsIngestionService.class);
+
+    private static final long MAX_RETRY_BACKOFF_MS = 5000;
+
+    private final AnalyticsEventBatchRepository batchRepository;
+    private final List<AnalyticsEventListener> listeners;
+    private final AnalyticsEventLog eventLog;
+    private final boolean async;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutMillis;
+    private final long shutdownTimeoutMillis;
+    private final BlockingQueue<Object> queue;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong written = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong duplicates = new AtomicLong();
+    private final AtomicLong retried = new AtomicLong();
+
+    private volatile boolean running;
+    private Thread writer;
+
+    public AnalyticsIngestionService(AnalyticsEventBatchRepository batchRepository,
+                                     List<AnalyticsEventListener> listeners,
+                                     AnalyticsEventLog eventLog,
+                                     @Value("${analytics.ingestion.async:true}") boolean async,
+                                     @Value("${analytics.ingestion.queue-capacity:10000}") int queueCapacity,
+                                     @Value("${analytics.ingestion.batch-size:200}") int batchSize,
+                                     @Value("${analytics.ingestion.flush-interval-ms:500}") long flushIntervalMillis,
+                                     @Value("${analytics.ingestion.offer-timeout-ms:50}") long offerTimeoutMillis,
+                                     @Value("${analytics.ingestion.shutdown-timeout-ms:10000}") long shutdownTimeoutMillis) {
+        this.batchRepository = batchRepository;
+        this.listeners = listeners;
+        this.eventLog = eventLog;
+        this.async = async;
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = TimeUnit.MILLISECONDS.toNanos(flushIntervalMillis);
+        this.offerTimeoutMillis = offerTimeoutMillis;
+        this.shutdownTimeoutMillis = shutdownTimeoutMillis;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isAsync() {
+        return async;
+    }
+
+    // Returns false when the buffer stays full for longer than offer-timeout-ms, or in synchronous mode when
+    // the write fails, so callers can shed load
+    public boolean submit(Object event) {
+        if (!async || !running) {
+            if (!flush(List.of(event))) return false;
+            accepted.incrementAndGet();
+            return true;
+        }
+        if (eventLog.isEnabled()) {
+            return append(List.of(event)) == 1;
+        }
+
+        try {
+            if (queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) {
+                accepted.incrementAndGet();
+                return true;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        rejected.incrementAndGet();
+        return false;
+    }
+
+    // Submits a batch in order and returns how many events were accepted. In synchronous mode the whole
+    // batch is one write, as is the append to the event log, and none is accepted when it fails; otherwise the
+    // writer batches them and acceptance stops at the first full-buffer timeout.
+    public int submitAll(List<?> events) {
+        if (events.isEmpty()) return 0;
+        if (!async || !running) {
+            if (!flush(new ArrayList<>(events))) return 0;
+            accepted.addAndGet(events.size());
+            return events.size();
+        }
+        if (eventLog.isEnabled()) {
+            return append(events);
+        }
+
+        int count = 0;
+        try {
+            for (Object event : events) {
+                if (!queue.offer(event, offerTimeoutMillis, TimeUnit.MILLISECONDS)) break;
+                count++;
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        accepted.addAndGet(count);
+        rejected.addAndGet(events.size() - count);
+        return count;
+    }
+
+    public IngestionStats getStats() {
+        return new IngestionStats(async, queue.size(), queue.remainingCapacity(),
+            accepted.get(), rejected.get(), written.get(), failed.get(), duplicates.get(), retried.get(),
+            eventLog.isEnabled() ? eventLog.getStats() : null);
+    }
+
+    @Override
+    public void start() {
+        if (!async) {
+            running = true;
+            return;
+        }
+        if (eventLog.isEnabled()) {
+            try {
+                eventLog.open();
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot open the analytics event log", e);
+            }
+        }
+        running = true;
+        // A platform thread even in virtual-thread mode: a virtual writer waits in the same scheduler queue
+        // as every request thread, and under load it falls behind the requests filling its buffer
+        writer = new Thread(eventLog.isEnabled() ? this::runLogConsumer : this::runWriter, "analytics-writer");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    @Override
+    public void stop() {
+        running = false;
+        if (writer == null) return;
+
+        // The writer keeps draining until the queue is empty, bounded by the shutdown timeout
+        try {
+            writer.join(shutdownTimeoutMillis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        if (writer.isAlive()) {
+            if (eventLog.isEnabled()) {
+                log.warn("Analytics writer did not catch up within {} ms, {} bytes of the event log are replayed on the next start",
+                    shutdownTimeoutMillis, eventLog.getStats().backlogBytes());
+            } else {
+                log.warn("Analytics writer did not drain within {} ms, {} events dropped", shutdownTimeoutMillis, queue.size());
+            }
+            writer.interrupt();
+        }
+        writer = null;
+        if (eventLog.isEnabled()) {
+            eventLog.close();
+        }
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void runWriter() {
+        List<Object> batch = new ArrayList<>(batchSize);
+        while (running || !queue.isEmpty()) {
+            try {
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (batch.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0) break;
+                    Object event = queue.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (event == null) break;
+                    batch.add(event);
+                    queue.drainTo(batch, batchSize - batch.size());
+                }
+                if (!batch.isEmpty()) {
+                    flush(batch);
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+        }
+    }
+
+    // Assigns the events their ids and appends them to the event log together; all of them or none are accepted
+    private int append(List<?> events) {
+        List<byte[]> records = new ArrayList<>(events.size());
+        for (Object event : events) {
+            UUID eventId = UUID.randomUUID();
+            if (event instanceof PageView pageView) {
+                pageView.setEventId(eventId);
+            } else if (event instanceof ClickEvent click) {
+                click.setEventId(eventId);
+            }
+            records.add(AnalyticsEventCodec.encode(event));
+        }
+
+        try {
+            if (eventLog.append(records)) {
+                accepted.addAndGet(events.size());
+                return events.size();
+            }
+        } catch (IOException e) {
+            log.warn("Failed to append {} analytics events to the event log: {}", events.size(), e.getMessage());
+        }
+        rejected.addAndGet(events.size());
+        return 0;
+    }
+
+    // Writes durable log records in batches, committing the offset after each one that reached the database.
+    // A batch that fails because the database is unavailable is read again after a growing backoff.
+    private void runLogConsumer() {
+        long offset = eventLog.getConsumerOffset();
+        long backoffMillis = 0;
+        List<byte[]> records = new ArrayList<>(batchSize);
+        while (running || eventLog.getDurableOffset() > offset) {
+            try {
+                if (backoffMillis > 0) {
+                    Thread.sleep(backoffMillis);
+                }
+                records.clear();
+                long next = eventLog.read(offset, batchSize, records);
+                if (records.isEmpty()) {
+                    if (next != offset) {
+                        // Only skipped a corrupt record
+                        eventLog.commit(next);
+                        offset = next;
+                    } else if (running) {
+                        eventLog.awaitRecords(offset, flushIntervalNanos);
+                    } else {
+                        return;
+                    }
+                    continue;
+                }
+
+                long deadline = System.nanoTime() + flushIntervalNanos;
+                while (running && records.size() < batchSize) {
+                    long remaining = deadline - System.nanoTime();
+                    if (remaining <= 0 || !eventLog.awaitRecords(next, remaining)) break;
+                    next = eventLog.read(next, batchSize - records.size(), records);
+                }
+
+                if (flushLogged(decode(records))) {
+                    eventLog.commit(next);
+                    offset = next;
+                    backoffMillis = 0;
+                } else {
+                    retried.addAndGet(records.size());
+                    backoffMillis = Math.min(Math.max(backoffMillis * 2, 100), MAX_RETRY_BACKOFF_MS);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (IOException e) {
+                log.error("Failed to read the analytics event log at offset {}", offset, e);
+                backoffMillis = MAX_RETRY_BACKOFF_MS;
+            }
+        }
+    }
+
+    private List<Object> decode(List<byte[]> records) throws IOException {
+        List<Object> events = new ArrayList<>(records.size());
+        List<byte[]> undecodable = new ArrayList<>();
+        for (byte[] record : records) {
+            try {
+                events.add(AnalyticsEventCodec.decode(record));
+            } catch (IllegalArgumentException e) {
+                undecodable.add(record);
+                log.error("Quarantining undecodable analytics event record: {}", e.getMessage());
+            }
+        }
+        eventLog.quarantine(undecodable);
+        failed.addAndGet(undecodable.size());
+        return events;
+    }
+
+    // Inserts logged events that are not in the database yet and passes only those on to the listeners, so a
+    // replayed or retried batch is neither stored nor counted twice. Page views are handed to the listeners
+    // before the clicks are written, since a retry after a failed click insert skips the page views.
+    // Returns false when the database could not be reached, or a rejected event could not be quarantined,
+    // and the batch should be retried.
+    private boolean flushLogged(List<Object> batch) {
+        List<PageView> pageViews = new ArrayList<>();
+        List<ClickEvent> clicks = new ArrayList<>();
+        for (Object event : batch) {
+            if (event instanceof PageView pageView) {
+                pageViews.add(pageView);
+            } else if (event instanceof ClickEvent click) {
+                clicks.add(click);
+            }
+        }
+
+        try {
+            insertLogged(pageViews, batchRepository::insertNewPageViews, inserted -> notifyListeners(inserted, List.of()));
+            insertLogged(clicks, batchRepository::insertNewClicks, inserted -> notifyListeners(List.of(), inserted));
+        } catch (DataAccessResourceFailureException | TransientDataAccessException | RecoverableDataAccessException e) {
+            log.warn("Database unavailable, retrying {} logged analytics events: {}", batch.size(), e.getMessage());
+            return false;
+        } catch (IOException e) {
+            log.error("Failed to quarantine rejected analytics events, retrying {} logged analytics events", batch.size(), e);
+            return false;
+        }
+        return true;
+    }
+
+    // A batch the database rejects for another reason than being unavailable is not going to succeed on a
+    // retry, but usually only because of one or two of its events: it is split in halves until the events
+    // that fail on their own are found, and only those are quarantined.
+    private <T> void insertLogged(List<T> events, Function<List<T>, List<T>> insert, Consumer<List<T>> notify) throws IOException {
+        if (events.isEmpty()) return;
+
+        List<T> inserted;
+        try {
+            inserted = insert.apply(events);
+        } catch (DataAccessResourceFailureException | TransientDataAccessException | RecoverableDataAccessException e) {
+            throw e;
+        } catch (RuntimeException e) {
+            if (events.size() == 1) {
+                eventLog.quarantine(List.of(AnalyticsEventCodec.encode(events.get(0))));
+                failed.incrementAndGet();
+                log.error("Quarantined logged analytics event the database rejected: {}", e.getMessage());
+                return;
+            }
+            int half = events.size() / 2;
+            insertLogged(events.subList(0, half), insert, notify);
+            insertLogged(events.subList(half, events.size()), insert, notify);
+            return;
+        }
+        written.addAndGet(inserted.size());
+        duplicates.addAndGet(events.size() - inserted.size());
+        notify.accept(inserted);
+    }
+
+    private boolean flush(List<Object> batch) {
+        List<PageView> pageViews = new ArrayList<>();
+        List<ClickEvent> clicks = new ArrayList<>();
+        for (Object event : batch) {
+            if (event instanceof PageView pageView) {
+                pageViews.add(pageView);
+            } else if (event instanceof ClickEvent click) {
+                clicks.add(click);
+            }
+        }
+
+        try {
+            batchRepository.insertPageViews(pageViews);
+            batchRepository.insertClicks(clicks);
+            written.addAndGet(batch.size());
+        } catch (DataAccessResourceFailureException e) {
+            // No connection within the pool timeout; a synchronous caller answers 503, and under that much load
+            // a stack trace per request would only add to it
+            failed.addAndGet(batch.size());
+            log.warn("Failed to write batch of {} analytics events: {}", batch.size(), e.getMessage());
+            return false;
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            log.error("Failed to write batch of {} analytics events", batch.size(), e);
+            return false;
+        }
+
+        notifyListeners(pageViews, clicks);
+        return true;
+    }
+
+    private void notifyListeners(List<PageView> pageViews, List<ClickEvent> clicks) {
+        for (AnalyticsEventListener listener : listeners) {
+            try {
+                if (!pageViews.isEmpty()) listener.onPageViews(pageViews);
+                if (!clicks.isEmpty()) listener.onClicks(clicks);
+            } catch (DataAccessResourceFailureException e) {
+                log.warn("Analytics listener {} failed: {}", listener.getClass().getSimpleName(), e.getMessage());
+            } catch (RuntimeException e) {
+                log.error("Analytics listener {} failed", listener.getClass().getSimpleName(), e);
+            }
+        }
+    }
+
+    // duplicates and retried only count events from the event log; eventLog is null when it is disabled
+    public record IngestionStats(boolean async, int queued, int remainingCapacity,
+                                 long accepted, long rejected, long written, long failed,
+                                 long duplicates, long retried, AnalyticsEventLog.LogStats eventLog) {
+    }
+}
@@ -0,0 +1,267 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.AnalyticsRollup;
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.BucketRange;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupKey;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupRow;
+
+import jakarta.annotation.PreDestroy;
+
+// Maintains per-hour and per-day aggregates as events arrive. Deltas are collected in memory and
+// upserted every flush-interval-ms; reads combine the stored rollups with the pending deltas. A read
+// and the commit of a flush exclude each other, so a flushed batch is counted exactly once: from the
+// in-memory deltas before it commits, from the stored rollups after.
+@Service
+public class AnalyticsRollupService implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsRollupService.class);
+
+    public enum Dimension {
+        PAGE_VIEWS, PAGE, DEVICE, BROWSER, COUNTRY,
+        CLICKS, ELEMENT,
+        SESSIONS, RETURNING_SESSIONS, NEW_SESSIONS, ENTRY_PAGE, REFERRER,
+        // Recorded when a session ends, bucketed by its start time
+        ENDED_SESSIONS, SESSION_PAGE_VIEWS, TIMED_SESSIONS, SESSION_DURATION, EXIT_PAGE
+    }
+
+    private final AnalyticsRollupRepository rollupRepository;
+    private final LocalDateTime backfillCutoff = LocalDateTime.now();
+    private final LocalDateTime staleSessionsBefore;
+    private final AtomicReference<Map<RollupKey, LongAdder>> pending = new AtomicReference<>(new ConcurrentHashMap<>());
+    // Writers share the read lock; flush takes the write lock to swap the pending map atomically
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // A lock rather than synchronized: a virtual thread blocked on JDBC inside a monitor pins its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Deltas taken by a running flush stay visible to reads until they are committed
+    private volatile Map<RollupKey, LongAdder> flushing = Map.of();
+    // Reads hold the read lock across the database read and their snapshot of the deltas; flush holds the
+    // write lock from before its upsert commits until flushing is reset
+    private final ReadWriteLock commitLock = new ReentrantReadWriteLock();
+
+    public AnalyticsRollupService(AnalyticsRollupRepository rollupRepository,
+                                  @Value("${analytics.sessions.idle-timeout-ms:1800000}") long idleTimeoutMillis) {
+        this.rollupRepository = rollupRepository;
+        this.staleSessionsBefore = backfillCutoff.minus(Duration.ofMillis(idleTimeoutMillis));
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (rollupRepository.isEmpty()) {
+                log.info("Backfilling analytics rollups from raw events before {}", backfillCutoff);
+                rollupRepository.backfill(backfillCutoff, staleSessionsBefore);
+            }
+        } catch (RuntimeException e) {
+            log.error("Analytics rollup backfill failed", e);
+        }
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        for (PageView pv : pageViews) {
+            LocalDateTime at = pv.getTimestamp();
+            add(at, Dimension.PAGE_VIEWS, "", "", 1);
+            add(at, Dimension.PAGE, pv.getPage(), "", 1);
+            add(at, Dimension.DEVICE, pv.getDevice(), "", 1);
+            add(at, Dimension.BROWSER, pv.getBrowser(), "", 1);
+            if (pv.getCountry() != null) {
+                add(at, Dimension.COUNTRY, pv.getCountry(), "", 1);
+            }
+        }
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        for (ClickEvent ce : clicks) {
+            LocalDateTime at = ce.getTimestamp();
+            add(at, Dimension.CLICKS, "", "", 1);
+            if (ce.getElementId() != null) {
+                add(at, Dimension.ELEMENT, ce.getElementId(), ce.getElementText(), 1);
+            }
+        }
+    }
+
+    public void recordSessionStart(LocalDateTime startTime, String entryPage, String referrer, boolean returningVisitor) {
+        add(startTime, Dimension.SESSIONS, "", "", 1);
+        add(startTime, returningVisitor ? Dimension.RETURNING_SESSIONS : Dimension.NEW_SESSIONS, "", "", 1);
+        add(startTime, Dimension.ENTRY_PAGE, entryPage, "", 1);
+        if (referrer != null && !referrer.isEmpty()) {
+            add(startTime, Dimension.REFERRER, referrer, "", 1);
+        }
+    }
+
+    public void recordSessionEnd(LocalDateTime startTime, int pageViews, Long totalDuration, String exitPage) {
+        recordSessionOutcome(startTime, pageViews, totalDuration, exitPage, 1);
+    }
+
+    // A session that was already counted as ended became active again; take its outcome back out
+    public void recordSessionReopened(LocalDateTime startTime, int pageViews, Long totalDuration, String exitPage) {
+        recordSessionOutcome(startTime, pageViews, totalDuration, exitPage, -1);
+    }
+
+    public List<RollupRow> sum(LocalDateTime since, LocalDateTime until) {
+        List<BucketRange> ranges = ranges(since, until);
+        List<RollupRow> stored;
+        List<Map<RollupKey, LongAdder>> unflushed;
+        commitLock.readLock().lock();
+        try {
+            stored = rollupRepository.sum(ranges);
+            // Under the swap lock as well, so a swap cannot move a batch from pending to flushing between the two reads
+            swapLock.readLock().lock();
+            try {
+                unflushed = List.of(flushing, pending.get());
+            } finally {
+                swapLock.readLock().unlock();
+            }
+        } finally {
+            commitLock.readLock().unlock();
+        }
+
+        Map<RollupKey, Long> totals = new HashMap<>();
+        for (RollupRow row : stored) {
+            totals.merge(new RollupKey("", null, row.dimension(), row.value(), row.extra()), row.count(), Long::sum);
+        }
+        for (Map<RollupKey, LongAdder> deltas : unflushed) {
+            for (Map.Entry<RollupKey, LongAdder> delta : deltas.entrySet()) {
+                RollupKey key = delta.getKey();
+                if (covers(ranges, key)) {
+                    totals.merge(new RollupKey("", null, key.dimension(), key.value(), key.extra()), delta.getValue().sum(), Long::sum);
+                }
+            }
+        }
+
+        List<RollupRow> rows = new ArrayList<>(totals.size());
+        totals.forEach((key, count) -> rows.add(new RollupRow(key.dimension(), key.value(), key.extra(), count)));
+        rows.sort((a, b) -> Long.compare(b.count(), a.count()));
+        return rows;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.rollups.flush-interval-ms:10000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<RollupKey, LongAdder> batch;
+            swapLock.writeLock().lock();
+            try {
+                batch = pending.getAndSet(new ConcurrentHashMap<>());
+                flushing = batch;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            if (batch.isEmpty()) return;
+
+            Map<RollupKey, Long> deltas = new HashMap<>(batch.size());
+            batch.forEach((key, adder) -> {
+                long value = adder.sum();
+                if (value != 0) deltas.put(key, value);
+            });
+
+            commitLock.writeLock().lock();
+            try {
+                // The upsert is one transaction, so a failed flush has written none of the deltas
+                rollupRepository.upsert(deltas);
+            } catch (RuntimeException e) {
+                // Put the deltas back so the next flush retries them
+                swapLock.readLock().lock();
+                try {
+                    Map<RollupKey, LongAdder> current = pending.get();
+                    deltas.forEach((key, value) -> current.computeIfAbsent(key, k -> new LongAdder()).add(value));
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+                log.error("Failed to flush {} analytics rollup deltas", deltas.size(), e);
+            } finally {
+                flushing = Map.of();
+                commitLock.writeLock().unlock();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // Whole days are read from DAY buckets; the partial days at either end come from HOUR buckets
+    static List<BucketRange> ranges(LocalDateTime since, LocalDateTime until) {
+        LocalDateTime hourStart = since.truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime firstDay = since.truncatedTo(ChronoUnit.DAYS);
+        if (firstDay.isBefore(since)) {
+            firstDay = firstDay.plusDays(1);
+        }
+        LocalDateTime lastDay = until.truncatedTo(ChronoUnit.DAYS);
+        if (!firstDay.isBefore(lastDay)) {
+            return List.of(new BucketRange(AnalyticsRollup.HOUR, hourStart, until));
+        }
+        return List.of(
+            new BucketRange(AnalyticsRollup.HOUR, hourStart, firstDay),
+            new BucketRange(AnalyticsRollup.DAY, firstDay, lastDay),
+            new BucketRange(AnalyticsRollup.HOUR, lastDay, until));
+    }
+
+    private static boolean covers(List<BucketRange> ranges, RollupKey key) {
+        for (BucketRange range : ranges) {
+            if (range.granularity().equals(key.granularity())
+                    && !key.bucketStart().isBefore(range.from()) && key.bucketStart().isBefore(range.to())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void recordSessionOutcome(LocalDateTime startTime, int pageViews, Long totalDuration, String exitPage, int sign) {
+        add(startTime, Dimension.ENDED_SESSIONS, "", "", sign);
+        add(startTime, Dimension.SESSION_PAGE_VIEWS, "", "", (long) sign * pageViews);
+        if (totalDuration != null) {
+            add(startTime, Dimension.TIMED_SESSIONS, "", "", sign);
+            add(startTime, Dimension.SESSION_DURATION, "", "", sign * totalDuration);
+        }
+        if (exitPage != null) {
+            add(startTime, Dimension.EXIT_PAGE, exitPage, "", sign);
+        }
+    }
+
+    private void add(LocalDateTime at, Dimension dimension, String value, String extra, long delta) {
+        if (at == null) return;
+
+        String v = value != null ? value : "";
+        String e = extra != null ? extra : "";
+        swapLock.readLock().lock();
+        try {
+            Map<RollupKey, LongAdder> deltas = pending.get();
+            deltas.computeIfAbsent(new RollupKey(AnalyticsRollup.HOUR, at.truncatedTo(ChronoUnit.HOURS), dimension.name(), v, e),
+                k -> new LongAdder()).add(delta);
+            deltas.computeIfAbsent(new RollupKey(AnalyticsRollup.DAY, at.truncatedTo(ChronoUnit.DAYS), dimension.name(), v, e),
+                k -> new LongAdder()).add(delta);
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+}
@@ -5,225 +5,358 @@ import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
-import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
 import org.springframework.stereotype.Service;
 
+import com.gideonglago.portfolio.dto.ClickRequest;
+import com.gideonglago.portfolio.dto.PageViewRequest;
+import com.gideonglago.portfolio.dto.TrackingEvent;
 import com.gideonglago.portfolio.models.ClickEvent;
 import com.gideonglago.portfolio.models.PageView;
-import com.gideonglago.portfolio.models.UserSession;
 import com.gideonglago.portfolio.repositories.ClickEventRepository;
 import com.gideonglago.portfolio.repositories.PageViewRepository;
+import com.gideonglago.portfolio.repositories.StatementTimeoutTemplate;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupRow;
 import com.gideonglago.portfolio.repositories.UserSessionRepository;
+import com.gideonglago.portfolio.services.AnalyticsRollupService.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
 
 import jakarta.servlet.http.HttpServletRequest;
 
 @Service
 public class AnalyticsService {
 
+    private static final Logger log = LoggerFactory.getLogger(AnalyticsService.class);
+
+    private static final int MAX_ACTIVITY_PAGE_SIZE = 500;
+    // Length of the page_view and click_event columns the headers are stored in
+    private static final int MAX_HEADER_LENGTH = 255;
+    private static final List<String> ROLLUP_METRICS = List.of(
+        "totalPageViews", "totalClicks", "avgSessionDuration", "avgPageViewsPerSession",
+        "returningVisitors", "newVisitors", "popularPages", "topClickedElements", "entryPages", "exitPages",
+        "deviceStats", "browserStats", "countryStats", "referrerStats");
+    private static final List<String> UNIQUE_METRICS = List.of(
+        "uniqueVisitors", "uniqueVisitorsError", "uniqueIps", "pageUniqueVisitors");
+
     private final PageViewRepository pageViewRepository;
     private final ClickEventRepository clickEventRepository;
     private final UserSessionRepository userSessionRepository;
+    private final AnalyticsIngestionService ingestionService;
+    private final AnalyticsRollupService rollupService;
+    private final SessionStateStore sessionStateStore;
+    private final UserAgentClassifier userAgentClassifier;
+    private final GeoIpResolver geoIpResolver;
+    private final UniqueVisitorService uniqueVisitorService;
+    private final DashboardCache dashboardCache;
+    private final ColumnarEventStore columnarStore;
+    private final ExecutorService dashboardExecutor;
+    private final StatementTimeoutTemplate statementTimeouts;
+    private final long dashboardDeadlineNanos;
 
     public AnalyticsService(PageViewRepository pageViewRepository, 
                           ClickEventRepository clickEventRepository,
-                          UserSessionRepository userSessionRepository) {
+                          UserSessionRepository userSessionRepository,
+                          AnalyticsIngestionService ingestionService,
+                          AnalyticsRollupService rollupService,
+                          SessionStateStore sessionStateStore,
+                          UserAgentClassifier userAgentClassifier,
+                          GeoIpResolver geoIpResolver,
+                          UniqueVisitorService uniqueVisitorService,
+                          DashboardCache dashboardCache,
+                          ColumnarEventStore columnarStore,
+                          @Qualifier("dashboardQueryExecutor") ExecutorService dashboardExecutor,
+                          StatementTimeoutTemplate statementTimeouts,
+                          @Value("${analytics.dashboard.deadline-ms:3000}") long dashboardDeadlineMillis) {
         this.pageViewRepository = pageViewRepository;
         this.clickEventRepository = clickEventRepository;
         this.userSessionRepository = userSessionRepository;
+        this.ingestionService = ingestionService;
+        this.rollupService = rollupService;
+        this.sessionStateStore = sessionStateStore;
+        this.userAgentClassifier = userAgentClassifier;
+        this.geoIpResolver = geoIpResolver;
+        this.uniqueVisitorService = uniqueVisitorService;
+        this.dashboardCache = dashboardCache;
+        this.columnarStore = columnarStore;
+        this.dashboardExecutor = dashboardExecutor;
+        this.statementTimeouts = statementTimeouts;
+        this.dashboardDeadlineNanos = TimeUnit.MILLISECONDS.toNanos(dashboardDeadlineMillis);
     }
 
     // Tracking methods
-    public void trackPageView(String page, String sessionId, HttpServletRequest request) {
-        String userAgent = request.getHeader("User-Agent");
-        String referrer = request.getHeader("Referer");
-        String ipAddress = getClientIpAddress(request);
-        
-        PageView pageView = new PageView(page, referrer, userAgent, ipAddress, sessionId);
+    public boolean trackPageView(PageViewRequest event, HttpServletRequest request) {
+        PageView pageView = buildPageView(event, header(request, "Referer"),
+            header(request, "User-Agent"), getClientIpAddress(request));
         
-        // Parse user agent for device info
-        parseUserAgent(pageView, userAgent);
-        
-        pageViewRepository.save(pageView);
+        // Persisted (and the user session updated) by the ingestion pipeline
+        return ingestionService.submit(pageView);
+    }
+
+    public boolean trackClick(ClickRequest event, HttpServletRequest request) {
+        ClickEvent clickEvent = buildClick(event, header(request, "User-Agent"), getClientIpAddress(request));
         
-        // Update or create user session
-        updateUserSession(sessionId, page, referrer, userAgent, ipAddress);
+        return ingestionService.submit(clickEvent);
     }
 
-    public void trackClick(String sessionId, String page, String elementType, String elementId, 
-                          String elementText, String targetUrl, Integer x, Integer y, HttpServletRequest request) {
-        ClickEvent clickEvent = new ClickEvent(sessionId, page, elementType, elementId, elementText);
-        clickEvent.setTargetUrl(targetUrl);
-        clickEvent.setXPosition(x);
-        clickEvent.setYPosition(y);
-        clickEvent.setUserAgent(request.getHeader("User-Agent"));
-        clickEvent.setIpAddress(getClientIpAddress(request));
+    // Submits validated events together and returns how many were accepted, in order; headers are read once
+    public int trackEvents(List<TrackingEvent> events, HttpServletRequest request) {
+        String userAgent = header(request, "User-Agent");
+        String referrer = header(request, "Referer");
+        String ipAddress = getClientIpAddress(request);
+
+        List<Object> tracked = new ArrayList<>(events.size());
+        for (TrackingEvent event : events) {
+            if (event instanceof PageViewRequest pageView) {
+                tracked.add(buildPageView(pageView, referrer, userAgent, ipAddress));
+            } else if (event instanceof ClickRequest click) {
+                tracked.add(buildClick(click, userAgent, ipAddress));
+            }
+        }
+        return ingestionService.submitAll(tracked);
+    }
+
+    private PageView buildPageView(PageViewRequest event, String referrer, String userAgent, String ipAddress) {
+        PageView pageView = new PageView(event.page(), event.referrer() != null ? event.referrer() : referrer,
+            userAgent, ipAddress, event.sessionId());
         
-        clickEventRepository.save(clickEvent);
+        // Parse user agent for device info
+        UserAgentInfo agent = userAgentClassifier.classify(userAgent);
+        pageView.setDevice(agent.device());
+        pageView.setBrowser(agent.browser());
+        pageView.setOs(agent.os());
         
-        // Update session click count
-        userSessionRepository.findBySessionId(sessionId).ifPresent(session -> {
-            session.setClicks(session.getClicks() + 1);
-            userSessionRepository.save(session);
-        });
+        // Geo enrichment from the local IP range table
+        GeoLocation location = geoIpResolver.resolve(ipAddress);
+        if (location != null) {
+            pageView.setCountry(location.country());
+            pageView.setCity(location.city());
+        }
+        return pageView;
+    }
+
+    private ClickEvent buildClick(ClickRequest event, String userAgent, String ipAddress) {
+        ClickEvent clickEvent = new ClickEvent(event.sessionId(), event.page(), event.elementType(),
+            event.elementId(), event.elementText());
+        clickEvent.setTargetUrl(event.targetUrl());
+        clickEvent.setXPosition(event.x());
+        clickEvent.setYPosition(event.y());
+        clickEvent.setDocumentWidth(event.documentWidth());
+        clickEvent.setDocumentHeight(event.documentHeight());
+        clickEvent.setUserAgent(userAgent);
+        clickEvent.setIpAddress(ipAddress);
+        return clickEvent;
     }
 
     // Analytics retrieval methods
     public Map<String, Object> getDashboardStats(String period) {
+        return dashboardCache.get(period, () -> computeDashboardStats(period));
+    }
+
+    public DashboardCache.CacheStats getDashboardCacheStats() {
+        return dashboardCache.getStats();
+    }
+
+    // The rollup query, the unique-visitor sketches and the two trend queries are independent, so they run
+    // concurrently on the dashboard executor. Groups that miss the deadline, or find the executor saturated,
+    // are left out and listed under partialMetrics.
+    private Map<String, Object> computeDashboardStats(String period) {
         LocalDateTime since = getSinceDate(period);
+        LocalDateTime now = LocalDateTime.now();
+        TrendGranularity granularity = TrendGranularity.forPeriod(period);
+        long deadline = System.nanoTime() + dashboardDeadlineNanos;
+
+        Future<Map<String, List<RollupRow>>> rollupsTask = submit("rollups", deadline, () -> rollupService.sum(since, now).stream()
+            .collect(Collectors.groupingBy(RollupRow::dimension)));
+        Future<Uniques> uniquesTask = submit("uniques", deadline, () -> getUniques(since, now));
+        Future<List<Map<String, Object>>> pageViewTrendTask = submit("pageViewTrend", deadline, () -> getPageViewTrend(since, granularity));
+        Future<List<Map<String, Object>>> clickTrendTask = submit("clickTrend", deadline, () -> getClickTrend(since, granularity));
+
         Map<String, Object> stats = new HashMap<>();
+        List<String> partialMetrics = new ArrayList<>();
         
-        // Basic metrics
-        stats.put("totalPageViews", pageViewRepository.countPageViewsSince(since));
-        stats.put("uniqueVisitors", pageViewRepository.countUniqueVisitorsSince(since));
-        stats.put("totalClicks", clickEventRepository.countClicksSince(since));
-        stats.put("avgSessionDuration", userSessionRepository.getAverageSessionDurationSince(since));
-        stats.put("avgPageViewsPerSession", userSessionRepository.getAveragePageViewsPerSessionSince(since));
-        stats.put("returningVisitors", userSessionRepository.countReturningVisitorsSince(since));
-        stats.put("newVisitors", userSessionRepository.countNewVisitorsSince(since));
-        
-        // Popular content
-        stats.put("popularPages", convertToMap(pageViewRepository.findPopularPagesSince(since)));
-        stats.put("topClickedElements", convertToMap(clickEventRepository.findMostClickedElementsSince(since)));
-        stats.put("entryPages", convertToMap(userSessionRepository.findMostCommonEntryPagesSince(since)));
-        stats.put("exitPages", convertToMap(userSessionRepository.findMostCommonExitPagesSince(since)));
-        
-        // Technical stats
-        stats.put("deviceStats", convertToMap(pageViewRepository.getDeviceStatsSince(since)));
-        stats.put("browserStats", convertToMap(pageViewRepository.getBrowserStatsSince(since)));
-        stats.put("countryStats", convertToMap(pageViewRepository.getCountryStatsSince(since)));
-        stats.put("referrerStats", convertToMap(userSessionRepository.findTopReferrersSince(since)));
+        // Everything except the trends comes from the hourly/daily rollups plus the sessions still active in memory
+        Map<String, List<RollupRow>> rollups = await(rollupsTask, deadline, "rollups");
+        if (rollups != null) {
+            SessionStateStore.LiveSessionSummary live = sessionStateStore.summarize(since);
+
+            // Basic metrics
+            stats.put("totalPageViews", total(rollups, Dimension.PAGE_VIEWS));
+            stats.put("totalClicks", total(rollups, Dimension.CLICKS));
+            stats.put("avgSessionDuration", average(total(rollups, Dimension.SESSION_DURATION) + live.totalDuration(),
+                total(rollups, Dimension.TIMED_SESSIONS) + live.sessions()));
+            stats.put("avgPageViewsPerSession", average(total(rollups, Dimension.SESSION_PAGE_VIEWS) + live.pageViews(),
+                total(rollups, Dimension.ENDED_SESSIONS) + live.sessions()));
+            stats.put("returningVisitors", total(rollups, Dimension.RETURNING_SESSIONS));
+            stats.put("newVisitors", total(rollups, Dimension.NEW_SESSIONS));
+
+            // Popular content
+            stats.put("popularPages", convertToMap(rows(rollups, Dimension.PAGE)));
+            stats.put("topClickedElements", convertToMap(rows(rollups, Dimension.ELEMENT)));
+            stats.put("entryPages", convertToMap(rows(rollups, Dimension.ENTRY_PAGE)));
+            stats.put("exitPages", convertToMap(withLiveExitPages(rows(rollups, Dimension.EXIT_PAGE), live.exitPages())));
+
+            // Technical stats
+            stats.put("deviceStats", convertToMap(rows(rollups, Dimension.DEVICE)));
+            stats.put("browserStats", convertToMap(rows(rollups, Dimension.BROWSER)));
+            stats.put("countryStats", convertToMap(rows(rollups, Dimension.COUNTRY)));
+            stats.put("referrerStats", convertToMap(rows(rollups, Dimension.REFERRER)));
+        } else {
+            partialMetrics.addAll(ROLLUP_METRICS);
+        }
+
+        // Distinct counts are estimates merged from HyperLogLog sketches
+        Uniques uniques = await(uniquesTask, deadline, "uniques");
+        if (uniques != null) {
+            stats.put("uniqueVisitors", uniques.visitors().estimate());
+            stats.put("uniqueVisitorsError", uniques.visitors().relativeStandardError());
+            stats.put("uniqueIps", uniques.ips().estimate());
+            stats.put("pageUniqueVisitors", convertToMap(uniques.pages()));
+        } else {
+            partialMetrics.addAll(UNIQUE_METRICS);
+        }
         
-        // Trend data
-        stats.put("pageViewTrend", getPageViewTrend(since));
-        stats.put("clickTrend", getClickTrend(since));
+        // Trend data, scanned from the columnar store when it holds the whole period
+        putOrMarkPartial(stats, partialMetrics, "pageViewTrend", await(pageViewTrendTask, deadline, "pageViewTrend"));
+        putOrMarkPartial(stats, partialMetrics, "clickTrend", await(clickTrendTask, deadline, "clickTrend"));
         
+        if (!partialMetrics.isEmpty()) {
+            stats.put("partial", true);
+            stats.put("partialMetrics", partialMetrics);
+        }
         return stats;
     }
 
-    public List<Map<String, Object>> getRecentActivity(int limit) {
-        List<Map<String, Object>> activities = new ArrayList<>();
-        
-        // Get recent page views
-        List<PageView> recentPageViews = pageViewRepository.findAll()
-            .stream()
-            .sorted((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()))
-            .limit(limit / 2)
-            .collect(Collectors.toList());
-            
-        for (PageView pv : recentPageViews) {
-            Map<String, Object> activity = new HashMap<>();
-            activity.put("type", "pageview");
-            activity.put("page", pv.getPage());
-            activity.put("timestamp", pv.getTimestamp());
-            activity.put("device", pv.getDevice());
-            activity.put("country", pv.getCountry());
-            activities.add(activity);
-        }
-        
-        // Get recent clicks
-        List<ClickEvent> recentClicks = clickEventRepository.findAll()
-            .stream()
-            .sorted((a, b) -> b.getTimestamp().compareTo(a.getTimestamp()))
-            .limit(limit / 2)
-            .collect(Collectors.toList());
-            
-        for (ClickEvent ce : recentClicks) {
-            Map<String, Object> activity = new HashMap<>();
-            activity.put("type", "click");
-            activity.put("element", ce.getElementText() != null ? ce.getElementText() : ce.getElementId());
-            activity.put("page", ce.getPage());
-            activity.put("timestamp", ce.getTimestamp());
-            activities.add(activity);
+    // Cancelling a late task only interrupts its thread, which a blocked JDBC call ignores, so each query
+    // also runs under a statement_timeout of whatever is left of the deadline when it starts. A saturated
+    // executor fails the group instead of running it on the request thread past the deadline.
+    private <T> Future<T> submit(String metric, long deadline, Supplier<T> query) {
+        try {
+            return dashboardExecutor.submit(() -> statementTimeouts.query(
+                TimeUnit.NANOSECONDS.toMillis(deadline - System.nanoTime()), query));
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
         }
-        
-        return activities.stream()
-            .sorted((a, b) -> ((LocalDateTime) b.get("timestamp")).compareTo((LocalDateTime) a.get("timestamp")))
-            .limit(limit)
-            .collect(Collectors.toList());
     }
 
-    // Helper methods
-    private void updateUserSession(String sessionId, String page, String referrer, String userAgent, String ipAddress) {
-        Optional<UserSession> existingSession = userSessionRepository.findBySessionId(sessionId);
-        
-        if (existingSession.isPresent()) {
-            UserSession session = existingSession.get();
-            session.setPageViews(session.getPageViews() + 1);
-            session.setExitPage(page);
-            
-            // Add page to visited pages if not already there
-            if (session.getPagesVisited() == null) {
-                session.setPagesVisited(new ArrayList<>());
-            }
-            if (!session.getPagesVisited().contains(page)) {
-                session.getPagesVisited().add(page);
+    // Returns null when the task fails or is still running at the deadline; a late task is cancelled
+    private <T> T await(Future<T> task, long deadline, String metric) {
+        try {
+            return task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+        } catch (TimeoutException e) {
+            task.cancel(true);
+            log.warn("Dashboard metric {} missed the {} ms deadline", metric, TimeUnit.NANOSECONDS.toMillis(dashboardDeadlineNanos));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof QueryTimeoutException) {
+                log.warn("Dashboard metric {} was cancelled by the database at the {} ms deadline", metric,
+                    TimeUnit.NANOSECONDS.toMillis(dashboardDeadlineNanos));
+            } else if (e.getCause() instanceof RejectedExecutionException) {
+                log.warn("Dashboard metric {} was skipped: the dashboard query executor is saturated", metric);
+            } else {
+                log.error("Dashboard metric {} failed", metric, e.getCause());
             }
-            
-            userSessionRepository.save(session);
-        } else {
-            // Check if returning visitor based on IP
-            boolean isReturning = !userSessionRepository.findByIpAddress(ipAddress).isEmpty();
-            
-            UserSession newSession = new UserSession(sessionId, ipAddress, userAgent, page, referrer);
-            newSession.setIsReturningVisitor(isReturning);
-            parseUserAgent(newSession, userAgent);
-            
-            userSessionRepository.save(newSession);
+        } catch (InterruptedException e) {
+            task.cancel(true);
+            Thread.currentThread().interrupt();
         }
+        return null;
     }
 
-    private void parseUserAgent(Object entity, String userAgent) {
-        if (userAgent == null) return;
-        
-        String device = "Desktop";
-        String browser = "Unknown";
-        String os = "Unknown";
-        
-        // Simple user agent parsing
-        if (userAgent.contains("Mobile") || userAgent.contains("Android") || userAgent.contains("iPhone")) {
-            device = "Mobile";
-        } else if (userAgent.contains("Tablet") || userAgent.contains("iPad")) {
-            device = "Tablet";
+    private void putOrMarkPartial(Map<String, Object> stats, List<String> partialMetrics, String metric, Object value) {
+        if (value != null) {
+            stats.put(metric, value);
+        } else {
+            partialMetrics.add(metric);
         }
-        
-        if (userAgent.contains("Chrome")) {
-            browser = "Chrome";
-        } else if (userAgent.contains("Firefox")) {
-            browser = "Firefox";
-        } else if (userAgent.contains("Safari")) {
-            browser = "Safari";
-        } else if (userAgent.contains("Edge")) {
-            browser = "Edge";
+    }
+
+    public List<Map<String, Object>> getRecentActivity(int limit) {
+        return getActivityFeed(limit, null).items();
+    }
+
+    // Newest-first merge of page views and clicks. Items are ordered by (timestamp desc, page views before
+    // clicks, id desc); each stream is read with a top-N keyset query, so cost depends on limit, not table size.
+    public ActivityPage getActivityFeed(int limit, ActivityCursor before) {
+        int size = Math.max(1, Math.min(limit, MAX_ACTIVITY_PAGE_SIZE));
+
+        List<PageView> pageViews;
+        List<ClickEvent> clicks;
+        if (before == null) {
+            pageViews = pageViewRepository.findLatest(size);
+            clicks = clickEventRepository.findLatest(size);
+        } else {
+            boolean afterPageView = ActivityCursor.PAGEVIEW.equals(before.type());
+            // At the cursor's timestamp, page views rank before clicks
+            pageViews = pageViewRepository.findLatestBefore(before.timestamp(),
+                afterPageView ? before.id() : Long.MIN_VALUE, size);
+            clicks = clickEventRepository.findLatestBefore(before.timestamp(),
+                afterPageView ? Long.MAX_VALUE : before.id(), size);
         }
-        
-        if (userAgent.contains("Windows")) {
-            os = "Windows";
-        } else if (userAgent.contains("Mac")) {
-            os = "macOS";
-        } else if (userAgent.contains("Linux")) {
-            os = "Linux";
-        } else if (userAgent.contains("Android")) {
-            os = "Android";
-        } else if (userAgent.contains("iOS")) {
-            os = "iOS";
+
+        List<Map<String, Object>> activities = new ArrayList<>(pageViews.size() + clicks.size());
+        int p = 0;
+        int c = 0;
+        while (activities.size() < size && (p < pageViews.size() || c < clicks.size())) {
+            boolean takePageView = c >= clicks.size()
+                || (p < pageViews.size() && !pageViews.get(p).getTimestamp().isBefore(clicks.get(c).getTimestamp()));
+            activities.add(takePageView ? toActivity(pageViews.get(p++)) : toActivity(clicks.get(c++)));
         }
-        
-        if (entity instanceof PageView) {
-            PageView pv = (PageView) entity;
-            pv.setDevice(device);
-            pv.setBrowser(browser);
-            pv.setOs(os);
-        } else if (entity instanceof UserSession) {
-            UserSession us = (UserSession) entity;
-            us.setDevice(device);
-            us.setBrowser(browser);
-            us.setOs(os);
+
+        boolean hasMore = p < pageViews.size() || c < clicks.size()
+            || pageViews.size() == size || clicks.size() == size;
+        ActivityCursor next = null;
+        if (hasMore && !activities.isEmpty()) {
+            Map<String, Object> last = activities.get(activities.size() - 1);
+            next = new ActivityCursor((LocalDateTime) last.get("timestamp"), (String) last.get("type"), (Long) last.get("id"));
         }
+        return new ActivityPage(activities, next);
     }
 
-    private String getClientIpAddress(HttpServletRequest request) {
+    private Map<String, Object> toActivity(PageView pv) {
+        Map<String, Object> activity = new HashMap<>();
+        activity.put("type", ActivityCursor.PAGEVIEW);
+        activity.put("id", pv.getId());
+        activity.put("page", pv.getPage());
+        activity.put("timestamp", pv.getTimestamp());
+        activity.put("device", pv.getDevice());
+        activity.put("country", pv.getCountry());
+        return activity;
+    }
+
+    private Map<String, Object> toActivity(ClickEvent ce) {
+        Map<String, Object> activity = new HashMap<>();
+        activity.put("type", ActivityCursor.CLICK);
+        activity.put("id", ce.getId());
+        activity.put("element", ce.getElementText() != null ? ce.getElementText() : ce.getElementId());
+        activity.put("page", ce.getPage());
+        activity.put("timestamp", ce.getTimestamp());
+        return activity;
+    }
+
+    public record ActivityCursor(LocalDateTime timestamp, String type, long id) {
+        public static final String PAGEVIEW = "pageview";
+        public static final String CLICK = "click";
+    }
+
+    public record ActivityPage(List<Map<String, Object>> items, ActivityCursor nextCursor) {
+    }
+
+    // Helper methods
+    // Package-private for the JMH benchmarks in src/jmh/java
+    String getClientIpAddress(HttpServletRequest request) {
         String[] headers = {
             "X-Forwarded-For",
             "X-Real-IP",
@@ -240,14 +373,27 @@ public class AnalyticsService {
         for (String header : headers) {
             String ip = request.getHeader(header);
             if (ip != null && ip.length() != 0 && !"unknown".equalsIgnoreCase(ip)) {
-                return ip.split(",")[0];
+                return truncate(ip.split(",")[0]);
             }
         }
         
         return request.getRemoteAddr();
     }
 
-    private LocalDateTime getSinceDate(String period) {
+    // Request headers are stored in varchar(255) columns, where one oversized value would fail the insert of
+    // the whole batch it is written with
+    private static String header(HttpServletRequest request, String name) {
+        return truncate(request.getHeader(name));
+    }
+
+    private static String truncate(String value) {
+        if (value == null || value.length() <= MAX_HEADER_LENGTH) return value;
+        // Do not leave half of a surrogate pair at the end
+        int end = Character.isHighSurrogate(value.charAt(MAX_HEADER_LENGTH - 1)) ? MAX_HEADER_LENGTH - 1 : MAX_HEADER_LENGTH;
+        return value.substring(0, end);
+    }
+
+    public LocalDateTime getSinceDate(String period) {
         LocalDateTime now = LocalDateTime.now();
         switch (period.toLowerCase()) {
             case "hour":
@@ -265,7 +411,39 @@ public class AnalyticsService {
         }
     }
 
-    private List<Map<String, Object>> convertToMap(List<Object[]> queryResults) {
+    private long total(Map<String, List<RollupRow>> rollups, Dimension dimension) {
+        return rollups.getOrDefault(dimension.name(), List.of()).stream().mapToLong(RollupRow::count).sum();
+    }
+
+    private Double average(long sum, long count) {
+        return count > 0 ? (double) sum / count : null;
+    }
+
+    // Rollup rows as (label, count[, extra]) tuples; the empty string stored for missing values maps back to null
+    private List<Object[]> rows(Map<String, List<RollupRow>> rollups, Dimension dimension) {
+        return rollups.getOrDefault(dimension.name(), List.of()).stream()
+            .filter(row -> row.count() > 0)
+            .map(row -> {
+                String label = row.value().isEmpty() ? null : row.value();
+                return row.extra().isEmpty()
+                    ? new Object[] { label, row.count() }
+                    : new Object[] { label, row.count(), row.extra() };
+            })
+            .collect(Collectors.toList());
+    }
+
+    private List<Object[]> withLiveExitPages(List<Object[]> ended, Map<String, Long> live) {
+        Map<String, Long> counts = new HashMap<>(live);
+        for (Object[] row : ended) {
+            counts.merge((String) row[0], (Long) row[1], Long::sum);
+        }
+        return counts.entrySet().stream()
+            .sorted((a, b) -> Long.compare(b.getValue(), a.getValue()))
+            .map(entry -> new Object[] { entry.getKey(), entry.getValue() })
+            .collect(Collectors.toList());
+    }
+
+    List<Map<String, Object>> convertToMap(List<Object[]> queryResults) {
         return queryResults.stream()
             .map(row -> {
                 Map<String, Object> map = new HashMap<>();
@@ -279,45 +457,33 @@ public class AnalyticsService {
             .collect(Collectors.toList());
     }
 
-    private List<Map<String, Object>> getPageViewTrend(LocalDateTime since) {
-        // Get hourly page view counts
-        List<PageView> pageViews = pageViewRepository.findByTimestampBetween(since, LocalDateTime.now());
-        
-        Map<String, Long> hourlyCount = pageViews.stream()
-            .collect(Collectors.groupingBy(
-                pv -> pv.getTimestamp().toLocalDate().toString() + " " + pv.getTimestamp().getHour(),
-                Collectors.counting()
-            ));
-            
-        return hourlyCount.entrySet().stream()
-            .map(entry -> {
-                Map<String, Object> point = new HashMap<>();
-                point.put("time", entry.getKey());
-                point.put("count", entry.getValue());
-                return point;
-            })
-            .sorted((a, b) -> a.get("time").toString().compareTo(b.get("time").toString()))
+    private Uniques getUniques(LocalDateTime since, LocalDateTime until) {
+        List<Object[]> pages = uniqueVisitorService.estimateByValue(UniqueVisitorService.Metric.PAGE_SESSIONS, since, until).stream()
+            .map(page -> new Object[] { page.value(), page.estimate() })
             .collect(Collectors.toList());
+        return new Uniques(
+            uniqueVisitorService.estimate(UniqueVisitorService.Metric.VISITORS, since, until),
+            uniqueVisitorService.estimate(UniqueVisitorService.Metric.IPS, since, until),
+            pages);
     }
 
-    private List<Map<String, Object>> getClickTrend(LocalDateTime since) {
-        // Get hourly click counts
-        List<ClickEvent> clicks = clickEventRepository.findByTimestampBetween(since, LocalDateTime.now());
-        
-        Map<String, Long> hourlyCount = clicks.stream()
-            .collect(Collectors.groupingBy(
-                ce -> ce.getTimestamp().toLocalDate().toString() + " " + ce.getTimestamp().getHour(),
-                Collectors.counting()
-            ));
-            
-        return hourlyCount.entrySet().stream()
-            .map(entry -> {
-                Map<String, Object> point = new HashMap<>();
-                point.put("time", entry.getKey());
-                point.put("count", entry.getValue());
-                return point;
-            })
-            .sorted((a, b) -> a.get("time").toString().compareTo(b.get("time").toString()))
-            .collect(Collectors.toList());
+    private List<Map<String, Object>> getPageViewTrend(LocalDateTime since, TrendGranularity granularity) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> buckets = columnarStore.covers(Source.PAGE_VIEWS, since)
+            ? columnarStore.countByBucket(Source.PAGE_VIEWS, granularity, since, now)
+            : pageViewRepository.countPageViewsByBucket(granularity.unit(), since, now);
+        return granularity.zeroFill(buckets, since, now);
+    }
+
+    private List<Map<String, Object>> getClickTrend(LocalDateTime since, TrendGranularity granularity) {
+        LocalDateTime now = LocalDateTime.now();
+        List<Object[]> buckets = columnarStore.covers(Source.CLICKS, since)
+            ? columnarStore.countByBucket(Source.CLICKS, granularity, since, now)
+            : clickEventRepository.countClicksByBucket(granularity.unit(), since, now);
+        return granularity.zeroFill(buckets, since, now);
+    }
+
+    private record Uniques(UniqueVisitorService.UniqueEstimate visitors, UniqueVisitorService.UniqueEstimate ips,
+                           List<Object[]> pages) {
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,246 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.repositories.ClickHeatmapRepository;
+import com.gideonglago.portfolio.repositories.ClickHeatmapRepository.HeatmapKey;
+import com.gideonglago.portfolio.repositories.ClickHeatmapRepository.PageClicks;
+import com.gideonglago.portfolio.repositories.ClickHeatmapRepository.StoredGrid;
+
+import jakarta.annotation.PreDestroy;
+
+// Bins click positions into one HeatmapGrid per day, page and viewport class as clicks are ingested, so a
+// heatmap over any range of days is a merge of a few stored grids instead of a scan of raw click rows.
+// Grids are updated in memory and merged into the stored ones every flush-interval-ms; reads include the
+// grids not yet flushed. Positions are page coordinates relative to the document's scroll size, which
+// clients send as documentWidth and documentHeight. Clicks without a position or that size are counted but
+// not placed; that includes every click stored before clients sent it, so there is nothing to backfill.
+@Service
+public class ClickHeatmapService implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ClickHeatmapService.class);
+
+    // Viewport classes by width, at the usual CSS breakpoints. Classified by the document width, which is the
+    // viewport width unless the page scrolls sideways.
+    public enum Viewport {
+        MOBILE("mobile", 768),
+        TABLET("tablet", 1024),
+        DESKTOP("desktop", Integer.MAX_VALUE);
+
+        private final String key;
+        private final int maxWidthExclusive;
+
+        Viewport(String key, int maxWidthExclusive) {
+            this.key = key;
+            this.maxWidthExclusive = maxWidthExclusive;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public static Viewport forWidth(int width) {
+            for (Viewport viewport : values()) {
+                if (width < viewport.maxWidthExclusive) return viewport;
+            }
+            return DESKTOP;
+        }
+
+        public static Viewport fromKey(String key) {
+            for (Viewport viewport : values()) {
+                if (viewport.key.equalsIgnoreCase(key)) return viewport;
+            }
+            throw new IllegalArgumentException("Unknown viewport " + key + "; expected mobile, tablet or desktop");
+        }
+    }
+
+    private final ClickHeatmapRepository heatmapRepository;
+    private final AtomicReference<Map<HeatmapKey, HeatmapGrid>> pending = new AtomicReference<>(new ConcurrentHashMap<>());
+    // Writers share the read lock; flush takes the write lock to swap the pending map atomically
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // A lock rather than synchronized: a virtual thread blocked on JDBC inside a monitor pins its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Grids taken by a running flush stay visible to reads until they are committed
+    private volatile Map<HeatmapKey, HeatmapGrid> flushing = Map.of();
+
+    private final AtomicLong placed = new AtomicLong();
+    private final AtomicLong unplaced = new AtomicLong();
+
+    public ClickHeatmapService(ClickHeatmapRepository heatmapRepository) {
+        this.heatmapRepository = heatmapRepository;
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        swapLock.readLock().lock();
+        try {
+            Map<HeatmapKey, HeatmapGrid> grids = pending.get();
+            for (ClickEvent ce : clicks) {
+                int cell = HeatmapGrid.cellOf(ce.getXPosition(), ce.getYPosition(), ce.getDocumentWidth(), ce.getDocumentHeight());
+                if (cell < 0 || ce.getPage() == null || ce.getTimestamp() == null) {
+                    unplaced.incrementAndGet();
+                    continue;
+                }
+                HeatmapKey key = new HeatmapKey(ce.getTimestamp().truncatedTo(ChronoUnit.DAYS), ce.getPage(),
+                    Viewport.forWidth(ce.getDocumentWidth()).key());
+                grids.computeIfAbsent(key, k -> new HeatmapGrid()).increment(cell);
+                placed.incrementAndGet();
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    // The page's grids for every day touching [since, until), merged per viewport class; viewport null for all classes
+    public Heatmap heatmap(String page, Viewport viewport, LocalDateTime since, LocalDateTime until) {
+        LocalDateTime fromDay = since.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime toDay = dayEnd(until);
+
+        Map<Viewport, HeatmapGrid> merged = new EnumMap<>(Viewport.class);
+        for (Viewport v : Viewport.values()) {
+            if (viewport == null || viewport == v) merged.put(v, new HeatmapGrid());
+        }
+        heatmapRepository.forEach(page, fromDay, toDay, (key, bytes) -> {
+            HeatmapGrid grid = merged.get(Viewport.fromKey(key));
+            if (grid != null) grid.merge(HeatmapGrid.fromBytes(bytes));
+        });
+        for (Map<HeatmapKey, HeatmapGrid> grids : List.of(flushing, pending.get())) {
+            grids.forEach((key, grid) -> {
+                if (key.page().equals(page) && !key.day().isBefore(fromDay) && key.day().isBefore(toDay)) {
+                    HeatmapGrid target = merged.get(Viewport.fromKey(key.viewport()));
+                    if (target != null) target.merge(grid);
+                }
+            });
+        }
+
+        Map<String, ViewportHeatmap> viewports = new LinkedHashMap<>();
+        merged.forEach((v, grid) -> {
+            int[][] cells = grid.toRows();
+            int max = 0;
+            for (int[] row : cells) {
+                for (int cell : row) max = Math.max(max, cell);
+            }
+            viewports.put(v.key(), new ViewportHeatmap(grid.clicks(), max, cells));
+        });
+        return new Heatmap(page, fromDay, toDay, HeatmapGrid.COLUMNS, HeatmapGrid.ROWS, viewports);
+    }
+
+    // Pages with placed clicks on days touching [since, until), most clicked first
+    public List<HeatmapPage> pages(LocalDateTime since, LocalDateTime until) {
+        LocalDateTime fromDay = since.truncatedTo(ChronoUnit.DAYS);
+        LocalDateTime toDay = dayEnd(until);
+
+        Map<String, Map<String, Long>> clicks = new HashMap<>();
+        for (PageClicks row : heatmapRepository.sumClicks(fromDay, toDay)) {
+            clicks.computeIfAbsent(row.page(), p -> new LinkedHashMap<>()).merge(row.viewport(), row.clicks(), Long::sum);
+        }
+        for (Map<HeatmapKey, HeatmapGrid> grids : List.of(flushing, pending.get())) {
+            grids.forEach((key, grid) -> {
+                if (!key.day().isBefore(fromDay) && key.day().isBefore(toDay)) {
+                    clicks.computeIfAbsent(key.page(), p -> new LinkedHashMap<>()).merge(key.viewport(), grid.clicks(), Long::sum);
+                }
+            });
+        }
+
+        List<HeatmapPage> pages = new ArrayList<>(clicks.size());
+        clicks.forEach((page, byViewport) -> pages.add(new HeatmapPage(page,
+            byViewport.values().stream().mapToLong(Long::longValue).sum(), byViewport)));
+        pages.sort((a, b) -> Long.compare(b.clicks(), a.clicks()));
+        return pages;
+    }
+
+    public HeatmapStats getStats() {
+        return new HeatmapStats(placed.get(), unplaced.get(), pending.get().size());
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.heatmaps.flush-interval-ms:60000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<HeatmapKey, HeatmapGrid> batch;
+            swapLock.writeLock().lock();
+            try {
+                batch = pending.getAndSet(new ConcurrentHashMap<>());
+                flushing = batch;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                heatmapRepository.upsert(mergeWithStored(batch));
+            } catch (RuntimeException e) {
+                // Merge the grids back so the next flush retries them
+                swapLock.readLock().lock();
+                try {
+                    Map<HeatmapKey, HeatmapGrid> current = pending.get();
+                    batch.forEach((key, grid) -> current.computeIfAbsent(key, k -> new HeatmapGrid()).merge(grid));
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+                log.error("Failed to flush {} click heatmaps", batch.size(), e);
+            } finally {
+                flushing = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private Map<HeatmapKey, StoredGrid> mergeWithStored(Map<HeatmapKey, HeatmapGrid> grids) {
+        Map<HeatmapKey, byte[]> stored = heatmapRepository.load(new ArrayList<>(grids.keySet()));
+        Map<HeatmapKey, StoredGrid> merged = new HashMap<>(grids.size());
+        grids.forEach((key, grid) -> {
+            byte[] existing = stored.get(key);
+            HeatmapGrid combined = existing != null ? HeatmapGrid.fromBytes(existing) : new HeatmapGrid();
+            combined.merge(grid);
+            merged.put(key, new StoredGrid(combined.clicks(), combined.toBytes()));
+        });
+        return merged;
+    }
+
+    // The midnight at or after until, so the day until falls in is included
+    private static LocalDateTime dayEnd(LocalDateTime until) {
+        LocalDateTime day = until.truncatedTo(ChronoUnit.DAYS);
+        return day.equals(until) ? day : day.plusDays(1);
+    }
+
+    // from and to are the day boundaries actually covered; cells are ROWS rows of COLUMNS counts, top row first
+    public record Heatmap(String page, LocalDateTime from, LocalDateTime to, int columns, int rows,
+                          Map<String, ViewportHeatmap> viewports) {
+    }
+
+    public record ViewportHeatmap(long clicks, int maxCell, int[][] cells) {
+    }
+
+    public record HeatmapPage(String page, long clicks, Map<String, Long> viewports) {
+    }
+
+    // unplaced counts clicks without a usable position or document size; pendingGrids are not yet flushed
+    public record HeatmapStats(long placed, long unplaced, int pendingGrids) {
+    }
+}
@@ -0,0 +1,238 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.EventScanRepository;
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
+
+import jakarta.annotation.PostConstruct;
+
+// In-memory columnar copy of the last window-days of page views and clicks, for breakdowns and trends that
+// would otherwise be a GROUP BY over the event tables. It is loaded once at startup, before ingestion starts
+// and the server accepts requests, and then follows the ingestion pipeline as a listener, so it holds
+// exactly the persisted events from its coverage start on. Rows past the window, or beyond max-rows, are
+// evicted a chunk at a time and move the coverage start forward; a query reaching further back than that
+// has to go to the database. Sessions are not held: they are updated after they are written. Timestamps are
+// kept to the second.
+@Service
+public class ColumnarEventStore implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(ColumnarEventStore.class);
+    private static final List<Source> SOURCES = List.of(Source.PAGE_VIEWS, Source.CLICKS);
+
+    private final EventScanRepository scanRepository;
+    private final int windowDays;
+    private final long maxRows;
+    private final Map<Source, ColumnarTable> tables = new HashMap<>();
+    // Appends arrive from the ingestion writer, or from request threads in synchronous mode; evictions from the scheduler
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public ColumnarEventStore(EventScanRepository scanRepository,
+                              @Value("${analytics.columnar.window-days:35}") int windowDays,
+                              @Value("${analytics.columnar.max-rows:1000000}") long maxRows) {
+        this.scanRepository = scanRepository;
+        this.windowDays = windowDays;
+        this.maxRows = maxRows;
+        long now = toSecond(LocalDateTime.now());
+        for (Source source : SOURCES) {
+            tables.put(source, new ColumnarTable(source.dimensions().size(), now));
+        }
+    }
+
+    public boolean isEnabled() {
+        return windowDays > 0;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!isEnabled()) return;
+
+        LocalDateTime since = LocalDateTime.now().minusDays(windowDays);
+        writeLock.lock();
+        try {
+            long start = System.nanoTime();
+            for (Source source : SOURCES) {
+                ColumnarTable table = tables.get(source);
+                table.clear(toSecond(since));
+                List<String> columns = source.dimensions().stream().map(Dimension::column).toList();
+                scanRepository.forEachEvent(source.table(), columns, since, (timestamp, values) -> {
+                    table.append(toSecond(timestamp), values);
+                    evictOverflow(table);
+                });
+            }
+            log.info("Loaded {} page views and {} clicks into the columnar store in {} ms",
+                tables.get(Source.PAGE_VIEWS).rows(), tables.get(Source.CLICKS).rows(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Start empty; only events persisted from now on are then answered from memory
+            long now = toSecond(LocalDateTime.now());
+            tables.values().forEach(table -> table.clear(now));
+            log.error("Columnar store load failed; it covers events from now on", e);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        if (!isEnabled()) return;
+
+        ColumnarTable table = tables.get(Source.PAGE_VIEWS);
+        String[] values = new String[Source.PAGE_VIEWS.dimensions().size()];
+        writeLock.lock();
+        try {
+            for (PageView pv : pageViews) {
+                values[0] = pv.getPage();
+                values[1] = pv.getReferrer();
+                values[2] = pv.getDevice();
+                values[3] = pv.getBrowser();
+                values[4] = pv.getOs();
+                values[5] = pv.getCountry();
+                table.append(toSecond(pv.getTimestamp()), values);
+            }
+            evictOverflow(table);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        if (!isEnabled()) return;
+
+        ColumnarTable table = tables.get(Source.CLICKS);
+        String[] values = new String[Source.CLICKS.dimensions().size()];
+        writeLock.lock();
+        try {
+            for (ClickEvent ce : clicks) {
+                values[0] = ce.getPage();
+                values[1] = ce.getElementType();
+                values[2] = ce.getElementText() != null ? ce.getElementText() : ce.getElementId();
+                table.append(toSecond(ce.getTimestamp()), values);
+            }
+            evictOverflow(table);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.columnar.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!isEnabled()) return;
+
+        long cutoff = toSecond(LocalDateTime.now().minusDays(windowDays));
+        writeLock.lock();
+        try {
+            for (ColumnarTable table : tables.values()) {
+                if (table.evictBefore(cutoff)) table.compactDictionaries();
+            }
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    // Whether every persisted event of the source from since on is held in memory
+    public boolean covers(Source source, LocalDateTime since) {
+        ColumnarTable table = tables.get(source);
+        return isEnabled() && table != null && toSecond(since) >= table.coveredFrom();
+    }
+
+    public LocalDateTime coveredFrom(Source source) {
+        return LocalDateTime.ofEpochSecond(tables.get(source).coveredFrom(), 0, ZoneOffset.UTC);
+    }
+
+    public boolean covers(DrillDownQuery query) {
+        return covers(query.source(), query.since());
+    }
+
+    public DrillDownResult query(DrillDownQuery query) {
+        List<Dimension> dimensions = query.source().dimensions();
+        Map<Integer, Set<String>> filters = new LinkedHashMap<>();
+        query.filters().forEach((dimension, values) -> filters.put(dimensions.indexOf(dimension), values));
+        int[] groupBy = query.groupBy().stream().mapToInt(dimensions::indexOf).toArray();
+
+        List<ColumnarTable.Group> groups = tables.get(query.source())
+            .count(toSecond(query.since()), toSecond(query.until()), filters, groupBy, query.bucket());
+
+        Comparator<ColumnarTable.Group> byCount = Comparator.comparingLong(ColumnarTable.Group::count).reversed();
+        groups.sort(query.bucket() != null
+            ? Comparator.comparingLong(ColumnarTable.Group::bucket).thenComparing(byCount)
+            : byCount);
+
+        List<List<Object>> rows = new ArrayList<>(Math.min(groups.size(), query.limit()));
+        for (ColumnarTable.Group group : groups.subList(0, Math.min(groups.size(), query.limit()))) {
+            List<Object> row = new ArrayList<>(groupBy.length + 2);
+            for (String value : group.values()) row.add(value);
+            if (query.bucket() != null) row.add(query.bucket().format(query.bucket().bucketStart(group.bucket())));
+            row.add(group.count());
+            rows.add(row);
+        }
+        return new DrillDownResult(DrillDownResult.MEMORY, query.columns(), rows, groups.size(), groups.size() > query.limit());
+    }
+
+    // (bucket start, count) rows in the shape of the repository trend queries, for TrendGranularity.zeroFill
+    public List<Object[]> countByBucket(Source source, TrendGranularity granularity, LocalDateTime since, LocalDateTime until) {
+        List<ColumnarTable.Group> groups = tables.get(source)
+            .count(toSecond(since), toSecond(until), Map.of(), new int[0], granularity);
+        List<Object[]> rows = new ArrayList<>(groups.size());
+        for (ColumnarTable.Group group : groups) {
+            rows.add(new Object[] { granularity.bucketStart(group.bucket()), group.count() });
+        }
+        return rows;
+    }
+
+    public ColumnarStats getStats() {
+        Map<String, TableStats> stats = new LinkedHashMap<>();
+        for (Source source : SOURCES) {
+            ColumnarTable table = tables.get(source);
+            Map<String, Integer> dictionaries = new LinkedHashMap<>();
+            List<Dimension> dimensions = source.dimensions();
+            for (int d = 0; d < dimensions.size(); d++) {
+                dictionaries.put(dimensions.get(d).key(), table.dictionarySize(d) - 1);
+            }
+            stats.put(source.key(), new TableStats(table.rows(), table.chunks(), table.allocatedBytes(),
+                coveredFrom(source), dictionaries));
+        }
+        return new ColumnarStats(isEnabled(), windowDays, maxRows, stats);
+    }
+
+    // Called with writeLock held
+    private void evictOverflow(ColumnarTable table) {
+        boolean evicted = false;
+        while (table.rows() > maxRows && table.evictOldest()) {
+            evicted = true;
+            log.debug("Columnar store over {} rows, evicted its oldest chunk", maxRows);
+        }
+        if (evicted) table.compactDictionaries();
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    public record ColumnarStats(boolean enabled, int windowDays, long maxRows, Map<String, TableStats> tables) {
+    }
+
+    // dictionaries counts the ids each dimension has handed out since its last compaction: the distinct values
+    // in the rows held plus, until the next compaction, up to as many from rows already evicted
+    public record TableStats(long rows, int chunks, long allocatedBytes, LocalDateTime coveredFrom,
+                             Map<String, Integer> dictionaries) {
+    }
+}
@@ -0,0 +1,345 @@
+package com.gideonglago.portfolio.services;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+// One event type held column by column: an epoch-second timestamp per row in a long array and every
+// dimension dictionary-encoded into an int array, with id 0 for a missing value. Rows go into fixed-size
+// chunks that track their time range, so a scan skips chunks outside the queried range and old rows are
+// dropped a chunk at a time. Once evictions leave at least half of a dictionary's ids unused, the
+// dictionary is rebuilt from the rows still held and their columns are rewritten into copies, so the ids
+// (and the group-key radix of a scan) stay proportional to the values held instead of every value seen.
+// Appends, evictions and compactions must come from one thread at a time; scans run concurrently without
+// locking and see every row appended before they started.
+final class ColumnarTable {
+
+    static final int CHUNK_ROWS = 1 << 16;
+    // Group keys below this are counted in a plain array instead of a map
+    private static final int DENSE_GROUPS = 1 << 16;
+
+    private final int width;
+    // Chunks and the dictionaries their ids refer to, replaced together
+    private volatile Snapshot snapshot;
+    private volatile long rows;
+    // Epoch second from which the table holds every row; eviction moves it forward
+    private volatile long coveredFrom;
+
+    ColumnarTable(int width, long coveredFrom) {
+        this.width = width;
+        this.snapshot = new Snapshot(new Chunk[0], emptyDictionaries(width));
+        this.coveredFrom = coveredFrom;
+    }
+
+    void append(long second, String[] values) {
+        Snapshot current = snapshot;
+        Chunk[] chunks = current.chunks();
+        Dictionary[] dictionaries = current.dictionaries();
+        Chunk last = chunks.length > 0 ? chunks[chunks.length - 1] : null;
+        if (last == null || last.size == CHUNK_ROWS) {
+            last = new Chunk(width);
+            Chunk[] grown = Arrays.copyOf(chunks, chunks.length + 1);
+            grown[chunks.length] = last;
+            snapshot = new Snapshot(grown, dictionaries);
+        }
+
+        int row = last.size;
+        for (int d = 0; d < width; d++) {
+            last.columns[d][row] = dictionaries[d].encode(values[d]);
+        }
+        last.seconds[row] = second;
+        if (second < last.minSecond) last.minSecond = second;
+        if (second > last.maxSecond) last.maxSecond = second;
+        // Publishes the row to scans that read size afterwards
+        last.size = row + 1;
+        rows = rows + 1;
+    }
+
+    // Drops the oldest chunk; the table then only covers rows after the newest one it held
+    boolean evictOldest() {
+        Snapshot current = snapshot;
+        Chunk[] chunks = current.chunks();
+        if (chunks.length == 0) return false;
+
+        Chunk evicted = chunks[0];
+        snapshot = new Snapshot(Arrays.copyOfRange(chunks, 1, chunks.length), current.dictionaries());
+        rows = rows - evicted.size;
+        if (evicted.size > 0) {
+            coveredFrom = Math.max(coveredFrom, evicted.maxSecond + 1);
+        }
+        return true;
+    }
+
+    // Drops chunks whose rows are all older than the given epoch second and moves coverage up to it;
+    // returns whether any chunk was dropped
+    boolean evictBefore(long second) {
+        boolean evicted = false;
+        Chunk[] chunks = snapshot.chunks();
+        while (chunks.length > 0 && (chunks[0].size == 0 || chunks[0].maxSecond < second)) {
+            evicted |= evictOldest();
+            chunks = snapshot.chunks();
+        }
+        coveredFrom = Math.max(coveredFrom, second);
+        return evicted;
+    }
+
+    // Rebuilds every dictionary of which at least half the ids no longer occur in the rows held, keeping
+    // the order of first appearance. Scans that already started keep the chunks and dictionaries they read.
+    void compactDictionaries() {
+        Snapshot current = snapshot;
+        Chunk[] chunks = current.chunks();
+        Dictionary[] dictionaries = current.dictionaries().clone();
+
+        int[][] remap = new int[width][];
+        boolean compact = false;
+        for (int d = 0; d < width; d++) {
+            boolean[] used = new boolean[dictionaries[d].size];
+            for (Chunk chunk : chunks) {
+                int[] column = chunk.columns[d];
+                for (int row = 0; row < chunk.size; row++) {
+                    used[column[row]] = true;
+                }
+            }
+            int live = 0;
+            for (int id = 1; id < used.length; id++) {
+                if (used[id]) live++;
+            }
+            if (live * 2 > used.length - 1) continue;
+
+            Dictionary rebuilt = new Dictionary();
+            String[] values = dictionaries[d].values();
+            remap[d] = new int[used.length];
+            for (int id = 1; id < used.length; id++) {
+                if (used[id]) remap[d][id] = rebuilt.encode(values[id]);
+            }
+            dictionaries[d] = rebuilt;
+            compact = true;
+        }
+        if (!compact) return;
+
+        Chunk[] rewritten = new Chunk[chunks.length];
+        for (int c = 0; c < chunks.length; c++) {
+            rewritten[c] = chunks[c].remap(remap);
+        }
+        snapshot = new Snapshot(rewritten, dictionaries);
+    }
+
+    void clear(long coveredFrom) {
+        snapshot = new Snapshot(new Chunk[0], emptyDictionaries(width));
+        rows = 0;
+        this.coveredFrom = coveredFrom;
+    }
+
+    long rows() {
+        return rows;
+    }
+
+    int chunks() {
+        return snapshot.chunks().length;
+    }
+
+    long coveredFrom() {
+        return coveredFrom;
+    }
+
+    int dictionarySize(int dimension) {
+        return snapshot.dictionaries()[dimension].size;
+    }
+
+    long allocatedBytes() {
+        return (long) snapshot.chunks().length * CHUNK_ROWS * (Long.BYTES + (long) Integer.BYTES * width);
+    }
+
+    // Counts rows with since <= second < until whose dimension values pass the filters (dimension index to
+    // accepted values, null for a missing one), grouped by the values of groupBy and by bucket when not null
+    List<Group> count(long since, long until, Map<Integer, Set<String>> filters, int[] groupBy, TrendGranularity bucket) {
+        // Row counts first: every id in those rows is then below the dictionary sizes read next
+        Snapshot current = snapshot;
+        Chunk[] chunks = current.chunks();
+        Dictionary[] dictionaries = current.dictionaries();
+        int[] sizes = new int[chunks.length];
+        for (int c = 0; c < chunks.length; c++) {
+            sizes[c] = chunks[c].size;
+        }
+
+        int[] filterDimensions = new int[filters.size()];
+        boolean[][] allowed = new boolean[filters.size()][];
+        int f = 0;
+        for (Map.Entry<Integer, Set<String>> filter : filters.entrySet()) {
+            Dictionary dictionary = dictionaries[filter.getKey()];
+            boolean[] ids = new boolean[dictionary.size];
+            for (String value : filter.getValue()) {
+                int id = dictionary.lookup(value);
+                if (id >= 0 && id < ids.length) ids[id] = true;
+            }
+            filterDimensions[f] = filter.getKey();
+            allowed[f++] = ids;
+        }
+
+        String[][] values = new String[groupBy.length][];
+        long[] radix = new long[groupBy.length + 1];
+        long groups = 1;
+        for (int g = 0; g < groupBy.length; g++) {
+            values[g] = dictionaries[groupBy[g]].values();
+            radix[g] = dictionaries[groupBy[g]].size;
+            groups = multiply(groups, radix[g]);
+        }
+        long firstBucket = bucket != null ? bucket.bucketIndex(since) : 0;
+        radix[groupBy.length] = bucket != null ? bucket.bucketIndex(until - 1) - firstBucket + 1 : 1;
+        groups = multiply(groups, radix[groupBy.length]);
+
+        long[] dense = groups <= DENSE_GROUPS ? new long[(int) groups] : null;
+        Map<Long, long[]> sparse = dense == null ? new HashMap<>() : null;
+
+        for (int c = 0; c < chunks.length; c++) {
+            Chunk chunk = chunks[c];
+            int size = sizes[c];
+            if (size == 0 || chunk.maxSecond < since || chunk.minSecond >= until) continue;
+
+            long[] seconds = chunk.seconds;
+            int[][] columns = chunk.columns;
+            rows:
+            for (int row = 0; row < size; row++) {
+                long second = seconds[row];
+                if (second < since || second >= until) continue;
+                for (int i = 0; i < filterDimensions.length; i++) {
+                    if (!allowed[i][columns[filterDimensions[i]][row]]) continue rows;
+                }
+
+                long key = 0;
+                for (int g = 0; g < groupBy.length; g++) {
+                    key = key * radix[g] + columns[groupBy[g]][row];
+                }
+                if (bucket != null) {
+                    key = key * radix[groupBy.length] + (bucket.bucketIndex(second) - firstBucket);
+                }
+                if (dense != null) {
+                    dense[(int) key]++;
+                } else {
+                    sparse.computeIfAbsent(key, k -> new long[1])[0]++;
+                }
+            }
+        }
+
+        List<Group> result = new ArrayList<>();
+        if (dense != null) {
+            for (int key = 0; key < dense.length; key++) {
+                if (dense[key] > 0) result.add(decode(key, dense[key], values, radix, firstBucket));
+            }
+        } else {
+            sparse.forEach((key, count) -> result.add(decode(key, count[0], values, radix, firstBucket)));
+        }
+        return result;
+    }
+
+    private static Dictionary[] emptyDictionaries(int width) {
+        Dictionary[] dictionaries = new Dictionary[width];
+        for (int d = 0; d < width; d++) {
+            dictionaries[d] = new Dictionary();
+        }
+        return dictionaries;
+    }
+
+    private static Group decode(long key, long count, String[][] values, long[] radix, long firstBucket) {
+        int dimensions = values.length;
+        long bucket = firstBucket + key % radix[dimensions];
+        key /= radix[dimensions];
+        String[] group = new String[dimensions];
+        for (int g = dimensions - 1; g >= 0; g--) {
+            group[g] = values[g][(int) (key % radix[g])];
+            key /= radix[g];
+        }
+        return new Group(group, bucket, count);
+    }
+
+    private static long multiply(long groups, long radix) {
+        try {
+            return Math.multiplyExact(groups, radix);
+        } catch (ArithmeticException e) {
+            throw new IllegalArgumentException("Too many possible groups; group by fewer dimensions");
+        }
+    }
+
+    // values are in groupBy order; bucket is a TrendGranularity bucket index and meaningless when not bucketed
+    record Group(String[] values, long bucket, long count) {
+    }
+
+    private record Snapshot(Chunk[] chunks, Dictionary[] dictionaries) {
+    }
+
+    private static final class Chunk {
+        final long[] seconds;
+        final int[][] columns;
+        volatile int size;
+        long minSecond = Long.MAX_VALUE;
+        long maxSecond = Long.MIN_VALUE;
+
+        Chunk(int width) {
+            this(new long[CHUNK_ROWS], new int[width][CHUNK_ROWS]);
+        }
+
+        private Chunk(long[] seconds, int[][] columns) {
+            this.seconds = seconds;
+            this.columns = columns;
+        }
+
+        // A copy with the ids of every dimension that has a remap table replaced; other columns are shared.
+        // Appends after the copy go to the copy only, past the rows scans of the original can see.
+        Chunk remap(int[][] remap) {
+            int rows = size;
+            int[][] remapped = columns.clone();
+            for (int d = 0; d < remap.length; d++) {
+                if (remap[d] == null) continue;
+                int[] column = new int[CHUNK_ROWS];
+                for (int row = 0; row < rows; row++) {
+                    column[row] = remap[d][columns[d][row]];
+                }
+                remapped[d] = column;
+            }
+            Chunk copy = new Chunk(seconds, remapped);
+            copy.minSecond = minSecond;
+            copy.maxSecond = maxSecond;
+            copy.size = rows;
+            return copy;
+        }
+    }
+
+    // Values get ids in order of first appearance; a compaction replaces the dictionary rather than reusing ids
+    private static final class Dictionary {
+        private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+        private volatile String[] values = new String[16];
+        private volatile int size = 1;
+
+        int encode(String value) {
+            if (value == null) return 0;
+            Integer id = ids.get(value);
+            if (id != null) return id;
+
+            int next = size;
+            String[] current = values;
+            if (next == current.length) {
+                current = Arrays.copyOf(current, next * 2);
+            }
+            current[next] = value;
+            values = current;
+            ids.put(value, next);
+            size = next + 1;
+            return next;
+        }
+
+        // -1 when the value has never been seen
+        int lookup(String value) {
+            if (value == null) return 0;
+            Integer id = ids.get(value);
+            return id != null ? id : -1;
+        }
+
+        String[] values() {
+            return values;
+        }
+    }
+}
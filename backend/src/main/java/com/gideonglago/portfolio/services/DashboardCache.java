@@ -0,0 +1,212 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+
+import jakarta.annotation.PreDestroy;
+
+// Caches dashboard responses per period. Entries are fresh for a TTL that grows with the period
+// and are marked stale by incoming events once they are older than min-age-ms. Stale entries are
+// still served for up to max-stale-ms while a single background refresh recomputes them, and
+// concurrent misses for the same period wait on one computation instead of each running it.
+@Component
+public class DashboardCache implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(DashboardCache.class);
+
+    private final boolean enabled;
+    private final long minAgeNanos;
+    private final long maxStaleNanos;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private final Map<String, CompletableFuture<Map<String, Object>>> inFlight = new ConcurrentHashMap<>();
+    // Bumped on every persisted batch; entries computed under an older generation may be out of date
+    private final AtomicLong writeGeneration = new AtomicLong();
+    private final ThreadPoolExecutor refreshExecutor;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong staleHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong refreshes = new AtomicLong();
+    private final AtomicLong refreshFailures = new AtomicLong();
+
+    public DashboardCache(AnalyticsThreads analyticsThreads,
+                          @Value("${analytics.dashboard.cache.enabled:true}") boolean enabled,
+                          @Value("${analytics.dashboard.cache.min-age-ms:2000}") long minAgeMillis,
+                          @Value("${analytics.dashboard.cache.max-stale-ms:300000}") long maxStaleMillis) {
+        this.enabled = enabled;
+        this.minAgeNanos = TimeUnit.MILLISECONDS.toNanos(minAgeMillis);
+        this.maxStaleNanos = TimeUnit.MILLISECONDS.toNanos(maxStaleMillis);
+        // One refresh per period at most, so the queue never needs to hold more than the period count
+        this.refreshExecutor = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS, new ArrayBlockingQueue<>(8),
+            analyticsThreads.factory("dashboard-refresh"));
+    }
+
+    // Unknown periods fall back to a week in AnalyticsService, so they share the week entry
+    public static String normalize(String period) {
+        String key = period.toLowerCase();
+        switch (key) {
+            case "hour":
+            case "day":
+            case "week":
+            case "month":
+            case "year":
+                return key;
+            default:
+                return "week";
+        }
+    }
+
+    static Duration ttlFor(String period) {
+        switch (period) {
+            case "hour":
+                return Duration.ofSeconds(5);
+            case "day":
+                return Duration.ofSeconds(30);
+            case "month":
+                return Duration.ofMinutes(5);
+            case "year":
+                return Duration.ofMinutes(15);
+            default:
+                return Duration.ofMinutes(1);
+        }
+    }
+
+    public Map<String, Object> get(String period, Supplier<Map<String, Object>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+
+        String key = normalize(period);
+        Entry entry = entries.get(key);
+        long now = System.nanoTime();
+        if (entry != null) {
+            if (isFresh(entry, now)) {
+                hits.incrementAndGet();
+                return entry.value();
+            }
+            if (now - entry.expiresAt() < maxStaleNanos) {
+                staleHits.incrementAndGet();
+                refreshInBackground(key, loader);
+                return entry.value();
+            }
+        }
+
+        misses.incrementAndGet();
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        CompletableFuture<Map<String, Object>> running = inFlight.putIfAbsent(key, mine);
+        if (running != null) {
+            coalesced.incrementAndGet();
+            return await(running);
+        }
+        return load(key, loader, mine);
+    }
+
+    public CacheStats getStats() {
+        long lookups = hits.get() + staleHits.get() + misses.get();
+        double hitRatio = lookups > 0 ? (double) (hits.get() + staleHits.get()) / lookups : 0;
+        return new CacheStats(enabled, entries.size(), hits.get(), staleHits.get(), misses.get(), coalesced.get(),
+            refreshes.get(), refreshFailures.get(), hitRatio);
+    }
+
+    public void invalidateAll() {
+        writeGeneration.incrementAndGet();
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        invalidateAll();
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        invalidateAll();
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    private boolean isFresh(Entry entry, long now) {
+        if (now - entry.expiresAt() >= 0) return false;
+        return entry.generation() == writeGeneration.get() || now - entry.computedAt() < minAgeNanos;
+    }
+
+    private void refreshInBackground(String key, Supplier<Map<String, Object>> loader) {
+        CompletableFuture<Map<String, Object>> mine = new CompletableFuture<>();
+        if (inFlight.putIfAbsent(key, mine) != null) return;
+
+        Runnable refresh = () -> {
+            try {
+                load(key, loader, mine);
+                refreshes.incrementAndGet();
+            } catch (RuntimeException e) {
+                refreshFailures.incrementAndGet();
+                log.warn("Background refresh of dashboard '{}' failed", key, e);
+            }
+        };
+        try {
+            refreshExecutor.execute(refresh);
+        } catch (RejectedExecutionException e) {
+            // Requests coalesced onto this refresh are waiting for it, so it has to run somewhere
+            refresh.run();
+        }
+    }
+
+    private Map<String, Object> load(String key, Supplier<Map<String, Object>> loader,
+                                     CompletableFuture<Map<String, Object>> future) {
+        try {
+            long generation = writeGeneration.get();
+            long computedAt = System.nanoTime();
+            Map<String, Object> value = loader.get();
+            // Partial responses are only kept for min-age-ms so the missing metrics are retried soon
+            long ttl = Boolean.TRUE.equals(value.get("partial")) ? minAgeNanos : ttlFor(key).toNanos();
+            entries.put(key, new Entry(value, generation, computedAt, computedAt + ttl));
+            future.complete(value);
+            return value;
+        } catch (RuntimeException e) {
+            future.completeExceptionally(e);
+            throw e;
+        } finally {
+            inFlight.remove(key, future);
+        }
+    }
+
+    private static Map<String, Object> await(CompletableFuture<Map<String, Object>> future) {
+        try {
+            return future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private record Entry(Map<String, Object> value, long generation, long computedAt, long expiresAt) {
+    }
+
+    public record CacheStats(boolean enabled, int entries, long hits, long staleHits, long misses, long coalesced,
+                             long refreshes, long refreshFailures, double hitRatio) {
+    }
+}
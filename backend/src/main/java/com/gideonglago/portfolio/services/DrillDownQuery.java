@@ -0,0 +1,162 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+// Counts page views, clicks or sessions with since <= timestamp < until, keeping only those whose dimensions
+// take one of the filter values (null matches a missing value) and grouping them by up to two of the source's
+// dimensions and, optionally, a time bucket. At most limit groups are returned, largest first, or in time
+// order when grouped by bucket.
+public record DrillDownQuery(Source source, LocalDateTime since, LocalDateTime until,
+                             Map<Dimension, Set<String>> filters, List<Dimension> groupBy,
+                             TrendGranularity bucket, int limit) {
+
+    public static final int MAX_GROUP_BY = 2;
+    public static final int MAX_FILTER_VALUES = 50;
+
+    public DrillDownQuery {
+        if (source == null || since == null || until == null) {
+            throw new IllegalArgumentException("source, since and until are required");
+        }
+        if (!since.isBefore(until)) {
+            throw new IllegalArgumentException("since must be before until");
+        }
+        if (limit < 1) {
+            throw new IllegalArgumentException("limit must be positive");
+        }
+        Map<Dimension, Set<String>> filterCopy = new LinkedHashMap<>();
+        filters.forEach((dimension, values) -> {
+            source.require(dimension);
+            if (values.isEmpty() || values.size() > MAX_FILTER_VALUES) {
+                throw new IllegalArgumentException("A filter takes 1 to " + MAX_FILTER_VALUES + " values");
+            }
+            // LinkedHashSet rather than Set.copyOf, which rejects the null that stands for a missing value
+            filterCopy.put(dimension, new LinkedHashSet<>(values));
+        });
+        if (groupBy.size() > MAX_GROUP_BY) {
+            throw new IllegalArgumentException("groupBy takes at most " + MAX_GROUP_BY + " dimensions");
+        }
+        for (Dimension dimension : groupBy) {
+            source.require(dimension);
+        }
+        if (new LinkedHashSet<>(groupBy).size() != groupBy.size()) {
+            throw new IllegalArgumentException("groupBy lists a dimension twice");
+        }
+        filters = filterCopy;
+        groupBy = List.copyOf(groupBy);
+    }
+
+    // Column names of the result rows: the grouped dimensions, then "time" when bucketed, then "count"
+    public List<String> columns() {
+        List<String> columns = new ArrayList<>();
+        for (Dimension dimension : groupBy) columns.add(dimension.key());
+        if (bucket != null) columns.add("time");
+        columns.add("count");
+        return columns;
+    }
+
+    // timeColumn is the column since and until apply to; a session counts in the range it started in
+    public enum Source {
+        PAGE_VIEWS("page_view", "timestamp", "pageviews",
+            Dimension.PAGE, Dimension.REFERRER, Dimension.DEVICE, Dimension.BROWSER, Dimension.OS, Dimension.COUNTRY),
+        CLICKS("click_event", "timestamp", "clicks",
+            Dimension.PAGE, Dimension.ELEMENT_TYPE, Dimension.ELEMENT),
+        SESSIONS("user_session", "start_time", "sessions",
+            Dimension.ENTRY_PAGE, Dimension.EXIT_PAGE, Dimension.REFERRER, Dimension.DEVICE, Dimension.BROWSER,
+            Dimension.OS, Dimension.COUNTRY, Dimension.RETURNING);
+
+        private final String table;
+        private final String timeColumn;
+        private final String key;
+        private final List<Dimension> dimensions;
+
+        Source(String table, String timeColumn, String key, Dimension... dimensions) {
+            this.table = table;
+            this.timeColumn = timeColumn;
+            this.key = key;
+            this.dimensions = List.of(dimensions);
+        }
+
+        public String table() {
+            return table;
+        }
+
+        public String timeColumn() {
+            return timeColumn;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public List<Dimension> dimensions() {
+            return dimensions;
+        }
+
+        public static Source fromKey(String key) {
+            for (Source source : values()) {
+                if (source.key.equalsIgnoreCase(key)) return source;
+            }
+            throw new IllegalArgumentException("Unknown source " + key + "; expected pageviews, clicks or sessions");
+        }
+
+        private void require(Dimension dimension) {
+            if (!dimensions.contains(dimension)) {
+                throw new IllegalArgumentException(key + " have no " + dimension.key() + " dimension");
+            }
+        }
+    }
+
+    // The queryable columns; column is the SQL expression for the dimension in each source table that has it
+    public enum Dimension {
+        PAGE("page", "page"),
+        REFERRER("referrer", "referrer"),
+        DEVICE("device", "device"),
+        BROWSER("browser", "browser"),
+        OS("os", "os"),
+        COUNTRY("country", "country"),
+        ELEMENT_TYPE("elementType", "element_type"),
+        ELEMENT("element", "COALESCE(element_text, element_id)"),
+        ENTRY_PAGE("entryPage", "entry_page"),
+        EXIT_PAGE("exitPage", "exit_page"),
+        RETURNING("returning", "CAST(is_returning_visitor AS varchar)");
+
+        private final String key;
+        private final String column;
+
+        Dimension(String key, String column) {
+            this.key = key;
+            this.column = column;
+        }
+
+        public String key() {
+            return key;
+        }
+
+        public String column() {
+            return column;
+        }
+
+        public static Dimension fromKey(String key) {
+            for (Dimension dimension : values()) {
+                if (dimension.key.equalsIgnoreCase(key)) return dimension;
+            }
+            throw new IllegalArgumentException("Unknown dimension " + key);
+        }
+    }
+
+    public static TrendGranularity bucketFromKey(String key) {
+        if (key == null || key.isBlank()) return null;
+        try {
+            return TrendGranularity.valueOf(key.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalArgumentException("Unknown bucket " + key + "; expected minute, hour, day or week");
+        }
+    }
+}
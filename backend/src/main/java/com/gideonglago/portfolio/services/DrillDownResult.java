@@ -0,0 +1,12 @@
+package com.gideonglago.portfolio.services;
+
+import java.util.List;
+
+// Rows of a DrillDownQuery in the order of its columns(). groups is the number of groups before the limit was
+// applied, and answeredFrom says whether the rows came from the in-memory store or from the database.
+public record DrillDownResult(String answeredFrom, List<String> columns, List<List<Object>> rows,
+                              long groups, boolean truncated) {
+
+    public static final String MEMORY = "memory";
+    public static final String DATABASE = "database";
+}
@@ -0,0 +1,115 @@
+package com.gideonglago.portfolio.services;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.repositories.DrillDownRepository;
+
+// Answers drill-down queries from the columnar store when it holds the whole range, and otherwise with one
+// compiled statement. Database queries are capped at max-concurrent at a time, so a burst of expensive
+// breakdowns holds at most that many pool connections and never starves tracking or the dashboard; a query
+// that gets no permit within wait-ms is rejected, and one that runs past statement-timeout-ms is cancelled.
+@Service
+public class DrillDownService {
+
+    public static final int MAX_ROWS = 10_000;
+
+    private final ColumnarEventStore columnarStore;
+    private final DrillDownRepository drillDownRepository;
+    private final Semaphore permits;
+    private final long waitMillis;
+    private final long statementTimeoutMillis;
+
+    private final AtomicLong answeredFromMemory = new AtomicLong();
+    private final AtomicLong answeredFromDatabase = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+
+    public DrillDownService(ColumnarEventStore columnarStore, DrillDownRepository drillDownRepository,
+                            @Value("${analytics.drilldown.max-concurrent:2}") int maxConcurrent,
+                            @Value("${analytics.drilldown.wait-ms:250}") long waitMillis,
+                            @Value("${analytics.drilldown.statement-timeout-ms:5000}") long statementTimeoutMillis) {
+        this.columnarStore = columnarStore;
+        this.drillDownRepository = drillDownRepository;
+        this.permits = new Semaphore(maxConcurrent, true);
+        this.waitMillis = waitMillis;
+        this.statementTimeoutMillis = statementTimeoutMillis;
+    }
+
+    // Throws RejectedExecutionException when too many database queries are running and
+    // QueryTimeoutException when the statement timeout cancels the query
+    public DrillDownResult query(DrillDownQuery query) {
+        if (query.limit() > MAX_ROWS) {
+            query = new DrillDownQuery(query.source(), query.since(), query.until(), query.filters(), query.groupBy(),
+                query.bucket(), MAX_ROWS);
+        }
+        if (columnarStore.covers(query)) {
+            answeredFromMemory.incrementAndGet();
+            return columnarStore.query(query);
+        }
+
+        DrillDownSqlCompiler.CompiledQuery compiled = DrillDownSqlCompiler.compile(query);
+        acquire();
+        List<Object[]> rows;
+        try {
+            rows = drillDownRepository.query(compiled.sql(), compiled.args(), statementTimeoutMillis);
+        } catch (QueryTimeoutException e) {
+            timedOut.incrementAndGet();
+            throw e;
+        } finally {
+            permits.release();
+        }
+        answeredFromDatabase.incrementAndGet();
+        return toResult(query, compiled.groupedColumns(), rows);
+    }
+
+    public DrillDownStats getStats() {
+        return new DrillDownStats(answeredFromMemory.get(), answeredFromDatabase.get(), rejected.get(), timedOut.get(),
+            permits.availablePermits(), columnarStore.getStats());
+    }
+
+    private void acquire() {
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(waitMillis, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            rejected.incrementAndGet();
+            throw new RejectedExecutionException("Too many breakdown queries are running; try again shortly");
+        }
+    }
+
+    private static DrillDownResult toResult(DrillDownQuery query, int grouped, List<Object[]> rows) {
+        List<List<Object>> result = new ArrayList<>(rows.size());
+        for (Object[] row : rows) {
+            List<Object> values = new ArrayList<>(grouped + 1);
+            for (int c = 0; c < grouped; c++) {
+                values.add(row[c]);
+            }
+            if (query.bucket() != null) {
+                values.set(grouped - 1, query.bucket().format(((Timestamp) row[grouped - 1]).toLocalDateTime()));
+            }
+            values.add(((Number) row[grouped]).longValue());
+            result.add(values);
+        }
+        long groups = rows.isEmpty() ? 0 : ((Number) rows.get(0)[grouped + 1]).longValue();
+        return new DrillDownResult(DrillDownResult.DATABASE, query.columns(), result, groups, groups > rows.size());
+    }
+
+    // availablePermits is how many more database queries could start right now
+    public record DrillDownStats(long answeredFromMemory, long answeredFromDatabase, long rejected, long timedOut,
+                                 int availablePermits, ColumnarEventStore.ColumnarStats columnar) {
+    }
+}
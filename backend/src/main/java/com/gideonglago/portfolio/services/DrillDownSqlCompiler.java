@@ -0,0 +1,83 @@
+package com.gideonglago.portfolio.services;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+
+// Turns a drill-down query into one aggregate statement. Table, column and date_trunc names only ever come
+// from the Source, Dimension and TrendGranularity enums; every value from the request is a bind parameter.
+// The time range is a plain range on the source's time column, so Postgres prunes the daily partitions and
+// can use the (timestamp, ...) indexes, and filters are IN lists on the same expressions the groups use.
+// The total number of groups comes back with every row as a window count over the grouped result.
+public final class DrillDownSqlCompiler {
+
+    private DrillDownSqlCompiler() {
+    }
+
+    public static CompiledQuery compile(DrillDownQuery query) {
+        DrillDownQuery.Source source = query.source();
+        String time = source.timeColumn();
+        List<Object> args = new ArrayList<>();
+
+        List<String> select = new ArrayList<>();
+        for (Dimension dimension : query.groupBy()) {
+            select.add(dimension.column());
+        }
+        if (query.bucket() != null) {
+            select.add("date_trunc('" + query.bucket().unit() + "', " + time + ")");
+        }
+        int grouped = select.size();
+
+        StringBuilder sql = new StringBuilder("SELECT ");
+        for (String expression : select) {
+            sql.append(expression).append(", ");
+        }
+        sql.append("COUNT(*), COUNT(*) OVER () FROM ").append(source.table())
+            .append(" WHERE ").append(time).append(" >= ? AND ").append(time).append(" < ?");
+        args.add(Timestamp.valueOf(query.since()));
+        args.add(Timestamp.valueOf(query.until()));
+
+        for (Map.Entry<Dimension, Set<String>> filter : query.filters().entrySet()) {
+            String column = filter.getKey().column();
+            List<String> conditions = new ArrayList<>(2);
+            List<String> values = filter.getValue().stream().filter(Objects::nonNull).toList();
+            if (!values.isEmpty()) {
+                conditions.add(column + " IN (" + String.join(", ", Collections.nCopies(values.size(), "?")) + ")");
+                args.addAll(values);
+            }
+            if (filter.getValue().contains(null)) {
+                conditions.add(column + " IS NULL");
+            }
+            sql.append(" AND ").append(conditions.size() > 1 ? "(" + String.join(" OR ", conditions) + ")" : conditions.get(0));
+        }
+
+        if (grouped > 0) {
+            sql.append(" GROUP BY ");
+            for (int i = 1; i <= grouped; i++) {
+                sql.append(i > 1 ? ", " : "").append(i);
+            }
+        } else {
+            // An ungrouped count would otherwise be one row of 0 over an empty range
+            sql.append(" HAVING COUNT(*) > 0");
+        }
+
+        int countColumn = grouped + 1;
+        sql.append(query.bucket() != null
+            ? " ORDER BY " + grouped + ", " + countColumn + " DESC"
+            : " ORDER BY " + countColumn + " DESC");
+        sql.append(" LIMIT ?");
+        args.add(query.limit());
+
+        return new CompiledQuery(sql.toString(), args, grouped);
+    }
+
+    // Result rows hold the grouped columns (the bucket last, as a Timestamp), the count, then the number of groups
+    public record CompiledQuery(String sql, List<Object> args, int groupedColumns) {
+    }
+}
@@ -0,0 +1,101 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import jakarta.annotation.PostConstruct;
+
+// Resolves client IPs to a country and city from a local range table (analytics.geo.database),
+// either a binary table from GeoIpTableBuilder or a CSV that is converted on load. The file is
+// checked every reload-check-ms and swapped in without a restart when it changes. The table is mapped
+// from a private copy, never from the configured file: truncating a mapped file, as cp over it does,
+// would make the next lookup through the old mapping crash the JVM with SIGBUS. Nothing here touches
+// the network; with no database configured every lookup returns null.
+@Component
+public class GeoIpResolver {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoIpResolver.class);
+
+    private final Path database;
+
+    private volatile GeoIpTable table;
+    private FileTime loadedModified;
+    private long loadedSize = -1;
+
+    public GeoIpResolver(@Value("${analytics.geo.database:}") String database) {
+        this.database = database.isBlank() ? null : Path.of(database);
+    }
+
+    @PostConstruct
+    public void load() {
+        reloadIfChanged();
+    }
+
+    public GeoLocation resolve(String ipAddress) {
+        GeoIpTable current = table;
+        if (current == null) return null;
+
+        Integer ip = GeoIpTable.parseIpv4(ipAddress);
+        return ip != null ? current.lookup(ip) : null;
+    }
+
+    public boolean isEnabled() {
+        return table != null;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.geo.reload-check-ms:60000}")
+    public synchronized void reloadIfChanged() {
+        if (database == null) return;
+
+        try {
+            if (!Files.isRegularFile(database)) {
+                if (loadedSize < 0) {
+                    log.warn("Geo IP database {} not found, geo enrichment is disabled", database);
+                    loadedSize = 0;
+                }
+                return;
+            }
+            FileTime modified = Files.getLastModifiedTime(database);
+            long size = Files.size(database);
+            if (modified.equals(loadedModified) && size == loadedSize) return;
+
+            GeoIpTable loaded = open(database);
+            table = loaded;
+            loadedModified = modified;
+            loadedSize = size;
+            log.info("Loaded {} geo IP ranges from {}", loaded.size(), database);
+        } catch (IOException | RuntimeException e) {
+            // Keep serving the previous table
+            log.error("Failed to load geo IP database {}", database, e);
+        }
+    }
+
+    private static GeoIpTable open(Path file) throws IOException {
+        Path copy = Files.createTempFile("geoip", ".bin");
+        try {
+            if (file.getFileName().toString().toLowerCase().endsWith(".csv")) {
+                GeoIpTableBuilder.build(file, copy);
+            } else {
+                Files.copy(file, copy, StandardCopyOption.REPLACE_EXISTING);
+            }
+            return GeoIpTable.open(copy);
+        } finally {
+            // The mapping outlives the file on POSIX systems, and nothing else can open it once it is
+            // unlinked; elsewhere the temp file is left behind until exit
+            try {
+                Files.deleteIfExists(copy);
+            } catch (IOException e) {
+                copy.toFile().deleteOnExit();
+            }
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// Read-only IPv4 range table backed by a memory-mapped file written by GeoIpTableBuilder:
+//
+//   int magic ("GEO1"), int rangeCount, int locationCount
+//   rangeCount x (int firstIp, int lastIp, int locationIndex), sorted by firstIp as unsigned
+//   locationCount x (short length, UTF-8 country, short length, UTF-8 city)
+//
+// The ranges stay off-heap and are binary-searched in place; only the small location list is decoded.
+// The file must not be rewritten while it is mapped, so GeoIpResolver opens a private copy of it.
+public final class GeoIpTable {
+
+    static final int MAGIC = 0x47454F31;
+    static final int HEADER_BYTES = 12;
+    static final int RANGE_BYTES = 12;
+
+    private final MappedByteBuffer ranges;
+    private final int rangeCount;
+    private final GeoLocation[] locations;
+
+    private GeoIpTable(MappedByteBuffer ranges, int rangeCount, GeoLocation[] locations) {
+        this.ranges = ranges;
+        this.rangeCount = rangeCount;
+        this.locations = locations;
+    }
+
+    public static GeoIpTable open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a geo IP table: " + file);
+            }
+            int rangeCount = buffer.getInt(4);
+            int locationCount = buffer.getInt(8);
+            // A copy taken while the table was being written is shorter than its header says
+            if (rangeCount < 0 || locationCount < 0 || buffer.capacity() < HEADER_BYTES + (long) rangeCount * RANGE_BYTES) {
+                throw new IOException("Truncated geo IP table: " + file);
+            }
+
+            ByteBuffer locationData = buffer.duplicate().position(HEADER_BYTES + rangeCount * RANGE_BYTES);
+            GeoLocation[] locations = new GeoLocation[locationCount];
+            try {
+                for (int i = 0; i < locationCount; i++) {
+                    locations[i] = new GeoLocation(readString(locationData), readString(locationData));
+                }
+            } catch (BufferUnderflowException e) {
+                throw new IOException("Truncated geo IP table: " + file, e);
+            }
+            return new GeoIpTable(buffer, rangeCount, locations);
+        }
+    }
+
+    public int size() {
+        return rangeCount;
+    }
+
+    public GeoLocation lookup(int ip) {
+        int low = 0;
+        int high = rangeCount - 1;
+        int match = -1;
+        // Last range whose first address is <= ip
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            if (Integer.compareUnsigned(ranges.getInt(HEADER_BYTES + mid * RANGE_BYTES), ip) <= 0) {
+                match = mid;
+                low = mid + 1;
+            } else {
+                high = mid - 1;
+            }
+        }
+        if (match < 0) return null;
+
+        int offset = HEADER_BYTES + match * RANGE_BYTES;
+        if (Integer.compareUnsigned(ip, ranges.getInt(offset + 4)) > 0) return null;
+        return locations[ranges.getInt(offset + 8)];
+    }
+
+    // Parses dotted IPv4 (also IPv4-mapped IPv6) without touching InetAddress, which could resolve names.
+    // Returns null for anything else.
+    public static Integer parseIpv4(String address) {
+        if (address == null) return null;
+        String ip = address.trim();
+        if (ip.regionMatches(true, 0, "::ffff:", 0, 7)) {
+            ip = ip.substring(7);
+        }
+
+        int value = 0;
+        int octets = 0;
+        int octet = -1;
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = (octet < 0 ? 0 : octet * 10) + (c - '0');
+                if (octet > 255) return null;
+            } else if (c == '.' && octet >= 0 && octets < 3) {
+                value = (value << 8) | octet;
+                octets++;
+                octet = -1;
+            } else {
+                return null;
+            }
+        }
+        if (octets != 3 || octet < 0) return null;
+        return (value << 8) | octet;
+    }
+
+    private static String readString(ByteBuffer buffer) {
+        byte[] bytes = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(bytes);
+        return bytes.length > 0 ? new String(bytes, StandardCharsets.UTF_8) : null;
+    }
+}
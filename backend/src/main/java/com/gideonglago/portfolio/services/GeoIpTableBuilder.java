@@ -0,0 +1,113 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Converts a CSV of IPv4 ranges into the binary table read by GeoIpTable. Expected columns:
+//   first_ip,last_ip,country[,city]
+// with an optional header row. Rows that are not IPv4 ranges (e.g. IPv6) are skipped. GeoIpResolver uses it
+// to convert a configured CSV on load; tools.GeoIpTableTool runs it from the command line.
+public final class GeoIpTableBuilder {
+
+    private GeoIpTableBuilder() {
+    }
+
+    // Writes to a temporary file and moves it into place, so a watching resolver never maps a partial table
+    public static int build(Path csv, Path output) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        List<GeoLocation> locations = new ArrayList<>();
+        Map<GeoLocation, Integer> locationIndex = new HashMap<>();
+
+        try (BufferedReader reader = Files.newBufferedReader(csv, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                List<String> fields = parseCsvLine(line);
+                if (fields.size() < 3) continue;
+                Integer first = GeoIpTable.parseIpv4(fields.get(0));
+                Integer last = GeoIpTable.parseIpv4(fields.get(1));
+                if (first == null || last == null || Integer.compareUnsigned(first, last) > 0) continue;
+
+                GeoLocation location = new GeoLocation(emptyToNull(fields.get(2)), fields.size() > 3 ? emptyToNull(fields.get(3)) : null);
+                int index = locationIndex.computeIfAbsent(location, l -> {
+                    locations.add(l);
+                    return locations.size() - 1;
+                });
+                ranges.add(new long[] { Integer.toUnsignedLong(first), Integer.toUnsignedLong(last), index });
+            }
+        }
+        ranges.sort((a, b) -> Long.compare(a[0], b[0]));
+
+        Path parent = output.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(parent, output.getFileName().toString(), ".tmp");
+        try (OutputStream stream = Files.newOutputStream(temp);
+             DataOutputStream out = new DataOutputStream(new BufferedOutputStream(stream))) {
+            out.writeInt(GeoIpTable.MAGIC);
+            out.writeInt(ranges.size());
+            out.writeInt(locations.size());
+            for (long[] range : ranges) {
+                out.writeInt((int) range[0]);
+                out.writeInt((int) range[1]);
+                out.writeInt((int) range[2]);
+            }
+            for (GeoLocation location : locations) {
+                writeString(out, location.country());
+                writeString(out, location.city());
+            }
+        } catch (IOException e) {
+            Files.deleteIfExists(temp);
+            throw e;
+        }
+        Files.move(temp, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return ranges.size();
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value != null ? value.getBytes(StandardCharsets.UTF_8) : new byte[0];
+        out.writeShort(Math.min(bytes.length, 0xFFFF));
+        out.write(bytes, 0, Math.min(bytes.length, 0xFFFF));
+    }
+
+    private static String emptyToNull(String value) {
+        return value == null || value.isBlank() ? null : value.trim();
+    }
+
+    // Minimal CSV: comma separated, double quotes around fields that contain commas, "" for a quote
+    private static List<String> parseCsvLine(String line) {
+        List<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean quoted = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (quoted) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    quoted = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"') {
+                quoted = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields;
+    }
+}
@@ -0,0 +1,4 @@
+package com.gideonglago.portfolio.services;
+
+public record GeoLocation(String country, String city) {
+}
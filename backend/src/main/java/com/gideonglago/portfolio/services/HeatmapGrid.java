@@ -0,0 +1,106 @@
+package com.gideonglago.portfolio.services;
+
+import java.nio.ByteBuffer;
+
+// Click counts over a fixed COLUMNS x ROWS grid laid over the whole document: a click at page coordinates
+// (x, y) in a document of scroll size width x height lands in cell (x * COLUMNS / width, y * ROWS / height),
+// so clicks line up wherever the page was scrolled to and whatever the screen size within one class. Grids
+// of the same size merge by adding cells. They are serialized sparsely (cell, count pairs) while few cells
+// are set, which is the common case for a page and day.
+public final class HeatmapGrid {
+
+    public static final int COLUMNS = 64;
+    public static final int ROWS = 64;
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int[] cells = new int[COLUMNS * ROWS];
+    private long clicks;
+
+    // The cell a click at page coordinates (x, y) in a width x height document lands in, or -1 when the
+    // position or document size is missing or the position lies outside the document
+    public static int cellOf(Integer x, Integer y, Integer width, Integer height) {
+        if (x == null || y == null || width == null || height == null || width <= 0 || height <= 0) return -1;
+        if (x < 0 || y < 0 || x > width || y > height) return -1;
+
+        // A click on the very last pixel row or column still belongs to the last cell
+        int column = Math.min(COLUMNS - 1, (int) ((long) x * COLUMNS / width));
+        int row = Math.min(ROWS - 1, (int) ((long) y * ROWS / height));
+        return row * COLUMNS + column;
+    }
+
+    public synchronized void increment(int cell) {
+        cells[cell]++;
+        clicks++;
+    }
+
+    public synchronized void merge(HeatmapGrid other) {
+        int[] theirs;
+        long theirClicks;
+        synchronized (other) {
+            theirs = other.cells.clone();
+            theirClicks = other.clicks;
+        }
+        for (int i = 0; i < cells.length; i++) {
+            cells[i] += theirs[i];
+        }
+        clicks += theirClicks;
+    }
+
+    public synchronized long clicks() {
+        return clicks;
+    }
+
+    // Row by row, top to bottom
+    public synchronized int[][] toRows() {
+        int[][] rows = new int[ROWS][];
+        for (int row = 0; row < ROWS; row++) {
+            rows[row] = new int[COLUMNS];
+            System.arraycopy(cells, row * COLUMNS, rows[row], 0, COLUMNS);
+        }
+        return rows;
+    }
+
+    public synchronized byte[] toBytes() {
+        int set = 0;
+        for (int cell : cells) {
+            if (cell != 0) set++;
+        }
+        if (set * 6 < cells.length * 4) {
+            ByteBuffer buffer = ByteBuffer.allocate(1 + set * 6).put(SPARSE);
+            for (int i = 0; i < cells.length; i++) {
+                if (cells[i] != 0) {
+                    buffer.putShort((short) i).putInt(cells[i]);
+                }
+            }
+            return buffer.array();
+        }
+        ByteBuffer buffer = ByteBuffer.allocate(1 + cells.length * 4).put(DENSE);
+        for (int cell : cells) {
+            buffer.putInt(cell);
+        }
+        return buffer.array();
+    }
+
+    public static HeatmapGrid fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HeatmapGrid grid = new HeatmapGrid();
+        byte encoding = buffer.get();
+        if (encoding == DENSE) {
+            for (int i = 0; i < grid.cells.length; i++) {
+                grid.cells[i] = buffer.getInt();
+            }
+        } else if (encoding == SPARSE) {
+            while (buffer.remaining() >= 6) {
+                grid.cells[Short.toUnsignedInt(buffer.getShort())] = buffer.getInt();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown heatmap encoding " + encoding);
+        }
+        for (int cell : grid.cells) {
+            grid.clicks += cell;
+        }
+        return grid;
+    }
+}
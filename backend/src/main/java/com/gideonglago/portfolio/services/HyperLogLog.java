@@ -0,0 +1,147 @@
+package com.gideonglago.portfolio.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+// Mergeable distinct-count sketch with 2^precision one-byte registers. The relative standard error
+// is 1.04 / sqrt(2^precision), e.g. 0.81% at precision 14. Sketches are serialized sparsely
+// (index, value pairs) while few registers are set, which is the common case for hourly buckets.
+public final class HyperLogLog {
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private final int precision;
+    private final byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < 4 || precision > 16) {
+            throw new IllegalArgumentException("precision must be between 4 and 16");
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    public int precision() {
+        return precision;
+    }
+
+    public synchronized void add(String value) {
+        if (value == null) return;
+        long hash = hash(value);
+        int index = (int) (hash >>> (64 - precision));
+        // Rank of the first set bit in the remaining bits, capped by the bits available
+        long rest = hash << precision;
+        int rank = rest == 0 ? 64 - precision + 1 : Long.numberOfLeadingZeros(rest) + 1;
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public synchronized void merge(HyperLogLog other) {
+        if (other.precision != precision) {
+            throw new IllegalArgumentException("Cannot merge sketches of precision " + other.precision + " into " + precision);
+        }
+        byte[] theirs;
+        synchronized (other) {
+            theirs = other.registers.clone();
+        }
+        for (int i = 0; i < registers.length; i++) {
+            if (theirs[i] > registers[i]) {
+                registers[i] = theirs[i];
+            }
+        }
+    }
+
+    public synchronized long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+        double estimate = alpha(m) * m * m / sum;
+        // Linear counting is more accurate while many registers are still empty
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public double relativeStandardError() {
+        return relativeStandardError(precision);
+    }
+
+    public static double relativeStandardError(int precision) {
+        return 1.04 / Math.sqrt(1 << precision);
+    }
+
+    public synchronized boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) return false;
+        }
+        return true;
+    }
+
+    public synchronized byte[] toBytes() {
+        int set = 0;
+        for (byte register : registers) {
+            if (register != 0) set++;
+        }
+        if (set * 3 < registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + set * 3).put((byte) precision).put(SPARSE);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+        return ByteBuffer.allocate(2 + registers.length).put((byte) precision).put(DENSE).put(registers).array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        byte encoding = buffer.get();
+        if (encoding == DENSE) {
+            buffer.get(sketch.registers);
+        } else if (encoding == SPARSE) {
+            while (buffer.remaining() >= 3) {
+                sketch.registers[Short.toUnsignedInt(buffer.getShort())] = buffer.get();
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown sketch encoding " + encoding);
+        }
+        return sketch;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+
+    // 64-bit FNV-1a over the UTF-8 bytes followed by the MurmurHash3 finalizer for avalanche
+    static long hash(String value) {
+        long h = 0xcbf29ce484222325L;
+        for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+            h ^= b & 0xFF;
+            h *= 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb93fe53e94cdL;
+        h ^= h >>> 33;
+        return h;
+    }
+}
@@ -0,0 +1,304 @@
+package com.gideonglago.portfolio.services;
+
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+
+import jakarta.annotation.PreDestroy;
+
+// Pushes persisted tracking events and rolling counters to dashboard clients over SSE. The ingestion
+// writer only bumps counters and appends to a bounded tick buffer; once per tick the buffer is drained
+// into a single pre-serialized message that is queued for every client. Each client has its own bounded
+// queue and at most one sender thread draining it, so a send blocked on a slow client only holds that
+// client's thread; the client loses its oldest ticks instead of holding up the others.
+@Component
+public class LiveEventStream implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(LiveEventStream.class);
+
+    private final ObjectMapper objectMapper;
+    private final SessionStateStore sessionStateStore;
+    private final long timeoutMillis;
+    private final int maxClients;
+    private final int clientBufferTicks;
+    private final int maxEventsPerTick;
+    private final Set<Client> clients = ConcurrentHashMap.newKeySet();
+    // Connected plus reserved-but-not-yet-added clients, so concurrent subscribes cannot pass max-clients
+    private final AtomicInteger clientSlots = new AtomicInteger();
+    private final ThreadPoolExecutor sender;
+
+    // Events since the last tick; bounded by maxEventsPerTick, anything beyond is only counted
+    private final Queue<Map<String, Object>> tickEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger tickEventCount = new AtomicInteger();
+    private final LongAdder tickPageViews = new LongAdder();
+    private final LongAdder tickClicks = new LongAdder();
+    // Per-tick counts over the rolling window, oldest overwritten first; only touched by tick()
+    private final long[] windowPageViews;
+    private final long[] windowClicks;
+    private int windowSlot;
+
+    private final AtomicLong ticks = new AtomicLong();
+    private final AtomicLong messagesSent = new AtomicLong();
+    private final AtomicLong messagesDropped = new AtomicLong();
+    private final AtomicLong eventsOmitted = new AtomicLong();
+    private final AtomicLong rejectedClients = new AtomicLong();
+
+    public LiveEventStream(ObjectMapper objectMapper,
+                           SessionStateStore sessionStateStore,
+                           AnalyticsThreads analyticsThreads,
+                           @Value("${analytics.stream.timeout-ms:1800000}") long timeoutMillis,
+                           @Value("${analytics.stream.max-clients:50}") int maxClients,
+                           @Value("${analytics.stream.client-buffer-ticks:32}") int clientBufferTicks,
+                           @Value("${analytics.stream.max-events-per-tick:100}") int maxEventsPerTick,
+                           @Value("${analytics.stream.window-ticks:60}") int windowTicks) {
+        this.objectMapper = objectMapper;
+        this.sessionStateStore = sessionStateStore;
+        this.timeoutMillis = timeoutMillis;
+        this.maxClients = maxClients;
+        this.clientBufferTicks = Math.max(1, clientBufferTicks);
+        this.maxEventsPerTick = maxEventsPerTick;
+        this.windowPageViews = new long[Math.max(1, windowTicks)];
+        this.windowClicks = new long[Math.max(1, windowTicks)];
+        // A thread per connected client: each client has at most one drain task at a time, so a drain only
+        // waits in the queue behind clients that already went away with a send still blocked
+        int senderThreads = Math.max(1, maxClients);
+        this.sender = new ThreadPoolExecutor(senderThreads, senderThreads, 60, TimeUnit.SECONDS, new LinkedBlockingQueue<>(),
+            analyticsThreads.factory("analytics-stream"));
+        this.sender.allowCoreThreadTimeOut(true);
+    }
+
+    // Returns null when max-clients are already connected
+    public SseEmitter subscribe() {
+        if (!reserveClientSlot()) {
+            rejectedClients.incrementAndGet();
+            return null;
+        }
+
+        SseEmitter emitter = createEmitter(timeoutMillis);
+        Client client = new Client(emitter, clientBufferTicks);
+        emitter.onCompletion(() -> remove(client));
+        emitter.onTimeout(() -> remove(client));
+        emitter.onError(e -> remove(client));
+        clients.add(client);
+        return emitter;
+    }
+
+    protected SseEmitter createEmitter(long timeoutMillis) {
+        return new SseEmitter(timeoutMillis);
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        tickPageViews.add(pageViews.size());
+        if (clients.isEmpty()) return;
+
+        int slots = reserveEventSlots(pageViews.size());
+        for (PageView pv : pageViews.subList(0, slots)) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "pageview");
+            event.put("page", pv.getPage());
+            event.put("timestamp", pv.getTimestamp());
+            event.put("device", pv.getDevice());
+            event.put("country", pv.getCountry());
+            tickEvents.add(event);
+        }
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        tickClicks.add(clicks.size());
+        if (clients.isEmpty()) return;
+
+        int slots = reserveEventSlots(clicks.size());
+        for (ClickEvent ce : clicks.subList(0, slots)) {
+            Map<String, Object> event = new HashMap<>();
+            event.put("type", "click");
+            event.put("page", ce.getPage());
+            event.put("element", ce.getElementText() != null ? ce.getElementText() : ce.getElementId());
+            event.put("timestamp", ce.getTimestamp());
+            tickEvents.add(event);
+        }
+    }
+
+    @Scheduled(fixedRateString = "${analytics.stream.tick-ms:1000}")
+    public synchronized void tick() {
+        long pageViews = tickPageViews.sumThenReset();
+        long clicks = tickClicks.sumThenReset();
+        windowSlot = (windowSlot + 1) % windowPageViews.length;
+        windowPageViews[windowSlot] = pageViews;
+        windowClicks[windowSlot] = clicks;
+
+        List<Map<String, Object>> events = new ArrayList<>();
+        for (Map<String, Object> event; (event = tickEvents.poll()) != null; ) {
+            events.add(event);
+        }
+        int reserved = tickEventCount.getAndSet(0);
+        ticks.incrementAndGet();
+        if (clients.isEmpty()) return;
+
+        Map<String, Object> message = new LinkedHashMap<>();
+        message.put("time", LocalDateTime.now());
+        message.put("pageViews", pageViews);
+        message.put("clicks", clicks);
+        message.put("windowTicks", windowPageViews.length);
+        message.put("windowPageViews", sum(windowPageViews));
+        message.put("windowClicks", sum(windowClicks));
+        message.put("activeSessions", sessionStateStore.activeSessionCount());
+        message.put("events", events);
+        long omitted = Math.max(0, reserved - maxEventsPerTick);
+        if (omitted > 0) {
+            message.put("omittedEvents", omitted);
+            eventsOmitted.addAndGet(omitted);
+        }
+
+        String json;
+        try {
+            json = objectMapper.writeValueAsString(message);
+        } catch (JsonProcessingException e) {
+            log.error("Failed to serialize analytics stream tick", e);
+            return;
+        }
+        for (Client client : clients) {
+            if (client.offer(json)) {
+                messagesDropped.incrementAndGet();
+            }
+            if (client.draining.compareAndSet(false, true)) {
+                sender.execute(() -> drain(client));
+            }
+        }
+    }
+
+    public StreamStats getStats() {
+        return new StreamStats(clients.size(), maxClients, ticks.get(), messagesSent.get(), messagesDropped.get(),
+            eventsOmitted.get(), rejectedClients.get());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        sender.shutdownNow();
+        for (Client client : clients) {
+            client.emitter.complete();
+            remove(client);
+        }
+    }
+
+    // Returns how many of count events fit in this tick; all of them are counted, past the limit too, so
+    // the tick can report how many were left out
+    private int reserveEventSlots(int count) {
+        int before = tickEventCount.getAndAdd(count);
+        return Math.max(0, Math.min(count, maxEventsPerTick - before));
+    }
+
+    private boolean reserveClientSlot() {
+        while (true) {
+            int slots = clientSlots.get();
+            if (slots >= maxClients) return false;
+            if (clientSlots.compareAndSet(slots, slots + 1)) return true;
+        }
+    }
+
+    // Emitter callbacks and a failed send can both report the same client
+    private void remove(Client client) {
+        if (clients.remove(client)) {
+            clientSlots.decrementAndGet();
+        }
+    }
+
+    private void drain(Client client) {
+        try {
+            String json;
+            while ((json = client.poll()) != null) {
+                long dropped = client.dropped.getAndSet(0);
+                if (dropped > 0) {
+                    client.emitter.send(SseEmitter.event().name("dropped").data("{\"ticks\":" + dropped + "}"));
+                }
+                client.emitter.send(SseEmitter.event().name("tick").data(json));
+                messagesSent.incrementAndGet();
+            }
+        } catch (IOException | IllegalStateException e) {
+            // The client went away; the emitter callbacks may not fire for a broken connection
+            remove(client);
+            client.emitter.completeWithError(e);
+            return;
+        } finally {
+            client.draining.set(false);
+        }
+        // A tick queued after the last poll but before draining was cleared would otherwise wait a tick
+        if (client.hasPending() && client.draining.compareAndSet(false, true)) {
+            sender.execute(() -> drain(client));
+        }
+    }
+
+    private static long sum(long[] values) {
+        long total = 0;
+        for (long value : values) total += value;
+        return total;
+    }
+
+    private static final class Client {
+
+        private final SseEmitter emitter;
+        private final int capacity;
+        private final ArrayDeque<String> queue;
+        private final AtomicBoolean draining = new AtomicBoolean();
+        private final AtomicLong dropped = new AtomicLong();
+
+        Client(SseEmitter emitter, int capacity) {
+            this.emitter = emitter;
+            this.capacity = capacity;
+            this.queue = new ArrayDeque<>(capacity);
+        }
+
+        // Returns true when the oldest queued message had to be dropped to make room
+        synchronized boolean offer(String message) {
+            boolean full = queue.size() >= capacity;
+            if (full) {
+                queue.pollFirst();
+                dropped.incrementAndGet();
+            }
+            queue.addLast(message);
+            return full;
+        }
+
+        synchronized String poll() {
+            return queue.pollFirst();
+        }
+
+        synchronized boolean hasPending() {
+            return !queue.isEmpty();
+        }
+    }
+
+    public record StreamStats(int clients, int maxClients, long ticks, long messagesSent, long messagesDropped,
+                              long eventsOmitted, long rejectedClients) {
+    }
+}
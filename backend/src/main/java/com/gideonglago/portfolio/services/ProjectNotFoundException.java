@@ -0,0 +1,8 @@
+package com.gideonglago.portfolio.services;
+
+public class ProjectNotFoundException extends RuntimeException {
+
+    public ProjectNotFoundException(Long id) {
+        super("Project not found with id " + id);
+    }
+}
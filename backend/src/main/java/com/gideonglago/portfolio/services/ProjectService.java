@@ -1,9 +1,21 @@
 package com.gideonglago.portfolio.services;
 
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.dto.ProjectView;
 import com.gideonglago.portfolio.models.Project;
 import com.gideonglago.portfolio.repositories.ProjectRepository;
 
@@ -11,38 +23,120 @@ import com.gideonglago.portfolio.repositories.ProjectRepository;
 public class ProjectService {
 
     private final ProjectRepository projectRepository;
+    private final ObjectMapper objectMapper;
+    // Opens the read-only transaction of a catalogue rebuild; a cached catalogue is served without a connection
+    private final TransactionTemplate readOnlyTransaction;
 
-    public ProjectService(ProjectRepository projectRepository) {
+    // Serialized catalogue served by GET /api/projects; dropped once a write commits and rebuilt on the next read
+    private volatile Catalogue catalogue;
+    private final AtomicLong catalogueVersion = new AtomicLong();
+
+    public ProjectService(ProjectRepository projectRepository, ObjectMapper objectMapper,
+                          PlatformTransactionManager transactionManager) {
         this.projectRepository = projectRepository;
+        this.objectMapper = objectMapper;
+        this.readOnlyTransaction = new TransactionTemplate(transactionManager);
+        this.readOnlyTransaction.setReadOnly(true);
+    }
+
+    @Transactional(readOnly = true)
+    public List<ProjectView> findAll() {
+        return projectRepository.findAllWithCollections().stream().map(ProjectView::from).toList();
     }
 
-    public List<Project> findAll() {
-        return projectRepository.findAll();
+    public Catalogue catalogue() {
+        Catalogue current = catalogue;
+        if (current != null) {
+            return current;
+        }
+
+        long version = catalogueVersion.get();
+        // findAll is called on this, not through the proxy, so its @Transactional does not apply here
+        List<ProjectView> projects = readOnlyTransaction.execute(status -> findAll());
+        Catalogue built = Catalogue.of(serialize(projects));
+        synchronized (this) {
+            // A write that happened while building invalidates this snapshot; serve it once but don't keep it
+            if (catalogueVersion.get() == version) {
+                catalogue = built;
+            }
+        }
+        return built;
     }
 
-    public Project findById(Long id) {
-        return projectRepository.findById(id)
-                .orElseThrow(() -> new RuntimeException("Project not found with id " + id));
+    @Transactional(readOnly = true)
+    public ProjectView findById(Long id) {
+        return projectRepository.findWithCollectionsById(id)
+                .map(ProjectView::from)
+                .orElseThrow(() -> new ProjectNotFoundException(id));
     }
 
+    @Transactional
     public Project create(Project project) {
         project.setId(null); // ensure new entity
-        return projectRepository.save(project);
+        Project saved = projectRepository.save(project);
+        invalidateCatalogueAfterCommit();
+        return saved;
     }
 
+    @Transactional
     public Project update(Long id, Project updated) {
-        Project existing = findById(id);
+        Project existing = projectRepository.findById(id)
+                .orElseThrow(() -> new ProjectNotFoundException(id));
         existing.setTitle(updated.getTitle());
         existing.setDescription(updated.getDescription());
         existing.setTechStack(updated.getTechStack());
         existing.setGithubUrl(updated.getGithubUrl());
         existing.setDemoUrl(updated.getDemoUrl());
         existing.setImages(updated.getImages());
-        return projectRepository.save(existing);
+        Project saved = projectRepository.save(existing);
+        invalidateCatalogueAfterCommit();
+        return saved;
     }
 
+    @Transactional
     public void delete(Long id) {
-        Project existing = findById(id);
+        Project existing = projectRepository.findById(id)
+                .orElseThrow(() -> new ProjectNotFoundException(id));
         projectRepository.delete(existing);
+        invalidateCatalogueAfterCommit();
+    }
+
+    // Dropping it before the commit would let a concurrent read rebuild and keep a catalogue without the write
+    private void invalidateCatalogueAfterCommit() {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            invalidateCatalogue();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                invalidateCatalogue();
+            }
+        });
+    }
+
+    public synchronized void invalidateCatalogue() {
+        catalogueVersion.incrementAndGet();
+        catalogue = null;
+    }
+
+    private byte[] serialize(List<ProjectView> projects) {
+        try {
+            return objectMapper.writeValueAsBytes(projects);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Failed to serialize project catalogue", e);
+        }
+    }
+
+    public record Catalogue(byte[] json, String etag) {
+
+        static Catalogue of(byte[] json) {
+            try {
+                byte[] digest = MessageDigest.getInstance("SHA-256").digest(json);
+                return new Catalogue(json, "\"" + HexFormat.of().formatHex(digest, 0, 16) + "\"");
+            } catch (NoSuchAlgorithmException e) {
+                throw new IllegalStateException("SHA-256 is not available", e);
+            }
+        }
     }
-} 
\ No newline at end of file
+}
@@ -0,0 +1,127 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.AnalyticsRollup;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository.DailyPartition;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository.DroppedPartition;
+import com.gideonglago.portfolio.repositories.UserSessionBatchRepository;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository;
+
+// Enforces analytics.retention.days: keeps daily event partitions created ahead of time and drops
+// whole partitions once they are older than the retention window, instead of deleting row by row.
+@Service
+public class RetentionService {
+
+    private static final Logger log = LoggerFactory.getLogger(RetentionService.class);
+
+    private final EventPartitionRepository partitionRepository;
+    private final UserSessionBatchRepository userSessionBatchRepository;
+    private final AnalyticsRollupRepository rollupRepository;
+    private final VisitorSketchRepository sketchRepository;
+    private final VisitorIndex visitorIndex;
+    private final int retentionDays;
+    private final int partitionsAhead;
+    private final boolean cleanupEnabled;
+
+    private volatile RetentionReport lastReport;
+
+    public RetentionService(EventPartitionRepository partitionRepository,
+                            UserSessionBatchRepository userSessionBatchRepository,
+                            AnalyticsRollupRepository rollupRepository,
+                            VisitorSketchRepository sketchRepository,
+                            VisitorIndex visitorIndex,
+                            @Value("${analytics.retention.days:90}") int retentionDays,
+                            @Value("${analytics.retention.partitions-ahead:7}") int partitionsAhead,
+                            @Value("${analytics.cleanup.enabled:true}") boolean cleanupEnabled) {
+        this.partitionRepository = partitionRepository;
+        this.userSessionBatchRepository = userSessionBatchRepository;
+        this.rollupRepository = rollupRepository;
+        this.sketchRepository = sketchRepository;
+        this.visitorIndex = visitorIndex;
+        this.retentionDays = retentionDays;
+        this.partitionsAhead = partitionsAhead;
+        this.cleanupEnabled = cleanupEnabled;
+    }
+
+    // Make sure today's partitions exist after downtime, without waiting for the cron
+    @EventListener(ApplicationReadyEvent.class)
+    public void ensurePartitions() {
+        LocalDate today = LocalDate.now();
+        for (String table : EventPartitionRepository.PARTITIONED_TABLES) {
+            try {
+                int created = partitionRepository.createDailyPartitions(table, today, today.plusDays(partitionsAhead));
+                if (created > 0) {
+                    log.info("Created {} daily partitions for {}", created, table);
+                }
+            } catch (RuntimeException e) {
+                log.error("Failed to create partitions for {}", table, e);
+            }
+        }
+    }
+
+    @Scheduled(cron = "${analytics.cleanup.cron:0 0 0 * * *}")
+    public void scheduledCleanup() {
+        ensurePartitions();
+        if (cleanupEnabled) {
+            enforceRetention();
+        }
+    }
+
+    public RetentionReport enforceRetention() {
+        LocalDate firstKeptDay = LocalDate.now().minusDays(retentionDays);
+        LocalDateTime cutoff = firstKeptDay.atStartOfDay();
+
+        List<DroppedPartition> dropped = new ArrayList<>();
+        long defaultRowsDeleted = 0;
+        for (String table : EventPartitionRepository.PARTITIONED_TABLES) {
+            for (DailyPartition partition : partitionRepository.findDailyPartitions(table)) {
+                if (partition.day().isBefore(firstKeptDay)) {
+                    dropped.add(partitionRepository.drop(partition));
+                }
+            }
+            defaultRowsDeleted += partitionRepository.deleteFromDefaultPartition(table, cutoff);
+        }
+
+        int sessionsDeleted = userSessionBatchRepository.deleteStartedBefore(cutoff);
+        // Visitors whose sessions have all been deleted count as new again
+        int visitorsExpired = visitorIndex.expireBefore(cutoff);
+        // Daily rollups and sketches are kept for long-range dashboards; hourly ones follow the raw data
+        int hourlyRollupsDeleted = rollupRepository.deleteBefore(AnalyticsRollup.HOUR, cutoff);
+        int hourlySketchesDeleted = sketchRepository.deleteBefore(AnalyticsRollup.HOUR, cutoff);
+
+        RetentionReport report = new RetentionReport(LocalDateTime.now(), cutoff, dropped,
+            dropped.stream().mapToLong(DroppedPartition::estimatedRows).sum(),
+            dropped.stream().mapToLong(DroppedPartition::bytes).sum(),
+            defaultRowsDeleted, sessionsDeleted, visitorsExpired, hourlyRollupsDeleted, hourlySketchesDeleted);
+        lastReport = report;
+
+        log.info("Retention before {}: dropped {} partitions (~{} rows, {} bytes), {} out-of-range rows, {} sessions, {} visitors, {} hourly rollups, {} hourly sketches",
+            cutoff, dropped.size(), report.partitionRowsReclaimed(), report.partitionBytesReclaimed(),
+            defaultRowsDeleted, sessionsDeleted, visitorsExpired, hourlyRollupsDeleted, hourlySketchesDeleted);
+        return report;
+    }
+
+    public RetentionReport getLastReport() {
+        return lastReport;
+    }
+
+    // partitionRowsReclaimed sums the planner's row estimates of the dropped partitions
+    public record RetentionReport(LocalDateTime ranAt, LocalDateTime cutoff, List<DroppedPartition> droppedPartitions,
+                                  long partitionRowsReclaimed, long partitionBytesReclaimed, long defaultPartitionRowsDeleted,
+                                  int sessionsDeleted, int visitorsExpired, int hourlyRollupsDeleted, int hourlySketchesDeleted) {
+    }
+}
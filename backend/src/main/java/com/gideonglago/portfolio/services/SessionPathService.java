@@ -0,0 +1,465 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.EventScanRepository;
+
+import jakarta.annotation.PostConstruct;
+
+// Ordered page sequences of the sessions started in the last window-days, for funnels and path analysis.
+// Pages are interned to int ids and every session keeps its path as an int array, with reloads of the
+// same page collapsed and at most max-path-length steps. Page-to-page transitions and the most common
+// session paths (their first TOP_PATH_STEPS pages) are counted incrementally per day of session start;
+// funnels, whose steps are arbitrary, are a scan over the int arrays. Like the columnar store, the index
+// is rebuilt from raw page views at startup, before ingestion starts, and then follows ingestion. The page
+// dictionary is renumbered whenever a day expires, so pages seen only in expired sessions are forgotten.
+@Service
+public class SessionPathService implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionPathService.class);
+
+    public static final int TOP_PATH_STEPS = 5;
+    public static final int MAX_FUNNEL_STEPS = 10;
+
+    private final EventScanRepository scanRepository;
+    private final int windowDays;
+    private final int maxPathLength;
+    private final int maxSessions;
+    // Appends come from the ingestion writer, evictions from the scheduler; queries share the read lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    // Everything below is guarded by lock
+    private final Map<String, Integer> pageIds = new HashMap<>();
+    private final List<String> pages = new ArrayList<>();
+    // In order of each session's first page view
+    private final ArrayDeque<SessionPath> sessions = new ArrayDeque<>();
+    private final Map<String, SessionPath> bySessionId = new HashMap<>();
+    // Sessions evicted for max-sessions to their start second, in eviction order; their later page views are
+    // ignored rather than starting a new path mid-session. Kept until their day expires, at most max-sessions.
+    private final LinkedHashMap<String, Long> evictedSessions = new LinkedHashMap<>();
+    // Epoch day of session start to that day's counters
+    private final TreeMap<Long, DayCounts> days = new TreeMap<>();
+    // Epoch second from which every session start is held; eviction moves it forward
+    private long coveredFrom;
+    // Epoch second from which every session start is in the day counters; only expiry moves it forward,
+    // as the counters of a session evicted for max-sessions stay until its day expires
+    private long countedFrom;
+    private long droppedSteps;
+
+    public SessionPathService(EventScanRepository scanRepository,
+                              @Value("${analytics.paths.window-days:35}") int windowDays,
+                              @Value("${analytics.paths.max-path-length:64}") int maxPathLength,
+                              @Value("${analytics.paths.max-sessions:500000}") int maxSessions) {
+        this.scanRepository = scanRepository;
+        this.windowDays = windowDays;
+        this.maxPathLength = maxPathLength;
+        this.maxSessions = maxSessions;
+        this.coveredFrom = toSecond(LocalDateTime.now());
+        this.countedFrom = coveredFrom;
+    }
+
+    public boolean isEnabled() {
+        return windowDays > 0;
+    }
+
+    @PostConstruct
+    public void load() {
+        if (!isEnabled()) return;
+
+        LocalDateTime since = LocalDateTime.now().minusDays(windowDays);
+        lock.writeLock().lock();
+        try {
+            long start = System.nanoTime();
+            clear(toSecond(since));
+            scanRepository.forEachEvent("page_view", List.of("session_id", "page"), since,
+                (timestamp, values) -> record(values[0], values[1], timestamp));
+            log.info("Loaded {} session paths over {} pages in {} ms",
+                sessions.size(), pages.size(), (System.nanoTime() - start) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Start empty; only sessions started from now on are then analysed
+            clear(toSecond(LocalDateTime.now()));
+            log.error("Session path load failed; it covers sessions from now on", e);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        if (!isEnabled()) return;
+
+        lock.writeLock().lock();
+        try {
+            for (PageView pv : pageViews) {
+                record(pv.getSessionId(), pv.getPage(), pv.getTimestamp());
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.paths.evict-interval-ms:60000}")
+    public void evictExpired() {
+        if (!isEnabled()) return;
+
+        long cutoff = toSecond(LocalDateTime.now().minusDays(windowDays));
+        lock.writeLock().lock();
+        try {
+            while (!sessions.isEmpty() && sessions.peekFirst().startSecond < cutoff) {
+                evictOldest(false);
+            }
+            Iterator<Long> evicted = evictedSessions.values().iterator();
+            while (evicted.hasNext() && evicted.next() < cutoff) {
+                evicted.remove();
+            }
+            Map<Long, DayCounts> expired = days.headMap(Math.floorDiv(cutoff, 86_400L));
+            if (!expired.isEmpty()) {
+                expired.clear();
+                compactPages();
+            }
+            coveredFrom = Math.max(coveredFrom, cutoff);
+            countedFrom = Math.max(countedFrom, cutoff);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    // Sessions started in [since, until) that visited steps[0], then steps[1] later on, and so on; other pages
+    // may come between steps. A step's sessions are those that got at least that far.
+    public Funnel funnel(List<String> steps, LocalDateTime since, LocalDateTime until) {
+        if (steps.isEmpty() || steps.size() > MAX_FUNNEL_STEPS) {
+            throw new IllegalArgumentException("A funnel has 1 to " + MAX_FUNNEL_STEPS + " steps");
+        }
+
+        lock.readLock().lock();
+        try {
+            long from = Math.max(toSecond(since), coveredFrom);
+            long to = toSecond(until);
+            int[] stepIds = new int[steps.size()];
+            for (int i = 0; i < stepIds.length; i++) {
+                stepIds[i] = pageIds.getOrDefault(steps.get(i), -1);
+            }
+
+            long scanned = 0;
+            long[] reached = new long[stepIds.length];
+            for (SessionPath path : sessions) {
+                if (path.startSecond < from || path.startSecond >= to) continue;
+                scanned++;
+                int step = 0;
+                for (int i = 0; i < path.length && step < stepIds.length; i++) {
+                    if (path.pages[i] == stepIds[step]) step++;
+                }
+                for (int s = 0; s < step; s++) {
+                    reached[s]++;
+                }
+            }
+
+            List<FunnelStep> result = new ArrayList<>(stepIds.length);
+            for (int s = 0; s < stepIds.length; s++) {
+                long previous = s == 0 ? scanned : reached[s - 1];
+                result.add(new FunnelStep(steps.get(s), reached[s],
+                    previous > 0 ? (double) reached[s] / previous : 0,
+                    reached[0] > 0 ? (double) reached[s] / reached[0] : 0));
+            }
+            return new Funnel(toDateTime(from), until, scanned, result);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The most common session paths, cut to their first TOP_PATH_STEPS pages, of sessions started on days touching [since, until)
+    public TopPaths topPaths(LocalDateTime since, LocalDateTime until, int limit) {
+        lock.readLock().lock();
+        try {
+            Map<PathKey, Long> merged = new HashMap<>();
+            for (DayCounts counts : daysTouching(since, until)) {
+                counts.paths.forEach((key, count) -> merged.merge(key, count[0], Long::sum));
+            }
+            List<PathCount> result = new ArrayList<>(merged.size());
+            merged.forEach((key, count) -> {
+                List<String> steps = new ArrayList<>(key.pages.length);
+                for (int page : key.pages) steps.add(pages.get(page));
+                result.add(new PathCount(steps, count));
+            });
+            result.sort((a, b) -> Long.compare(b.sessions(), a.sessions()));
+            return new TopPaths(countedStart(since), countedEnd(until), result.subList(0, Math.min(limit, result.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Page-to-page moves in sessions started on days touching [since, until), most frequent first; from null for all pages
+    public TopTransitions topTransitions(String from, LocalDateTime since, LocalDateTime until, int limit) {
+        lock.readLock().lock();
+        try {
+            Integer fromId = from != null ? pageIds.get(from) : null;
+            if (from != null && fromId == null) return new TopTransitions(countedStart(since), countedEnd(until), List.of());
+
+            Map<Long, Long> merged = new HashMap<>();
+            for (DayCounts counts : daysTouching(since, until)) {
+                counts.transitions.forEach((key, count) -> {
+                    if (fromId == null || (int) (key >>> 32) == fromId) merged.merge(key, count[0], Long::sum);
+                });
+            }
+            List<TransitionCount> result = new ArrayList<>(merged.size());
+            merged.forEach((key, count) -> result.add(
+                new TransitionCount(pages.get((int) (key >>> 32)), pages.get(key.intValue()), count)));
+            result.sort((a, b) -> Long.compare(b.count(), a.count()));
+            return new TopTransitions(countedStart(since), countedEnd(until), result.subList(0, Math.min(limit, result.size())));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public PathStats getStats() {
+        lock.readLock().lock();
+        try {
+            long steps = 0;
+            for (SessionPath path : sessions) steps += path.length;
+            return new PathStats(isEnabled(), windowDays, sessions.size(), steps, pages.size(), days.size(),
+                evictedSessions.size(), droppedSteps, toDateTime(coveredFrom));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // Called with the write lock held
+    private void record(String sessionId, String page, LocalDateTime timestamp) {
+        if (sessionId == null || page == null || timestamp == null) return;
+
+        SessionPath path = bySessionId.get(sessionId);
+        if (path == null) {
+            if (evictedSessions.containsKey(sessionId)) {
+                droppedSteps++;
+                return;
+            }
+            path = new SessionPath(sessionId, toSecond(timestamp));
+            sessions.addLast(path);
+            bySessionId.put(sessionId, path);
+            while (sessions.size() > maxSessions) {
+                evictOldest(true);
+            }
+        }
+
+        int id = intern(page);
+        if (path.length > 0 && path.pages[path.length - 1] == id) return;
+        if (path.length == maxPathLength) {
+            droppedSteps++;
+            return;
+        }
+
+        DayCounts counts = days.computeIfAbsent(Math.floorDiv(path.startSecond, 86_400L), d -> new DayCounts());
+        if (path.length > 0) {
+            long transition = ((long) path.pages[path.length - 1] << 32) | (id & 0xffffffffL);
+            counts.transitions.computeIfAbsent(transition, k -> new long[1])[0]++;
+        }
+        if (path.length < TOP_PATH_STEPS) {
+            if (path.length > 0) counts.remove(new PathKey(Arrays.copyOf(path.pages, path.length)));
+            path.append(id);
+            counts.paths.computeIfAbsent(new PathKey(Arrays.copyOf(path.pages, path.length)), k -> new long[1])[0]++;
+        } else {
+            path.append(id);
+        }
+    }
+
+    // Called with the write lock held; the day counters of an evicted session stay until its day expires.
+    // A session evicted before its day expires is remembered so that it does not come back as a new one.
+    private void evictOldest(boolean remember) {
+        SessionPath evicted = sessions.pollFirst();
+        bySessionId.remove(evicted.sessionId, evicted);
+        coveredFrom = Math.max(coveredFrom, evicted.startSecond + 1);
+        if (remember) {
+            evictedSessions.put(evicted.sessionId, evicted.startSecond);
+            if (evictedSessions.size() > maxSessions) {
+                Iterator<Long> eldest = evictedSessions.values().iterator();
+                eldest.next();
+                eldest.remove();
+            }
+        }
+    }
+
+    // Called with the write lock held: renumbers the pages a session path or a day counter still refers to,
+    // in their old order, and drops the rest from the dictionary
+    private void compactPages() {
+        boolean[] used = new boolean[pages.size()];
+        for (SessionPath path : sessions) {
+            for (int i = 0; i < path.length; i++) used[path.pages[i]] = true;
+        }
+        for (DayCounts counts : days.values()) {
+            for (long key : counts.transitions.keySet()) {
+                used[(int) (key >>> 32)] = true;
+                used[(int) key] = true;
+            }
+            for (PathKey key : counts.paths.keySet()) {
+                for (int page : key.pages) used[page] = true;
+            }
+        }
+
+        int[] remap = new int[used.length];
+        List<String> kept = new ArrayList<>();
+        for (int page = 0; page < used.length; page++) {
+            remap[page] = used[page] ? kept.size() : -1;
+            if (used[page]) kept.add(pages.get(page));
+        }
+        if (kept.size() == pages.size()) return;
+
+        pages.clear();
+        pages.addAll(kept);
+        pageIds.clear();
+        for (int page = 0; page < pages.size(); page++) pageIds.put(pages.get(page), page);
+        for (SessionPath path : sessions) {
+            for (int i = 0; i < path.length; i++) path.pages[i] = remap[path.pages[i]];
+        }
+        for (DayCounts counts : days.values()) {
+            Map<Long, long[]> transitions = new HashMap<>(counts.transitions);
+            counts.transitions.clear();
+            transitions.forEach((key, count) -> counts.transitions.put(
+                ((long) remap[(int) (key >>> 32)] << 32) | (remap[key.intValue()] & 0xffffffffL), count));
+            Map<PathKey, long[]> paths = new HashMap<>(counts.paths);
+            counts.paths.clear();
+            paths.forEach((key, count) -> {
+                int[] remapped = new int[key.pages.length];
+                for (int i = 0; i < remapped.length; i++) remapped[i] = remap[key.pages[i]];
+                counts.paths.put(new PathKey(remapped), count);
+            });
+        }
+        log.info("Compacted the session path page dictionary to {} pages", pages.size());
+    }
+
+    private int intern(String page) {
+        Integer id = pageIds.get(page);
+        if (id != null) return id;
+        pageIds.put(page, pages.size());
+        pages.add(page);
+        return pages.size() - 1;
+    }
+
+    private void clear(long coveredFrom) {
+        sessions.clear();
+        bySessionId.clear();
+        evictedSessions.clear();
+        days.clear();
+        pageIds.clear();
+        pages.clear();
+        this.coveredFrom = coveredFrom;
+        this.countedFrom = coveredFrom;
+    }
+
+    // Start of the first counted day touching since, or later where the counters do not reach back that far
+    private LocalDateTime countedStart(LocalDateTime since) {
+        return toDateTime(Math.max(Math.floorDiv(toSecond(since), 86_400L) * 86_400L, countedFrom));
+    }
+
+    // End of the last day touching until
+    private static LocalDateTime countedEnd(LocalDateTime until) {
+        return toDateTime((Math.floorDiv(toSecond(until) - 1, 86_400L) + 1) * 86_400L);
+    }
+
+    private Iterable<DayCounts> daysTouching(LocalDateTime since, LocalDateTime until) {
+        long fromDay = Math.floorDiv(toSecond(since), 86_400L);
+        long toDay = Math.floorDiv(toSecond(until) - 1, 86_400L);
+        return toDay < fromDay ? List.of() : days.subMap(fromDay, true, toDay, true).values();
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toDateTime(long second) {
+        return LocalDateTime.ofEpochSecond(second, 0, ZoneOffset.UTC);
+    }
+
+    private static final class SessionPath {
+        final String sessionId;
+        final long startSecond;
+        int[] pages = new int[4];
+        int length;
+
+        SessionPath(String sessionId, long startSecond) {
+            this.sessionId = sessionId;
+            this.startSecond = startSecond;
+        }
+
+        void append(int page) {
+            if (length == pages.length) pages = Arrays.copyOf(pages, length * 2);
+            pages[length++] = page;
+        }
+    }
+
+    private static final class DayCounts {
+        // (from page id << 32 | to page id) to count
+        final Map<Long, long[]> transitions = new HashMap<>();
+        final Map<PathKey, long[]> paths = new HashMap<>();
+
+        void remove(PathKey key) {
+            long[] count = paths.get(key);
+            if (count != null && --count[0] == 0) paths.remove(key);
+        }
+    }
+
+    private static final class PathKey {
+        final int[] pages;
+        final int hash;
+
+        PathKey(int[] pages) {
+            this.pages = pages;
+            this.hash = Arrays.hashCode(pages);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof PathKey key && Arrays.equals(pages, key.pages);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+
+    // from is where the scan actually started, later than since when the index does not reach back that far;
+    // rates are fractions of the previous step's sessions and of the first step's
+    public record Funnel(LocalDateTime from, LocalDateTime until, long sessions, List<FunnelStep> steps) {
+    }
+
+    public record FunnelStep(String page, long sessions, double fromPrevious, double fromStart) {
+    }
+
+    // from and until bound the session starts actually counted: whole days, from no earlier than the counters reach
+    public record TopPaths(LocalDateTime from, LocalDateTime until, List<PathCount> paths) {
+    }
+
+    public record PathCount(List<String> pages, long sessions) {
+    }
+
+    // from and until as for TopPaths
+    public record TopTransitions(LocalDateTime from, LocalDateTime until, List<TransitionCount> transitions) {
+    }
+
+    public record TransitionCount(String from, String to, long count) {
+    }
+
+    // droppedSteps counts pages not added to paths already max-path-length long, or of evicted sessions
+    public record PathStats(boolean enabled, int windowDays, int sessions, long steps, int pages, int days,
+                            int evictedSessions, long droppedSteps, LocalDateTime coveredFrom) {
+    }
+}
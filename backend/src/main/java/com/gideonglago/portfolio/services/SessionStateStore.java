@@ -0,0 +1,403 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.models.UserSession;
+import com.gideonglago.portfolio.repositories.UserSessionBatchRepository;
+import com.gideonglago.portfolio.repositories.UserSessionRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Holds the state of active sessions in memory and writes it to the database only at periodic
+// checkpoints and when a session is evicted after idle-timeout-ms without activity. An evicted session
+// stays in memory, marked evicting, until its final write commits, so a page view arriving meanwhile
+// finds it there rather than reloading a stale row or starting a duplicate session. Writes take a
+// snapshot of each session under its monitor and run the JDBC calls outside it, so ingestion never
+// waits on checkpoint I/O.
+@Component
+public class SessionStateStore implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(SessionStateStore.class);
+
+    private final UserSessionRepository userSessionRepository;
+    private final UserSessionBatchRepository userSessionBatchRepository;
+    private final AnalyticsRollupService rollupService;
+    private final VisitorIndex visitorIndex;
+    private final Duration idleTimeout;
+    private final Map<String, SessionState> sessions = new ConcurrentHashMap<>();
+    // One write at a time, so a shutdown flush during a checkpoint cannot insert a new session twice
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    public SessionStateStore(UserSessionRepository userSessionRepository,
+                             UserSessionBatchRepository userSessionBatchRepository,
+                             AnalyticsRollupService rollupService,
+                             VisitorIndex visitorIndex,
+                             @Value("${analytics.sessions.idle-timeout-ms:1800000}") long idleTimeoutMillis) {
+        this.userSessionRepository = userSessionRepository;
+        this.userSessionBatchRepository = userSessionBatchRepository;
+        this.rollupService = rollupService;
+        this.visitorIndex = visitorIndex;
+        this.idleTimeout = Duration.ofMillis(idleTimeoutMillis);
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        for (PageView pageView : pageViews) {
+            // Database reads happen before compute(): its bin lock is a monitor, and a virtual thread
+            // blocked on JDBC inside one pins its carrier thread
+            boolean cached = sessions.containsKey(pageView.getSessionId());
+            SessionState prepared = cached ? null : prepare(pageView);
+            sessions.compute(pageView.getSessionId(), (sessionId, state) -> {
+                if (state == null) {
+                    // Prepared under the lock only if the session was evicted since the check above
+                    state = prepared != null ? prepared : prepare(pageView);
+                    if (state.id == null) {
+                        // New session, created from this page view
+                        rollupService.recordSessionStart(state.startTime, state.entryPage, state.referrer, state.returningVisitor);
+                        return state;
+                    }
+                }
+                reopenIfEnded(state);
+                state.recordPageView(pageView.getPage(), pageView.getTimestamp());
+                return state;
+            });
+        }
+    }
+
+    @Override
+    public void onClicks(List<ClickEvent> clicks) {
+        for (ClickEvent click : clicks) {
+            // Clicks only count towards sessions that were opened by a page view
+            boolean cached = sessions.containsKey(click.getSessionId());
+            SessionState loaded = cached ? null : load(click.getSessionId());
+            sessions.compute(click.getSessionId(), (sessionId, state) -> {
+                if (state == null) {
+                    state = cached ? load(sessionId) : loaded;
+                }
+                if (state != null) {
+                    reopenIfEnded(state);
+                    state.recordClick(click.getTimestamp());
+                }
+                return state;
+            });
+        }
+    }
+
+    public int activeSessionCount() {
+        int count = 0;
+        for (SessionState state : sessions.values()) {
+            if (!state.isEvicting()) count++;
+        }
+        return count;
+    }
+
+    // Aggregates over active sessions started since the given time; ended sessions live in the rollups
+    public LiveSessionSummary summarize(LocalDateTime since) {
+        long count = 0;
+        long pageViews = 0;
+        long duration = 0;
+        Map<String, Long> exitPages = new HashMap<>();
+        for (SessionState state : sessions.values()) {
+            synchronized (state) {
+                // Evicting sessions have ended and are counted by the rollups
+                if (state.evicting || state.startTime == null || state.startTime.isBefore(since)) continue;
+                count++;
+                pageViews += state.pageViews;
+                duration += state.totalDuration();
+                if (state.exitPage != null) {
+                    exitPages.merge(state.exitPage, 1L, Long::sum);
+                }
+            }
+        }
+        return new LiveSessionSummary(count, pageViews, duration, exitPages);
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.sessions.checkpoint-interval-ms:60000}")
+    public void checkpoint() {
+        LocalDateTime idleCutoff = LocalDateTime.now().minus(idleTimeout);
+        List<SessionState> evicted = new ArrayList<>();
+
+        for (String sessionId : sessions.keySet()) {
+            sessions.computeIfPresent(sessionId, (id, state) -> {
+                synchronized (state) {
+                    if (!state.lastSeen.isBefore(idleCutoff)) {
+                        return state;
+                    }
+                    if (state.end()) {
+                        rollupService.recordSessionEnd(state.startTime, state.pageViews, state.totalDuration(), state.exitPage);
+                    }
+                    state.evicting = true;
+                }
+                evicted.add(state);
+                return state;
+            });
+        }
+
+        List<SessionState> dirty = new ArrayList<>();
+        for (SessionState state : sessions.values()) {
+            if (state.isDirty()) {
+                dirty.add(state);
+            }
+        }
+        if (!write(dirty)) return;
+
+        // Only sessions that saw no activity while they were written are dropped; a failed write keeps
+        // them all for the next checkpoint
+        for (SessionState state : evicted) {
+            sessions.computeIfPresent(state.sessionId, (id, current) -> {
+                if (current != state) return current;
+                synchronized (state) {
+                    return state.evicting && !state.dirty ? null : state;
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void flush() {
+        write(new ArrayList<>(sessions.values()));
+    }
+
+    // Returns false when the write failed; the sessions then stay dirty
+    private boolean write(List<SessionState> states) {
+        if (states.isEmpty()) return true;
+
+        writeLock.lock();
+        try {
+            List<SessionState> created = new ArrayList<>();
+            List<Creation> creations = new ArrayList<>();
+            List<SessionState> updated = new ArrayList<>();
+            List<Checkpoint> checkpoints = new ArrayList<>();
+            for (SessionState state : states) {
+                synchronized (state) {
+                    if (state.id == null) {
+                        created.add(state);
+                        creations.add(state.creation());
+                    } else if (state.dirty) {
+                        updated.add(state);
+                        checkpoints.add(state.checkpoint());
+                    }
+                }
+            }
+
+            Map<String, Long> ids = userSessionBatchRepository.insertSessions(creations.stream().map(Creation::session).toList());
+            for (int i = 0; i < created.size(); i++) {
+                SessionState state = created.get(i);
+                synchronized (state) {
+                    state.id = ids.get(state.sessionId);
+                    state.markClean(creations.get(i).version(), creations.get(i).writtenPages());
+                }
+            }
+            userSessionBatchRepository.updateSessions(checkpoints.stream().map(Checkpoint::update).toList());
+            for (int i = 0; i < updated.size(); i++) {
+                SessionState state = updated.get(i);
+                synchronized (state) {
+                    state.markClean(checkpoints.get(i).version(), checkpoints.get(i).update().newPages().size());
+                }
+            }
+            log.debug("Checkpointed {} new and {} updated sessions", created.size(), updated.size());
+            return true;
+        } catch (RuntimeException e) {
+            // Sessions stay dirty and are retried at the next checkpoint, including evicted ones
+            log.error("Failed to checkpoint {} sessions", states.size(), e);
+            return false;
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    private SessionState load(String sessionId) {
+        return userSessionRepository.findBySessionId(sessionId)
+            .map(session -> SessionState.fromEntity(session, userSessionBatchRepository.findPagesVisited(session.getId())))
+            .orElse(null);
+    }
+
+    private void reopenIfEnded(SessionState state) {
+        synchronized (state) {
+            if (state.endRecorded) {
+                rollupService.recordSessionReopened(state.startTime, state.pageViews, state.totalDuration(), state.exitPage);
+                state.endRecorded = false;
+            }
+        }
+    }
+
+    // The stored session, or a new one without an id for a session that was never checkpointed
+    private SessionState prepare(PageView pageView) {
+        SessionState loaded = load(pageView.getSessionId());
+        if (loaded != null) {
+            return loaded;
+        }
+        // Check if returning visitor based on IP
+        boolean isReturning = visitorIndex.recordVisit(pageView.getIpAddress(), pageView.getTimestamp());
+        return SessionState.create(pageView, isReturning);
+    }
+
+    // Mutable per-session counters; all access is synchronized on the instance
+    static final class SessionState {
+
+        private Long id;
+        private String sessionId;
+        private String ipAddress;
+        private String userAgent;
+        private String entryPage;
+        private String referrer;
+        private String device;
+        private String browser;
+        private String os;
+        private String country;
+        private String city;
+        private boolean returningVisitor;
+        private LocalDateTime startTime;
+        private LocalDateTime lastSeen;
+        private LocalDateTime endTime;
+        private int pageViews;
+        private int clicks;
+        private String exitPage;
+        private final Set<String> pagesVisited = new LinkedHashSet<>();
+        private final List<String> newPages = new ArrayList<>();
+        private boolean dirty;
+        private long version;
+        private boolean endRecorded;
+        // Idle and being written for the last time; any activity cancels the eviction
+        private boolean evicting;
+
+        static SessionState create(PageView pageView, boolean returningVisitor) {
+            SessionState state = new SessionState();
+            state.sessionId = pageView.getSessionId();
+            state.ipAddress = pageView.getIpAddress();
+            state.userAgent = pageView.getUserAgent();
+            state.entryPage = pageView.getPage();
+            state.referrer = pageView.getReferrer();
+            state.device = pageView.getDevice();
+            state.browser = pageView.getBrowser();
+            state.os = pageView.getOs();
+            state.country = pageView.getCountry();
+            state.city = pageView.getCity();
+            state.returningVisitor = returningVisitor;
+            state.startTime = pageView.getTimestamp();
+            state.lastSeen = pageView.getTimestamp();
+            state.pageViews = 1;
+            state.pagesVisited.add(pageView.getPage());
+            state.dirty = true;
+            return state;
+        }
+
+        static SessionState fromEntity(UserSession session, List<String> pagesVisited) {
+            SessionState state = new SessionState();
+            state.id = session.getId();
+            state.sessionId = session.getSessionId();
+            state.ipAddress = session.getIpAddress();
+            state.userAgent = session.getUserAgent();
+            state.entryPage = session.getEntryPage();
+            state.referrer = session.getReferrer();
+            state.device = session.getDevice();
+            state.browser = session.getBrowser();
+            state.os = session.getOs();
+            state.country = session.getCountry();
+            state.city = session.getCity();
+            state.returningVisitor = Boolean.TRUE.equals(session.getIsReturningVisitor());
+            state.startTime = session.getStartTime();
+            state.lastSeen = session.getEndTime() != null ? session.getEndTime() : LocalDateTime.now();
+            state.pageViews = session.getPageViews() != null ? session.getPageViews() : 0;
+            state.clicks = session.getClicks() != null ? session.getClicks() : 0;
+            state.exitPage = session.getExitPage();
+            state.endTime = session.getEndTime();
+            state.endRecorded = session.getEndTime() != null && session.getStartTime() != null;
+            state.pagesVisited.addAll(pagesVisited);
+            return state;
+        }
+
+        synchronized void recordPageView(String page, LocalDateTime timestamp) {
+            pageViews++;
+            exitPage = page;
+            // Add page to visited pages if not already there
+            if (pagesVisited.add(page)) {
+                newPages.add(page);
+            }
+            touch(timestamp);
+        }
+
+        synchronized void recordClick(LocalDateTime timestamp) {
+            clicks++;
+            touch(timestamp);
+        }
+
+        synchronized boolean isDirty() {
+            return dirty;
+        }
+
+        synchronized boolean isEvicting() {
+            return evicting;
+        }
+
+        // Returns true the first time the session ends, so its outcome is only counted once
+        synchronized boolean end() {
+            endTime = lastSeen;
+            dirty = true;
+            version++;
+            if (endRecorded || startTime == null) return false;
+            endRecorded = true;
+            return true;
+        }
+
+        private void touch(LocalDateTime timestamp) {
+            if (timestamp != null && timestamp.isAfter(lastSeen)) {
+                lastSeen = timestamp;
+            }
+            endTime = null;
+            evicting = false;
+            dirty = true;
+            version++;
+        }
+
+        private Long totalDuration() {
+            return startTime != null ? Duration.between(startTime, lastSeen).getSeconds() : null;
+        }
+
+        private Checkpoint checkpoint() {
+            return new Checkpoint(version, new UserSessionBatchRepository.SessionUpdate(
+                id, pageViews, clicks, exitPage, endTime, totalDuration(), List.copyOf(newPages)));
+        }
+
+        // Only clears what was written; changes made while the checkpoint ran keep the session dirty
+        private void markClean(long writtenVersion, int writtenPages) {
+            newPages.subList(0, writtenPages).clear();
+            if (version == writtenVersion) {
+                dirty = false;
+            }
+        }
+
+        // The insert of a session never checkpointed; it writes every visited page, newPages included
+        private Creation creation() {
+            return new Creation(version, newPages.size(), new UserSessionBatchRepository.NewSession(
+                sessionId, ipAddress, userAgent, startTime, endTime, totalDuration(), pageViews, clicks, entryPage,
+                exitPage, referrer, device, browser, os, country, city, returningVisitor, new ArrayList<>(pagesVisited)));
+        }
+    }
+
+    public record LiveSessionSummary(long sessions, long pageViews, long totalDuration, Map<String, Long> exitPages) {
+    }
+
+    private record Checkpoint(long version, UserSessionBatchRepository.SessionUpdate update) {
+    }
+
+    private record Creation(long version, int writtenPages, UserSessionBatchRepository.NewSession session) {
+    }
+}
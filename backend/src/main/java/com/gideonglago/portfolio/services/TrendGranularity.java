@@ -0,0 +1,136 @@
+package com.gideonglago.portfolio.services;
+
+import java.sql.Timestamp;
+import java.time.DayOfWeek;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Bucket sizes for the dashboard trends. The unit names match Postgres date_trunc fields,
+// so the database does the bucketing and only (bucket, count) rows come back.
+public enum TrendGranularity {
+
+    MINUTE("minute", "yyyy-MM-dd HH:mm"),
+    HOUR("hour", "yyyy-MM-dd HH"),
+    DAY("day", "yyyy-MM-dd"),
+    WEEK("week", "yyyy-MM-dd");
+
+    private final String unit;
+    private final DateTimeFormatter formatter;
+
+    TrendGranularity(String unit, String pattern) {
+        this.unit = unit;
+        this.formatter = DateTimeFormatter.ofPattern(pattern);
+    }
+
+    public static TrendGranularity forPeriod(String period) {
+        switch (period.toLowerCase()) {
+            case "hour":
+                return MINUTE;
+            case "day":
+            case "week":
+                return HOUR;
+            case "month":
+                return DAY;
+            case "year":
+                return WEEK;
+            default:
+                return HOUR;
+        }
+    }
+
+    public String unit() {
+        return unit;
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        switch (this) {
+            case MINUTE:
+                return time.truncatedTo(ChronoUnit.MINUTES);
+            case HOUR:
+                return time.truncatedTo(ChronoUnit.HOURS);
+            case DAY:
+                return time.truncatedTo(ChronoUnit.DAYS);
+            default:
+                // date_trunc('week', ...) starts weeks on Monday
+                return time.truncatedTo(ChronoUnit.DAYS).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY));
+        }
+    }
+
+    public LocalDateTime next(LocalDateTime bucket) {
+        switch (this) {
+            case MINUTE:
+                return bucket.plusMinutes(1);
+            case HOUR:
+                return bucket.plusHours(1);
+            case DAY:
+                return bucket.plusDays(1);
+            default:
+                return bucket.plusWeeks(1);
+        }
+    }
+
+    // Bucket number of a time given in epoch seconds (the LocalDateTime read as UTC), for bucketing in memory;
+    // bucketStart turns it back into the bucket's truncated time
+    public long bucketIndex(long epochSecond) {
+        switch (this) {
+            case MINUTE:
+                return Math.floorDiv(epochSecond, 60);
+            case HOUR:
+                return Math.floorDiv(epochSecond, 3600);
+            case DAY:
+                return Math.floorDiv(epochSecond, 86_400);
+            default:
+                // 1970-01-01 was a Thursday; shift so that weeks start on Monday
+                return Math.floorDiv(Math.floorDiv(epochSecond, 86_400) + 3, 7);
+        }
+    }
+
+    public LocalDateTime bucketStart(long index) {
+        switch (this) {
+            case MINUTE:
+                return LocalDateTime.ofEpochSecond(index * 60, 0, ZoneOffset.UTC);
+            case HOUR:
+                return LocalDateTime.ofEpochSecond(index * 3600, 0, ZoneOffset.UTC);
+            case DAY:
+                return LocalDateTime.ofEpochSecond(index * 86_400, 0, ZoneOffset.UTC);
+            default:
+                return LocalDateTime.ofEpochSecond((index * 7 - 3) * 86_400, 0, ZoneOffset.UTC);
+        }
+    }
+
+    public String format(LocalDateTime bucket) {
+        return bucket.format(formatter);
+    }
+
+    // Turns sparse (bucket, count) rows into one point per bucket from since to until, zero-filling gaps
+    public List<Map<String, Object>> zeroFill(List<Object[]> rows, LocalDateTime since, LocalDateTime until) {
+        Map<LocalDateTime, Long> counts = new HashMap<>(rows.size() * 2);
+        for (Object[] row : rows) {
+            counts.put(toLocalDateTime(row[0]), ((Number) row[1]).longValue());
+        }
+
+        List<Map<String, Object>> points = new ArrayList<>();
+        for (LocalDateTime bucket = truncate(since); !bucket.isAfter(until); bucket = next(bucket)) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("time", format(bucket));
+            point.put("count", counts.getOrDefault(bucket, 0L));
+            points.add(point);
+        }
+        return points;
+    }
+
+    private static LocalDateTime toLocalDateTime(Object value) {
+        if (value instanceof Timestamp timestamp) {
+            return timestamp.toLocalDateTime();
+        }
+        return (LocalDateTime) value;
+    }
+}
@@ -0,0 +1,245 @@
+package com.gideonglago.portfolio.services;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.models.AnalyticsRollup;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.BucketRange;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository.SketchKey;
+
+import jakarta.annotation.PreDestroy;
+
+// Counts distinct sessions and IPs with one HyperLogLog sketch per hour and per day, so any
+// dashboard period is answered by merging at most a few hundred sketches instead of running
+// COUNT(DISTINCT) over raw page views. New values are added to in-memory sketches and merged
+// into the stored ones every flush-interval-ms; reads include the sketches not yet flushed.
+@Service
+public class UniqueVisitorService implements AnalyticsEventListener {
+
+    private static final Logger log = LoggerFactory.getLogger(UniqueVisitorService.class);
+
+    public enum Metric {
+        VISITORS(14),
+        IPS(14),
+        // Distinct sessions per page; kept smaller since there is one sketch per page and bucket
+        PAGE_SESSIONS(11);
+
+        private final int precision;
+
+        Metric(int precision) {
+            this.precision = precision;
+        }
+
+        public int precision() {
+            return precision;
+        }
+    }
+
+    private final VisitorSketchRepository sketchRepository;
+    private final LocalDateTime backfillCutoff = LocalDateTime.now();
+    private final AtomicReference<Map<SketchKey, HyperLogLog>> pending = new AtomicReference<>(new ConcurrentHashMap<>());
+    // Writers share the read lock; flush takes the write lock to swap the pending map atomically
+    private final ReadWriteLock swapLock = new ReentrantReadWriteLock();
+    // Serializes every load-merge-upsert cycle, from flush and from backfill: the upsert replaces stored
+    // sketches, so two cycles overlapping on a key would lose one's values. A lock rather than synchronized:
+    // a virtual thread blocked on JDBC inside a monitor pins its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+    // Sketches taken by a running flush stay visible to reads until they are committed
+    private volatile Map<SketchKey, HyperLogLog> flushing = Map.of();
+
+    public UniqueVisitorService(VisitorSketchRepository sketchRepository) {
+        this.sketchRepository = sketchRepository;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void backfillIfEmpty() {
+        try {
+            if (sketchRepository.isEmpty()) {
+                log.info("Backfilling visitor sketches from raw page views before {}", backfillCutoff);
+                backfill();
+            }
+        } catch (RuntimeException e) {
+            log.error("Visitor sketch backfill failed", e);
+        }
+    }
+
+    @Override
+    public void onPageViews(List<PageView> pageViews) {
+        swapLock.readLock().lock();
+        try {
+            Map<SketchKey, HyperLogLog> sketches = pending.get();
+            for (PageView pv : pageViews) {
+                add(sketches, pv.getTimestamp(), pv.getSessionId(), pv.getIpAddress(), pv.getPage());
+            }
+        } finally {
+            swapLock.readLock().unlock();
+        }
+    }
+
+    public UniqueEstimate estimate(Metric metric, LocalDateTime since, LocalDateTime until) {
+        HyperLogLog merged = new HyperLogLog(metric.precision());
+        forEachSketch(metric, since, until, (value, sketch) -> merged.merge(sketch));
+        return new UniqueEstimate(merged.estimate(), merged.relativeStandardError());
+    }
+
+    // Distinct counts per dimension value, largest first
+    public List<ValueEstimate> estimateByValue(Metric metric, LocalDateTime since, LocalDateTime until) {
+        Map<String, HyperLogLog> merged = new HashMap<>();
+        forEachSketch(metric, since, until, (value, sketch) ->
+            merged.computeIfAbsent(value, v -> new HyperLogLog(metric.precision())).merge(sketch));
+
+        List<ValueEstimate> estimates = new ArrayList<>(merged.size());
+        merged.forEach((value, sketch) -> estimates.add(new ValueEstimate(value, sketch.estimate())));
+        estimates.sort((a, b) -> Long.compare(b.estimate(), a.estimate()));
+        return estimates;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.uniques.flush-interval-ms:60000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            Map<SketchKey, HyperLogLog> batch;
+            swapLock.writeLock().lock();
+            try {
+                batch = pending.getAndSet(new ConcurrentHashMap<>());
+                flushing = batch;
+            } finally {
+                swapLock.writeLock().unlock();
+            }
+            if (batch.isEmpty()) return;
+
+            try {
+                sketchRepository.upsert(mergeWithStored(batch));
+            } catch (RuntimeException e) {
+                // Merge the sketches back so the next flush retries them
+                swapLock.readLock().lock();
+                try {
+                    Map<SketchKey, HyperLogLog> current = pending.get();
+                    batch.forEach((key, sketch) -> current.computeIfAbsent(key, k -> new HyperLogLog(sketch.precision())).merge(sketch));
+                } finally {
+                    swapLock.readLock().unlock();
+                }
+                log.error("Failed to flush {} visitor sketches", batch.size(), e);
+            } finally {
+                flushing = Map.of();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    // One day of raw page views at a time, so memory stays bounded by a day of buckets however much history there is
+    private void backfill() {
+        LocalDateTime first = sketchRepository.findFirstPageViewBefore(backfillCutoff);
+        if (first == null) return;
+
+        Map<SketchKey, HyperLogLog> day = new HashMap<>();
+        for (LocalDateTime from = first.truncatedTo(ChronoUnit.DAYS); from.isBefore(backfillCutoff); from = from.plusDays(1)) {
+            LocalDateTime to = from.plusDays(1).isBefore(backfillCutoff) ? from.plusDays(1) : backfillCutoff;
+            sketchRepository.forEachPageView(from, to, (timestamp, sessionId, ipAddress, page) ->
+                add(day, timestamp, sessionId, ipAddress, page));
+            // Per day, so a long backfill delays the scheduled flush by at most one day's write
+            flushLock.lock();
+            try {
+                sketchRepository.upsert(mergeWithStored(day));
+            } finally {
+                flushLock.unlock();
+            }
+            day.clear();
+        }
+    }
+
+    private Map<SketchKey, byte[]> mergeWithStored(Map<SketchKey, HyperLogLog> sketches) {
+        if (sketches.isEmpty()) return Map.of();
+
+        Map<SketchKey, byte[]> stored = sketchRepository.load(new ArrayList<>(sketches.keySet()));
+        Map<SketchKey, byte[]> merged = new HashMap<>(sketches.size());
+        sketches.forEach((key, sketch) -> {
+            byte[] existing = stored.get(key);
+            if (existing != null) {
+                HyperLogLog combined = HyperLogLog.fromBytes(existing);
+                combined.merge(sketch);
+                merged.put(key, combined.toBytes());
+            } else {
+                merged.put(key, sketch.toBytes());
+            }
+        });
+        return merged;
+    }
+
+    private void forEachSketch(Metric metric, LocalDateTime since, LocalDateTime until, SketchConsumer consumer) {
+        List<BucketRange> ranges = AnalyticsRollupService.ranges(since, until);
+        sketchRepository.forEach(metric.name(), ranges, (value, bytes) -> consumer.accept(value, HyperLogLog.fromBytes(bytes)));
+        for (Map<SketchKey, HyperLogLog> sketches : List.of(flushing, pending.get())) {
+            for (Map.Entry<SketchKey, HyperLogLog> entry : sketches.entrySet()) {
+                SketchKey key = entry.getKey();
+                if (key.metric().equals(metric.name()) && covers(ranges, key)) {
+                    consumer.accept(key.value(), entry.getValue());
+                }
+            }
+        }
+    }
+
+    private static boolean covers(List<BucketRange> ranges, SketchKey key) {
+        for (BucketRange range : ranges) {
+            if (range.granularity().equals(key.granularity())
+                    && !key.bucketStart().isBefore(range.from()) && key.bucketStart().isBefore(range.to())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void add(Map<SketchKey, HyperLogLog> sketches, LocalDateTime at, String sessionId, String ipAddress, String page) {
+        if (at == null) return;
+
+        add(sketches, at, Metric.VISITORS, "", sessionId);
+        add(sketches, at, Metric.IPS, "", ipAddress);
+        if (page != null) {
+            add(sketches, at, Metric.PAGE_SESSIONS, page, sessionId);
+        }
+    }
+
+    private static void add(Map<SketchKey, HyperLogLog> sketches, LocalDateTime at, Metric metric, String value, String item) {
+        if (item == null) return;
+
+        sketches.computeIfAbsent(new SketchKey(AnalyticsRollup.HOUR, at.truncatedTo(ChronoUnit.HOURS), metric.name(), value),
+            k -> new HyperLogLog(metric.precision())).add(item);
+        sketches.computeIfAbsent(new SketchKey(AnalyticsRollup.DAY, at.truncatedTo(ChronoUnit.DAYS), metric.name(), value),
+            k -> new HyperLogLog(metric.precision())).add(item);
+    }
+
+    @FunctionalInterface
+    private interface SketchConsumer {
+        void accept(String value, HyperLogLog sketch);
+    }
+
+    public record UniqueEstimate(long estimate, double relativeStandardError) {
+    }
+
+    public record ValueEstimate(String value, long estimate) {
+    }
+}
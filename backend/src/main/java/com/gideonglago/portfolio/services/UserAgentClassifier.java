@@ -0,0 +1,169 @@
+package com.gideonglago.portfolio.services;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+// Classifies User-Agent headers in one pass: the string is split into product tokens
+// ("Chrome/124.0", "iPhone", "Android") that are looked up in a fixed table, and the most
+// specific browser wins, so "Edg/..." beats "Chrome/..." which beats "Safari/...".
+// Results are kept in a bounded LRU cache because real traffic has few distinct agents.
+@Component
+public class UserAgentClassifier {
+
+    // UAs longer than this are classified but not cached, so odd clients cannot bloat the cache
+    private static final int MAX_CACHED_LENGTH = 512;
+
+    private enum Token {
+        // Browsers, in increasing order of precedence
+        SAFARI("Safari"), CHROME("Chrome"), IE("Internet Explorer"), FIREFOX("Firefox"),
+        SAMSUNG("Samsung Internet"), OPERA("Opera"), EDGE("Edge"),
+        // Safari carries its version in "Version/x.y"
+        VERSION(null),
+        // Platforms and form factors
+        WINDOWS(null), MAC(null), LINUX(null), ANDROID(null), IPHONE(null), IPOD(null), IPAD(null), CROS(null),
+        MOBILE(null), TABLET(null);
+
+        private final String browser;
+
+        Token(String browser) {
+            this.browser = browser;
+        }
+    }
+
+    private static final Map<String, Token> TOKENS = Map.ofEntries(
+        Map.entry("Safari", Token.SAFARI),
+        Map.entry("Chrome", Token.CHROME), Map.entry("CriOS", Token.CHROME), Map.entry("Chromium", Token.CHROME),
+        Map.entry("MSIE", Token.IE), Map.entry("Trident", Token.IE),
+        Map.entry("Firefox", Token.FIREFOX), Map.entry("FxiOS", Token.FIREFOX),
+        Map.entry("SamsungBrowser", Token.SAMSUNG),
+        Map.entry("OPR", Token.OPERA), Map.entry("Opera", Token.OPERA), Map.entry("OPiOS", Token.OPERA),
+        Map.entry("Edg", Token.EDGE), Map.entry("Edge", Token.EDGE), Map.entry("EdgA", Token.EDGE), Map.entry("EdgiOS", Token.EDGE),
+        Map.entry("Version", Token.VERSION),
+        Map.entry("Windows", Token.WINDOWS), Map.entry("Macintosh", Token.MAC), Map.entry("Mac", Token.MAC),
+        Map.entry("Linux", Token.LINUX), Map.entry("Android", Token.ANDROID), Map.entry("CrOS", Token.CROS),
+        Map.entry("iPhone", Token.IPHONE), Map.entry("iPod", Token.IPOD), Map.entry("iPad", Token.IPAD),
+        Map.entry("Mobile", Token.MOBILE), Map.entry("Tablet", Token.TABLET));
+
+    private final Map<String, UserAgentInfo> cache;
+
+    public UserAgentClassifier(@Value("${analytics.user-agent.cache-size:1024}") int cacheSize) {
+        this.cache = new LinkedHashMap<>(Math.min(cacheSize, 1024) * 4 / 3 + 1, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, UserAgentInfo> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    public UserAgentInfo classify(String userAgent) {
+        if (userAgent == null || userAgent.isEmpty()) {
+            return UserAgentInfo.NO_AGENT;
+        }
+        if (userAgent.length() > MAX_CACHED_LENGTH) {
+            return parse(userAgent);
+        }
+
+        UserAgentInfo info;
+        synchronized (cache) {
+            info = cache.get(userAgent);
+        }
+        if (info != null) {
+            return info;
+        }
+
+        info = parse(userAgent);
+        synchronized (cache) {
+            cache.put(userAgent, info);
+        }
+        return info;
+    }
+
+    static UserAgentInfo parse(String userAgent) {
+        boolean[] seen = new boolean[Token.values().length];
+        Token browser = null;
+        String browserVersion = null;
+        String safariVersion = null;
+
+        int length = userAgent.length();
+        int start = 0;
+        while (start < length) {
+            // Skip separators, then read one token and the version after its '/'
+            while (start < length && isSeparator(userAgent.charAt(start))) start++;
+            int end = start;
+            int slash = -1;
+            while (end < length && !isSeparator(userAgent.charAt(end))) {
+                if (slash < 0 && userAgent.charAt(end) == '/') slash = end;
+                end++;
+            }
+            if (end == start) break;
+
+            Token token = TOKENS.get(userAgent.substring(start, slash < 0 ? end : slash));
+            if (token != null) {
+                seen[token.ordinal()] = true;
+                String version = slash < 0 ? null : majorVersion(userAgent, slash + 1, end);
+                if (token == Token.VERSION) {
+                    safariVersion = version;
+                } else if (token.browser != null && (browser == null || token.ordinal() > browser.ordinal())) {
+                    browser = token;
+                    browserVersion = version;
+                }
+            }
+            start = end;
+        }
+
+        if (browser == Token.SAFARI) {
+            browserVersion = safariVersion;
+        }
+        return new UserAgentInfo(device(seen), browser != null ? browser.browser : UserAgentInfo.UNKNOWN, browserVersion, os(seen));
+    }
+
+    private static String device(boolean[] seen) {
+        if (seen[Token.IPAD.ordinal()] || seen[Token.TABLET.ordinal()]) {
+            return UserAgentInfo.TABLET;
+        }
+        if (seen[Token.IPHONE.ordinal()] || seen[Token.IPOD.ordinal()] || seen[Token.MOBILE.ordinal()]) {
+            return UserAgentInfo.MOBILE;
+        }
+        // Android tablets leave out the "Mobile" token
+        if (seen[Token.ANDROID.ordinal()]) {
+            return UserAgentInfo.TABLET;
+        }
+        return UserAgentInfo.DESKTOP;
+    }
+
+    private static String os(boolean[] seen) {
+        // iOS agents also claim "Mac OS X" and Android agents claim "Linux", so they are checked first
+        if (seen[Token.IPHONE.ordinal()] || seen[Token.IPAD.ordinal()] || seen[Token.IPOD.ordinal()]) {
+            return "iOS";
+        }
+        if (seen[Token.ANDROID.ordinal()]) {
+            return "Android";
+        }
+        if (seen[Token.WINDOWS.ordinal()]) {
+            return "Windows";
+        }
+        if (seen[Token.MAC.ordinal()]) {
+            return "macOS";
+        }
+        if (seen[Token.CROS.ordinal()]) {
+            return "ChromeOS";
+        }
+        if (seen[Token.LINUX.ordinal()]) {
+            return "Linux";
+        }
+        return UserAgentInfo.UNKNOWN;
+    }
+
+    private static boolean isSeparator(char c) {
+        return c == ' ' || c == ';' || c == '(' || c == ')' || c == ',';
+    }
+
+    private static String majorVersion(String userAgent, int from, int to) {
+        int end = from;
+        while (end < to && Character.isDigit(userAgent.charAt(end))) end++;
+        return end > from ? userAgent.substring(from, end) : null;
+    }
+}
@@ -0,0 +1,13 @@
+package com.gideonglago.portfolio.services;
+
+// Result of classifying a User-Agent header. browserVersion is the major version, or null when unknown.
+// Requests without the header get null fields rather than a guess, so they are not counted as desktops.
+public record UserAgentInfo(String device, String browser, String browserVersion, String os) {
+
+    public static final String DESKTOP = "Desktop";
+    public static final String MOBILE = "Mobile";
+    public static final String TABLET = "Tablet";
+    public static final String UNKNOWN = "Unknown";
+
+    public static final UserAgentInfo NO_AGENT = new UserAgentInfo(null, null, null, null);
+}
@@ -0,0 +1,191 @@
+package com.gideonglago.portfolio.services;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.gideonglago.portfolio.repositories.VisitorFingerprintRepository;
+
+import jakarta.annotation.PreDestroy;
+
+// Answers "has this IP been seen before?" without reading user_session. IPs are stored as salted
+// 64-bit hashes in visitor_fingerprint, and a Bloom filter over those hashes rejects new visitors
+// in memory; only filter hits are confirmed with a primary-key lookup. Bloom filters cannot forget
+// keys, so the filter is rebuilt from the table after retention and whenever it outgrows its capacity.
+@Service
+public class VisitorIndex {
+
+    private static final Logger log = LoggerFactory.getLogger(VisitorIndex.class);
+
+    private static final int BACKFILL_CHUNK = 1000;
+    // Without a secret salt the fingerprints are plain IP hashes, which 2^32 guesses reverse
+    private static final int MIN_SALT_LENGTH = 16;
+
+    private final VisitorFingerprintRepository fingerprintRepository;
+    private final byte[] salt;
+    private final long minCapacity;
+    private final double falsePositiveRate;
+    private final ThreadLocal<MessageDigest> digests = ThreadLocal.withInitial(VisitorIndex::sha256);
+    // Last-seen times not yet written; entries stay here until their value has been flushed
+    private final Map<Long, LocalDateTime> pending = new ConcurrentHashMap<>();
+    // Null until the first rebuild, in which case every lookup goes to the table
+    private volatile BloomFilter filter;
+    // Set while a rebuild is streaming the table, so visits recorded meanwhile reach the new filter too
+    private volatile BloomFilter rebuilding;
+    // A lock rather than synchronized: a virtual thread blocked on JDBC inside a monitor pins its carrier thread
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public VisitorIndex(VisitorFingerprintRepository fingerprintRepository,
+                        @Value("${analytics.visitors.fingerprint-salt:}") String salt,
+                        @Value("${analytics.visitors.filter-capacity:100000}") long minCapacity,
+                        @Value("${analytics.visitors.false-positive-rate:0.01}") double falsePositiveRate) {
+        if (salt == null || salt.isBlank() || salt.length() < MIN_SALT_LENGTH) {
+            throw new IllegalStateException("analytics.visitors.fingerprint-salt (VISITOR_FINGERPRINT_SALT) must be a secret of at least "
+                + MIN_SALT_LENGTH + " characters");
+        }
+        this.fingerprintRepository = fingerprintRepository;
+        this.salt = salt.getBytes(StandardCharsets.UTF_8);
+        this.minCapacity = minCapacity;
+        this.falsePositiveRate = falsePositiveRate;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void load() {
+        try {
+            if (fingerprintRepository.count() == 0) {
+                backfill();
+            }
+            rebuild();
+        } catch (RuntimeException e) {
+            log.error("Visitor index load failed; returning visitors are checked against the table", e);
+        }
+    }
+
+    // Records a visit from the IP and returns whether it had been seen before
+    public boolean recordVisit(String ipAddress, LocalDateTime at) {
+        if (ipAddress == null || at == null) return false;
+
+        long fingerprint = fingerprint(ipAddress);
+        boolean seen = pending.containsKey(fingerprint) || isStored(fingerprint);
+        pending.merge(fingerprint, at, (a, b) -> a.isAfter(b) ? a : b);
+        BloomFilter current = filter;
+        if (current != null) current.put(fingerprint);
+        BloomFilter next = rebuilding;
+        if (next != null) next.put(fingerprint);
+        return seen;
+    }
+
+    @Scheduled(fixedDelayString = "${analytics.visitors.flush-interval-ms:10000}")
+    public void flush() {
+        flushLock.lock();
+        try {
+            if (pending.isEmpty()) return;
+
+            Map<Long, LocalDateTime> batch = new HashMap<>(pending);
+            try {
+                fingerprintRepository.upsert(batch);
+                // Keep entries that were seen again while the batch was written
+                batch.forEach(pending::remove);
+            } catch (RuntimeException e) {
+                log.error("Failed to flush {} visitor fingerprints", batch.size(), e);
+                return;
+            }
+
+            BloomFilter current = filter;
+            if (current != null && current.approximateInsertions() > current.capacity()) {
+                rebuild();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    // Ages out visitors not seen since the cutoff, in line with the session retention
+    public int expireBefore(LocalDateTime cutoff) {
+        flushLock.lock();
+        try {
+            flush();
+            int deleted = fingerprintRepository.deleteLastSeenBefore(cutoff);
+            if (deleted > 0) {
+                rebuild();
+            }
+            return deleted;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    public void rebuild() {
+        flushLock.lock();
+        try {
+            long stored = fingerprintRepository.count();
+            BloomFilter next = new BloomFilter(Math.max(minCapacity, stored * 2), falsePositiveRate);
+            rebuilding = next;
+            try {
+                fingerprintRepository.forEachFingerprint(next::put);
+                pending.keySet().forEach(next::put);
+                filter = next;
+            } finally {
+                rebuilding = null;
+            }
+            log.info("Visitor index rebuilt from {} fingerprints ({} KB, {} hashes)", stored, next.sizeInBytes() / 1024, next.hashCount());
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private boolean isStored(long fingerprint) {
+        BloomFilter current = filter;
+        if (current != null && !current.mightContain(fingerprint)) {
+            return false;
+        }
+        return fingerprintRepository.exists(fingerprint);
+    }
+
+    // Seeds the table from historical sessions the first time the index runs
+    private void backfill() {
+        Map<Long, LocalDateTime> chunk = new HashMap<>();
+        fingerprintRepository.forEachSessionIp((ipAddress, lastSeen) -> {
+            chunk.merge(fingerprint(ipAddress), lastSeen, (a, b) -> a.isAfter(b) ? a : b);
+            if (chunk.size() >= BACKFILL_CHUNK) {
+                fingerprintRepository.upsert(chunk);
+                chunk.clear();
+            }
+        });
+        fingerprintRepository.upsert(chunk);
+    }
+
+    long fingerprint(String ipAddress) {
+        MessageDigest digest = digests.get();
+        digest.update(salt);
+        byte[] hash = digest.digest(ipAddress.getBytes(StandardCharsets.UTF_8));
+        return ByteBuffer.wrap(hash).getLong();
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
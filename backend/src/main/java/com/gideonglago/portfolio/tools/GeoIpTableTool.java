@@ -0,0 +1,34 @@
+package com.gideonglago.portfolio.tools;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.gideonglago.portfolio.services.GeoIpTableBuilder;
+
+// Command-line converter from an IPv4 range CSV to the binary table for analytics.geo.database, so the
+// backend maps it directly instead of converting the CSV on every load. It runs from the application jar
+// without starting Spring; scripts/build-geoip-table.sh wraps the launcher call (see DEPLOYMENT.md).
+public final class GeoIpTableTool {
+
+    private static final Logger log = LoggerFactory.getLogger(GeoIpTableTool.class);
+
+    private GeoIpTableTool() {
+    }
+
+    public static void main(String[] args) {
+        if (args.length != 2) {
+            log.error("Usage: GeoIpTableTool <ranges.csv> <output.bin>");
+            System.exit(2);
+        }
+        try {
+            int ranges = GeoIpTableBuilder.build(Path.of(args[0]), Path.of(args[1]));
+            log.info("Wrote {} ranges to {}", ranges, args[1]);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to convert {}", args[0], e);
+            System.exit(1);
+        }
+    }
+}
@@ -0,0 +1,88 @@
+-- Baseline of the schema previously created by hibernate.ddl-auto=update.
+-- IF NOT EXISTS keeps this a no-op on databases that already have the tables.
+
+CREATE TABLE IF NOT EXISTS project (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    title varchar(255),
+    description varchar(255),
+    github_url varchar(255),
+    demo_url varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS project_tech_stack (
+    project_id bigint NOT NULL REFERENCES project (id),
+    tech_stack varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS project_images (
+    project_id bigint NOT NULL REFERENCES project (id),
+    images varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS page_view (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    page varchar(255),
+    referrer varchar(255),
+    user_agent varchar(255),
+    ip_address varchar(255),
+    session_id varchar(255),
+    timestamp timestamp(6),
+    duration bigint,
+    device varchar(255),
+    browser varchar(255),
+    os varchar(255),
+    country varchar(255),
+    city varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS click_event (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id varchar(255),
+    page varchar(255),
+    element_type varchar(255),
+    element_id varchar(255),
+    element_text varchar(255),
+    target_url varchar(255),
+    x_position integer,
+    y_position integer,
+    timestamp timestamp(6),
+    user_agent varchar(255),
+    ip_address varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS user_session (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    session_id varchar(255),
+    ip_address varchar(255),
+    user_agent varchar(255),
+    start_time timestamp(6),
+    end_time timestamp(6),
+    total_duration bigint,
+    page_views integer,
+    clicks integer,
+    entry_page varchar(255),
+    exit_page varchar(255),
+    referrer varchar(255),
+    device varchar(255),
+    browser varchar(255),
+    os varchar(255),
+    country varchar(255),
+    city varchar(255),
+    is_returning_visitor boolean
+);
+
+CREATE TABLE IF NOT EXISTS user_session_pages_visited (
+    user_session_id bigint NOT NULL REFERENCES user_session (id),
+    pages_visited varchar(255)
+);
+
+CREATE TABLE IF NOT EXISTS analytics_rollup (
+    id bigint GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    granularity varchar(8) NOT NULL,
+    bucket_start timestamp(6) NOT NULL,
+    dimension varchar(32) NOT NULL,
+    dimension_value varchar(255) NOT NULL,
+    extra varchar(255) NOT NULL,
+    event_count bigint NOT NULL,
+    CONSTRAINT uk_analytics_rollup_bucket UNIQUE (granularity, bucket_start, dimension, dimension_value, extra)
+);
@@ -0,0 +1,27 @@
+-- Indexes for the time-window, session and IP lookups issued by the analytics repositories.
+
+CREATE INDEX IF NOT EXISTS idx_page_view_timestamp_id ON page_view (timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_page_view_timestamp_page ON page_view (timestamp, page);
+CREATE INDEX IF NOT EXISTS idx_page_view_timestamp_device ON page_view (timestamp, device);
+CREATE INDEX IF NOT EXISTS idx_page_view_session_id ON page_view (session_id);
+CREATE INDEX IF NOT EXISTS idx_page_view_ip_address ON page_view (ip_address);
+
+CREATE INDEX IF NOT EXISTS idx_click_event_timestamp_id ON click_event (timestamp, id);
+CREATE INDEX IF NOT EXISTS idx_click_event_timestamp_page ON click_event (timestamp, page);
+CREATE INDEX IF NOT EXISTS idx_click_event_session_id ON click_event (session_id);
+
+CREATE INDEX IF NOT EXISTS idx_user_session_start_time ON user_session (start_time);
+CREATE INDEX IF NOT EXISTS idx_user_session_ip_address ON user_session (ip_address);
+CREATE INDEX IF NOT EXISTS idx_user_session_pages_visited_session ON user_session_pages_visited (user_session_id);
+
+-- Earlier versions could insert the same sessionId twice; keep the oldest row before enforcing uniqueness
+DELETE FROM user_session_pages_visited
+WHERE user_session_id IN (
+    SELECT us.id FROM user_session us
+    WHERE EXISTS (SELECT 1 FROM user_session o WHERE o.session_id = us.session_id AND o.id < us.id)
+);
+
+DELETE FROM user_session us
+WHERE EXISTS (SELECT 1 FROM user_session o WHERE o.session_id = us.session_id AND o.id < us.id);
+
+ALTER TABLE user_session ADD CONSTRAINT uk_user_session_session_id UNIQUE (session_id);
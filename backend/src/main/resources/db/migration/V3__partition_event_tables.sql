@@ -0,0 +1,111 @@
+-- Range-partition page_view and click_event by day on "timestamp" so that expired data can be
+-- dropped a partition at a time. The primary key has to include the partition key.
+
+CREATE OR REPLACE FUNCTION create_daily_partitions(parent text, first_day date, last_day date) RETURNS integer AS $$
+DECLARE
+    day date := first_day;
+    created integer := 0;
+    partition_name text;
+BEGIN
+    WHILE day <= last_day LOOP
+        partition_name := parent || '_p' || to_char(day, 'YYYYMMDD');
+        IF to_regclass(partition_name) IS NULL THEN
+            EXECUTE format('CREATE TABLE %I PARTITION OF %I FOR VALUES FROM (%L) TO (%L)',
+                partition_name, parent, day::timestamp, (day + 1)::timestamp);
+            created := created + 1;
+        END IF;
+        day := day + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
+
+-- page_view
+
+ALTER TABLE page_view RENAME TO page_view_unpartitioned;
+
+-- The partition key is NOT NULL, so rows without a timestamp take their session's start, or the migration time
+UPDATE page_view_unpartitioned e
+SET timestamp = COALESCE((SELECT MIN(s.start_time) FROM user_session s WHERE s.session_id = e.session_id), LOCALTIMESTAMP)
+WHERE timestamp IS NULL;
+
+CREATE TABLE page_view (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    page varchar(255),
+    referrer varchar(255),
+    user_agent varchar(255),
+    ip_address varchar(255),
+    session_id varchar(255),
+    timestamp timestamp(6) NOT NULL,
+    duration bigint,
+    device varchar(255),
+    browser varchar(255),
+    os varchar(255),
+    country varchar(255),
+    city varchar(255),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+-- Rows outside every daily partition land here and are purged row by row by the retention job
+CREATE TABLE page_view_default PARTITION OF page_view DEFAULT;
+
+SELECT create_daily_partitions('page_view',
+    GREATEST((SELECT COALESCE(MIN(timestamp)::date, CURRENT_DATE) FROM page_view_unpartitioned), CURRENT_DATE - 400),
+    CURRENT_DATE + 7);
+
+INSERT INTO page_view (id, page, referrer, user_agent, ip_address, session_id, timestamp, duration, device, browser, os, country, city)
+SELECT id, page, referrer, user_agent, ip_address, session_id, timestamp, duration, device, browser, os, country, city
+FROM page_view_unpartitioned;
+
+DROP TABLE page_view_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('page_view', 'id'), COALESCE((SELECT MAX(id) FROM page_view), 0) + 1, false);
+
+CREATE INDEX idx_page_view_timestamp_id ON page_view (timestamp, id);
+CREATE INDEX idx_page_view_timestamp_page ON page_view (timestamp, page);
+CREATE INDEX idx_page_view_timestamp_device ON page_view (timestamp, device);
+CREATE INDEX idx_page_view_session_id ON page_view (session_id);
+CREATE INDEX idx_page_view_ip_address ON page_view (ip_address);
+
+-- click_event
+
+ALTER TABLE click_event RENAME TO click_event_unpartitioned;
+
+-- The partition key is NOT NULL, so rows without a timestamp take their session's start, or the migration time
+UPDATE click_event_unpartitioned e
+SET timestamp = COALESCE((SELECT MIN(s.start_time) FROM user_session s WHERE s.session_id = e.session_id), LOCALTIMESTAMP)
+WHERE timestamp IS NULL;
+
+CREATE TABLE click_event (
+    id bigint GENERATED BY DEFAULT AS IDENTITY,
+    session_id varchar(255),
+    page varchar(255),
+    element_type varchar(255),
+    element_id varchar(255),
+    element_text varchar(255),
+    target_url varchar(255),
+    x_position integer,
+    y_position integer,
+    timestamp timestamp(6) NOT NULL,
+    user_agent varchar(255),
+    ip_address varchar(255),
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE click_event_default PARTITION OF click_event DEFAULT;
+
+SELECT create_daily_partitions('click_event',
+    GREATEST((SELECT COALESCE(MIN(timestamp)::date, CURRENT_DATE) FROM click_event_unpartitioned), CURRENT_DATE - 400),
+    CURRENT_DATE + 7);
+
+INSERT INTO click_event (id, session_id, page, element_type, element_id, element_text, target_url, x_position, y_position, timestamp, user_agent, ip_address)
+SELECT id, session_id, page, element_type, element_id, element_text, target_url, x_position, y_position, timestamp, user_agent, ip_address
+FROM click_event_unpartitioned;
+
+DROP TABLE click_event_unpartitioned;
+
+SELECT setval(pg_get_serial_sequence('click_event', 'id'), COALESCE((SELECT MAX(id) FROM click_event), 0) + 1, false);
+
+CREATE INDEX idx_click_event_timestamp_id ON click_event (timestamp, id);
+CREATE INDEX idx_click_event_timestamp_page ON click_event (timestamp, page);
+CREATE INDEX idx_click_event_session_id ON click_event (session_id);
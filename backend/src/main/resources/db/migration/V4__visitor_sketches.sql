@@ -0,0 +1,11 @@
+-- HyperLogLog sketches of distinct sessions and IPs per hour and day bucket, maintained by UniqueVisitorService.
+-- metric is VISITORS, IPS or PAGE_SESSIONS; dimension_value is the page for PAGE_SESSIONS and '' otherwise.
+
+CREATE TABLE visitor_sketch (
+    granularity varchar(8) NOT NULL,
+    bucket_start timestamp(6) NOT NULL,
+    metric varchar(32) NOT NULL,
+    dimension_value varchar(255) NOT NULL,
+    sketch bytea NOT NULL,
+    CONSTRAINT pk_visitor_sketch PRIMARY KEY (metric, granularity, bucket_start, dimension_value)
+);
@@ -0,0 +1,11 @@
+-- Salted 64-bit hashes of visitor IPs, used by VisitorIndex to tell returning visitors apart without
+-- reading user_session. Rows whose last_seen falls outside the retention window are deleted.
+
+CREATE TABLE visitor_fingerprint (
+    fingerprint bigint NOT NULL,
+    first_seen timestamp(6) NOT NULL,
+    last_seen timestamp(6) NOT NULL,
+    CONSTRAINT pk_visitor_fingerprint PRIMARY KEY (fingerprint)
+);
+
+CREATE INDEX idx_visitor_fingerprint_last_seen ON visitor_fingerprint (last_seen);
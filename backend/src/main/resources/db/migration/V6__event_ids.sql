@@ -0,0 +1,9 @@
+-- Events that pass through the local append log (analytics.wal.dir) carry the id they were logged with, so
+-- a replay after a restart inserts each event at most once. Unique indexes on a partitioned table have to
+-- include the partition key; rows written without the log keep a NULL event_id and never conflict.
+
+ALTER TABLE page_view ADD COLUMN event_id uuid;
+CREATE UNIQUE INDEX uq_page_view_event_id ON page_view (event_id, timestamp);
+
+ALTER TABLE click_event ADD COLUMN event_id uuid;
+CREATE UNIQUE INDEX uq_click_event_event_id ON click_event (event_id, timestamp);
@@ -0,0 +1,14 @@
+-- Scroll size of the document at the time of a click, which x_position/y_position (page coordinates) are
+-- relative to, and one click heatmap grid per day, page and viewport class, maintained by ClickHeatmapService.
+-- grid is a serialized HeatmapGrid; clicks is the sum of its cells, so pages can be ranked without decoding.
+
+ALTER TABLE click_event ADD COLUMN document_width integer, ADD COLUMN document_height integer;
+
+CREATE TABLE click_heatmap (
+    day timestamp(6) NOT NULL,
+    page varchar(255) NOT NULL,
+    viewport varchar(8) NOT NULL,
+    clicks bigint NOT NULL,
+    grid bytea NOT NULL,
+    CONSTRAINT pk_click_heatmap PRIMARY KEY (page, viewport, day)
+);
@@ -0,0 +1,33 @@
+-- Replaces create_daily_partitions from V3. CREATE TABLE ... PARTITION OF fails when the default partition
+-- already holds rows for that day (events that arrived before the partition was created ahead of them), and
+-- because the function runs as one statement that failure rolled back every partition in the range. Each
+-- day now moves its rows out of the default partition into the new table before attaching it, and runs in
+-- its own subtransaction so a day that still fails is skipped with a warning instead of losing the others.
+
+CREATE OR REPLACE FUNCTION create_daily_partitions(parent text, first_day date, last_day date) RETURNS integer AS $$
+DECLARE
+    day date := first_day;
+    created integer := 0;
+    partition_name text;
+BEGIN
+    WHILE day <= last_day LOOP
+        partition_name := parent || '_p' || to_char(day, 'YYYYMMDD');
+        IF to_regclass(partition_name) IS NULL THEN
+            BEGIN
+                EXECUTE format('CREATE TABLE %I (LIKE %I INCLUDING DEFAULTS)', partition_name, parent);
+                EXECUTE format('WITH moved AS (DELETE FROM %I WHERE timestamp >= %L AND timestamp < %L RETURNING *) '
+                    'INSERT INTO %I SELECT * FROM moved',
+                    parent || '_default', day::timestamp, (day + 1)::timestamp, partition_name);
+                -- Creates the partition's indexes and checks the default partition holds nothing for the day
+                EXECUTE format('ALTER TABLE %I ATTACH PARTITION %I FOR VALUES FROM (%L) TO (%L)',
+                    parent, partition_name, day::timestamp, (day + 1)::timestamp);
+                created := created + 1;
+            EXCEPTION WHEN OTHERS THEN
+                RAISE WARNING 'Could not create partition %: %', partition_name, SQLERRM;
+            END;
+        END IF;
+        day := day + 1;
+    END LOOP;
+    RETURN created;
+END;
+$$ LANGUAGE plpgsql;
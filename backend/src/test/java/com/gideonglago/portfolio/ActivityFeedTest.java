@@ -0,0 +1,119 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.ClickEventRepository;
+import com.gideonglago.portfolio.repositories.PageViewRepository;
+import com.gideonglago.portfolio.services.AnalyticsService;
+import com.gideonglago.portfolio.services.AnalyticsService.ActivityCursor;
+import com.gideonglago.portfolio.services.AnalyticsService.ActivityPage;
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Pages through the activity feed against the keyset queries on an embedded H2 database, like ProjectRepositoryTest
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect"
+})
+class ActivityFeedTest {
+
+    private static final LocalDateTime T = LocalDateTime.of(2026, 3, 14, 12, 0);
+
+    @Autowired
+    private PageViewRepository pageViewRepository;
+
+    @Autowired
+    private ClickEventRepository clickEventRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private AnalyticsService analyticsService;
+    // Every event in feed order: timestamp descending, page views before clicks, then id descending
+    private final List<String> expected = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        analyticsService = new AnalyticsService(pageViewRepository, clickEventRepository, null, null, null, null,
+            null, null, null, null, null, null, null, 0);
+
+        // Page views and clicks share timestamps, and their ids overlap because they come from separate tables
+        addEvents(T.plusMinutes(3), 2, 2);
+        addEvents(T.plusMinutes(2), 1, 3);
+        addEvents(T.plusMinutes(1), 2, 1);
+        addEvents(T, 1, 0);
+        entityManager.flush();
+        entityManager.clear();
+    }
+
+    @Test
+    void getActivityFeed_ShouldPageThroughBothSourcesWithoutDuplicatesOrGaps() {
+        List<String> seen = new ArrayList<>();
+        Set<String> cursorTypes = new HashSet<>();
+
+        ActivityPage page = analyticsService.getActivityFeed(3, null);
+        seen.addAll(keys(page));
+        while (page.nextCursor() != null) {
+            cursorTypes.add(page.nextCursor().type());
+            page = analyticsService.getActivityFeed(3, page.nextCursor());
+            seen.addAll(keys(page));
+        }
+
+        assertThat(seen).containsExactlyElementsOf(expected);
+        // The walk resumed from a cursor of each type
+        assertThat(cursorTypes).containsExactlyInAnyOrder(ActivityCursor.PAGEVIEW, ActivityCursor.CLICK);
+    }
+
+    @Test
+    void getActivityFeed_ShouldResumeAfterTheCursorAtASharedTimestamp() {
+        // Last page view at T+3: both clicks at T+3 come next, then the events at T+2
+        PageView lastPageView = pageViewRepository.findLatest(2).get(1);
+        List<String> afterPageView = keys(analyticsService.getActivityFeed(4,
+            new ActivityCursor(lastPageView.getTimestamp(), ActivityCursor.PAGEVIEW, lastPageView.getId())));
+        assertThat(afterPageView).containsExactlyElementsOf(expected.subList(2, 6));
+
+        // First click at T+3: only the other click is left at that timestamp, then the events at T+2
+        ClickEvent firstClick = clickEventRepository.findLatest(1).get(0);
+        List<String> afterClick = keys(analyticsService.getActivityFeed(3,
+            new ActivityCursor(firstClick.getTimestamp(), ActivityCursor.CLICK, firstClick.getId())));
+        assertThat(afterClick).containsExactlyElementsOf(expected.subList(3, 6));
+    }
+
+    private void addEvents(LocalDateTime timestamp, int pageViews, int clicks) {
+        List<String> pageViewKeys = new ArrayList<>();
+        for (int i = 0; i < pageViews; i++) {
+            PageView pv = new PageView("/page", null, null, "203.0.113.9", "s");
+            pv.setTimestamp(timestamp);
+            pageViewKeys.add(0, ActivityCursor.PAGEVIEW + pageViewRepository.save(pv).getId());
+        }
+        List<String> clickKeys = new ArrayList<>();
+        for (int i = 0; i < clicks; i++) {
+            ClickEvent ce = new ClickEvent("s", "/page", "button", "cta", "Contact");
+            ce.setTimestamp(timestamp);
+            clickKeys.add(0, ActivityCursor.CLICK + clickEventRepository.save(ce).getId());
+        }
+        expected.addAll(pageViewKeys);
+        expected.addAll(clickKeys);
+    }
+
+    private static List<String> keys(ActivityPage page) {
+        return page.items().stream().map(ActivityFeedTest::key).toList();
+    }
+
+    private static String key(Map<String, Object> item) {
+        return (String) item.get("type") + item.get("id");
+    }
+}
@@ -0,0 +1,199 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.config.SecurityConfig;
+import com.gideonglago.portfolio.controllers.AnalyticsController;
+import com.gideonglago.portfolio.dto.ClickRequest;
+import com.gideonglago.portfolio.dto.PageViewRequest;
+import com.gideonglago.portfolio.dto.TrackingEvent;
+import com.gideonglago.portfolio.services.AnalyticsIngestionService;
+import com.gideonglago.portfolio.services.AnalyticsService;
+import com.gideonglago.portfolio.services.ClickHeatmapService;
+import com.gideonglago.portfolio.services.DrillDownService;
+import com.gideonglago.portfolio.services.LiveEventStream;
+import com.gideonglago.portfolio.services.RetentionService;
+import com.gideonglago.portfolio.services.SessionPathService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.MediaType;
+import org.springframework.test.web.servlet.MockMvc;
+
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
+
+@WebMvcTest(AnalyticsController.class)
+@Import(SecurityConfig.class)
+class AnalyticsControllerTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+
+    @MockBean
+    private AnalyticsService analyticsService;
+
+    @MockBean
+    private AnalyticsIngestionService ingestionService;
+
+    @MockBean
+    private DrillDownService drillDownService;
+
+    @MockBean
+    private ClickHeatmapService clickHeatmapService;
+
+    @MockBean
+    private SessionPathService sessionPathService;
+
+    @MockBean
+    private RetentionService retentionService;
+
+    @MockBean
+    private LiveEventStream liveEventStream;
+
+    @BeforeEach
+    void acceptEverything() {
+        when(ingestionService.isAsync()).thenReturn(true);
+        when(analyticsService.trackPageView(any(), any())).thenReturn(true);
+        when(analyticsService.trackClick(any(), any())).thenReturn(true);
+        when(analyticsService.trackEvents(anyList(), any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+    }
+
+    @Test
+    void trackPageView_ShouldAcceptValidEvent() throws Exception {
+        mockMvc.perform(post("/api/analytics/track/pageview")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"page\":\"/projects\",\"sessionId\":\"abc\"}"))
+                .andExpect(status().isAccepted())
+                .andExpect(content().json("{\"status\":\"accepted\"}"));
+
+        verify(analyticsService).trackPageView(any(PageViewRequest.class), any());
+    }
+
+    @Test
+    void trackPageView_ShouldRejectMissingSessionId() throws Exception {
+        mockMvc.perform(post("/api/analytics/track/pageview")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"page\":\"/projects\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Page and sessionId are required"));
+
+        verify(analyticsService, never()).trackPageView(any(), any());
+    }
+
+    @Test
+    void trackClick_ShouldCoerceFractionalCoordinates() throws Exception {
+        mockMvc.perform(post("/api/analytics/track/click")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sessionId\":\"abc\",\"page\":\"/\",\"elementType\":\"button\",\"x\":12.7,\"y\":40}"))
+                .andExpect(status().isAccepted());
+
+        ArgumentCaptor<ClickRequest> click = ArgumentCaptor.forClass(ClickRequest.class);
+        verify(analyticsService).trackClick(click.capture(), any());
+        assertThat(click.getValue().x()).isEqualTo(12);
+        assertThat(click.getValue().y()).isEqualTo(40);
+    }
+
+    @Test
+    void trackClick_ShouldRejectNonNumericCoordinates() throws Exception {
+        mockMvc.perform(post("/api/analytics/track/click")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("{\"sessionId\":\"abc\",\"page\":\"/\",\"elementType\":\"button\",\"x\":\"left\"}"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("x has an invalid value"));
+    }
+
+    @Test
+    void trackBatch_ShouldReportInvalidEventsByIndex() throws Exception {
+        String body = "[{\"type\":\"pageview\",\"page\":\"/\",\"sessionId\":\"abc\"},"
+            + "{\"type\":\"click\",\"page\":\"/\"},"
+            + "{\"type\":\"scroll\"},"
+            + "{\"type\":\"click\",\"sessionId\":\"abc\",\"page\":\"/\",\"elementType\":\"link\"}]";
+
+        mockMvc.perform(post("/api/analytics/track/batch")
+                .contentType(MediaType.TEXT_PLAIN)
+                .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.received").value(4))
+                .andExpect(jsonPath("$.accepted").value(2))
+                .andExpect(jsonPath("$.invalid").value(2))
+                .andExpect(jsonPath("$.errors[0].index").value(1))
+                .andExpect(jsonPath("$.errors[0].error").value("SessionId, page, and elementType are required"))
+                .andExpect(jsonPath("$.errors[1].index").value(2))
+                .andExpect(jsonPath("$.errors[1].error").value("Type must be pageview or click"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void trackBatch_ShouldKeepReadingAfterAnEventThatCannotBeBound() throws Exception {
+        when(analyticsService.trackEvents(anyList(), any())).thenAnswer(invocation -> ((List<?>) invocation.getArgument(0)).size());
+        when(ingestionService.isAsync()).thenReturn(true);
+        String body = "{\"events\":[{\"type\":\"click\",\"sessionId\":\"abc\",\"page\":\"/\",\"elementType\":\"link\","
+            + "\"x\":{\"nested\":[1,2]},\"y\":3},"
+            + "\"pageview\","
+            + "{\"page\":\"/\",\"sessionId\":\"abc\",\"type\":\"pageview\"}]}";
+
+        mockMvc.perform(post("/api/analytics/track/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content(body))
+                .andExpect(status().isAccepted())
+                .andExpect(jsonPath("$.received").value(3))
+                .andExpect(jsonPath("$.accepted").value(1))
+                .andExpect(jsonPath("$.errors[0].index").value(0))
+                .andExpect(jsonPath("$.errors[0].error").value("x has an invalid value"))
+                .andExpect(jsonPath("$.errors[1].index").value(1))
+                .andExpect(jsonPath("$.errors[1].error").value("Event must be a JSON object"));
+
+        ArgumentCaptor<List<TrackingEvent>> tracked = ArgumentCaptor.forClass(List.class);
+        verify(analyticsService).trackEvents(tracked.capture(), any());
+        assertThat(tracked.getValue()).singleElement().isInstanceOf(PageViewRequest.class);
+    }
+
+    @Test
+    void trackBatch_ShouldRejectMalformedJson() throws Exception {
+        mockMvc.perform(post("/api/analytics/track/batch")
+                .contentType(MediaType.APPLICATION_JSON)
+                .content("[{\"type\":\"pageview\",\"page\":\"/\",\"sessionId\":\"abc\"},{\"type\":"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.error").value("Body must be a JSON array of events"));
+
+        verify(analyticsService, never()).trackEvents(anyList(), any());
+    }
+
+    @Test
+    void getBreakdown_ShouldAnswer503WithRetryAfterWhenEveryPermitIsTaken() throws Exception {
+        when(drillDownService.query(any())).thenThrow(new RejectedExecutionException("Too many breakdown queries are running; try again shortly"));
+
+        mockMvc.perform(get("/api/analytics/breakdown")
+                .param("since", "2026-01-01T00:00:00")
+                .param("groupBy", "device"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().string("Retry-After", "1"))
+                .andExpect(jsonPath("$.error").value("Too many breakdown queries are running; try again shortly"));
+    }
+
+    @Test
+    void getBreakdown_ShouldAnswer503WithoutRetryAfterWhenTheQueryTimedOut() throws Exception {
+        when(drillDownService.query(any())).thenThrow(new QueryTimeoutException("Query ran past the 5000 ms statement timeout"));
+
+        mockMvc.perform(get("/api/analytics/breakdown")
+                .param("since", "2026-01-01T00:00:00")
+                .param("groupBy", "device"))
+                .andExpect(status().isServiceUnavailable())
+                .andExpect(header().doesNotExist("Retry-After"))
+                .andExpect(jsonPath("$.error").value("Query ran past the 5000 ms statement timeout; narrow the range or add filters"));
+    }
+}
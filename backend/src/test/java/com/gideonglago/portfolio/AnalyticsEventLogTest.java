@@ -0,0 +1,143 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.services.AnalyticsEventCodec;
+import com.gideonglago.portfolio.services.AnalyticsEventLog;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalyticsEventLogTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void read_ShouldReturnRecordsAcrossSegmentsAfterReopening() throws IOException {
+        AnalyticsEventLog eventLog = open(64);
+        for (int i = 0; i < 10; i++) {
+            assertThat(eventLog.append(List.of(record(i)))).isTrue();
+        }
+        eventLog.close();
+
+        AnalyticsEventLog reopened = open(64);
+        List<byte[]> records = new ArrayList<>();
+        long next = reopened.read(reopened.getConsumerOffset(), 100, records);
+
+        assertThat(records).extracting(r -> new String(r, StandardCharsets.UTF_8))
+            .containsExactly("event-0", "event-1", "event-2", "event-3", "event-4",
+                "event-5", "event-6", "event-7", "event-8", "event-9");
+        assertThat(next).isEqualTo(reopened.getDurableOffset());
+        assertThat(reopened.getStats().segments()).isGreaterThan(1);
+    }
+
+    @Test
+    void open_ShouldResumeFromTheCommittedOffsetAndDeleteConsumedSegments() throws IOException {
+        AnalyticsEventLog eventLog = open(64);
+        for (int i = 0; i < 10; i++) {
+            eventLog.append(List.of(record(i)));
+        }
+        List<byte[]> records = new ArrayList<>();
+        long next = eventLog.read(eventLog.getConsumerOffset(), 6, records);
+        eventLog.commit(next);
+        eventLog.close();
+
+        AnalyticsEventLog reopened = open(64);
+        records.clear();
+        reopened.read(reopened.getConsumerOffset(), 100, records);
+
+        assertThat(records).extracting(r -> new String(r, StandardCharsets.UTF_8))
+            .containsExactly("event-6", "event-7", "event-8", "event-9");
+        assertThat(segmentFiles()).hasSize(reopened.getStats().segments()).hasSizeLessThan(10);
+    }
+
+    @Test
+    void open_ShouldTruncateATornRecordAtTheEnd() throws IOException {
+        AnalyticsEventLog eventLog = open(1 << 20);
+        eventLog.append(List.of(record(0), record(1)));
+        eventLog.close();
+        Path segment = segmentFiles().get(0);
+        long intact = Files.size(segment);
+        try (FileChannel channel = FileChannel.open(segment, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            // Header of a 100-byte record whose payload never made it to disk
+            channel.write(ByteBuffer.allocate(12).putInt(100).putInt(42).putInt(7).flip());
+        }
+
+        AnalyticsEventLog reopened = open(1 << 20);
+        assertThat(Files.size(segment)).isEqualTo(intact);
+        reopened.append(List.of(record(2)));
+        List<byte[]> records = new ArrayList<>();
+        reopened.read(reopened.getConsumerOffset(), 100, records);
+
+        assertThat(records).extracting(r -> new String(r, StandardCharsets.UTF_8))
+            .containsExactly("event-0", "event-1", "event-2");
+    }
+
+    @Test
+    void append_ShouldRefuseRecordsBeyondTheBacklogLimit() throws IOException {
+        AnalyticsEventLog eventLog = new AnalyticsEventLog(directory.toString(), 1 << 20, 40);
+        eventLog.open();
+
+        assertThat(eventLog.append(List.of(record(0), record(1)))).isTrue();
+        assertThat(eventLog.append(List.of(record(2)))).isFalse();
+    }
+
+    @Test
+    void codec_ShouldRoundTripEvents() {
+        PageView pageView = new PageView("/projects/1", null, "Mozilla/5.0", "10.0.0.1", "session-1");
+        pageView.setEventId(UUID.randomUUID());
+        pageView.setDuration(12L);
+        pageView.setCountry("GH");
+        ClickEvent click = new ClickEvent("session-1", "/", "button", null, "Contact");
+        click.setEventId(UUID.randomUUID());
+        click.setXPosition(40);
+        click.setDocumentWidth(1280);
+        click.setTimestamp(LocalDateTime.of(2024, 6, 30, 12, 0, 0, 123_456_000));
+
+        assertThat(AnalyticsEventCodec.decode(AnalyticsEventCodec.encode(pageView))).isEqualTo(pageView);
+        assertThat(AnalyticsEventCodec.decode(AnalyticsEventCodec.encode(click))).isEqualTo(click);
+    }
+
+    @Test
+    void codec_ShouldDecodeClicksLoggedBeforeTheViewportFields() {
+        ClickEvent click = new ClickEvent("session-1", "/", "button", null, "Contact");
+        click.setEventId(UUID.randomUUID());
+        byte[] encoded = AnalyticsEventCodec.encode(click);
+        // The two trailing null integers are one presence byte each
+        byte[] legacy = Arrays.copyOf(encoded, encoded.length - 2);
+
+        assertThat(AnalyticsEventCodec.decode(legacy)).isEqualTo(click);
+    }
+
+    private AnalyticsEventLog open(long segmentBytes) throws IOException {
+        AnalyticsEventLog eventLog = new AnalyticsEventLog(directory.toString(), segmentBytes, 1 << 20);
+        eventLog.open();
+        return eventLog;
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(f -> f.toString().endsWith(".log")).sorted().toList();
+        }
+    }
+
+    private static byte[] record(int i) {
+        return ("event-" + i).getBytes(StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,116 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsEventBatchRepository;
+import com.gideonglago.portfolio.services.AnalyticsEventCodec;
+import com.gideonglago.portfolio.services.AnalyticsEventListener;
+import com.gideonglago.portfolio.services.AnalyticsEventLog;
+import com.gideonglago.portfolio.services.AnalyticsIngestionService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataAccessResourceFailureException;
+import org.springframework.dao.DataIntegrityViolationException;
+
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class AnalyticsIngestionServiceTest {
+
+    @TempDir
+    Path directory;
+
+    private final AnalyticsEventBatchRepository batchRepository = mock(AnalyticsEventBatchRepository.class);
+    private final List<String> written = new CopyOnWriteArrayList<>();
+    private AnalyticsEventLog eventLog;
+    private AnalyticsIngestionService ingestionService;
+
+    @AfterEach
+    void stop() {
+        if (ingestionService != null) ingestionService.stop();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void logConsumer_ShouldQuarantineOnlyTheEventsTheDatabaseRejects() throws Exception {
+        // Any batch holding the poisoned page view fails as a whole, as a single INSERT would
+        when(batchRepository.insertNewPageViews(anyList())).thenAnswer(invocation -> {
+            List<PageView> pageViews = invocation.getArgument(0);
+            if (pageViews.stream().anyMatch(pv -> pv.getPage().equals("/poison"))) {
+                throw new DataIntegrityViolationException("value too long for type character varying(255)");
+            }
+            pageViews.forEach(pv -> written.add(pv.getPage()));
+            return pageViews;
+        });
+        when(batchRepository.insertNewClicks(anyList())).thenAnswer(invocation -> invocation.getArgument(0));
+        start();
+
+        List<Object> events = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            events.add(pageView(i == 6 ? "/poison" : "/page-" + i));
+        }
+        events.add(new ClickEvent("s", "/", "link", "a", null));
+        assertThat(ingestionService.submitAll(events)).isEqualTo(11);
+        awaitConsumed();
+
+        assertThat(written).hasSize(9).doesNotContain("/poison");
+        assertThat(eventLog.readQuarantined()).singleElement()
+            .satisfies(record -> assertThat(((PageView) AnalyticsEventCodec.decode(record)).getPage()).isEqualTo("/poison"));
+        assertThat(ingestionService.getStats().written()).isEqualTo(10);
+        assertThat(ingestionService.getStats().failed()).isEqualTo(1);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void logConsumer_ShouldRetryTheWholeBatchWhileTheDatabaseIsUnavailable() throws Exception {
+        AtomicInteger attempts = new AtomicInteger();
+        when(batchRepository.insertNewPageViews(anyList())).thenAnswer(invocation -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new DataAccessResourceFailureException("Connection refused");
+            }
+            List<PageView> pageViews = invocation.getArgument(0);
+            pageViews.forEach(pv -> written.add(pv.getPage()));
+            return pageViews;
+        });
+        start();
+
+        ingestionService.submitAll(List.of(pageView("/a"), pageView("/b")));
+        awaitConsumed();
+
+        assertThat(written).containsExactly("/a", "/b");
+        assertThat(eventLog.readQuarantined()).isEmpty();
+        assertThat(ingestionService.getStats().retried()).isEqualTo(2);
+    }
+
+    private void start() throws Exception {
+        eventLog = new AnalyticsEventLog(directory.toString(), 1 << 20, 1 << 20);
+        ingestionService = new AnalyticsIngestionService(batchRepository, List.<AnalyticsEventListener>of(), eventLog,
+            true, 100, 200, 20, 50, 5000);
+        ingestionService.start();
+    }
+
+    private void awaitConsumed() throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+        while (eventLog.getStats().backlogBytes() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(eventLog.getStats().backlogBytes()).isZero();
+    }
+
+    private static PageView pageView(String page) {
+        PageView pv = new PageView(page, null, null, "203.0.113.9", "s");
+        pv.setTimestamp(LocalDateTime.now());
+        return pv;
+    }
+}
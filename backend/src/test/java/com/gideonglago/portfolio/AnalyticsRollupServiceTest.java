@@ -0,0 +1,187 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.BucketRange;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupKey;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupRow;
+import com.gideonglago.portfolio.services.AnalyticsRollupService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class AnalyticsRollupServiceTest {
+
+    // Mid-hour, so the events fall in one hour bucket whatever the time of day
+    private final LocalDateTime now = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusMinutes(30);
+
+    @Test
+    void sum_ShouldCountPendingDeltasPerDimension() {
+        InMemoryRollupRepository repository = new InMemoryRollupRepository();
+        AnalyticsRollupService service = new AnalyticsRollupService(repository, 1_800_000);
+
+        service.onPageViews(List.of(pageView("/", "Mobile"), pageView("/", "Desktop"), pageView("/blog", "Mobile")));
+        service.onClicks(List.of(click("cta", "Contact me"), click(null, null)));
+
+        Map<String, Long> totals = totals(service);
+        assertThat(totals).containsEntry("PAGE_VIEWS/", 3L)
+            .containsEntry("PAGE//", 2L)
+            .containsEntry("PAGE//blog", 1L)
+            .containsEntry("DEVICE/Mobile", 2L)
+            .containsEntry("CLICKS/", 2L)
+            .containsEntry("ELEMENT/cta", 1L)
+            .doesNotContainKey("COUNTRY/");
+        assertThat(repository.rows).isEmpty();
+    }
+
+    @Test
+    void sum_ShouldMergeStoredRollupsWithDeltasNotYetFlushed() {
+        InMemoryRollupRepository repository = new InMemoryRollupRepository();
+        AnalyticsRollupService service = new AnalyticsRollupService(repository, 1_800_000);
+
+        service.onPageViews(List.of(pageView("/", "Mobile"), pageView("/", "Mobile")));
+        service.flush();
+        service.onPageViews(List.of(pageView("/", "Mobile")));
+
+        assertThat(repository.rows).containsEntry(
+            new RollupKey("HOUR", now.truncatedTo(ChronoUnit.HOURS), "PAGE_VIEWS", "", ""), 2L);
+        assertThat(totals(service)).containsEntry("PAGE_VIEWS/", 3L).containsEntry("PAGE//", 3L);
+    }
+
+    @Test
+    void flush_ShouldPutTheDeltasBackWhenTheUpsertFailsAndWriteThemOnRetry() {
+        InMemoryRollupRepository repository = new InMemoryRollupRepository();
+        AnalyticsRollupService service = new AnalyticsRollupService(repository, 1_800_000);
+        service.onPageViews(List.of(pageView("/", "Mobile")));
+
+        repository.failNext = true;
+        service.flush();
+        assertThat(repository.rows).isEmpty();
+        assertThat(totals(service)).containsEntry("PAGE_VIEWS/", 1L);
+
+        service.onPageViews(List.of(pageView("/", "Mobile")));
+        service.flush();
+        assertThat(repository.rows).containsEntry(
+            new RollupKey("DAY", now.truncatedTo(ChronoUnit.DAYS), "PAGE_VIEWS", "", ""), 2L);
+        assertThat(totals(service)).containsEntry("PAGE_VIEWS/", 2L);
+    }
+
+    @Test
+    void recordSessionReopened_ShouldTakeBackTheOutcomeOfAnEndedSession() {
+        AnalyticsRollupService service = new AnalyticsRollupService(new InMemoryRollupRepository(), 1_800_000);
+
+        service.recordSessionStart(now, "/", "https://www.google.com/", false);
+        service.recordSessionStart(now, "/blog", "", true);
+        service.recordSessionEnd(now, 3, 120L, "/contact");
+        service.recordSessionReopened(now, 3, 120L, "/contact");
+        service.recordSessionEnd(now, 4, 180L, "/projects");
+
+        assertThat(totals(service)).containsEntry("SESSIONS/", 2L)
+            .containsEntry("NEW_SESSIONS/", 1L)
+            .containsEntry("RETURNING_SESSIONS/", 1L)
+            .containsEntry("ENTRY_PAGE//blog", 1L)
+            .containsEntry("REFERRER/https://www.google.com/", 1L)
+            .doesNotContainKey("REFERRER/")
+            .containsEntry("ENDED_SESSIONS/", 1L)
+            .containsEntry("SESSION_PAGE_VIEWS/", 4L)
+            .containsEntry("SESSION_DURATION/", 180L)
+            .containsEntry("EXIT_PAGE//contact", 0L)
+            .containsEntry("EXIT_PAGE//projects", 1L);
+    }
+
+    @Test
+    void sum_ShouldCountABatchOnceWhileItsFlushCommits() throws Exception {
+        InMemoryRollupRepository repository = new InMemoryRollupRepository();
+        AnalyticsRollupService service = new AnalyticsRollupService(repository, 1_800_000);
+        service.onPageViews(List.of(pageView("/", "Mobile"), pageView("/", "Mobile")));
+
+        // The read starts after the batch is stored and before the flush stops serving it from memory
+        AtomicReference<Map<String, Long>> duringFlush = new AtomicReference<>();
+        AtomicReference<Thread> reader = new AtomicReference<>();
+        repository.afterUpsert = () -> {
+            Thread thread = new Thread(() -> duringFlush.set(totals(service)));
+            reader.set(thread);
+            thread.start();
+            try {
+                thread.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        service.flush();
+        reader.get().join(5000);
+
+        assertThat(duringFlush.get()).containsEntry("PAGE_VIEWS/", 2L);
+    }
+
+    private Map<String, Long> totals(AnalyticsRollupService service) {
+        Map<String, Long> totals = new HashMap<>();
+        for (RollupRow row : service.sum(now.minusDays(1), now.plusHours(1))) {
+            totals.put(row.dimension() + "/" + row.value(), row.count());
+        }
+        return totals;
+    }
+
+    private PageView pageView(String page, String device) {
+        PageView pv = new PageView(page, null, null, "203.0.113.9", "s");
+        pv.setDevice(device);
+        pv.setTimestamp(now);
+        return pv;
+    }
+
+    private ClickEvent click(String elementId, String elementText) {
+        ClickEvent ce = new ClickEvent("s", "/", "button", elementId, elementText);
+        ce.setTimestamp(now);
+        return ce;
+    }
+
+    // analytics_rollup in a map; an upsert is all-or-nothing, as the real one is inside its transaction
+    private static class InMemoryRollupRepository extends AnalyticsRollupRepository {
+
+        final Map<RollupKey, Long> rows = new ConcurrentHashMap<>();
+        volatile boolean failNext;
+        volatile Runnable afterUpsert;
+
+        InMemoryRollupRepository() {
+            super(null, null);
+        }
+
+        @Override
+        public void upsert(Map<RollupKey, Long> deltas) {
+            if (failNext) {
+                failNext = false;
+                throw new IllegalStateException("connection lost");
+            }
+            deltas.forEach((key, delta) -> rows.merge(key, delta, Long::sum));
+            Runnable hook = afterUpsert;
+            afterUpsert = null;
+            if (hook != null) hook.run();
+        }
+
+        @Override
+        public List<RollupRow> sum(List<BucketRange> ranges) {
+            Map<List<String>, Long> totals = new HashMap<>();
+            rows.forEach((key, count) -> {
+                for (BucketRange range : ranges) {
+                    if (range.granularity().equals(key.granularity())
+                            && !key.bucketStart().isBefore(range.from()) && key.bucketStart().isBefore(range.to())) {
+                        totals.merge(List.of(key.dimension(), key.value(), key.extra()), count, Long::sum);
+                    }
+                }
+            });
+            List<RollupRow> result = new ArrayList<>();
+            totals.forEach((key, count) -> result.add(new RollupRow(key.get(0), key.get(1), key.get(2), count)));
+            return result;
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.dto.PageViewRequest;
+import com.gideonglago.portfolio.dto.TrackingEvent;
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.RollupRow;
+import com.gideonglago.portfolio.repositories.ClickEventRepository;
+import com.gideonglago.portfolio.repositories.PageViewRepository;
+import com.gideonglago.portfolio.repositories.StatementTimeoutTemplate;
+import com.gideonglago.portfolio.services.AnalyticsIngestionService;
+import com.gideonglago.portfolio.services.AnalyticsRollupService;
+import com.gideonglago.portfolio.services.AnalyticsService;
+import com.gideonglago.portfolio.services.ColumnarEventStore;
+import com.gideonglago.portfolio.services.DashboardCache;
+import com.gideonglago.portfolio.services.GeoIpResolver;
+import com.gideonglago.portfolio.services.SessionStateStore;
+import com.gideonglago.portfolio.services.UniqueVisitorService;
+import com.gideonglago.portfolio.services.UniqueVisitorService.UniqueEstimate;
+import com.gideonglago.portfolio.services.UserAgentClassifier;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.mock.web.MockHttpServletRequest;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class AnalyticsServiceTest {
+
+    private final AnalyticsIngestionService ingestionService = mock(AnalyticsIngestionService.class);
+    private final AnalyticsService analyticsService = new AnalyticsService(null, null, null, ingestionService, null, null,
+        new UserAgentClassifier(16), new GeoIpResolver(""), null, null, null, null, null, 0);
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void trackEvents_ShouldTruncateHeadersToTheirColumnLength() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader("User-Agent", "Mozilla/5.0 " + "x".repeat(400));
+        request.addHeader("Referer", "https://example.com/?q=" + "y".repeat(400));
+        request.addHeader("X-Forwarded-For", "z".repeat(300) + ", 198.51.100.1");
+
+        analyticsService.trackEvents(List.<TrackingEvent>of(new PageViewRequest("/", "abc", null)), request);
+
+        ArgumentCaptor<List<Object>> submitted = ArgumentCaptor.forClass(List.class);
+        verify(ingestionService).submitAll(submitted.capture());
+        PageView pageView = (PageView) submitted.getValue().get(0);
+        assertThat(pageView.getUserAgent()).hasSize(255).startsWith("Mozilla/5.0 ");
+        assertThat(pageView.getReferrer()).hasSize(255).startsWith("https://example.com/");
+        assertThat(pageView.getIpAddress()).hasSize(255);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void getDashboardStats_ShouldMarkAGroupThatMissesTheDeadlinePartialAndReturnTheOthers() throws Exception {
+        PageViewRepository pageViewRepository = mock(PageViewRepository.class);
+        ClickEventRepository clickEventRepository = mock(ClickEventRepository.class);
+        AnalyticsRollupService rollupService = mock(AnalyticsRollupService.class);
+        SessionStateStore sessionStateStore = mock(SessionStateStore.class);
+        UniqueVisitorService uniqueVisitorService = mock(UniqueVisitorService.class);
+        StatementTimeoutTemplate statementTimeouts = mock(StatementTimeoutTemplate.class);
+        when(statementTimeouts.query(anyLong(), any())).thenAnswer(invocation -> ((Supplier<Object>) invocation.getArgument(1)).get());
+        when(rollupService.sum(any(), any())).thenReturn(List.of(new RollupRow("PAGE_VIEWS", "", "", 42)));
+        when(sessionStateStore.summarize(any())).thenReturn(new SessionStateStore.LiveSessionSummary(0, 0, 0, Map.of()));
+        when(uniqueVisitorService.estimate(any(), any(), any())).thenReturn(new UniqueEstimate(7, 0.01));
+        when(pageViewRepository.countPageViewsByBucket(anyString(), any(), any()))
+            .thenReturn(List.<Object[]>of(new Object[] { LocalDateTime.now(), 42L }));
+
+        // The click trend query outlives the 200 ms deadline
+        CountDownLatch release = new CountDownLatch(1);
+        when(clickEventRepository.countClicksByBucket(anyString(), any(), any())).thenAnswer(invocation -> {
+            release.await(5, TimeUnit.SECONDS);
+            return List.of();
+        });
+
+        ExecutorService dashboardExecutor = Executors.newFixedThreadPool(4);
+        DashboardCache dashboardCache = new DashboardCache(AnalyticsThreads.platform(), false, 0, 0);
+        AnalyticsService service = new AnalyticsService(pageViewRepository, clickEventRepository, null, null, rollupService,
+            sessionStateStore, null, null, uniqueVisitorService, dashboardCache, mock(ColumnarEventStore.class),
+            dashboardExecutor, statementTimeouts, 200);
+        try {
+            Map<String, Object> stats = service.getDashboardStats("day");
+
+            assertThat(stats).containsEntry("partial", true)
+                .containsEntry("partialMetrics", List.of("clickTrend"))
+                .containsEntry("totalPageViews", 42L)
+                .containsEntry("uniqueVisitors", 7L)
+                .containsKey("pageViewTrend")
+                .doesNotContainKey("clickTrend");
+        } finally {
+            release.countDown();
+            dashboardExecutor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.services.BloomFilter;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BloomFilterTest {
+
+    @Test
+    void mightContain_ShouldNeverMissInsertedKeys() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.put(key * 7919);
+        }
+
+        for (long key = 0; key < 10_000; key++) {
+            assertThat(filter.mightContain(key * 7919)).isTrue();
+        }
+    }
+
+    @Test
+    void mightContain_ShouldKeepFalsePositivesNearTheConfiguredRate() {
+        BloomFilter filter = new BloomFilter(10_000, 0.01);
+        for (long key = 0; key < 10_000; key++) {
+            filter.put(key);
+        }
+
+        int falsePositives = 0;
+        for (long key = 1_000_000; key < 1_100_000; key++) {
+            if (filter.mightContain(key)) falsePositives++;
+        }
+
+        assertThat(falsePositives).isLessThan(2_000);
+        assertThat(filter.approximateInsertions()).isBetween(9_900L, 10_000L);
+    }
+}
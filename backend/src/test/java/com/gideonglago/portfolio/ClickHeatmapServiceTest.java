@@ -0,0 +1,88 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.repositories.ClickHeatmapRepository;
+import com.gideonglago.portfolio.services.ClickHeatmapService;
+import com.gideonglago.portfolio.services.HeatmapGrid;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class ClickHeatmapServiceTest {
+
+    @Test
+    void cellOf_ShouldScalePositionsToTheDocumentAndRejectOutsideClicks() {
+        assertThat(HeatmapGrid.cellOf(0, 0, 1280, 720)).isZero();
+        assertThat(HeatmapGrid.cellOf(640, 360, 1280, 720)).isEqualTo(32 * HeatmapGrid.COLUMNS + 32);
+        // Clicks on the last pixel row and column stay in the grid
+        assertThat(HeatmapGrid.cellOf(1280, 720, 1280, 720)).isEqualTo(HeatmapGrid.COLUMNS * HeatmapGrid.ROWS - 1);
+        assertThat(HeatmapGrid.cellOf(1281, 10, 1280, 720)).isEqualTo(-1);
+        assertThat(HeatmapGrid.cellOf(10, 10, null, 720)).isEqualTo(-1);
+    }
+
+    @Test
+    void cellOf_ShouldPlaceClicksBelowTheFirstScreenOfALongPage() {
+        // Page coordinates in a 1280 x 4000 document, scrolled so the click is three quarters of the way down
+        assertThat(HeatmapGrid.cellOf(640, 3000, 1280, 4000)).isEqualTo(48 * HeatmapGrid.COLUMNS + 32);
+        // The same spot one screen further down is another row, not the same viewport-relative cell
+        assertThat(HeatmapGrid.cellOf(640, 3720, 1280, 4000)).isEqualTo(59 * HeatmapGrid.COLUMNS + 32);
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseGrids() {
+        HeatmapGrid sparse = new HeatmapGrid();
+        sparse.increment(5);
+        sparse.increment(5);
+        sparse.increment(4095);
+        HeatmapGrid sparseCopy = HeatmapGrid.fromBytes(sparse.toBytes());
+        assertThat(sparseCopy.clicks()).isEqualTo(3);
+        assertThat(sparseCopy.toRows()[0][5]).isEqualTo(2);
+        assertThat(sparseCopy.toRows()[63][63]).isEqualTo(1);
+
+        HeatmapGrid dense = new HeatmapGrid();
+        for (int cell = 0; cell < HeatmapGrid.COLUMNS * HeatmapGrid.ROWS; cell++) {
+            dense.increment(cell);
+        }
+        assertThat(dense.toBytes()).hasSize(1 + 4 * HeatmapGrid.COLUMNS * HeatmapGrid.ROWS);
+        assertThat(HeatmapGrid.fromBytes(dense.toBytes()).clicks()).isEqualTo(HeatmapGrid.COLUMNS * HeatmapGrid.ROWS);
+    }
+
+    @Test
+    void heatmap_ShouldSplitClicksByViewportClassIncludingUnflushedGrids() {
+        ClickHeatmapService service = new ClickHeatmapService(mock(ClickHeatmapRepository.class));
+        LocalDateTime now = LocalDateTime.now();
+        service.onClicks(List.of(
+            click("/", 10, 10, 390, 844, now),
+            click("/", 10, 10, 390, 844, now),
+            click("/", 1900, 10, 1920, 1080, now),
+            click("/about", 10, 10, 1920, 1080, now),
+            click("/", 10, 10, null, null, now)));
+
+        ClickHeatmapService.Heatmap heatmap = service.heatmap("/", null, now.minusHours(1), now.plusHours(1));
+
+        assertThat(heatmap.viewports()).containsOnlyKeys("mobile", "tablet", "desktop");
+        assertThat(heatmap.viewports().get("mobile").clicks()).isEqualTo(2);
+        assertThat(heatmap.viewports().get("mobile").maxCell()).isEqualTo(2);
+        assertThat(heatmap.viewports().get("tablet").clicks()).isZero();
+        assertThat(heatmap.viewports().get("desktop").cells()[0][63]).isEqualTo(1);
+        assertThat(service.getStats().placed()).isEqualTo(4);
+        assertThat(service.getStats().unplaced()).isEqualTo(1);
+
+        assertThat(service.heatmap("/", ClickHeatmapService.Viewport.DESKTOP, now.minusHours(1), now).viewports())
+            .containsOnlyKeys("desktop");
+    }
+
+    private static ClickEvent click(String page, int x, int y, Integer width, Integer height, LocalDateTime at) {
+        ClickEvent ce = new ClickEvent("session-1", page, "button", "cta", null);
+        ce.setXPosition(x);
+        ce.setYPosition(y);
+        ce.setDocumentWidth(width);
+        ce.setDocumentHeight(height);
+        ce.setTimestamp(at);
+        return ce;
+    }
+}
@@ -0,0 +1,142 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.services.ColumnarEventStore;
+import com.gideonglago.portfolio.services.DrillDownQuery;
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
+import com.gideonglago.portfolio.services.DrillDownResult;
+import com.gideonglago.portfolio.services.TrendGranularity;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class ColumnarEventStoreTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withNano(0);
+
+    @Test
+    void query_ShouldGroupAndFilterIncludingMissingValues() {
+        ColumnarEventStore store = new ColumnarEventStore(null, 35, 1_000_000);
+        store.onPageViews(List.of(
+            pageView(NOW.minusHours(3), "/", "desktop", "GH"),
+            pageView(NOW.minusHours(3), "/", "desktop", "GH"),
+            pageView(NOW.minusHours(2), "/", "mobile", "GH"),
+            pageView(NOW.minusHours(2), "/about", "mobile", null),
+            pageView(NOW.minusHours(1), "/about", "desktop", "US")));
+
+        Set<String> countries = new HashSet<>(Arrays.asList("GH", null));
+        DrillDownResult result = store.query(new DrillDownQuery(Source.PAGE_VIEWS, NOW.minusDays(1), NOW,
+            Map.of(Dimension.COUNTRY, countries), List.of(Dimension.DEVICE), null, 10));
+
+        assertThat(result.answeredFrom()).isEqualTo(DrillDownResult.MEMORY);
+        assertThat(result.columns()).containsExactly("device", "count");
+        assertThat(result.rows()).containsExactlyInAnyOrder(List.of("mobile", 2L), List.of("desktop", 2L));
+        assertThat(result.groups()).isEqualTo(2);
+        assertThat(result.truncated()).isFalse();
+    }
+
+    @Test
+    void query_ShouldBucketInTimeOrderAndApplyTheLimit() {
+        ColumnarEventStore store = new ColumnarEventStore(null, 35, 1_000_000);
+        LocalDateTime hour = NOW.withMinute(0).withSecond(0).minusHours(5);
+        store.onClicks(List.of(
+            click(hour.plusMinutes(5), "/", "button"),
+            click(hour.plusMinutes(50), "/", "link"),
+            click(hour.plusHours(2), "/", "button")));
+
+        DrillDownResult result = store.query(new DrillDownQuery(Source.CLICKS, hour, NOW,
+            Map.of(), List.of(Dimension.ELEMENT_TYPE), TrendGranularity.HOUR, 2));
+
+        assertThat(result.columns()).containsExactly("elementType", "time", "count");
+        assertThat(result.rows()).extracting(row -> row.get(0)).containsExactly("button", "link");
+        assertThat(result.groups()).isEqualTo(3);
+        assertThat(result.truncated()).isTrue();
+
+        List<Object[]> trend = store.countByBucket(Source.CLICKS, TrendGranularity.HOUR, hour, NOW);
+        assertThat(trend).extracting(row -> row[0]).containsExactly(hour, hour.plusHours(2));
+        assertThat(trend).extracting(row -> row[1]).containsExactly(2L, 1L);
+    }
+
+    @Test
+    void onPageViews_ShouldEvictWholeChunksPastMaxRowsAndMoveCoverageForward() {
+        ColumnarEventStore store = new ColumnarEventStore(null, 35, 70_000);
+        // Without a load the store covers events from its creation on, so these all lie after that
+        LocalDateTime start = LocalDateTime.now().withNano(0).plusMinutes(1);
+        assertThat(store.covers(Source.PAGE_VIEWS, start.minusDays(1))).isFalse();
+
+        List<PageView> batch = new ArrayList<>();
+        for (int i = 0; i < 80_000; i++) {
+            batch.add(pageView(start.plusSeconds(i), "/", "desktop", "GH"));
+        }
+        store.onPageViews(batch);
+
+        // The first 65536-row chunk is gone, so coverage starts right after its last row
+        assertThat(store.getStats().tables().get("pageviews").rows()).isEqualTo(80_000 - 65_536);
+        assertThat(store.coveredFrom(Source.PAGE_VIEWS)).isEqualTo(start.plusSeconds(65_536));
+        assertThat(store.covers(Source.PAGE_VIEWS, start.plusSeconds(65_535))).isFalse();
+        assertThat(store.covers(Source.PAGE_VIEWS, start.plusSeconds(65_536))).isTrue();
+    }
+
+    @Test
+    void onPageViews_ShouldCompactDictionariesOfEvictedValues() {
+        ColumnarEventStore store = new ColumnarEventStore(null, 35, 70_000);
+        LocalDateTime start = LocalDateTime.now().withNano(0).plusMinutes(1);
+
+        // A page value per row in the first chunk, then two pages that outlive its eviction
+        List<PageView> batch = new ArrayList<>();
+        for (int i = 0; i < 65_536; i++) {
+            batch.add(pageView(start.plusSeconds(i), "/post/" + i, "desktop", "GH"));
+        }
+        store.onPageViews(batch);
+        assertThat(store.getStats().tables().get("pageviews").dictionaries().get("page")).isEqualTo(65_536);
+
+        batch.clear();
+        for (int i = 0; i < 10_000; i++) {
+            batch.add(pageView(start.plusSeconds(65_536 + i), i % 4 == 0 ? "/about" : "/", "mobile", "GH"));
+        }
+        store.onPageViews(batch);
+        store.onPageViews(List.of(pageView(start.plusSeconds(75_536), "/about", "desktop", "US")));
+
+        assertThat(store.getStats().tables().get("pageviews").dictionaries())
+            .containsEntry("page", 2).containsEntry("device", 2).containsEntry("country", 2);
+        DrillDownResult result = store.query(new DrillDownQuery(Source.PAGE_VIEWS, start, start.plusDays(2),
+            Map.of(Dimension.DEVICE, Set.of("mobile")), List.of(Dimension.PAGE), null, 10));
+        assertThat(result.rows()).containsExactly(List.of("/", 7_500L), List.of("/about", 2_500L));
+    }
+
+    @Test
+    void drillDownQuery_ShouldRejectDimensionsTheSourceDoesNotHave() {
+        assertThatThrownBy(() -> new DrillDownQuery(Source.CLICKS, NOW.minusDays(1), NOW,
+            Map.of(), List.of(Dimension.COUNTRY), null, 10))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static PageView pageView(LocalDateTime timestamp, String page, String device, String country) {
+        PageView pv = new PageView();
+        pv.setTimestamp(timestamp);
+        pv.setPage(page);
+        pv.setDevice(device);
+        pv.setCountry(country);
+        return pv;
+    }
+
+    private static ClickEvent click(LocalDateTime timestamp, String page, String elementType) {
+        ClickEvent ce = new ClickEvent();
+        ce.setTimestamp(timestamp);
+        ce.setPage(page);
+        ce.setElementType(elementType);
+        ce.setElementId("cta");
+        return ce;
+    }
+}
@@ -0,0 +1,163 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.services.DashboardCache;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DashboardCacheTest {
+
+    private final ExecutorService pool = Executors.newFixedThreadPool(4);
+    private DashboardCache cache;
+
+    @AfterEach
+    void tearDown() {
+        pool.shutdownNow();
+        if (cache != null) cache.shutdown();
+    }
+
+    @Test
+    void get_ShouldServeAFreshEntryWithoutCallingTheLoader() {
+        cache = new DashboardCache(AnalyticsThreads.platform(), true, 2000, 300_000);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Map<String, Object>> loader = () -> Map.of("load", loads.incrementAndGet());
+
+        assertThat(cache.get("day", loader)).containsEntry("load", 1);
+        assertThat(cache.get("DAY", loader)).containsEntry("load", 1);
+
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats().misses()).isEqualTo(1);
+        assertThat(cache.getStats().hits()).isEqualTo(1);
+    }
+
+    @Test
+    void get_ShouldServeAStaleEntryWhileASingleBackgroundRefreshRuns() throws Exception {
+        cache = new DashboardCache(AnalyticsThreads.platform(), true, 20, 300_000);
+        // A partial response is only kept for min-age-ms, so the entry goes stale without waiting out the TTL
+        cache.get("day", () -> Map.of("load", 0, "partial", true));
+        Thread.sleep(50);
+
+        CountDownLatch refreshing = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Map<String, Object>> loader = () -> {
+            loads.incrementAndGet();
+            refreshing.countDown();
+            awaitLatch(release);
+            return Map.of("load", 1);
+        };
+
+        assertThat(cache.get("day", loader)).containsEntry("load", 0);
+        assertThat(refreshing.await(5, TimeUnit.SECONDS)).isTrue();
+        assertThat(cache.get("day", loader)).containsEntry("load", 0);
+        assertThat(cache.getStats().staleHits()).isEqualTo(2);
+
+        release.countDown();
+        awaitUntil(() -> cache.getStats().refreshes() == 1);
+        assertThat(cache.get("day", loader)).containsEntry("load", 1);
+        assertThat(loads).hasValue(1);
+    }
+
+    @Test
+    void get_ShouldRunOneLoaderForConcurrentMisses() throws Exception {
+        cache = new DashboardCache(AnalyticsThreads.platform(), true, 2000, 300_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Map<String, Object>> loader = () -> {
+            loads.incrementAndGet();
+            loading.countDown();
+            awaitLatch(release);
+            return Map.of("load", 1);
+        };
+
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> cache.get("week", loader), pool);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Map<String, Object>> second = CompletableFuture.supplyAsync(() -> cache.get("week", loader), pool);
+        CompletableFuture<Map<String, Object>> third = CompletableFuture.supplyAsync(() -> cache.get("unknown", loader), pool);
+        awaitUntil(() -> cache.getStats().coalesced() == 2);
+        release.countDown();
+
+        assertThat(first.get(5, TimeUnit.SECONDS)).containsEntry("load", 1);
+        assertThat(second.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(third.get(5, TimeUnit.SECONDS)).isSameAs(first.get());
+        assertThat(loads).hasValue(1);
+        assertThat(cache.getStats().misses()).isEqualTo(3);
+    }
+
+    @Test
+    void invalidateAll_ShouldOnlyMarkEntriesOlderThanMinAgeStale() throws Exception {
+        cache = new DashboardCache(AnalyticsThreads.platform(), true, 100, 300_000);
+        AtomicInteger loads = new AtomicInteger();
+        Supplier<Map<String, Object>> loader = () -> Map.of("load", loads.incrementAndGet());
+        cache.get("month", loader);
+
+        cache.invalidateAll();
+        assertThat(cache.get("month", loader)).containsEntry("load", 1);
+        assertThat(cache.getStats().hits()).isEqualTo(1);
+
+        Thread.sleep(150);
+        assertThat(cache.get("month", loader)).containsEntry("load", 1);
+        assertThat(cache.getStats().staleHits()).isEqualTo(1);
+        awaitUntil(() -> cache.getStats().refreshes() == 1);
+        assertThat(cache.get("month", loader)).containsEntry("load", 2);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void get_ShouldRethrowTheLoaderExceptionToCoalescedWaiters() throws Exception {
+        cache = new DashboardCache(AnalyticsThreads.platform(), true, 2000, 300_000);
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Supplier<Map<String, Object>> failing = () -> {
+            loading.countDown();
+            awaitLatch(release);
+            throw new IllegalStateException("Dashboard query failed");
+        };
+
+        CompletableFuture<Map<String, Object>> first = CompletableFuture.supplyAsync(() -> cache.get("year", failing), pool);
+        assertThat(loading.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Map<String, Object>> waiter = CompletableFuture.supplyAsync(() -> cache.get("year", failing), pool);
+        awaitUntil(() -> cache.getStats().coalesced() == 1);
+        release.countDown();
+
+        for (CompletableFuture<Map<String, Object>> future : List.of(first, waiter)) {
+            assertThatThrownBy(() -> future.get(5, TimeUnit.SECONDS))
+                .isInstanceOf(ExecutionException.class)
+                .cause().isInstanceOf(IllegalStateException.class).hasMessage("Dashboard query failed");
+        }
+        // Nothing was cached, so the next request loads again
+        assertThat(cache.get("year", () -> Map.of("load", 1))).containsEntry("load", 1);
+    }
+
+    private static void awaitLatch(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void awaitUntil(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (!condition.getAsBoolean() && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+        assertThat(condition.getAsBoolean()).isTrue();
+    }
+}
@@ -0,0 +1,47 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.repositories.DrillDownRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DrillDownRepositoryTest {
+
+    private static final String SQL = "SELECT device, COUNT(*) FROM page_view GROUP BY device";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void query_ShouldTurnAQueryCanceledByTheStatementTimeoutIntoQueryTimeoutException() throws Exception {
+        Connection con = mock(Connection.class);
+        PreparedStatement setTimeout = mock(PreparedStatement.class);
+        PreparedStatement breakdown = mock(PreparedStatement.class);
+        when(con.getAutoCommit()).thenReturn(true);
+        when(con.prepareStatement(anyString())).thenReturn(setTimeout);
+        when(con.prepareStatement(SQL)).thenReturn(breakdown);
+        when(breakdown.executeQuery()).thenThrow(new SQLException("canceling statement due to statement timeout", "57014"));
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        when(jdbcTemplate.execute(any(ConnectionCallback.class)))
+            .thenAnswer(invocation -> ((ConnectionCallback<?>) invocation.getArgument(0)).doInConnection(con));
+
+        assertThatThrownBy(() -> new DrillDownRepository(jdbcTemplate).query(SQL, List.of(), 250))
+            .isInstanceOf(QueryTimeoutException.class)
+            .hasMessageContaining("250 ms");
+        verify(setTimeout).setString(1, "250");
+        verify(con).rollback();
+        verify(con).setAutoCommit(eq(true));
+    }
+}
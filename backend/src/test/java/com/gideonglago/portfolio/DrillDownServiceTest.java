@@ -0,0 +1,110 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.repositories.DrillDownRepository;
+import com.gideonglago.portfolio.services.ColumnarEventStore;
+import com.gideonglago.portfolio.services.DrillDownQuery;
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
+import com.gideonglago.portfolio.services.DrillDownResult;
+import com.gideonglago.portfolio.services.DrillDownService;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.QueryTimeoutException;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class DrillDownServiceTest {
+
+    private static final LocalDateTime NOW = LocalDateTime.now().withNano(0);
+
+    private final ColumnarEventStore columnarStore = mock(ColumnarEventStore.class);
+    private final DrillDownRepository drillDownRepository = mock(DrillDownRepository.class);
+    private final DrillDownService service = new DrillDownService(columnarStore, drillDownRepository, 1, 50, 5000);
+
+    @Test
+    void query_ShouldAnswerFromMemoryWhenTheStoreCoversTheRange() {
+        DrillDownQuery query = byDevice(NOW.minusDays(1));
+        DrillDownResult inMemory = new DrillDownResult(DrillDownResult.MEMORY, query.columns(), List.of(), 0, false);
+        when(columnarStore.covers(query)).thenReturn(true);
+        when(columnarStore.query(query)).thenReturn(inMemory);
+
+        assertThat(service.query(query)).isSameAs(inMemory);
+        verify(drillDownRepository, never()).query(anyString(), anyList(), anyLong());
+        assertThat(service.getStats().answeredFromMemory()).isEqualTo(1);
+    }
+
+    @Test
+    void query_ShouldGoToTheDatabaseWhenTheRangeStartsBeforeTheStoreCoverage() {
+        DrillDownQuery query = byDevice(NOW.minusDays(90));
+        when(columnarStore.covers(query)).thenReturn(false);
+        // Grouped value, count, then the total number of groups
+        when(drillDownRepository.query(anyString(), anyList(), eq(5000L)))
+            .thenReturn(List.of(new Object[] { "desktop", 7L, 3L }, new Object[] { "mobile", 2L, 3L }));
+
+        DrillDownResult result = service.query(query);
+
+        assertThat(result.answeredFrom()).isEqualTo(DrillDownResult.DATABASE);
+        assertThat(result.rows()).containsExactly(List.of("desktop", 7L), List.of("mobile", 2L));
+        assertThat(result.groups()).isEqualTo(3);
+        assertThat(result.truncated()).isTrue();
+        verify(columnarStore, never()).query(any());
+        assertThat(service.getStats().answeredFromDatabase()).isEqualTo(1);
+        assertThat(service.getStats().availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void query_ShouldRejectADatabaseQueryWhenEveryPermitIsTaken() throws Exception {
+        CountDownLatch running = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        when(drillDownRepository.query(anyString(), anyList(), anyLong())).thenAnswer(invocation -> {
+            running.countDown();
+            release.await();
+            return List.of();
+        });
+        CompletableFuture<DrillDownResult> first = CompletableFuture.supplyAsync(() -> service.query(byDevice(NOW.minusDays(90))));
+        assertThat(running.await(5, TimeUnit.SECONDS)).isTrue();
+
+        try {
+            assertThatThrownBy(() -> service.query(byDevice(NOW.minusDays(90))))
+                .isInstanceOf(RejectedExecutionException.class);
+            assertThat(service.getStats().rejected()).isEqualTo(1);
+            assertThat(service.getStats().availablePermits()).isZero();
+        } finally {
+            release.countDown();
+        }
+        first.get(5, TimeUnit.SECONDS);
+        assertThat(service.getStats().availablePermits()).isEqualTo(1);
+    }
+
+    @Test
+    void query_ShouldCountATimedOutQueryAndReleaseItsPermit() {
+        when(drillDownRepository.query(anyString(), anyList(), anyLong()))
+            .thenThrow(new QueryTimeoutException("Query ran past the 5000 ms statement timeout"));
+
+        assertThatThrownBy(() -> service.query(byDevice(NOW.minusDays(90))))
+            .isInstanceOf(QueryTimeoutException.class);
+        assertThat(service.getStats().timedOut()).isEqualTo(1);
+        assertThat(service.getStats().availablePermits()).isEqualTo(1);
+    }
+
+    private static DrillDownQuery byDevice(LocalDateTime since) {
+        return new DrillDownQuery(Source.PAGE_VIEWS, since, NOW, Map.of(), List.of(Dimension.DEVICE), null, 2);
+    }
+}
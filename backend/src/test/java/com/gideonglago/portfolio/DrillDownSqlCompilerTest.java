@@ -0,0 +1,61 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.services.DrillDownQuery;
+import com.gideonglago.portfolio.services.DrillDownQuery.Dimension;
+import com.gideonglago.portfolio.services.DrillDownQuery.Source;
+import com.gideonglago.portfolio.services.DrillDownSqlCompiler;
+import com.gideonglago.portfolio.services.TrendGranularity;
+import org.junit.jupiter.api.Test;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class DrillDownSqlCompilerTest {
+
+    private static final LocalDateTime SINCE = LocalDateTime.of(2024, 1, 1, 0, 0);
+    private static final LocalDateTime UNTIL = LocalDateTime.of(2024, 2, 1, 0, 0);
+
+    @Test
+    void compile_ShouldBindEveryRequestValueAndGroupByPosition() {
+        Map<Dimension, Set<String>> filters = new LinkedHashMap<>();
+        filters.put(Dimension.COUNTRY, new LinkedHashSet<>(Arrays.asList("GH", "NG", null)));
+        filters.put(Dimension.DEVICE, Set.of("mobile"));
+
+        DrillDownSqlCompiler.CompiledQuery compiled = DrillDownSqlCompiler.compile(new DrillDownQuery(Source.PAGE_VIEWS,
+            SINCE, UNTIL, filters, List.of(Dimension.BROWSER, Dimension.PAGE), TrendGranularity.DAY, 20));
+
+        assertThat(compiled.sql()).isEqualTo("SELECT browser, page, date_trunc('day', timestamp), COUNT(*), COUNT(*) OVER () "
+            + "FROM page_view WHERE timestamp >= ? AND timestamp < ? AND (country IN (?, ?) OR country IS NULL) "
+            + "AND device IN (?) GROUP BY 1, 2, 3 ORDER BY 3, 4 DESC LIMIT ?");
+        assertThat(compiled.args()).containsExactly(Timestamp.valueOf(SINCE), Timestamp.valueOf(UNTIL), "GH", "NG", "mobile", 20);
+        assertThat(compiled.groupedColumns()).isEqualTo(3);
+    }
+
+    @Test
+    void compile_ShouldRangeSessionsOnStartTimeAndSkipEmptyUngroupedCounts() {
+        DrillDownSqlCompiler.CompiledQuery compiled = DrillDownSqlCompiler.compile(new DrillDownQuery(Source.SESSIONS,
+            SINCE, UNTIL, Map.of(Dimension.RETURNING, Set.of("true")), List.of(), null, 1));
+
+        assertThat(compiled.sql()).isEqualTo("SELECT COUNT(*), COUNT(*) OVER () FROM user_session "
+            + "WHERE start_time >= ? AND start_time < ? AND CAST(is_returning_visitor AS varchar) IN (?) "
+            + "HAVING COUNT(*) > 0 ORDER BY 1 DESC LIMIT ?");
+        assertThat(compiled.groupedColumns()).isZero();
+    }
+
+    @Test
+    void drillDownQuery_ShouldRejectMoreThanTwoGroupByDimensions() {
+        assertThatThrownBy(() -> new DrillDownQuery(Source.PAGE_VIEWS, SINCE, UNTIL, Map.of(),
+            List.of(Dimension.PAGE, Dimension.DEVICE, Dimension.COUNTRY), null, 10))
+            .isInstanceOf(IllegalArgumentException.class)
+            .hasMessageContaining("at most 2");
+    }
+}
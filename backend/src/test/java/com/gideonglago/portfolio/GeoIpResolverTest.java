@@ -0,0 +1,88 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.services.GeoIpResolver;
+import com.gideonglago.portfolio.services.GeoIpTable;
+import com.gideonglago.portfolio.services.GeoIpTableBuilder;
+import com.gideonglago.portfolio.services.GeoLocation;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class GeoIpResolverTest {
+
+    @TempDir
+    private Path dir;
+
+    @Test
+    void build_ShouldProduceSearchableRangeTable() throws Exception {
+        Path csv = dir.resolve("ranges.csv");
+        Files.writeString(csv, """
+                first_ip,last_ip,country,city
+                81.2.69.0,81.2.69.255,United Kingdom,London
+                1.0.0.0,1.0.0.255,Australia,
+                203.0.113.0,203.0.113.127,"Korea, Republic of",Seoul
+                2001:db8::,2001:db8::ffff,Nowhere,Skipped
+                """);
+        Path table = dir.resolve("ranges.bin");
+
+        assertThat(GeoIpTableBuilder.build(csv, table)).isEqualTo(3);
+
+        GeoIpTable geo = GeoIpTable.open(table);
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("81.2.69.160"))).isEqualTo(new GeoLocation("United Kingdom", "London"));
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("1.0.0.0"))).isEqualTo(new GeoLocation("Australia", null));
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("203.0.113.127"))).isEqualTo(new GeoLocation("Korea, Republic of", "Seoul"));
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("203.0.113.128"))).isNull();
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("0.0.0.1"))).isNull();
+        assertThat(geo.lookup(GeoIpTable.parseIpv4("255.255.255.255"))).isNull();
+    }
+
+    @Test
+    void parseIpv4_ShouldRejectNonIpv4Input() {
+        assertThat(GeoIpTable.parseIpv4(" ::ffff:10.1.2.3")).isEqualTo((10 << 24) | (1 << 16) | (2 << 8) | 3);
+        assertThat(GeoIpTable.parseIpv4("256.1.1.1")).isNull();
+        assertThat(GeoIpTable.parseIpv4("1.2.3")).isNull();
+        assertThat(GeoIpTable.parseIpv4("example.com")).isNull();
+        assertThat(GeoIpTable.parseIpv4("2001:db8::1")).isNull();
+    }
+
+    @Test
+    void resolver_ShouldReloadChangedDatabase() throws Exception {
+        Path csv = dir.resolve("geo.csv");
+        Files.writeString(csv, "10.0.0.0,10.0.0.255,Ghana,Accra\n");
+        GeoIpResolver resolver = new GeoIpResolver(csv.toString());
+        resolver.load();
+
+        assertThat(resolver.resolve("10.0.0.7")).isEqualTo(new GeoLocation("Ghana", "Accra"));
+
+        Files.writeString(csv, "10.0.0.0,10.0.0.255,Ghana,Kumasi\n");
+        Files.setLastModifiedTime(csv, FileTime.from(Instant.now().plusSeconds(5)));
+        resolver.reloadIfChanged();
+
+        assertThat(resolver.resolve("10.0.0.7")).isEqualTo(new GeoLocation("Ghana", "Kumasi"));
+        assertThat(new GeoIpResolver("").resolve("10.0.0.7")).isNull();
+    }
+
+    @Test
+    void resolver_ShouldKeepServingWhenTheConfiguredTableIsTruncatedInPlace() throws Exception {
+        Path csv = dir.resolve("geo.csv");
+        Files.writeString(csv, "10.0.0.0,10.0.0.255,Ghana,Accra\n");
+        Path table = dir.resolve("geo.bin");
+        GeoIpTableBuilder.build(csv, table);
+        GeoIpResolver resolver = new GeoIpResolver(table.toString());
+        resolver.load();
+
+        // What cp over the file does first; a lookup through a mapping of this file would hit SIGBUS
+        Files.write(table, new byte[0]);
+
+        assertThat(resolver.resolve("10.0.0.7")).isEqualTo(new GeoLocation("Ghana", "Accra"));
+        Files.setLastModifiedTime(table, FileTime.from(Instant.now().plusSeconds(5)));
+        resolver.reloadIfChanged();
+        assertThat(resolver.resolve("10.0.0.7")).isEqualTo(new GeoLocation("Ghana", "Accra"));
+    }
+}
@@ -0,0 +1,61 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.services.HyperLogLog;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_ShouldStayWithinErrorBoundsForLargeCardinalities() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 200_000; i++) {
+            sketch.add("session-" + i);
+        }
+
+        // Three standard errors
+        assertThat((double) sketch.estimate()).isCloseTo(200_000, within(200_000 * 3 * sketch.relativeStandardError()));
+    }
+
+    @Test
+    void estimate_ShouldBeNearExactForSmallCardinalities() {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = 0; i < 100; i++) {
+            sketch.add("session-" + i);
+            sketch.add("session-" + i);
+        }
+
+        assertThat(sketch.estimate()).isBetween(99L, 101L);
+    }
+
+    @Test
+    void merge_ShouldCountOverlappingValuesOnce() {
+        HyperLogLog first = new HyperLogLog(14);
+        HyperLogLog second = new HyperLogLog(14);
+        for (int i = 0; i < 30_000; i++) {
+            first.add("ip-" + i);
+            second.add("ip-" + (i + 15_000));
+        }
+
+        first.merge(second);
+
+        assertThat((double) first.estimate()).isCloseTo(45_000, within(45_000 * 3 * first.relativeStandardError()));
+    }
+
+    @Test
+    void toBytes_ShouldRoundTripSparseAndDenseSketches() {
+        HyperLogLog sparse = new HyperLogLog(14);
+        HyperLogLog dense = new HyperLogLog(14);
+        for (int i = 0; i < 50_000; i++) {
+            if (i < 20) sparse.add("visitor-" + i);
+            dense.add("visitor-" + i);
+        }
+
+        byte[] sparseBytes = sparse.toBytes();
+        assertThat(sparseBytes.length).isLessThan(100);
+        assertThat(HyperLogLog.fromBytes(sparseBytes).estimate()).isEqualTo(sparse.estimate());
+        assertThat(HyperLogLog.fromBytes(dense.toBytes()).estimate()).isEqualTo(dense.estimate());
+    }
+}
@@ -0,0 +1,169 @@
+package com.gideonglago.portfolio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.config.AnalyticsThreads;
+import com.gideonglago.portfolio.models.ClickEvent;
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.services.LiveEventStream;
+import com.gideonglago.portfolio.services.SessionStateStore;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+
+class LiveEventStreamTest {
+
+    private final CountDownLatch releaseSlowClient = new CountDownLatch(1);
+    private TestStream stream;
+
+    @AfterEach
+    void tearDown() {
+        releaseSlowClient.countDown();
+        if (stream != null) stream.shutdown();
+    }
+
+    @Test
+    void tick_ShouldKeepSendingToOtherClientsWhileOneClientIsBlocked() throws Exception {
+        stream = new TestStream(2, 2, 100);
+        stream.nextEmitter = new BlockingEmitter(releaseSlowClient);
+        assertThat(stream.subscribe()).isNotNull();
+        RecordingEmitter fast = new RecordingEmitter();
+        stream.nextEmitter = fast;
+        assertThat(stream.subscribe()).isNotNull();
+
+        for (int i = 0; i < 5; i++) {
+            stream.tick();
+            assertThat(fast.sent.poll(5, TimeUnit.SECONDS)).as("tick %d", i).isNotNull();
+        }
+        // The blocked client keeps only the newest two queued, plus the one its send may already hold
+        assertThat(stream.getStats().messagesDropped()).isBetween(2L, 3L);
+    }
+
+    @Test
+    void tick_ShouldCountEveryEventPastThePerTickLimit() throws Exception {
+        stream = new TestStream(1, 4, 2);
+        RecordingEmitter client = new RecordingEmitter();
+        stream.nextEmitter = client;
+        stream.subscribe();
+
+        stream.onPageViews(IntStream.range(0, 5).mapToObj(i -> new PageView("/p" + i, null, null, null, "s")).toList());
+        stream.onClicks(List.of(new ClickEvent("s", "/", "link", "a", null), new ClickEvent("s", "/", "link", "b", null)));
+        stream.tick();
+
+        String message = client.sent.poll(5, TimeUnit.SECONDS);
+        assertThat(message).contains("\"omittedEvents\":5").contains("/p0").contains("/p1").doesNotContain("/p2");
+        assertThat(stream.getStats().eventsOmitted()).isEqualTo(5);
+    }
+
+    @Test
+    void subscribe_ShouldNotExceedMaxClientsWhenClientsConnectConcurrently() throws Exception {
+        stream = new TestStream(5, 4, 100);
+        ExecutorService pool = Executors.newFixedThreadPool(20);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<SseEmitter>> results = new ArrayList<>();
+        try {
+            for (int i = 0; i < 20; i++) {
+                results.add(pool.submit(() -> {
+                    start.await();
+                    return stream.subscribe();
+                }));
+            }
+            start.countDown();
+
+            int accepted = 0;
+            for (Future<SseEmitter> result : results) {
+                if (result.get(5, TimeUnit.SECONDS) != null) accepted++;
+            }
+            assertThat(accepted).isEqualTo(5);
+            assertThat(stream.getStats().clients()).isEqualTo(5);
+            assertThat(stream.getStats().rejectedClients()).isEqualTo(15);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void subscribe_ShouldFreeTheSlotOfAClientWhoseSendFailed() throws Exception {
+        stream = new TestStream(1, 4, 100);
+        stream.nextEmitter = new RecordingEmitter() {
+            @Override
+            public void send(SseEventBuilder builder) throws IOException {
+                throw new IOException("Broken pipe");
+            }
+        };
+        stream.subscribe();
+        assertThat(stream.subscribe()).isNull();
+
+        stream.tick();
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+        while (stream.getStats().clients() > 0 && System.nanoTime() < deadline) {
+            Thread.sleep(10);
+        }
+
+        assertThat(stream.subscribe()).isNotNull();
+    }
+
+    // Hands out the emitter a test set up instead of a servlet-backed one
+    private static class TestStream extends LiveEventStream {
+
+        volatile SseEmitter nextEmitter;
+
+        TestStream(int maxClients, int clientBufferTicks, int maxEventsPerTick) {
+            super(new ObjectMapper().findAndRegisterModules(), mock(SessionStateStore.class), AnalyticsThreads.platform(),
+                60_000, maxClients, clientBufferTicks, maxEventsPerTick, 60);
+        }
+
+        @Override
+        protected SseEmitter createEmitter(long timeoutMillis) {
+            SseEmitter emitter = nextEmitter;
+            return emitter != null ? emitter : new RecordingEmitter();
+        }
+    }
+
+    // Keeps the data of every tick event it is asked to send
+    private static class RecordingEmitter extends SseEmitter {
+
+        final BlockingQueue<String> sent = new LinkedBlockingQueue<>();
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            StringBuilder data = new StringBuilder();
+            builder.build().forEach(part -> data.append(part.getData()));
+            if (data.indexOf("event:tick") >= 0) sent.add(data.toString());
+        }
+    }
+
+    // A client whose connection stopped reading: every send blocks until released
+    private static class BlockingEmitter extends SseEmitter {
+
+        private final CountDownLatch release;
+
+        BlockingEmitter(CountDownLatch release) {
+            this.release = release;
+        }
+
+        @Override
+        public void send(SseEventBuilder builder) throws IOException {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException(e);
+            }
+        }
+    }
+}
@@ -1,27 +1,43 @@
 package com.gideonglago.portfolio;
 
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.config.SecurityConfig;
 import com.gideonglago.portfolio.controllers.ProjectController;
+import com.gideonglago.portfolio.dto.ProjectView;
 import com.gideonglago.portfolio.models.Project;
+import com.gideonglago.portfolio.repositories.ProjectRepository;
+import com.gideonglago.portfolio.services.ProjectNotFoundException;
 import com.gideonglago.portfolio.services.ProjectService;
+import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.transaction.PlatformTransactionManager;
 
 import java.util.Arrays;
 import java.util.List;
+import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.doNothing;
+import static org.mockito.Mockito.doReturn;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
 
 @WebMvcTest(ProjectController.class)
+@Import(SecurityConfig.class)
 class ProjectControllerTest {
 
     @Autowired
@@ -30,9 +46,20 @@ class ProjectControllerTest {
     @SpyBean
     private ProjectService projectService;
 
+    @MockBean
+    private ProjectRepository projectRepository;
+
+    @MockBean
+    private PlatformTransactionManager transactionManager;
+
     @Autowired
     private ObjectMapper objectMapper;
 
+    @BeforeEach
+    void resetCatalogue() {
+        projectService.invalidateCatalogue();
+    }
+
     @Test
     void getAllProjects_ShouldReturnProjects() throws Exception {
         Project testProject = new Project();
@@ -44,8 +71,8 @@ class ProjectControllerTest {
         testProject.setDemoUrl("https://demo.test");
         testProject.setImages(Arrays.asList("image1.jpg", "image2.jpg"));
 
-        List<Project> projects = Arrays.asList(testProject);
-        when(projectService.findAll()).thenReturn(projects);
+        List<ProjectView> projects = Arrays.asList(ProjectView.from(testProject));
+        doReturn(projects).when(projectService).findAll();
 
         mockMvc.perform(get("/api/projects"))
                 .andExpect(status().isOk())
@@ -54,6 +81,48 @@ class ProjectControllerTest {
                 .andExpect(jsonPath("$[0].title").value("Test Project"));
     }
 
+    @Test
+    void getAllProjects_WithMatchingETag_ShouldReturnNotModified() throws Exception {
+        Project testProject = new Project();
+        testProject.setId(1L);
+        testProject.setTitle("Test Project");
+        doReturn(List.of(ProjectView.from(testProject))).when(projectService).findAll();
+
+        String etag = mockMvc.perform(get("/api/projects"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "max-age=60, must-revalidate, public"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(get("/api/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified())
+                .andExpect(header().string(HttpHeaders.ETAG, etag))
+                .andExpect(content().string(""));
+
+        // Served from the snapshot: the projects were only loaded once
+        verify(projectService, times(1)).findAll();
+    }
+
+    @Test
+    @WithMockUser(username = "dev", password = "devpass", roles = "DEV")
+    void deleteProject_ShouldInvalidateCatalogue() throws Exception {
+        Project testProject = new Project();
+        testProject.setId(1L);
+        testProject.setTitle("Test Project");
+        doReturn(List.of(ProjectView.from(testProject))).when(projectService).findAll();
+        when(projectRepository.findById(1L)).thenReturn(Optional.of(testProject));
+
+        String etag = mockMvc.perform(get("/api/projects"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+
+        mockMvc.perform(delete("/api/projects/1"))
+                .andExpect(status().isNoContent());
+        doReturn(List.of()).when(projectService).findAll();
+
+        mockMvc.perform(get("/api/projects").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isOk())
+                .andExpect(content().json("[]"));
+    }
+
     @Test
     void getProjectById_ShouldReturnProject() throws Exception {
         Project testProject = new Project();
@@ -65,7 +134,7 @@ class ProjectControllerTest {
         testProject.setDemoUrl("https://demo.test");
         testProject.setImages(Arrays.asList("image1.jpg", "image2.jpg"));
 
-        when(projectService.findById(1L)).thenReturn(testProject);
+        doReturn(ProjectView.from(testProject)).when(projectService).findById(1L);
 
         mockMvc.perform(get("/api/projects/1"))
                 .andExpect(status().isOk())
@@ -76,10 +145,28 @@ class ProjectControllerTest {
 
     @Test
     void getProjectById_ShouldReturnNotFound() throws Exception {
-        when(projectService.findById(999L)).thenThrow(new RuntimeException("Project not found with id 999"));
+        doThrow(new RuntimeException("Project not found with id 999")).when(projectService).findById(999L);
 
         mockMvc.perform(get("/api/projects/999"))
-                .andExpect(status().isInternalServerError());
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Internal server error"));
+    }
+
+    @Test
+    void getProjectById_WhenFailureHasNoMessage_ShouldReturnGenericError() throws Exception {
+        doThrow(new NullPointerException()).when(projectService).findById(997L);
+
+        mockMvc.perform(get("/api/projects/997"))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.error").value("Internal server error"));
+    }
+
+    @Test
+    void getProjectById_WhenMissing_ShouldReturnNotFound() throws Exception {
+        doThrow(new ProjectNotFoundException(998L)).when(projectService).findById(998L);
+
+        mockMvc.perform(get("/api/projects/998"))
+                .andExpect(status().isNotFound());
     }
 
     @Test
@@ -93,7 +180,7 @@ class ProjectControllerTest {
         newProject.setDemoUrl("https://demo.new");
         newProject.setImages(Arrays.asList("new-image.jpg"));
 
-        when(projectService.create(any(Project.class))).thenReturn(newProject);
+        doReturn(newProject).when(projectService).create(any(Project.class));
 
         mockMvc.perform(post("/api/projects")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -114,7 +201,7 @@ class ProjectControllerTest {
         updatedProject.setDemoUrl("https://demo.updated");
         updatedProject.setImages(Arrays.asList("updated-image.jpg"));
 
-        when(projectService.update(anyLong(), any(Project.class))).thenReturn(updatedProject);
+        doReturn(updatedProject).when(projectService).update(anyLong(), any(Project.class));
 
         mockMvc.perform(put("/api/projects/1")
                 .contentType(MediaType.APPLICATION_JSON)
@@ -126,6 +213,8 @@ class ProjectControllerTest {
     @Test
     @WithMockUser(username = "dev", password = "devpass", roles = "DEV")
     void deleteProject_ShouldReturnNoContent() throws Exception {
+        doNothing().when(projectService).delete(1L);
+
         mockMvc.perform(delete("/api/projects/1"))
                 .andExpect(status().isNoContent());
     }
@@ -0,0 +1,75 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.dto.ProjectView;
+import com.gideonglago.portfolio.models.Project;
+import com.gideonglago.portfolio.repositories.ProjectRepository;
+import jakarta.persistence.EntityManager;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+// Runs on an embedded H2 database; the Flyway migrations are PostgreSQL-specific, so the schema is generated
+@DataJpaTest(properties = {
+        "spring.flyway.enabled=false",
+        "spring.jpa.hibernate.ddl-auto=create-drop",
+        "spring.jpa.properties.hibernate.dialect=org.hibernate.dialect.H2Dialect",
+        "spring.jpa.properties.hibernate.generate_statistics=true"
+})
+class ProjectRepositoryTest {
+
+    @Autowired
+    private ProjectRepository projectRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    private Statistics statistics;
+
+    @BeforeEach
+    void setUp() {
+        for (int i = 1; i <= 5; i++) {
+            Project project = new Project();
+            project.setTitle("Project " + i);
+            project.setTechStack(List.of("Java", "Spring Boot", "PostgreSQL"));
+            project.setImages(List.of("image" + i + "a.jpg", "image" + i + "b.jpg"));
+            projectRepository.save(project);
+        }
+        entityManager.flush();
+        entityManager.clear();
+
+        statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+    }
+
+    @Test
+    void findAllWithCollections_ShouldLoadCatalogueInTwoStatements() {
+        List<ProjectView> views = projectRepository.findAllWithCollections().stream().map(ProjectView::from).toList();
+
+        assertThat(views).hasSize(5);
+        assertThat(views).allSatisfy(view -> {
+            assertThat(view.techStack()).containsExactlyInAnyOrder("Java", "Spring Boot", "PostgreSQL");
+            assertThat(view.images()).hasSize(2);
+        });
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+
+    @Test
+    void findWithCollectionsById_ShouldLoadDetailInTwoStatements() {
+        Long id = projectRepository.findAll().get(0).getId();
+        entityManager.clear();
+        statistics.clear();
+
+        ProjectView view = projectRepository.findWithCollectionsById(id).map(ProjectView::from).orElseThrow();
+
+        assertThat(view.techStack()).hasSize(3);
+        assertThat(view.images()).hasSize(2);
+        assertThat(statistics.getPrepareStatementCount()).isEqualTo(2);
+    }
+}
@@ -0,0 +1,86 @@
+package com.gideonglago.portfolio;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.gideonglago.portfolio.models.Project;
+import com.gideonglago.portfolio.repositories.ProjectRepository;
+import com.gideonglago.portfolio.services.ProjectService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ProjectServiceTest {
+
+    private final ProjectRepository projectRepository = mock(ProjectRepository.class);
+    private final PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+    private final ProjectService projectService = new ProjectService(projectRepository, new ObjectMapper(), transactionManager);
+
+    @AfterEach
+    void clearSynchronization() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    @Test
+    void create_ShouldKeepTheCatalogueUntilTheWriteCommits() {
+        when(projectRepository.findAllWithCollections()).thenReturn(List.of(project("Before")));
+        when(projectRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        ProjectService.Catalogue before = projectService.catalogue();
+
+        // Stands in for the transaction the @Transactional proxy opens around create
+        TransactionSynchronizationManager.initSynchronization();
+        projectService.create(project("After"));
+        when(projectRepository.findAllWithCollections()).thenReturn(List.of(project("Before"), project("After")));
+        assertThat(projectService.catalogue()).isSameAs(before);
+
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(TransactionSynchronization::afterCommit);
+
+        assertThat(new String(projectService.catalogue().json())).contains("Before").contains("After");
+    }
+
+    @Test
+    void create_ShouldKeepTheCatalogueWhenTheWriteRollsBack() {
+        when(projectRepository.findAllWithCollections()).thenReturn(List.of(project("Before")));
+        when(projectRepository.save(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        ProjectService.Catalogue before = projectService.catalogue();
+
+        TransactionSynchronizationManager.initSynchronization();
+        projectService.create(project("After"));
+        List<TransactionSynchronization> synchronizations = TransactionSynchronizationManager.getSynchronizations();
+        TransactionSynchronizationManager.clearSynchronization();
+        synchronizations.forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_ROLLED_BACK));
+
+        assertThat(projectService.catalogue()).isSameAs(before);
+    }
+
+    @Test
+    void catalogue_ShouldOpenATransactionOnlyToRebuildTheSnapshot() {
+        when(projectRepository.findAllWithCollections()).thenReturn(List.of(project("Cached")));
+
+        ProjectService.Catalogue first = projectService.catalogue();
+        assertThat(projectService.catalogue()).isSameAs(first);
+        assertThat(projectService.catalogue()).isSameAs(first);
+
+        verify(transactionManager, times(1)).getTransaction(any());
+        verify(projectRepository, times(1)).findAllWithCollections();
+    }
+
+    private static Project project(String title) {
+        Project project = new Project();
+        project.setTitle(title);
+        return project;
+    }
+}
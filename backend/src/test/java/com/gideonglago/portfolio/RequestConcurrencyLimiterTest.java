@@ -0,0 +1,88 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.config.RequestConcurrencyLimiter;
+import com.gideonglago.portfolio.config.VirtualThreadConfig;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.handler.MappedInterceptor;
+import org.springframework.web.util.ServletRequestPathUtils;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RequestConcurrencyLimiterTest {
+
+    private final RequestConcurrencyLimiter limiter = new RequestConcurrencyLimiter(1, 50);
+
+    @Test
+    void preHandle_ShouldHandOutAPermitThatAfterCompletionReleases() throws Exception {
+        MockHttpServletRequest first = new MockHttpServletRequest("GET", "/api/projects");
+        assertThat(limiter.preHandle(first, new MockHttpServletResponse(), null)).isTrue();
+
+        limiter.afterCompletion(first, new MockHttpServletResponse(), null, null);
+
+        assertThat(limiter.preHandle(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(), null)).isTrue();
+        assertThat(limiter.getRejected()).isZero();
+    }
+
+    @Test
+    void preHandle_ShouldAnswer503WithRetryAfterWhenNoPermitFreesUpInTime() throws Exception {
+        assertThat(limiter.preHandle(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(), null)).isTrue();
+
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        assertThat(limiter.preHandle(new MockHttpServletRequest("GET", "/api/projects"), response, null)).isFalse();
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader(HttpHeaders.RETRY_AFTER)).isEqualTo("1");
+        assertThat(response.getContentAsString()).isEqualTo("{\"error\":\"Server is busy\"}");
+        assertThat(limiter.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void afterCompletion_ShouldNotReleaseForARequestThatNeverGotAPermit() throws Exception {
+        MockHttpServletRequest admitted = new MockHttpServletRequest("GET", "/api/projects");
+        assertThat(limiter.preHandle(admitted, new MockHttpServletResponse(), null)).isTrue();
+        MockHttpServletRequest rejected = new MockHttpServletRequest("GET", "/api/projects");
+        assertThat(limiter.preHandle(rejected, new MockHttpServletResponse(), null)).isFalse();
+
+        limiter.afterCompletion(rejected, new MockHttpServletResponse(), null, null);
+
+        // The admitted request still holds the only permit
+        assertThat(limiter.preHandle(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(), null)).isFalse();
+        limiter.afterCompletion(admitted, new MockHttpServletResponse(), null, null);
+        assertThat(limiter.preHandle(new MockHttpServletRequest("GET", "/api/projects"), new MockHttpServletResponse(), null)).isTrue();
+    }
+
+    @Test
+    void addInterceptors_ShouldLimitApiRequestsExceptTheEventStream() {
+        ExposedInterceptorRegistry registry = new ExposedInterceptorRegistry();
+        new VirtualThreadConfig(0, 10, 2000).addInterceptors(registry);
+
+        List<Object> interceptors = registry.interceptors();
+        assertThat(interceptors).hasSize(1);
+        MappedInterceptor mapped = (MappedInterceptor) interceptors.get(0);
+        assertThat(mapped.getInterceptor()).isInstanceOf(RequestConcurrencyLimiter.class);
+        assertThat(mapped.matches(request("/api/analytics/track/pageview"))).isTrue();
+        assertThat(mapped.matches(request("/api/projects/1"))).isTrue();
+        assertThat(mapped.matches(request("/api/analytics/stream"))).isFalse();
+        assertThat(mapped.matches(request("/actuator/health"))).isFalse();
+    }
+
+    private static MockHttpServletRequest request(String path) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", path);
+        ServletRequestPathUtils.parseAndCache(request);
+        return request;
+    }
+
+    // Exposes the interceptors VirtualThreadConfig registers
+    private static class ExposedInterceptorRegistry extends InterceptorRegistry {
+
+        List<Object> interceptors() {
+            return getInterceptors();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.AnalyticsRollup;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository.DailyPartition;
+import com.gideonglago.portfolio.repositories.EventPartitionRepository.DroppedPartition;
+import com.gideonglago.portfolio.repositories.UserSessionBatchRepository;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository;
+import com.gideonglago.portfolio.services.RetentionService;
+import com.gideonglago.portfolio.services.RetentionService.RetentionReport;
+import com.gideonglago.portfolio.services.VisitorIndex;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class RetentionServiceTest {
+
+    private final EventPartitionRepository partitionRepository = mock(EventPartitionRepository.class);
+    private final UserSessionBatchRepository userSessionBatchRepository = mock(UserSessionBatchRepository.class);
+    private final AnalyticsRollupRepository rollupRepository = mock(AnalyticsRollupRepository.class);
+    private final VisitorSketchRepository sketchRepository = mock(VisitorSketchRepository.class);
+    private final VisitorIndex visitorIndex = mock(VisitorIndex.class);
+    private final RetentionService retentionService = new RetentionService(partitionRepository, userSessionBatchRepository,
+        rollupRepository, sketchRepository, visitorIndex, 90, 7, true);
+
+    private final LocalDate today = LocalDate.now();
+    private final LocalDate firstKeptDay = today.minusDays(90);
+    private final LocalDateTime cutoff = firstKeptDay.atStartOfDay();
+
+    @Test
+    void enforceRetention_ShouldDropOnlyPartitionsOlderThanTheFirstKeptDay() {
+        DailyPartition expiredPageViews = partition("page_view", firstKeptDay.minusDays(1));
+        DailyPartition keptPageViews = partition("page_view", firstKeptDay);
+        DailyPartition todaysPageViews = partition("page_view", today);
+        DailyPartition expiredClicks = partition("click_event", firstKeptDay.minusDays(10));
+        when(partitionRepository.findDailyPartitions("page_view")).thenReturn(List.of(expiredPageViews, keptPageViews, todaysPageViews));
+        when(partitionRepository.findDailyPartitions("click_event")).thenReturn(List.of(expiredClicks));
+        when(partitionRepository.drop(expiredPageViews)).thenReturn(dropped(expiredPageViews, 1200, 81920));
+        when(partitionRepository.drop(expiredClicks)).thenReturn(dropped(expiredClicks, 300, 16384));
+
+        RetentionReport report = retentionService.enforceRetention();
+
+        verify(partitionRepository, never()).drop(keptPageViews);
+        verify(partitionRepository, never()).drop(todaysPageViews);
+        assertThat(report.cutoff()).isEqualTo(cutoff);
+        assertThat(report.droppedPartitions()).extracting(DroppedPartition::name)
+            .containsExactly(expiredPageViews.name(), expiredClicks.name());
+        assertThat(report.partitionRowsReclaimed()).isEqualTo(1500);
+        assertThat(report.partitionBytesReclaimed()).isEqualTo(98304);
+        assertThat(retentionService.getLastReport()).isSameAs(report);
+    }
+
+    @Test
+    void enforceRetention_ShouldDeleteExpiredRowsFromEachDefaultPartition() {
+        when(partitionRepository.findDailyPartitions(any())).thenReturn(List.of());
+        when(partitionRepository.deleteFromDefaultPartition("page_view", cutoff)).thenReturn(4);
+        when(partitionRepository.deleteFromDefaultPartition("click_event", cutoff)).thenReturn(3);
+        when(userSessionBatchRepository.deleteStartedBefore(cutoff)).thenReturn(2);
+        when(rollupRepository.deleteBefore(AnalyticsRollup.HOUR, cutoff)).thenReturn(24);
+
+        RetentionReport report = retentionService.enforceRetention();
+
+        assertThat(report.droppedPartitions()).isEmpty();
+        assertThat(report.defaultPartitionRowsDeleted()).isEqualTo(7);
+        assertThat(report.sessionsDeleted()).isEqualTo(2);
+        assertThat(report.hourlyRollupsDeleted()).isEqualTo(24);
+        verify(visitorIndex).expireBefore(cutoff);
+        verify(sketchRepository).deleteBefore(AnalyticsRollup.HOUR, cutoff);
+    }
+
+    @Test
+    void ensurePartitions_ShouldCreateTheDaysAheadForEveryTableEvenWhenOneFails() {
+        when(partitionRepository.createDailyPartitions("page_view", today, today.plusDays(7)))
+            .thenThrow(new IllegalStateException("lock timeout"));
+
+        retentionService.ensurePartitions();
+
+        verify(partitionRepository).createDailyPartitions("click_event", today, today.plusDays(7));
+    }
+
+    private static DailyPartition partition(String table, LocalDate day) {
+        return new DailyPartition(table, table + "_p" + day.toString().replace("-", ""), day);
+    }
+
+    private static DroppedPartition dropped(DailyPartition partition, long rows, long bytes) {
+        return new DroppedPartition(partition.name(), partition.day(), rows, bytes);
+    }
+}
@@ -0,0 +1,121 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.services.SessionPathService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SessionPathServiceTest {
+
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    void funnel_ShouldCountSessionsReachingEachStepInOrder() {
+        SessionPathService service = new SessionPathService(null, 35, 64, 1000);
+        service.onPageViews(path("a", "/", "/projects", "/blog", "/contact"));
+        service.onPageViews(path("b", "/", "/projects"));
+        service.onPageViews(path("c", "/contact", "/", "/about"));
+        service.onPageViews(path("d", "/blog"));
+
+        SessionPathService.Funnel funnel = service.funnel(List.of("/", "/projects", "/contact"),
+            now.minusHours(1), now.plusHours(1));
+
+        assertThat(funnel.sessions()).isEqualTo(4);
+        assertThat(funnel.steps()).extracting(SessionPathService.FunnelStep::sessions).containsExactly(3L, 2L, 1L);
+        assertThat(funnel.steps().get(1).fromPrevious()).isEqualTo(2.0 / 3);
+        assertThat(funnel.steps().get(2).fromStart()).isEqualTo(1.0 / 3);
+
+        assertThatThrownBy(() -> service.funnel(List.of(), now.minusHours(1), now))
+            .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void topPaths_ShouldCollapseReloadsAndCountPathPrefixesOnce() {
+        SessionPathService service = new SessionPathService(null, 35, 64, 1000);
+        service.onPageViews(path("a", "/", "/", "/projects"));
+        // The second batch extends session b's path, so its earlier one-page path no longer counts
+        service.onPageViews(path("b", "/"));
+        service.onPageViews(path("b", "/projects"));
+        service.onPageViews(path("c", "/"));
+
+        List<SessionPathService.PathCount> paths = service.topPaths(now.minusHours(1), now.plusHours(1), 10).paths();
+
+        assertThat(paths).containsExactly(
+            new SessionPathService.PathCount(List.of("/", "/projects"), 2),
+            new SessionPathService.PathCount(List.of("/"), 1));
+        assertThat(service.getStats().sessions()).isEqualTo(3);
+        assertThat(service.getStats().steps()).isEqualTo(5);
+    }
+
+    @Test
+    void topTransitions_ShouldFilterByFromPageAndCapPathLength() {
+        SessionPathService service = new SessionPathService(null, 35, 3, 1000);
+        service.onPageViews(path("a", "/", "/projects", "/contact", "/blog"));
+        service.onPageViews(path("b", "/", "/projects"));
+        service.onPageViews(path("c", "/", "/about"));
+
+        assertThat(service.topTransitions("/", now.minusHours(1), now.plusHours(1), 10).transitions()).containsExactly(
+            new SessionPathService.TransitionCount("/", "/projects", 2),
+            new SessionPathService.TransitionCount("/", "/about", 1));
+        assertThat(service.topTransitions(null, now.minusHours(1), now.plusHours(1), 10).transitions()).hasSize(3);
+        assertThat(service.topTransitions("/missing", now.minusHours(1), now.plusHours(1), 10).transitions()).isEmpty();
+        assertThat(service.getStats().droppedSteps()).isEqualTo(1);
+    }
+
+    @Test
+    void onPageViews_ShouldIgnoreLaterPageViewsOfAnEvictedSession() {
+        SessionPathService service = new SessionPathService(null, 35, 64, 2);
+        service.onPageViews(path("a", "/"));
+        service.onPageViews(path("b", "/"));
+        service.onPageViews(path("c", "/"));
+        service.onPageViews(path("a", "/projects"));
+
+        assertThat(service.getStats().sessions()).isEqualTo(2);
+        assertThat(service.getStats().evictedSessions()).isEqualTo(1);
+        assertThat(service.getStats().droppedSteps()).isEqualTo(1);
+        // Session a still counts once, with the path it had when it was evicted
+        assertThat(service.topPaths(now.minusHours(1), now.plusHours(1), 10).paths())
+            .containsExactly(new SessionPathService.PathCount(List.of("/"), 3));
+        assertThat(service.topTransitions(null, now.minusHours(1), now.plusHours(1), 10).transitions()).isEmpty();
+    }
+
+    @Test
+    void evictExpired_ShouldForgetExpiredPagesAndReportWhereTheCountersStart() {
+        SessionPathService service = new SessionPathService(null, 35, 64, 1000);
+        service.onPageViews(path("old", now.minusDays(40), "/old", "/older"));
+        service.onPageViews(path("new", now, "/", "/projects"));
+        assertThat(service.getStats().pages()).isEqualTo(4);
+
+        service.evictExpired();
+
+        assertThat(service.getStats().pages()).isEqualTo(2);
+        assertThat(service.getStats().days()).isEqualTo(1);
+        SessionPathService.TopTransitions transitions = service.topTransitions(null, now.minusDays(60), now.plusHours(1), 10);
+        assertThat(transitions.transitions()).containsExactly(new SessionPathService.TransitionCount("/", "/projects", 1));
+        assertThat(transitions.from()).isAfter(now.minusDays(35).minusMinutes(1));
+        assertThat(service.topPaths(now.minusDays(60), now.plusHours(1), 10).paths())
+            .containsExactly(new SessionPathService.PathCount(List.of("/", "/projects"), 1));
+        assertThat(service.funnel(List.of("/", "/projects"), now.minusHours(1), now.plusHours(1)).steps())
+            .extracting(SessionPathService.FunnelStep::sessions).containsExactly(1L, 1L);
+    }
+
+    private List<PageView> path(String sessionId, String... pages) {
+        return path(sessionId, now, pages);
+    }
+
+    private List<PageView> path(String sessionId, LocalDateTime start, String... pages) {
+        List<PageView> views = new ArrayList<>(pages.length);
+        for (int i = 0; i < pages.length; i++) {
+            PageView pv = new PageView(pages[i], null, null, null, sessionId);
+            pv.setTimestamp(start.plusSeconds(i));
+            views.add(pv);
+        }
+        return views;
+    }
+}
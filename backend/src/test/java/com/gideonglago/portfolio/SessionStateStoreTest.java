@@ -0,0 +1,99 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.UserSessionBatchRepository;
+import com.gideonglago.portfolio.repositories.UserSessionRepository;
+import com.gideonglago.portfolio.services.AnalyticsRollupService;
+import com.gideonglago.portfolio.services.SessionStateStore;
+import com.gideonglago.portfolio.services.VisitorIndex;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.argThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class SessionStateStoreTest {
+
+    private final UserSessionRepository userSessionRepository = mock(UserSessionRepository.class);
+    private final UserSessionBatchRepository batchRepository = mock(UserSessionBatchRepository.class);
+    private final AnalyticsRollupService rollupService = mock(AnalyticsRollupService.class);
+    // Sessions are idle as soon as they are checkpointed
+    private final SessionStateStore store = new SessionStateStore(userSessionRepository, batchRepository,
+        rollupService, mock(VisitorIndex.class), 0);
+
+    @Test
+    void checkpoint_ShouldKeepAnEvictedSessionThatSeesAPageViewWhileItIsWritten() {
+        store.onPageViews(List.of(pageView("/", LocalDateTime.now().minusMinutes(5))));
+        when(batchRepository.insertSessions(anyList())).thenAnswer(invocation -> {
+            // Arrives after the session was marked evicting, before its write commits
+            store.onPageViews(List.of(pageView("/projects", LocalDateTime.now().plusMinutes(1))));
+            return Map.of("session-1", 7L);
+        });
+
+        store.checkpoint();
+
+        assertThat(store.activeSessionCount()).isEqualTo(1);
+        // Only the first page view looked the session up
+        verify(userSessionRepository, times(1)).findBySessionId(anyString());
+        verify(rollupService, times(1)).recordSessionStart(any(), any(), any(), any(Boolean.class));
+        verify(rollupService).recordSessionReopened(any(), anyInt(), any(), any());
+    }
+
+    @Test
+    void checkpoint_ShouldRetryAnEvictedSessionWhoseWriteFailed() {
+        store.onPageViews(List.of(pageView("/", LocalDateTime.now().minusMinutes(5))));
+        when(batchRepository.insertSessions(anyList()))
+            .thenThrow(new IllegalStateException("connection lost"))
+            .thenReturn(Map.of("session-1", 7L));
+
+        store.checkpoint();
+        // Still in memory, so this page view updates it instead of starting a second session
+        store.onPageViews(List.of(pageView("/about", LocalDateTime.now().minusMinutes(4))));
+        store.checkpoint();
+
+        verify(batchRepository, times(2)).insertSessions(anyList());
+        // Only the first page view looked the session up
+        verify(userSessionRepository, times(1)).findBySessionId(anyString());
+        verify(rollupService, times(1)).recordSessionStart(any(), any(), any(), any(Boolean.class));
+        assertThat(store.activeSessionCount()).isZero();
+    }
+
+    @Test
+    void checkpoint_ShouldNotBlockIngestionWhileNewSessionsAreInserted() {
+        store.onPageViews(List.of(pageView("/", LocalDateTime.now())));
+        when(batchRepository.insertSessions(anyList())).thenAnswer(invocation -> {
+            // The ingestion writer is another thread; it would block if the insert ran under the session's monitor
+            Thread writer = new Thread(() -> store.onPageViews(List.of(pageView("/projects", LocalDateTime.now()))));
+            writer.start();
+            writer.join(TimeUnit.SECONDS.toMillis(5));
+            assertThat(writer.isAlive()).isFalse();
+            return Map.of("session-1", 7L);
+        });
+
+        store.checkpoint();
+        store.checkpoint();
+
+        // The page view that arrived during the insert is written by the next checkpoint as an update
+        verify(batchRepository, times(1)).insertSessions(argThat(sessions -> !sessions.isEmpty()));
+        verify(batchRepository).updateSessions(argThat(updates -> updates.size() == 1
+            && updates.get(0).id() == 7L && updates.get(0).pageViews() == 2 && updates.get(0).newPages().equals(List.of("/projects"))));
+    }
+
+    private static PageView pageView(String page, LocalDateTime at) {
+        PageView pv = new PageView(page, null, null, "203.0.113.9", "session-1");
+        pv.setTimestamp(at);
+        return pv;
+    }
+}
@@ -0,0 +1,125 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.models.PageView;
+import com.gideonglago.portfolio.repositories.AnalyticsRollupRepository.BucketRange;
+import com.gideonglago.portfolio.repositories.VisitorSketchRepository;
+import com.gideonglago.portfolio.services.UniqueVisitorService;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UniqueVisitorServiceTest {
+
+    // Before the service's backfill cutoff, so backfilled and live page views share their hour and day buckets
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @Test
+    void estimate_ShouldIncludeUnflushedAndFlushedSessions() {
+        InMemorySketchRepository repository = new InMemorySketchRepository();
+        UniqueVisitorService service = new UniqueVisitorService(repository);
+
+        service.onPageViews(List.of(pageView("a", now), pageView("b", now)));
+        assertThat(service.estimate(UniqueVisitorService.Metric.VISITORS, now.minusDays(1), now.plusHours(1)).estimate()).isEqualTo(2);
+
+        service.flush();
+        service.onPageViews(List.of(pageView("b", now), pageView("c", now)));
+        assertThat(service.estimate(UniqueVisitorService.Metric.VISITORS, now.minusDays(1), now.plusHours(1)).estimate()).isEqualTo(3);
+        assertThat(repository.sketches).isNotEmpty();
+    }
+
+    @Test
+    void flush_ShouldWaitForABackfillWriteOnTheSameBuckets() throws Exception {
+        InMemorySketchRepository repository = new InMemorySketchRepository();
+        UniqueVisitorService service = new UniqueVisitorService(repository);
+        service.onPageViews(List.of(pageView("live", now)));
+
+        // The flush starts while backfill sits between loading the stored sketches and writing its merge
+        AtomicReference<Thread> flusher = new AtomicReference<>();
+        repository.onFirstLoad = () -> {
+            Thread thread = new Thread(service::flush);
+            flusher.set(thread);
+            thread.start();
+            try {
+                thread.join(200);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+        repository.firstPageView = now;
+        service.backfillIfEmpty();
+        flusher.get().join(5000);
+
+        assertThat(service.estimate(UniqueVisitorService.Metric.VISITORS, now.minusDays(1), now.plusHours(1)).estimate()).isEqualTo(2);
+    }
+
+    private static PageView pageView(String sessionId, LocalDateTime at) {
+        PageView pv = new PageView("/", null, null, "198.51.100." + sessionId.length(), sessionId);
+        pv.setTimestamp(at);
+        return pv;
+    }
+
+    // visitor_sketch in a map; the backfill source is a single page view of session "backfilled"
+    private static class InMemorySketchRepository extends VisitorSketchRepository {
+
+        final Map<SketchKey, byte[]> sketches = new ConcurrentHashMap<>();
+        volatile Runnable onFirstLoad;
+        volatile LocalDateTime firstPageView;
+
+        InMemorySketchRepository() {
+            super(null);
+        }
+
+        @Override
+        public Map<SketchKey, byte[]> load(List<SketchKey> keys) {
+            Map<SketchKey, byte[]> loaded = new ConcurrentHashMap<>();
+            for (SketchKey key : keys) {
+                byte[] sketch = sketches.get(key);
+                if (sketch != null) loaded.put(key, sketch);
+            }
+            Runnable hook = onFirstLoad;
+            onFirstLoad = null;
+            if (hook != null) hook.run();
+            return loaded;
+        }
+
+        @Override
+        public void upsert(Map<SketchKey, byte[]> merged) {
+            sketches.putAll(merged);
+        }
+
+        @Override
+        public void forEach(String metric, List<BucketRange> ranges, SketchHandler handler) {
+            sketches.forEach((key, sketch) -> {
+                for (BucketRange range : ranges) {
+                    if (key.metric().equals(metric) && range.granularity().equals(key.granularity())
+                            && !key.bucketStart().isBefore(range.from()) && key.bucketStart().isBefore(range.to())) {
+                        handler.accept(key.value(), sketch);
+                    }
+                }
+            });
+        }
+
+        @Override
+        public boolean isEmpty() {
+            return sketches.isEmpty();
+        }
+
+        @Override
+        public LocalDateTime findFirstPageViewBefore(LocalDateTime cutoff) {
+            return firstPageView;
+        }
+
+        @Override
+        public void forEachPageView(LocalDateTime from, LocalDateTime to, PageViewHandler handler) {
+            if (!firstPageView.isBefore(from) && firstPageView.isBefore(to)) {
+                handler.accept(firstPageView, "backfilled", "203.0.113.1", "/");
+            }
+        }
+    }
+}
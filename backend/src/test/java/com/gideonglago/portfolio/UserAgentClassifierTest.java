@@ -0,0 +1,64 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.services.UserAgentClassifier;
+import com.gideonglago.portfolio.services.UserAgentInfo;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class UserAgentClassifierTest {
+
+    private final UserAgentClassifier classifier = new UserAgentClassifier(16);
+
+    @Test
+    void classify_ShouldPreferEdgeOverChromeAndSafari() {
+        UserAgentInfo info = classifier.classify("Mozilla/5.0 (Windows NT 10.0; Win64; x64) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36 Edg/124.0.2478.80");
+
+        assertThat(info).isEqualTo(new UserAgentInfo("Desktop", "Edge", "124", "Windows"));
+    }
+
+    @Test
+    void classify_ShouldPreferChromeOverSafari() {
+        UserAgentInfo info = classifier.classify("Mozilla/5.0 (Macintosh; Intel Mac OS X 10_15_7) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36");
+
+        assertThat(info).isEqualTo(new UserAgentInfo("Desktop", "Chrome", "124", "macOS"));
+    }
+
+    @Test
+    void classify_ShouldTakeSafariVersionFromVersionToken() {
+        UserAgentInfo info = classifier.classify("Mozilla/5.0 (iPhone; CPU iPhone OS 17_4 like Mac OS X) AppleWebKit/605.1.15 "
+                + "(KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1");
+
+        assertThat(info).isEqualTo(new UserAgentInfo("Mobile", "Safari", "17", "iOS"));
+    }
+
+    @Test
+    void classify_ShouldDetectTablets() {
+        assertThat(classifier.classify("Mozilla/5.0 (iPad; CPU OS 17_4 like Mac OS X) AppleWebKit/605.1.15 "
+                + "(KHTML, like Gecko) Version/17.4 Mobile/15E148 Safari/604.1").device()).isEqualTo("Tablet");
+        assertThat(classifier.classify("Mozilla/5.0 (Linux; Android 13; SM-X700) AppleWebKit/537.36 "
+                + "(KHTML, like Gecko) Chrome/124.0.0.0 Safari/537.36"))
+                .isEqualTo(new UserAgentInfo("Tablet", "Chrome", "124", "Android"));
+    }
+
+    @Test
+    void classify_ShouldDetectFirefoxOnLinux() {
+        assertThat(classifier.classify("Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0"))
+                .isEqualTo(new UserAgentInfo("Desktop", "Firefox", "125", "Linux"));
+    }
+
+    @Test
+    void classify_ShouldReturnCachedInstanceForRepeatedAgent() {
+        String userAgent = "Mozilla/5.0 (X11; Linux x86_64; rv:125.0) Gecko/20100101 Firefox/125.0";
+
+        assertThat(classifier.classify(userAgent)).isSameAs(classifier.classify(userAgent));
+    }
+
+    @Test
+    void classify_ShouldLeaveEveryFieldNullWithoutAUserAgent() {
+        assertThat(classifier.classify(null)).isEqualTo(new UserAgentInfo(null, null, null, null));
+        assertThat(classifier.classify("")).isEqualTo(new UserAgentInfo(null, null, null, null));
+    }
+}
@@ -0,0 +1,43 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.repositories.UserSessionBatchRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionStatus;
+
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UserSessionBatchRepositoryTest {
+
+    @Test
+    void updateSessions_ShouldRollBackTheSessionUpdatesWhenThePageInsertFails() {
+        JdbcTemplate jdbcTemplate = mock(JdbcTemplate.class);
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        TransactionStatus status = mock(TransactionStatus.class);
+        when(transactionManager.getTransaction(any())).thenReturn(status);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList()))
+            .thenThrow(new DataIntegrityViolationException("value too long for type character varying(255)"));
+
+        UserSessionBatchRepository repository = new UserSessionBatchRepository(jdbcTemplate, transactionManager);
+        List<UserSessionBatchRepository.SessionUpdate> updates = List.of(
+            new UserSessionBatchRepository.SessionUpdate(7L, 2, 0, "/projects", null, 30L, List.of("/projects")));
+
+        assertThatThrownBy(() -> repository.updateSessions(updates)).isInstanceOf(DataIntegrityViolationException.class);
+        // Both batches ran in the transaction, which is rolled back rather than leaving the counters committed
+        verify(jdbcTemplate).batchUpdate(anyString(), any(List.class), anyInt(), any());
+        verify(transactionManager).rollback(status);
+        verify(transactionManager, never()).commit(any());
+    }
+}
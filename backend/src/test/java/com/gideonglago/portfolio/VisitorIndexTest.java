@@ -0,0 +1,67 @@
+package com.gideonglago.portfolio;
+
+import com.gideonglago.portfolio.repositories.VisitorFingerprintRepository;
+import com.gideonglago.portfolio.services.VisitorIndex;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+class VisitorIndexTest {
+
+    private static final String SALT = "test-salt-0123456789abcdef";
+
+    private final VisitorFingerprintRepository repository = mock(VisitorFingerprintRepository.class);
+
+    @Test
+    void constructor_ShouldRejectAMissingOrShortSalt() {
+        assertThatThrownBy(() -> new VisitorIndex(repository, "", 1000, 0.01))
+            .isInstanceOf(IllegalStateException.class)
+            .hasMessageContaining("VISITOR_FINGERPRINT_SALT");
+        assertThatThrownBy(() -> new VisitorIndex(repository, "short", 1000, 0.01))
+            .isInstanceOf(IllegalStateException.class);
+    }
+
+    @Test
+    void recordVisit_ShouldSeeAnIpAgainOnlyAfterItsFirstVisit() {
+        VisitorIndex index = new VisitorIndex(repository, SALT, 1000, 0.01);
+        // An empty filter answers for the table
+        index.rebuild();
+        LocalDateTime now = LocalDateTime.now();
+
+        assertThat(index.recordVisit("203.0.113.7", now)).isFalse();
+        assertThat(index.recordVisit("203.0.113.7", now.plusMinutes(1))).isTrue();
+        assertThat(index.recordVisit("203.0.113.8", now)).isFalse();
+        verify(repository, never()).exists(anyLong());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void flush_ShouldStoreSaltedFingerprintsThatDependOnTheSalt() {
+        LocalDateTime now = LocalDateTime.now();
+        VisitorIndex first = new VisitorIndex(repository, SALT, 1000, 0.01);
+        VisitorIndex second = new VisitorIndex(repository, SALT + "-rotated", 1000, 0.01);
+        first.recordVisit("203.0.113.7", now);
+        second.recordVisit("203.0.113.7", now);
+
+        ArgumentCaptor<Map<Long, LocalDateTime>> written = ArgumentCaptor.forClass(Map.class);
+        first.flush();
+        second.flush();
+        verify(repository, times(2)).upsert(written.capture());
+
+        Map<Long, LocalDateTime> a = written.getAllValues().get(0);
+        Map<Long, LocalDateTime> b = written.getAllValues().get(1);
+        assertThat(a).hasSize(1).containsValue(now);
+        assertThat(b).hasSize(1);
+        assertThat(a.keySet()).doesNotContainAnyElementsOf(b.keySet());
+    }
+}
@@ -79,15 +79,20 @@ export function useAnalytics() {
   ) => {
     if (!sessionId || !pathname) return;
     
+    // The backend rejects text fields longer than its 255-character columns
     const clickData: ClickEventData = {
       sessionId,
       page: pathname,
       elementType,
-      elementId,
-      elementText,
-      targetUrl,
-      x: event?.clientX,
-      y: event?.clientY
+      elementId: elementId?.slice(0, 255),
+      elementText: elementText?.slice(0, 255),
+      targetUrl: targetUrl?.slice(0, 255),
+      // Document coordinates, so a click is binned where it is on the page however far it was scrolled;
+      // the heatmap bins x/y relative to the document size sent alongside
+      x: event ? Math.round(event.pageX) : undefined,
+      y: event ? Math.round(event.pageY) : undefined,
+      documentWidth: event ? document.documentElement.scrollWidth : undefined,
+      documentHeight: event ? document.documentElement.scrollHeight : undefined
     };
     
     trackClick(clickData);
@@ -150,13 +150,18 @@ export interface ClickEventData {
   elementId?: string;
   elementText?: string;
   targetUrl?: string;
+  // Position in the document (pageX/pageY) and the document's scroll size it is relative to
   x?: number;
   y?: number;
+  documentWidth?: number;
+  documentHeight?: number;
 }
 
 export interface AnalyticsStats {
   totalPageViews: number;
   uniqueVisitors: number;
+  uniqueVisitorsError: number;
+  uniqueIps: number;
   totalClicks: number;
   avgSessionDuration: number;
   avgPageViewsPerSession: number;
@@ -170,8 +175,11 @@ export interface AnalyticsStats {
   browserStats: Array<{ label: string; value: number }>;
   countryStats: Array<{ label: string; value: number }>;
   referrerStats: Array<{ label: string; value: number }>;
+  pageUniqueVisitors: Array<{ label: string; value: number }>;
   pageViewTrend: Array<{ time: string; count: number }>;
   clickTrend: Array<{ time: string; count: number }>;
+  partial?: boolean;
+  partialMetrics?: string[];
 }
 
 export interface ActivityItem {
@@ -183,42 +191,88 @@ export interface ActivityItem {
   country?: string;
 }
 
-// POST track page view
-export async function trackPageView(data: PageViewData): Promise<boolean> {
-  try {
-    const response = await fetch(`${API_BASE_URL}/analytics/track/pageview`, {
-      method: 'POST',
-      headers: {
-        'Content-Type': 'application/json',
-      },
-      body: JSON.stringify(data),
-    });
-    
-    return response.ok;
-  } catch (error) {
-    console.error('Error tracking page view:', error);
-    return false;
+// Tracking events are queued and sent together to /analytics/track/batch, either when
+// BATCH_MAX_EVENTS are waiting or BATCH_DELAY_MS after the first one. When the page is hidden
+// the queue is handed to navigator.sendBeacon so the last events survive navigation.
+const BATCH_MAX_EVENTS = 20;
+const BATCH_DELAY_MS = 2000;
+
+type TrackedEvent =
+  | ({ type: 'pageview' } & PageViewData)
+  | ({ type: 'click' } & ClickEventData);
+
+let queuedEvents: TrackedEvent[] = [];
+let flushTimer: ReturnType<typeof setTimeout> | null = null;
+let unloadHandlerInstalled = false;
+
+function enqueueEvent(event: TrackedEvent): boolean {
+  if (typeof window === 'undefined') return false;
+
+  installUnloadHandler();
+  queuedEvents.push(event);
+  if (queuedEvents.length >= BATCH_MAX_EVENTS) {
+    void flushTrackedEvents();
+  } else if (!flushTimer) {
+    flushTimer = setTimeout(() => void flushTrackedEvents(), BATCH_DELAY_MS);
   }
+  return true;
 }
 
-// POST track click event
-export async function trackClick(data: ClickEventData): Promise<boolean> {
+function installUnloadHandler() {
+  if (unloadHandlerInstalled) return;
+  unloadHandlerInstalled = true;
+
+  const flushOnHide = () => void flushTrackedEvents(true);
+  window.addEventListener('pagehide', flushOnHide);
+  document.addEventListener('visibilitychange', () => {
+    if (document.visibilityState === 'hidden') flushOnHide();
+  });
+}
+
+// POST queued events; beacon mode sends them as text/plain, which needs no CORS preflight
+export async function flushTrackedEvents(beacon: boolean = false): Promise<boolean> {
+  if (flushTimer) {
+    clearTimeout(flushTimer);
+    flushTimer = null;
+  }
+  if (queuedEvents.length === 0) return true;
+
+  const events = queuedEvents;
+  queuedEvents = [];
+  const body = JSON.stringify(events);
+  const url = `${API_BASE_URL}/analytics/track/batch`;
+
+  if (beacon && typeof navigator !== 'undefined' && navigator.sendBeacon) {
+    return navigator.sendBeacon(url, body);
+  }
+
   try {
-    const response = await fetch(`${API_BASE_URL}/analytics/track/click`, {
+    const response = await fetch(url, {
       method: 'POST',
       headers: {
         'Content-Type': 'application/json',
       },
-      body: JSON.stringify(data),
+      body,
+      keepalive: true,
     });
-    
+
     return response.ok;
   } catch (error) {
-    console.error('Error tracking click:', error);
+    console.error('Error tracking events:', error);
     return false;
   }
 }
 
+// Queue a page view
+export async function trackPageView(data: PageViewData): Promise<boolean> {
+  return enqueueEvent({ type: 'pageview', ...data });
+}
+
+// Queue a click event
+export async function trackClick(data: ClickEventData): Promise<boolean> {
+  return enqueueEvent({ type: 'click', ...data });
+}
+
 // GET analytics dashboard stats
 export async function getAnalyticsStats(period: string = 'week'): Promise<AnalyticsStats | null> {
   try {
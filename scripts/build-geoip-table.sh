@@ -0,0 +1,23 @@
+#!/bin/sh
+# Converts an IPv4 range CSV (first_ip,last_ip,country,city) into the binary table that
+# analytics.geo.database points at, using the backend jar. Write to a new file and rename it over the
+# configured one; the backend picks the change up within analytics.geo.reload-check-ms.
+#
+#   scripts/build-geoip-table.sh ranges.csv ranges.bin
+#   BACKEND_JAR=/app/app.jar scripts/build-geoip-table.sh ranges.csv ranges.bin
+set -e
+
+if [ "$#" -ne 2 ]; then
+    echo "Usage: $0 <ranges.csv> <output.bin>" >&2
+    exit 2
+fi
+
+JAR="${BACKEND_JAR:-$(dirname "$0")/../backend/target/backend-0.0.1-SNAPSHOT.jar}"
+if [ ! -f "$JAR" ]; then
+    echo "Backend jar not found at $JAR; build it with ./mvnw package or set BACKEND_JAR" >&2
+    exit 1
+fi
+
+# PropertiesLauncher runs another main class from the Spring Boot jar without starting the application
+exec java -cp "$JAR" -Dloader.main=com.gideonglago.portfolio.tools.GeoIpTableTool \
+    org.springframework.boot.loader.launch.PropertiesLauncher "$1" "$2"